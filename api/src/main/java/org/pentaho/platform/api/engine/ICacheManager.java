@@ -44,6 +44,18 @@ public interface ICacheManager extends ILogoutListener {
    */
   public void killSessionCaches();
 
+  /**
+   * Returns the number of entries currently held in the session-specific cache for the given session. Intended for
+   * monitoring; implementations that do not track entries per session return <code>-1</code>.
+   * 
+   * @param session
+   *          The users IPentahoSession
+   * @return the number of cached entries for the session, or <code>-1</code> if not tracked
+   */
+  public default int getSessionCacheEntryCount( IPentahoSession session ) {
+    return -1;
+  }
+
   /**
    * Puts an object in the session-specific cache. The session specified must have a valid session id.
    * <p>
@@ -139,6 +151,18 @@ public interface ICacheManager extends ILogoutListener {
 
   public boolean addCacheRegion( String region, Properties cacheProperties );
 
+  /**
+   * Atomically creates the region unless it already exists. Unlike <code>addCacheRegion</code>, concurrent callers
+   * racing to create the same region never build it twice and no warning is logged when the region already exists.
+   * 
+   * @param region
+   *          The name of the region
+   * @return true if the region exists after the call
+   */
+  public default boolean addCacheRegionIfAbsent( String region ) {
+    return cacheEnabled( region ) || addCacheRegion( region );
+  }
+
   /**
    * Clears any data for the specified for a specific region(For example region could be session, global etc)
    * 
@@ -0,0 +1,66 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.api.engine.security.authorization;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.pentaho.platform.api.engine.security.authorization.decisions.IAuthorizationDecision;
+
+import java.util.function.Function;
+
+/**
+ * The {@code IAuthorizationDecisionCache} interface represents a bounded cache of top-level authorization decisions.
+ * <p>
+ * Decisions are cached per authorization request, effective roles of the request's principal and authorization
+ * options. Components which change the inputs of authorization rules, such as role bindings, must call
+ * {@link #invalidateAll()} after applying their changes.
+ */
+public interface IAuthorizationDecisionCache {
+  /**
+   * Gets the cached decision for a given authorization request and options, evaluating and caching it, if needed.
+   *
+   * @param request The authorization request.
+   * @param options The authorization options.
+   * @param evaluator The function which evaluates the request when there is no cached decision.
+   * @return The authorization decision, never {@code null}.
+   */
+  @NonNull
+  IAuthorizationDecision get( @NonNull IAuthorizationRequest request,
+                              @NonNull IAuthorizationOptions options,
+                              @NonNull Function<IAuthorizationRequest, IAuthorizationDecision> evaluator );
+
+  /**
+   * Removes all cached decisions.
+   */
+  void invalidateAll();
+
+  /**
+   * Gets the number of requests which were served from the cache.
+   *
+   * @return The hit count.
+   */
+  long getHitCount();
+
+  /**
+   * Gets the number of requests which had to be evaluated.
+   *
+   * @return The miss count.
+   */
+  long getMissCount();
+
+  /**
+   * Gets the approximate number of cached decisions.
+   *
+   * @return The number of cached decisions.
+   */
+  long size();
+}
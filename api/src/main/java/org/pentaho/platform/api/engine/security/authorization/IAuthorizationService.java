@@ -15,6 +15,9 @@ package org.pentaho.platform.api.engine.security.authorization;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import org.pentaho.platform.api.engine.security.authorization.decisions.IAuthorizationDecision;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -48,6 +51,44 @@ public interface IAuthorizationService {
     return authorize( request, IAuthorizationOptions.getDefault() );
   }
 
+  /**
+   * Authorizes a collection of authorization requests, with specific options.
+   * <p>
+   * This method is meant for callers which need the decisions for many actions or resources at once, such as when
+   * determining the allowed actions of a user. Implementations may evaluate all requests in a single authorization
+   * process, sharing the results of common sub-authorizations.
+   * <p>
+   * The default implementation authorizes each request independently.
+   *
+   * @param requests The authorization requests.
+   * @param options The authorization options.
+   * @return The evaluation decisions, in the same order as the given requests, never {@code null}.
+   */
+  @NonNull
+  default List<IAuthorizationDecision> authorizeAll( @NonNull Collection<? extends IAuthorizationRequest> requests,
+                                                     @NonNull IAuthorizationOptions options ) {
+    List<IAuthorizationDecision> decisions = new ArrayList<>( requests.size() );
+    for ( IAuthorizationRequest request : requests ) {
+      decisions.add( authorize( request, options ) );
+    }
+
+    return decisions;
+  }
+
+  /**
+   * Authorizes a collection of authorization requests, with default options.
+   * <p>
+   * This method is a convenience method equivalent to calling:
+   * {@code instance.authorizeAll( requests, AuthorizationOptions.getDefault() )}.
+   *
+   * @param requests The authorization requests.
+   * @return The evaluation decisions, in the same order as the given requests, never {@code null}.
+   */
+  @NonNull
+  default List<IAuthorizationDecision> authorizeAll( @NonNull Collection<? extends IAuthorizationRequest> requests ) {
+    return authorizeAll( requests, IAuthorizationOptions.getDefault() );
+  }
+
   /**
    * Authorizes a given authorization request using a specific rule, with specific options.
    *
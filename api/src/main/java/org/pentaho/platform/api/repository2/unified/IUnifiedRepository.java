@@ -14,7 +14,9 @@
 package org.pentaho.platform.api.repository2.unified;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -551,6 +553,33 @@ public interface IUnifiedRepository {
    */
   boolean hasAccess( final String path, final EnumSet<RepositoryFilePermission> permissions );
 
+  /**
+   * Checks the permissions of the user on several files or folders at once. Implementations should resolve each path
+   * once and evaluate all the permissions from a single evaluation of its access control.
+   * 
+   * @param paths
+   *          paths to files or folders
+   * @param permissions
+   *          permissions to check, each on its own
+   * @return for each path, in order, the permissions the user has among those given; no permission if the path does
+   *         not exist
+   */
+  default Map<String, EnumSet<RepositoryFilePermission>> hasAccess( final List<String> paths,
+      final EnumSet<RepositoryFilePermission> permissions ) {
+    Map<String, EnumSet<RepositoryFilePermission>> access =
+        new LinkedHashMap<String, EnumSet<RepositoryFilePermission>>();
+    for ( String path : paths ) {
+      EnumSet<RepositoryFilePermission> granted = EnumSet.noneOf( RepositoryFilePermission.class );
+      for ( RepositoryFilePermission permission : permissions ) {
+        if ( hasAccess( path, EnumSet.of( permission ) ) ) {
+          granted.add( permission );
+        }
+      }
+      access.put( path, granted );
+    }
+    return access;
+  }
+
   /**
    * Returns the list of access control entries (ACEs) that will be used to make an access control decision. This
    * method is equivalent to {@code getEffectiveAces(fileId, false)}.
@@ -667,6 +696,29 @@ public interface IUnifiedRepository {
    */
   Map<String, Serializable> getFileMetadata( final Serializable fileId );
 
+  /**
+   * Returns the files (not folders) of this folder having the given metadata value. Implementations should answer
+   * with an indexed query rather than reading the metadata of each child.
+   * 
+   * @param folderId
+   *          id of folder whose files to search
+   * @param metadataKey
+   *          metadata key
+   * @param metadataValue
+   *          metadata value the files must have
+   * @return list of matching files (never {@code null})
+   */
+  default List<RepositoryFile> findFilesByMetadata( final Serializable folderId, final String metadataKey,
+      final String metadataValue ) {
+    List<RepositoryFile> files = new ArrayList<RepositoryFile>();
+    for ( RepositoryFile child : getChildren( folderId ) ) {
+      if ( !child.isFolder() && metadataValue.equals( getFileMetadata( child.getId() ).get( metadataKey ) ) ) {
+        files.add( child );
+      }
+    }
+    return files;
+  }
+
   /**
    * Returns a list of characters which cannot be used in file/folder names. These characters must be escaped using
    * percent-encoding. Callers may safely cache this value. Note that it is the responsibility of the
@@ -36,6 +36,9 @@ public class RepositoryRequest {
   private FILES_TYPE_FILTER types = FILES_TYPE_FILTER.FILES_FOLDERS;
   private Set<String> includeMemberSet = null;
   private Set<String> excludeMemberSet = null;
+  private int offset = 0;
+  private int limit = -1;
+  private SORT_KEY sortBy = null;
 
   private transient String workingFilter; // temporary storage of remaining filter text as it is parsed.
   private String childNodeFilter;
@@ -132,6 +135,13 @@ public class RepositoryRequest {
     }
   }
 
+  /**
+   * The key the children of a folder are sorted by, when they are fetched one page at a time.
+   */
+  public enum SORT_KEY {
+    NAME, TITLE
+  }
+
   private void setLegacyFilter( String legacyFilter ) {
     this.workingFilter = ( legacyFilter == null || StringUtils.isEmpty( legacyFilter ) ) ? "*" : legacyFilter;
     parseOutFileTypes();
@@ -248,4 +258,48 @@ public class RepositoryRequest {
     this.includeAcls = includeAcls;
   }
 
+  public int getOffset() {
+    return offset;
+  }
+
+  /**
+   * @param offset
+   *     Number of children to skip before the first one returned.  Default is 0.
+   */
+  public void setOffset( int offset ) {
+    this.offset = Math.max( offset, 0 );
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * @param limit
+   *     Maximum number of children to return; a negative value returns all of them.  Default is -1.
+   */
+  public void setLimit( int limit ) {
+    this.limit = limit;
+  }
+
+  public SORT_KEY getSortBy() {
+    return sortBy;
+  }
+
+  /**
+   * @param sortBy
+   *     Key the children are sorted by before the page is taken.  Sorting by {@link SORT_KEY#NAME} avoids reading the
+   *     localized titles of the children.  Default is null, which sorts by title.
+   */
+  public void setSortBy( SORT_KEY sortBy ) {
+    this.sortBy = sortBy;
+  }
+
+  /**
+   * @return true when the children are to be sorted and sliced by the repository, rather than all returned.
+   */
+  public boolean isPaged() {
+    return offset > 0 || limit >= 0 || sortBy != null;
+  }
+
 }
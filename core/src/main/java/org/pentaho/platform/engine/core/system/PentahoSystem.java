@@ -20,6 +20,7 @@ import org.dom4j.DocumentHelper;
 import org.dom4j.Element;
 import org.dom4j.Node;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceListener;
 import org.pentaho.platform.api.engine.IActionParameter;
 import org.pentaho.platform.api.engine.IApplicationContext;
 import org.pentaho.platform.api.engine.ICacheManager;
@@ -147,6 +148,12 @@ public class PentahoSystem {
 
   private static OSGIRuntimeObjectFactory runtimeObjectFactory;
 
+  private static BundleContext bundleContext;
+
+  // services published in OSGI are candidates of the runtime and OSGI object factories
+  private static final ServiceListener resolutionCacheInvalidator =
+    event -> aggObjectFactory.invalidateResolutionCache();
+
   private static final Map initializationFailureDetailsMap = Collections.synchronizedMap( new HashMap() );
 
   private static final List<String> RequiredObjects = new ArrayList<>();
@@ -245,8 +252,23 @@ public class PentahoSystem {
     aggObjectFactory.registerObjectFactory( PentahoSystem.runtimeObjectFactory );
   }
 
-  public static void setBundleContext( BundleContext context ) {
+  public static synchronized void setBundleContext( BundleContext context ) {
     runtimeObjectFactory.setBundleContext( context );
+    if ( bundleContext == context ) {
+      return;
+    }
+    if ( bundleContext != null ) {
+      try {
+        bundleContext.removeServiceListener( resolutionCacheInvalidator );
+      } catch ( IllegalStateException e ) {
+        // the old context is no longer valid, its listeners are already gone
+      }
+    }
+    bundleContext = context;
+    if ( context != null ) {
+      context.addServiceListener( resolutionCacheInvalidator );
+    }
+    aggObjectFactory.invalidateResolutionCache();
   }
 
   public static boolean init() {
@@ -1528,7 +1550,7 @@ public class PentahoSystem {
    */
   public static <T> IPentahoObjectRegistration registerReference( IPentahoObjectReference<T> reference,
       IPentahoRegistrableObjectFactory.Types types ) {
-    return PentahoSystem.runtimeObjectFactory.registerReference( reference, types );
+    return invalidatingRegistration( PentahoSystem.runtimeObjectFactory.registerReference( reference, types ) );
   }
 
   /**
@@ -1538,7 +1560,7 @@ public class PentahoSystem {
    * @param obj
    */
   public static IPentahoObjectRegistration registerObject( Object obj ) {
-    return PentahoSystem.runtimeObjectFactory.registerObject( obj );
+    return invalidatingRegistration( PentahoSystem.runtimeObjectFactory.registerObject( obj ) );
   }
 
   /**
@@ -1549,7 +1571,7 @@ public class PentahoSystem {
    * @param types
    */
   public static IPentahoObjectRegistration registerObject( Object obj, IPentahoRegistrableObjectFactory.Types types ) {
-    return PentahoSystem.runtimeObjectFactory.registerObject( obj, types );
+    return invalidatingRegistration( PentahoSystem.runtimeObjectFactory.registerObject( obj, types ) );
   }
 
   /**
@@ -1559,7 +1581,7 @@ public class PentahoSystem {
    * @param <T>
    */
   public static <T> IPentahoObjectRegistration registerReference( IPentahoObjectReference<T> reference ) {
-    return PentahoSystem.runtimeObjectFactory.registerReference( reference );
+    return invalidatingRegistration( PentahoSystem.runtimeObjectFactory.registerReference( reference ) );
   }
 
   /**
@@ -1570,7 +1592,7 @@ public class PentahoSystem {
    * @param classes
    */
   public static <T> IPentahoObjectRegistration registerObject( T obj, Class<?>... classes ) {
-    return PentahoSystem.runtimeObjectFactory.registerObject( obj, classes );
+    return invalidatingRegistration( PentahoSystem.runtimeObjectFactory.registerObject( obj, classes ) );
   }
 
   /**
@@ -1583,6 +1605,21 @@ public class PentahoSystem {
    */
   public static <T> IPentahoObjectRegistration registerReference( IPentahoObjectReference<T> reference,
       Class<?>... classes ) {
-    return PentahoSystem.runtimeObjectFactory.registerReference( reference, classes );
+    return invalidatingRegistration( PentahoSystem.runtimeObjectFactory.registerReference( reference, classes ) );
+  }
+
+  /**
+   * Drops the objects resolved by the object factory when a registration is added, and when it is removed, as either
+   * may change which object is returned for a type.
+   */
+  private static IPentahoObjectRegistration invalidatingRegistration( final IPentahoObjectRegistration registration ) {
+    aggObjectFactory.invalidateResolutionCache();
+    return new IPentahoObjectRegistration() {
+      @Override
+      public void remove() {
+        registration.remove();
+        aggObjectFactory.invalidateResolutionCache();
+      }
+    };
   }
 }
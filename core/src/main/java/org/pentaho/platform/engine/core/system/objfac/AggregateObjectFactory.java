@@ -13,11 +13,13 @@
 
 package org.pentaho.platform.engine.core.system.objfac;
 
+import org.pentaho.platform.api.engine.IPentahoInitializer;
 import org.pentaho.platform.api.engine.IPentahoObjectFactory;
 import org.pentaho.platform.api.engine.IPentahoObjectReference;
 import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.engine.ObjectFactoryException;
 import org.pentaho.platform.engine.core.messages.Messages;
+import org.pentaho.platform.engine.core.system.objfac.references.SingletonPentahoObjectReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,6 +31,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -52,6 +57,16 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
   private Lock writeLock = factoryLock.writeLock();
   private Lock readLock = factoryLock.readLock();
 
+  private static final String SCOPE = "scope";
+  private static final String SINGLETON_SCOPE = "singleton";
+
+  /**
+   * Singleton objects already resolved by type, so that repeated lookups of the same type do not query every factory.
+   * Entries are dropped whenever the set of candidates may have changed, see {@link #invalidateResolutionCache()}.
+   */
+  private final ConcurrentMap<Class<?>, Object> resolutionCache = new ConcurrentHashMap<>();
+  private final AtomicLong resolutionGeneration = new AtomicLong();
+
   public AggregateObjectFactory() {
 
   }
@@ -63,6 +78,7 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
     } finally {
       writeLock.unlock();
     }
+    invalidateResolutionCache();
     if ( primary ) {
       primaryFactory = fact;
     }
@@ -85,9 +101,19 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
       return factories.remove( factory );
     } finally {
       writeLock.unlock();
+      invalidateResolutionCache();
     }
   }
 
+  /**
+   * Drops the cached resolutions of singleton objects. Must be called whenever an object is registered in, or removed
+   * from, one of the aggregated factories without going through this class.
+   */
+  public void invalidateResolutionCache() {
+    resolutionGeneration.incrementAndGet();
+    resolutionCache.clear();
+  }
+
   public Set<IPentahoObjectFactory> getFactories() {
     return new HashSet( factories );
   }
@@ -253,13 +279,31 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
   }
 
   @Override
+  @SuppressWarnings( "unchecked" )
   public <T> T get( Class<T> clazz, IPentahoSession session, Map<String, String> properties )
       throws ObjectFactoryException {
 
+    boolean cacheable = properties == null || properties.isEmpty();
+    if ( cacheable ) {
+      Object cached = resolutionCache.get( clazz );
+      if ( cached != null ) {
+        return (T) cached;
+      }
+    }
+
+    long generation = resolutionGeneration.get();
     IPentahoObjectReference<T> highestRef = this.getObjectReference( clazz, session, properties );
 
     if ( highestRef != null ) {
-      return highestRef.getObject();
+      T object = highestRef.getObject();
+      if ( cacheable && object != null && isSingleton( highestRef ) && !( object instanceof IPentahoInitializer ) ) {
+        resolutionCache.put( clazz, object );
+        // the candidates changed while resolving, so the object may not be the right one anymore
+        if ( resolutionGeneration.get() != generation ) {
+          resolutionCache.remove( clazz, object );
+        }
+      }
+      return object;
     }
     readLock.lock();
     try {
@@ -281,6 +325,9 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
 
   @Override
   public boolean objectDefined( Class<?> clazz ) {
+    if ( resolutionCache.containsKey( clazz ) ) {
+      return true;
+    }
     readLock.lock();
     try {
       for ( IPentahoObjectFactory fact : factories ) {
@@ -336,6 +383,19 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
     } finally {
       writeLock.unlock();
     }
+    invalidateResolutionCache();
+  }
+
+  /**
+   * A reference can be cached when it hands out the same object whatever the session, which is the case of singletons.
+   * Objects needing initialization with the session are not cached, as they are initialized on every retrieval.
+   */
+  private boolean isSingleton( IPentahoObjectReference<?> ref ) {
+    if ( ref instanceof SingletonPentahoObjectReference ) {
+      return true;
+    }
+    Map<String, Object> attributes = ref.getAttributes();
+    return attributes != null && SINGLETON_SCOPE.equals( attributes.get( SCOPE ) );
   }
 
   private static ReferencePriorityComparitor referencePriorityComparitor = new ReferencePriorityComparitor();
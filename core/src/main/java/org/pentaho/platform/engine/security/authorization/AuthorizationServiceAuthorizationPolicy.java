@@ -17,10 +17,13 @@ import org.pentaho.platform.api.engine.IAuthorizationAction;
 import org.pentaho.platform.api.engine.IAuthorizationPolicy;
 import org.pentaho.platform.api.engine.security.authorization.IAuthorizationActionService;
 import org.pentaho.platform.api.engine.security.authorization.IAuthorizationPrincipal;
+import org.pentaho.platform.api.engine.security.authorization.IAuthorizationRequest;
 import org.pentaho.platform.api.engine.security.authorization.IAuthorizationService;
+import org.pentaho.platform.api.engine.security.authorization.decisions.IAuthorizationDecision;
 import org.pentaho.platform.engine.security.authorization.core.AuthorizationRequest;
 import org.springframework.util.Assert;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -82,9 +85,27 @@ public class AuthorizationServiceAuthorizationPolicy implements IAuthorizationPo
 
   @Override
   public List<String> getAllowedActions( String actionNamespace ) {
-    return authorizationActionService.getActions( actionNamespace )
-      .filter( this::isAllowed )
-      .map( IAuthorizationAction::getName )
+    List<IAuthorizationAction> actions = authorizationActionService.getActions( actionNamespace )
       .collect( Collectors.toList() );
+    if ( actions.isEmpty() ) {
+      return new ArrayList<>();
+    }
+
+    // Evaluate all actions of the namespace in a single authorization process.
+    IAuthorizationPrincipal principal = getCurrentPrincipal();
+    List<IAuthorizationRequest> requests = actions.stream()
+      .map( action -> new AuthorizationRequest( principal, action ) )
+      .collect( Collectors.toList() );
+
+    List<IAuthorizationDecision> decisions = authorizationService.authorizeAll( requests );
+
+    List<String> allowedActionNames = new ArrayList<>();
+    for ( int i = 0; i < actions.size(); i++ ) {
+      if ( decisions.get( i ).isGranted() ) {
+        allowedActionNames.add( actions.get( i ).getName() );
+      }
+    }
+
+    return allowedActionNames;
   }
 }
@@ -0,0 +1,180 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.engine.security.authorization.core;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.pentaho.platform.api.engine.security.authorization.IAuthorizationDecisionCache;
+import org.pentaho.platform.api.engine.security.authorization.IAuthorizationOptions;
+import org.pentaho.platform.api.engine.security.authorization.IAuthorizationRequest;
+import org.pentaho.platform.api.engine.security.authorization.IAuthorizationRole;
+import org.pentaho.platform.api.engine.security.authorization.decisions.IAuthorizationDecision;
+import org.pentaho.platform.api.engine.security.authorization.decisions.IAuthorizationErrorDecision;
+import org.springframework.util.Assert;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * The {@code AuthorizationDecisionCache} class is a bounded, time-limited, in-memory implementation of
+ * {@link IAuthorizationDecisionCache}.
+ * <p>
+ * Authorization requests are only equal by principal name and action, so the effective roles of the principal are
+ * part of the cache key as well. Error decisions are never cached.
+ * <p>
+ * Decisions of resource rules may depend on repository state which is not tracked by this cache, so entries expire
+ * after a short time, even when no invalidation occurs.
+ */
+public class AuthorizationDecisionCache implements IAuthorizationDecisionCache {
+
+  public static final long DEFAULT_MAXIMUM_SIZE = 10000;
+
+  public static final long DEFAULT_EXPIRE_AFTER_WRITE_SECONDS = 60;
+
+  private static class CacheKey {
+    @NonNull
+    private final IAuthorizationRequest request;
+
+    @NonNull
+    private final Set<IAuthorizationRole> roles;
+
+    @NonNull
+    private final IAuthorizationOptions options;
+
+    private final int hashCode;
+
+    CacheKey( @NonNull IAuthorizationRequest request, @NonNull IAuthorizationOptions options ) {
+      this.request = request;
+      this.roles = Set.copyOf( request.getAllRoles() );
+      this.options = options;
+      this.hashCode = Objects.hash( request, roles, options );
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+
+      if ( !( o instanceof CacheKey ) ) {
+        return false;
+      }
+
+      CacheKey that = (CacheKey) o;
+      return request.equals( that.request )
+        && roles.equals( that.roles )
+        && options.equals( that.options );
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  @NonNull
+  private final Cache<CacheKey, IAuthorizationDecision> decisions;
+
+  /**
+   * Bumped by every invalidation, so that a decision evaluated before an invalidation is not cached after it.
+   */
+  private final AtomicLong generation = new AtomicLong();
+
+  private final AtomicLong hitCount = new AtomicLong();
+
+  private final AtomicLong missCount = new AtomicLong();
+
+  /**
+   * Constructs an authorization decision cache with default size and expiration limits.
+   */
+  public AuthorizationDecisionCache() {
+    this( DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRE_AFTER_WRITE_SECONDS );
+  }
+
+  /**
+   * Constructs an authorization decision cache with given size and expiration limits.
+   *
+   * @param maximumSize The maximum number of cached decisions.
+   * @param expireAfterWriteSeconds The number of seconds after which a cached decision expires.
+   */
+  public AuthorizationDecisionCache( long maximumSize, long expireAfterWriteSeconds ) {
+    Assert.isTrue( maximumSize >= 0, "Argument 'maximumSize' must not be negative" );
+    Assert.isTrue( expireAfterWriteSeconds >= 0, "Argument 'expireAfterWriteSeconds' must not be negative" );
+
+    this.decisions = CacheBuilder.newBuilder()
+      .maximumSize( maximumSize )
+      .expireAfterWrite( expireAfterWriteSeconds, TimeUnit.SECONDS )
+      .build();
+  }
+
+  @NonNull
+  @Override
+  public IAuthorizationDecision get( @NonNull IAuthorizationRequest request,
+                                     @NonNull IAuthorizationOptions options,
+                                     @NonNull Function<IAuthorizationRequest, IAuthorizationDecision> evaluator ) {
+    Assert.notNull( request, "Argument 'request' is required" );
+    Assert.notNull( options, "Argument 'options' is required" );
+    Assert.notNull( evaluator, "Argument 'evaluator' is required" );
+
+    var key = new CacheKey( request, options );
+
+    var decision = decisions.getIfPresent( key );
+    if ( decision != null ) {
+      hitCount.incrementAndGet();
+      return decision;
+    }
+
+    missCount.incrementAndGet();
+
+    // Evaluation is not done under a cache lock, as rules may re-enter the service for other requests.
+    long evaluatedGeneration = generation.get();
+    decision = Objects.requireNonNull( evaluator.apply( request ), "Evaluator must return a non-null decision" );
+    if ( !( decision instanceof IAuthorizationErrorDecision ) ) {
+      synchronized ( decisions ) {
+        // skip decisions evaluated before an invalidation
+        if ( evaluatedGeneration == generation.get() ) {
+          decisions.put( key, decision );
+        }
+      }
+    }
+
+    return decision;
+  }
+
+  @Override
+  public void invalidateAll() {
+    synchronized ( decisions ) {
+      generation.incrementAndGet();
+      decisions.invalidateAll();
+    }
+  }
+
+  @Override
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  @Override
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  @Override
+  public long size() {
+    return decisions.size();
+  }
+}
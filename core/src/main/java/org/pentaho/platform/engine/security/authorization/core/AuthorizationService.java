@@ -13,15 +13,18 @@
 package org.pentaho.platform.engine.security.authorization.core;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.pentaho.platform.api.engine.security.authorization.IAuthorizationActionService;
 import org.pentaho.platform.api.engine.security.authorization.IAuthorizationContext;
+import org.pentaho.platform.api.engine.security.authorization.IAuthorizationDecisionCache;
 import org.pentaho.platform.api.engine.security.authorization.IAuthorizationOptions;
 import org.pentaho.platform.api.engine.security.authorization.IAuthorizationRequest;
 import org.pentaho.platform.api.engine.security.authorization.IAuthorizationRule;
 import org.pentaho.platform.api.engine.security.authorization.IAuthorizationService;
 import org.pentaho.platform.api.engine.security.authorization.decisions.IAuthorizationDecision;
+import org.pentaho.platform.api.engine.security.authorization.decisions.IAuthorizationErrorDecision;
 import org.pentaho.platform.engine.security.authorization.core.decisions.AuthorizationErrorDecision;
 import org.pentaho.platform.engine.security.authorization.core.decisions.DefaultAuthorizationDecision;
 import org.pentaho.platform.engine.security.authorization.core.exceptions.AuthorizationRequestCycleException;
@@ -29,7 +32,12 @@ import org.pentaho.platform.engine.security.authorization.core.exceptions.Author
 import org.springframework.util.Assert;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -46,12 +54,18 @@ public class AuthorizationService implements IAuthorizationService {
    * decisions on the results of the evaluation for other users/actions.
    * <p>
    * The context design also allows for the service itself to be thread-safe, as each evaluation context is independent.
+   * <p>
+   * The decisions of completed requests are remembered for the lifetime of the context, so that requests which are
+   * evaluated more than once, whether as sub-authorizations or as part of a batch, are only evaluated once.
    */
   protected class AuthorizationContext implements IAuthorizationContext {
 
     @NonNull
     private final Deque<IAuthorizationRequest> pendingRequests = new ArrayDeque<>();
 
+    @NonNull
+    private final Map<IAuthorizationRequest, IAuthorizationDecision> completedDecisions = new HashMap<>();
+
     @NonNull
     private final IAuthorizationOptions options;
 
@@ -117,12 +131,26 @@ public class AuthorizationService implements IAuthorizationService {
         throw new AuthorizationRequestCycleException( pendingRequests, request );
       }
 
+      // Requests are equal by principal name, so also check the roles, in case a different principal instance is used.
+      var completedDecision = completedDecisions.get( request );
+      if ( completedDecision != null
+        && completedDecision.getRequest().getAllRoles().equals( request.getAllRoles() ) ) {
+        return completedDecision;
+      }
+
+      IAuthorizationDecision decision;
       pendingRequests.push( request );
       try {
-        return authorizeRootRule( request );
+        decision = authorizeRootRule( request );
       } finally {
         pendingRequests.pop();
       }
+
+      if ( !( decision instanceof IAuthorizationErrorDecision ) ) {
+        completedDecisions.put( request, decision );
+      }
+
+      return decision;
     }
 
     @NonNull
@@ -213,6 +241,9 @@ public class AuthorizationService implements IAuthorizationService {
   @NonNull
   private final IAuthorizationRule<? extends IAuthorizationRequest> rootRule;
 
+  @Nullable
+  private final IAuthorizationDecisionCache decisionCache;
+
   /**
    * Constructs an instance of the authorization service with a given root rule.
    *
@@ -221,18 +252,66 @@ public class AuthorizationService implements IAuthorizationService {
    */
   public AuthorizationService( @NonNull IAuthorizationActionService actionService,
                                @NonNull IAuthorizationRule<? extends IAuthorizationRequest> rootRule ) {
+    this( actionService, rootRule, null );
+  }
+
+  /**
+   * Constructs an instance of the authorization service with a given root rule and decision cache.
+   * <p>
+   * Top-level authorization decisions are served from the decision cache, when one is specified.
+   *
+   * @param actionService The service providing access to authorization actions.
+   * @param rootRule The root authorization rule.
+   * @param decisionCache The authorization decision cache, if any.
+   */
+  public AuthorizationService( @NonNull IAuthorizationActionService actionService,
+                               @NonNull IAuthorizationRule<? extends IAuthorizationRequest> rootRule,
+                               @Nullable IAuthorizationDecisionCache decisionCache ) {
     Assert.notNull( actionService, "Argument 'actionService' is required" );
     Assert.notNull( rootRule, "Argument 'rootRule' is required" );
 
     this.actionService = actionService;
     this.rootRule = rootRule;
+    this.decisionCache = decisionCache;
   }
 
   @NonNull
   @Override
   public IAuthorizationDecision authorize( @NonNull IAuthorizationRequest request,
                                            @NonNull IAuthorizationOptions options ) {
-    return createContext( options ).authorize( request );
+    if ( decisionCache == null ) {
+      return createContext( options ).authorize( request );
+    }
+
+    return decisionCache.get( request, options, r -> createContext( options ).authorize( r ) );
+  }
+
+  /**
+   * Authorizes a collection of authorization requests, with specific options.
+   * <p>
+   * All requests are evaluated in a single authorization context, so that the decisions of sub-authorizations which
+   * are common to several requests are evaluated only once.
+   *
+   * @param requests The authorization requests.
+   * @param options The authorization options.
+   * @return The evaluation decisions, in the same order as the given requests.
+   */
+  @NonNull
+  @Override
+  public List<IAuthorizationDecision> authorizeAll( @NonNull Collection<? extends IAuthorizationRequest> requests,
+                                                    @NonNull IAuthorizationOptions options ) {
+    Assert.notNull( requests, "Argument 'requests' is required" );
+
+    var context = createContext( options );
+
+    List<IAuthorizationDecision> decisions = new ArrayList<>( requests.size() );
+    for ( IAuthorizationRequest request : requests ) {
+      decisions.add( decisionCache == null
+        ? context.authorize( request )
+        : decisionCache.get( request, options, context::authorize ) );
+    }
+
+    return decisions;
   }
 
   @NonNull
@@ -276,4 +355,14 @@ public class AuthorizationService implements IAuthorizationService {
   protected IAuthorizationActionService getActionService() {
     return actionService;
   }
+
+  /**
+   * Gets the authorization decision cache.
+   *
+   * @return The decision cache, if any; {@code null}, otherwise.
+   */
+  @Nullable
+  protected IAuthorizationDecisionCache getDecisionCache() {
+    return decisionCache;
+  }
 }
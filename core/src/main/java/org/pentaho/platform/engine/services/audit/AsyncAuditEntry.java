@@ -0,0 +1,413 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services.audit;
+
+import org.apache.commons.lang.math.NumberUtils;
+import org.pentaho.platform.api.engine.AuditException;
+import org.pentaho.platform.api.engine.IApplicationContext;
+import org.pentaho.platform.api.engine.IAuditEntry;
+import org.pentaho.platform.engine.core.messages.Messages;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.util.logging.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An {@link IAuditEntry} which saves audit entries in the background, so that the threads executing actions do not
+ * wait for the audit storage.
+ * <p/>
+ * Audit entries are put in a bounded queue, drained by a single writer thread which hands them over to the delegate
+ * audit entry in batches, using {@link IBatchAuditEntry#auditBatch(List)} when the delegate supports it. A batch is
+ * written once it is full, or once the flush interval elapsed since the writer took its first entry. When the queue
+ * is full, the overflow policy decides whether the entry waits for room ({@link OverflowPolicy#BLOCK}), is discarded
+ * ({@link OverflowPolicy#DROP}) or is saved to a spill file ({@link OverflowPolicy#SPILL}), which the writer drains
+ * once the queue is empty.
+ * <p/>
+ * A batch which cannot be written is retried a few times, waiting longer after each attempt. A delegate supporting
+ * batches must write a batch as a whole or not at all; with other delegates, only the entries which were not written
+ * yet are retried. If a batch still cannot be written, it is saved to the spill file, when there is one, and written
+ * again once the spill file is next drained; otherwise it is lost.
+ * <p/>
+ * The defaults come from the {@code audit/async} settings of pentaho.xml. {@link #shutdown()} must be called to
+ * write the queued entries when the platform stops.
+ */
+public class AsyncAuditEntry implements IAuditEntry {
+
+  /**
+   * What to do with an audit entry when the queue is full.
+   */
+  public enum OverflowPolicy {
+    BLOCK, DROP, SPILL
+  }
+
+  static final String QUEUE_SIZE_SETTING = "audit/async/queue-size"; //$NON-NLS-1$
+
+  static final String BATCH_SIZE_SETTING = "audit/async/batch-size"; //$NON-NLS-1$
+
+  static final String FLUSH_INTERVAL_SETTING = "audit/async/flush-interval"; //$NON-NLS-1$
+
+  static final String OVERFLOW_POLICY_SETTING = "audit/async/overflow-policy"; //$NON-NLS-1$
+
+  static final String SPILL_FILE_SETTING = "audit/async/spill-file"; //$NON-NLS-1$
+
+  private static final int DEFAULT_QUEUE_SIZE = 10000;
+
+  private static final int DEFAULT_BATCH_SIZE = 500;
+
+  private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+
+  private static final String DEFAULT_SPILL_FILE = "system/logs/audit/audit-spill.dat"; //$NON-NLS-1$
+
+  private static final long SHUTDOWN_TIMEOUT_MILLIS = 30000;
+
+  private static final int MAX_WRITE_ATTEMPTS = 3;
+
+  private static final long RETRY_BACKOFF_MILLIS = 100;
+
+  /**
+   * How long the writer waits before draining the spill file again, once a batch read from it could not be written.
+   */
+  private static final long SPILL_RETRY_DELAY_MILLIS = 10000;
+
+  private final IAuditEntry delegate;
+
+  private final BlockingQueue<AuditEvent> queue;
+
+  private final int batchSize;
+
+  private final long flushIntervalMillis;
+
+  private final OverflowPolicy overflowPolicy;
+
+  private final AuditSpillFile spillFile;
+
+  private final AsyncAuditMetrics metrics;
+
+  private final Thread writer;
+
+  private volatile boolean running = true;
+
+  /**
+   * Held for reading while an entry is queued, and for writing when the writer is stopped, so that no entry is queued
+   * once {@link #shutdown()} has drained the queue.
+   */
+  private final ReadWriteLock shutdownLock = new ReentrantReadWriteLock();
+
+  // only used by the writer thread
+  private long spillDrainNotBefore = System.nanoTime();
+
+  /**
+   * Creates an asynchronous audit entry configured by the {@code audit/async} settings of pentaho.xml.
+   *
+   * @param delegate The audit entry saving the entries to the audit storage location.
+   */
+  public AsyncAuditEntry( final IAuditEntry delegate ) {
+    this( delegate,
+      NumberUtils.toInt( PentahoSystem.getSystemSetting( QUEUE_SIZE_SETTING, null ), DEFAULT_QUEUE_SIZE ),
+      NumberUtils.toInt( PentahoSystem.getSystemSetting( BATCH_SIZE_SETTING, null ), DEFAULT_BATCH_SIZE ),
+      NumberUtils.toLong( PentahoSystem.getSystemSetting( FLUSH_INTERVAL_SETTING, null ),
+        DEFAULT_FLUSH_INTERVAL_MILLIS ),
+      getOverflowPolicySetting(),
+      getSpillFileSetting() );
+  }
+
+  /**
+   * @param delegate            The audit entry saving the entries to the audit storage location.
+   * @param queueSize           The maximum number of entries waiting to be written.
+   * @param batchSize           The maximum number of entries written at once.
+   * @param flushIntervalMillis The maximum time an entry waits for its batch to be full, in milliseconds.
+   * @param overflowPolicy      What to do with an entry when the queue is full.
+   * @param spillFile           The file keeping the entries which did not fit in the queue or could not be written;
+   *                            required by the {@link OverflowPolicy#SPILL} policy, may be null otherwise.
+   */
+  public AsyncAuditEntry( final IAuditEntry delegate, final int queueSize, final int batchSize,
+                          final long flushIntervalMillis, final OverflowPolicy overflowPolicy, final File spillFile ) {
+    if ( overflowPolicy == OverflowPolicy.SPILL && spillFile == null ) {
+      throw new IllegalArgumentException( "A spill file is required by the SPILL overflow policy" ); //$NON-NLS-1$
+    }
+    this.delegate = delegate;
+    this.queue = new ArrayBlockingQueue<>( Math.max( 1, queueSize ) );
+    this.batchSize = Math.max( 1, batchSize );
+    this.flushIntervalMillis = Math.max( 1, flushIntervalMillis );
+    this.overflowPolicy = overflowPolicy;
+    this.spillFile = spillFile != null ? new AuditSpillFile( spillFile ) : null;
+    this.metrics = AsyncAuditMetrics.register( queue );
+
+    writer = new Thread( this::writeQueuedEntries, "audit-writer" ); //$NON-NLS-1$
+    writer.setDaemon( true );
+    writer.start();
+  }
+
+  private static OverflowPolicy getOverflowPolicySetting() {
+    String policy = PentahoSystem.getSystemSetting( OVERFLOW_POLICY_SETTING, null );
+    try {
+      return policy == null || policy.trim().isEmpty()
+        ? OverflowPolicy.BLOCK
+        : OverflowPolicy.valueOf( policy.trim().toUpperCase( Locale.ROOT ) );
+    } catch ( IllegalArgumentException e ) {
+      return OverflowPolicy.BLOCK;
+    }
+  }
+
+  private static File getSpillFileSetting() {
+    String path = PentahoSystem.getSystemSetting( SPILL_FILE_SETTING, DEFAULT_SPILL_FILE );
+    File file = new File( path );
+    IApplicationContext applicationContext = PentahoSystem.getApplicationContext();
+    if ( !file.isAbsolute() && applicationContext != null ) {
+      file = new File( applicationContext.getFileOutputPath( path ) );
+    }
+    return file;
+  }
+
+  public AsyncAuditMetrics getMetrics() {
+    return metrics;
+  }
+
+  public void auditAll( final String jobId, final String instId, final String objId, final String objType,
+      final String actor, final String messageType, final String messageName, final String messageTxtValue,
+      final BigDecimal messageNumValue, final double duration ) throws AuditException {
+
+    AuditEvent event = new AuditEvent( jobId, instId, objId, objType, actor, messageType, messageName,
+      messageTxtValue, messageNumValue, duration );
+
+    shutdownLock.readLock().lock();
+    try {
+      if ( running && writer.isAlive() ) {
+        enqueue( event );
+        return;
+      }
+    } finally {
+      shutdownLock.readLock().unlock();
+    }
+    // once shut down, or if the writer thread died, entries are written right away
+    write( Collections.singletonList( event ), new int[] { 0 } );
+  }
+
+  private void enqueue( final AuditEvent event ) throws AuditException {
+    if ( queue.offer( event ) ) {
+      metrics.recordEnqueued();
+      return;
+    }
+
+    switch ( overflowPolicy ) {
+      case DROP:
+        metrics.recordDropped();
+        break;
+      case SPILL:
+        try {
+          spillFile.append( event );
+          metrics.recordSpilled( 1 );
+        } catch ( IOException e ) {
+          throw new AuditException( Messages.getInstance().getErrorString(
+            "AUDASYNC.ERROR_0002_SPILL_FAILED", spillFile.getFile().getPath() ), e ); //$NON-NLS-1$
+        }
+        break;
+      default:
+        metrics.recordBlocked();
+        try {
+          while ( !queue.offer( event, flushIntervalMillis, TimeUnit.MILLISECONDS ) ) {
+            if ( !writer.isAlive() ) {
+              // nothing will make room in the queue any more
+              write( Collections.singletonList( event ), new int[] { 0 } );
+              return;
+            }
+          }
+          metrics.recordEnqueued();
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+          throw new AuditException( e );
+        }
+    }
+  }
+
+  /**
+   * Stops the writer thread, once the queued entries are written. Entries audited afterwards are written right away.
+   */
+  public void shutdown() {
+    shutdownLock.writeLock().lock();
+    try {
+      running = false;
+    } finally {
+      shutdownLock.writeLock().unlock();
+    }
+    try {
+      writer.join( SHUTDOWN_TIMEOUT_MILLIS );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+    // entries queued while the writer was stopping, or left by a writer which did not stop in time
+    List<AuditEvent> remaining = new ArrayList<>();
+    queue.drainTo( remaining );
+    for ( int from = 0; from < remaining.size(); from += batchSize ) {
+      flush( new ArrayList<>( remaining.subList( from, Math.min( from + batchSize, remaining.size() ) ) ) );
+    }
+    metrics.unregister();
+  }
+
+  private void writeQueuedEntries() {
+    List<AuditEvent> batch = new ArrayList<>( batchSize );
+    while ( running || !queue.isEmpty() ) {
+      try {
+        AuditEvent first = queue.poll( flushIntervalMillis, TimeUnit.MILLISECONDS );
+        if ( first != null ) {
+          batch.add( first );
+          fillBatch( batch );
+          flush( batch );
+          batch = new ArrayList<>( batchSize );
+        }
+        if ( spillFile != null && queue.isEmpty() && System.nanoTime() - spillDrainNotBefore >= 0
+          && !spillFile.isEmpty() ) {
+          drainSpillFile();
+        }
+      } catch ( InterruptedException e ) {
+        // the platform is stopping, write what is left
+        running = false;
+      }
+    }
+    if ( spillFile != null && !spillFile.isEmpty() ) {
+      drainSpillFile();
+    }
+  }
+
+  /**
+   * Adds queued entries to a batch until it is full, or until the flush interval elapsed.
+   */
+  private void fillBatch( List<AuditEvent> batch ) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( flushIntervalMillis );
+    while ( batch.size() < batchSize ) {
+      queue.drainTo( batch, batchSize - batch.size() );
+      long remaining = deadline - System.nanoTime();
+      if ( batch.size() >= batchSize || remaining <= 0 || !running ) {
+        return;
+      }
+      AuditEvent next = queue.poll( remaining, TimeUnit.NANOSECONDS );
+      if ( next == null ) {
+        return;
+      }
+      batch.add( next );
+    }
+  }
+
+  /**
+   * Writes the entries of the spill file. Once a batch cannot be written, the following ones are saved back to the
+   * spill file without trying, and the spill file is not drained again before a delay.
+   */
+  private void drainSpillFile() {
+    boolean[] failed = { false };
+    try {
+      spillFile.drain( batchSize, batch -> {
+        if ( failed[ 0 ] ) {
+          spill( batch );
+        } else {
+          failed[ 0 ] = !flush( batch );
+        }
+      } );
+    } catch ( IOException e ) {
+      Logger.error( getClass().getName(), Messages.getInstance().getErrorString(
+        "AUDASYNC.ERROR_0003_DRAIN_FAILED", spillFile.getFile().getPath() ), e ); //$NON-NLS-1$
+    }
+    if ( failed[ 0 ] ) {
+      spillDrainNotBefore = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( SPILL_RETRY_DELAY_MILLIS );
+    }
+  }
+
+  /**
+   * Writes a batch, retrying with an exponential backoff when the write fails. A batch which still cannot be written
+   * is saved to the spill file, when there is one.
+   *
+   * @return Whether the batch was written.
+   */
+  private boolean flush( List<AuditEvent> batch ) {
+    long backoffMillis = RETRY_BACKOFF_MILLIS;
+    int[] written = { 0 };
+    for ( int attempt = 1; ; attempt++ ) {
+      long start = System.nanoTime();
+      try {
+        write( batch, written );
+        metrics.recordFlush( batch.size(), true, System.nanoTime() - start );
+        return true;
+      } catch ( RuntimeException e ) {
+        metrics.recordFlush( batch.size(), false, System.nanoTime() - start );
+        if ( attempt >= MAX_WRITE_ATTEMPTS || !sleep( backoffMillis ) ) {
+          List<AuditEvent> unwritten = new ArrayList<>( batch.subList( written[ 0 ], batch.size() ) );
+          Logger.error( getClass().getName(), Messages.getInstance().getErrorString(
+            "AUDASYNC.ERROR_0001_WRITE_FAILED", String.valueOf( unwritten.size() ) ), e ); //$NON-NLS-1$
+          spill( unwritten );
+          return false;
+        }
+        backoffMillis *= 2;
+      }
+    }
+  }
+
+  /**
+   * Saves a batch which could not be written to the spill file, or counts it as lost when there is none.
+   */
+  private void spill( List<AuditEvent> batch ) {
+    if ( spillFile != null ) {
+      try {
+        spillFile.append( batch );
+        metrics.recordSpilled( batch.size() );
+        return;
+      } catch ( IOException e ) {
+        Logger.error( getClass().getName(), Messages.getInstance().getErrorString(
+          "AUDASYNC.ERROR_0002_SPILL_FAILED", spillFile.getFile().getPath() ), e ); //$NON-NLS-1$
+      }
+    }
+    metrics.recordLost( batch.size() );
+  }
+
+  /**
+   * @return false if the thread was interrupted, as the platform is stopping.
+   */
+  private static boolean sleep( long millis ) {
+    try {
+      Thread.sleep( millis );
+      return true;
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Writes the entries which were not written yet.
+   *
+   * @param written The number of entries already written, updated as entries are written one at a time.
+   */
+  private void write( List<AuditEvent> events, int[] written ) throws AuditException {
+    if ( delegate instanceof IBatchAuditEntry ) {
+      ( (IBatchAuditEntry) delegate ).auditBatch( events );
+      written[ 0 ] = events.size();
+      return;
+    }
+    for ( ; written[ 0 ] < events.size(); written[ 0 ]++ ) {
+      AuditEvent event = events.get( written[ 0 ] );
+      delegate.auditAll( event.getJobId(), event.getInstId(), event.getObjId(), event.getObjType(),
+        event.getActor(), event.getMessageType(), event.getMessageName(), event.getMessageTxtValue(),
+        event.getMessageNumValue(), event.getDuration() );
+    }
+  }
+}
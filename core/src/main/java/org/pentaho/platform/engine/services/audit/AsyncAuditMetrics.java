@@ -0,0 +1,231 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services.audit;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the metrics of an {@link AsyncAuditEntry}, including the depth of its queue and the time spent writing
+ * batches of audit entries.
+ */
+public class AsyncAuditMetrics {
+
+  private static final List<AsyncAuditMetrics> allMetrics = new CopyOnWriteArrayList<>();
+
+  private final BlockingQueue<AuditEvent> queue;
+
+  private final AtomicLong enqueuedCount = new AtomicLong();
+
+  private final AtomicLong writtenCount = new AtomicLong();
+
+  private final AtomicLong failedCount = new AtomicLong();
+
+  private final AtomicLong failedFlushCount = new AtomicLong();
+
+  private final AtomicLong blockedCount = new AtomicLong();
+
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  private final AtomicLong spilledCount = new AtomicLong();
+
+  private final AtomicLong flushCount = new AtomicLong();
+
+  private final AtomicLong flushNanos = new AtomicLong();
+
+  private final AtomicLong maxFlushNanos = new AtomicLong();
+
+  AsyncAuditMetrics( BlockingQueue<AuditEvent> queue ) {
+    this.queue = queue;
+  }
+
+  static AsyncAuditMetrics register( BlockingQueue<AuditEvent> queue ) {
+    AsyncAuditMetrics metrics = new AsyncAuditMetrics( queue );
+    allMetrics.add( metrics );
+    return metrics;
+  }
+
+  void unregister() {
+    allMetrics.remove( this );
+  }
+
+  /**
+   * Gets the metrics of all asynchronous audit entries.
+   *
+   * @return An unmodifiable view of the metrics of all asynchronous audit entries.
+   */
+  public static Collection<AsyncAuditMetrics> getAll() {
+    return Collections.unmodifiableCollection( allMetrics );
+  }
+
+  void recordEnqueued() {
+    enqueuedCount.incrementAndGet();
+  }
+
+  /**
+   * Records an entry which had to wait for room in the full queue.
+   */
+  void recordBlocked() {
+    blockedCount.incrementAndGet();
+  }
+
+  void recordDropped() {
+    droppedCount.incrementAndGet();
+  }
+
+  void recordSpilled( int count ) {
+    spilledCount.addAndGet( count );
+  }
+
+  /**
+   * Records entries which could not be written nor saved to the spill file.
+   */
+  void recordLost( int count ) {
+    failedCount.addAndGet( count );
+  }
+
+  /**
+   * Records an attempt to write a batch of entries.
+   *
+   * @param size       The number of entries in the batch.
+   * @param succeeded  Whether the entries were written; a failed attempt is retried or the entries are spilled.
+   * @param flushNanos The time spent writing the batch, in nanoseconds.
+   */
+  void recordFlush( int size, boolean succeeded, long flushNanos ) {
+    flushCount.incrementAndGet();
+    if ( succeeded ) {
+      writtenCount.addAndGet( size );
+    } else {
+      failedFlushCount.incrementAndGet();
+    }
+    this.flushNanos.addAndGet( flushNanos );
+    maxFlushNanos.accumulateAndGet( flushNanos, Math::max );
+  }
+
+  /**
+   * Takes a point-in-time snapshot of the metrics.
+   *
+   * @return The metrics snapshot.
+   */
+  public Snapshot getSnapshot() {
+    Snapshot snapshot = new Snapshot();
+    snapshot.queueDepth = queue.size();
+    snapshot.queueCapacity = queue.size() + queue.remainingCapacity();
+    snapshot.enqueuedCount = enqueuedCount.get();
+    snapshot.writtenCount = writtenCount.get();
+    snapshot.failedCount = failedCount.get();
+    snapshot.failedFlushCount = failedFlushCount.get();
+    snapshot.blockedCount = blockedCount.get();
+    snapshot.droppedCount = droppedCount.get();
+    snapshot.spilledCount = spilledCount.get();
+    snapshot.flushCount = flushCount.get();
+    snapshot.meanFlushMillis = snapshot.flushCount == 0
+      ? 0
+      : TimeUnit.NANOSECONDS.toMicros( flushNanos.get() ) / 1000d / snapshot.flushCount;
+    snapshot.maxFlushMillis = TimeUnit.NANOSECONDS.toMillis( maxFlushNanos.get() );
+    return snapshot;
+  }
+
+  /**
+   * A point-in-time snapshot of the metrics of an asynchronous audit entry.
+   */
+  public static class Snapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int queueDepth;
+    private int queueCapacity;
+    private long enqueuedCount;
+    private long writtenCount;
+    private long failedCount;
+    private long failedFlushCount;
+    private long blockedCount;
+    private long droppedCount;
+    private long spilledCount;
+    private long flushCount;
+    private double meanFlushMillis;
+    private long maxFlushMillis;
+
+    /**
+     * Gets the number of entries waiting to be written.
+     */
+    public int getQueueDepth() {
+      return queueDepth;
+    }
+
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    public long getEnqueuedCount() {
+      return enqueuedCount;
+    }
+
+    public long getWrittenCount() {
+      return writtenCount;
+    }
+
+    /**
+     * Gets the number of entries which could not be written nor saved to the spill file, and were lost.
+     */
+    public long getFailedCount() {
+      return failedCount;
+    }
+
+    /**
+     * Gets the number of attempts to write a batch which failed, including the ones retried.
+     */
+    public long getFailedFlushCount() {
+      return failedFlushCount;
+    }
+
+    /**
+     * Gets the number of entries which had to wait for room in the full queue.
+     */
+    public long getBlockedCount() {
+      return blockedCount;
+    }
+
+    /**
+     * Gets the number of entries discarded because the queue was full.
+     */
+    public long getDroppedCount() {
+      return droppedCount;
+    }
+
+    /**
+     * Gets the number of entries saved to the spill file because the queue was full or they could not be written.
+     */
+    public long getSpilledCount() {
+      return spilledCount;
+    }
+
+    public long getFlushCount() {
+      return flushCount;
+    }
+
+    public double getMeanFlushMillis() {
+      return meanFlushMillis;
+    }
+
+    public long getMaxFlushMillis() {
+      return maxFlushMillis;
+    }
+  }
+}
@@ -14,7 +14,6 @@
 package org.pentaho.platform.engine.services.audit;
 
 import org.pentaho.platform.api.engine.AuditException;
-import org.pentaho.platform.api.engine.IAuditEntry;
 import org.pentaho.platform.engine.core.messages.Messages;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.util.logging.Logger;
@@ -26,7 +25,9 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 /**
  * @author mbatchel
@@ -34,7 +35,7 @@ import java.util.Date;
  *         TODO To change the template for this generated type comment go to Window - Preferences - Java - Code
  *         Style - Code Templates
  */
-public class AuditFileEntry implements IAuditEntry {
+public class AuditFileEntry implements IBatchAuditEntry {
   private static final String auditDirPath = "system/logs/audit"; //$NON-NLS-1$
 
   private static final String auditFileName = PentahoSystem.getSystemSetting(
@@ -62,39 +63,49 @@ public class AuditFileEntry implements IAuditEntry {
     }
   }
 
-  public synchronized void auditAll( final String jobId, final String instId, final String objId, final String objType,
+  public void auditAll( final String jobId, final String instId, final String objId, final String objType,
       final String actor, final String messageType, final String messageName, final String messageTxtValue,
       final BigDecimal messageNumValue, final double duration ) throws AuditException {
 
-    if ( AuditFileEntry.auditFile == null ) {
+    auditBatch( Collections.singletonList( new AuditEvent( jobId, instId, objId, objType, actor, messageType,
+      messageName, messageTxtValue, messageNumValue, duration ) ) );
+  }
+
+  /**
+   * Appends the audit entries to the audit file, opening it once for all of them.
+   */
+  public synchronized void auditBatch( final List<AuditEvent> events ) throws AuditException {
+
+    if ( AuditFileEntry.auditFile == null || events.isEmpty() ) {
       return;
     }
     try {
       BufferedWriter fw = new BufferedWriter( new FileWriter( AuditFileEntry.auditFile, true ) );
       try {
-        Date dt = new Date();
-        fw.write( AuditFileEntry.auditDateFormat.format( dt ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( jobId ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( instId ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( objId ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( objType ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( actor ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( messageType ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( messageName ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( messageTxtValue ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( messageNumValue ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( duration ) );
-        fw.newLine();
+        for ( AuditEvent event : events ) {
+          fw.write( AuditFileEntry.auditDateFormat.format( new Date( event.getTimestamp() ) ) );
+          fw.write( AuditFileEntry.ID_SEPARATOR );
+          fw.write( getWritable( event.getJobId() ) );
+          fw.write( AuditFileEntry.ID_SEPARATOR );
+          fw.write( getWritable( event.getInstId() ) );
+          fw.write( AuditFileEntry.ID_SEPARATOR );
+          fw.write( getWritable( event.getObjId() ) );
+          fw.write( AuditFileEntry.ID_SEPARATOR );
+          fw.write( getWritable( event.getObjType() ) );
+          fw.write( AuditFileEntry.ID_SEPARATOR );
+          fw.write( getWritable( event.getActor() ) );
+          fw.write( AuditFileEntry.ID_SEPARATOR );
+          fw.write( getWritable( event.getMessageType() ) );
+          fw.write( AuditFileEntry.ID_SEPARATOR );
+          fw.write( getWritable( event.getMessageName() ) );
+          fw.write( AuditFileEntry.ID_SEPARATOR );
+          fw.write( getWritable( event.getMessageTxtValue() ) );
+          fw.write( AuditFileEntry.ID_SEPARATOR );
+          fw.write( getWritable( event.getMessageNumValue() ) );
+          fw.write( AuditFileEntry.ID_SEPARATOR );
+          fw.write( getWritable( event.getDuration() ) );
+          fw.newLine();
+        }
       } finally {
         fw.flush();
         fw.close();
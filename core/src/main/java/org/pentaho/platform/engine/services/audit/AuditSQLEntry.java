@@ -14,7 +14,6 @@
 package org.pentaho.platform.engine.services.audit;
 
 import org.pentaho.platform.api.engine.AuditException;
-import org.pentaho.platform.api.engine.IAuditEntry;
 import org.pentaho.platform.engine.core.audit.AuditHelper;
 import org.pentaho.platform.engine.core.messages.Messages;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
@@ -28,14 +27,16 @@ import java.sql.Types;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.Timestamp;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * @author mbatchel
  * 
  */
-public class AuditSQLEntry implements IAuditEntry {
+public class AuditSQLEntry implements IBatchAuditEntry {
   private static AuditConnection audc;
 
   private Map<String, String> columnsSizeMap;
@@ -128,24 +129,43 @@ public class AuditSQLEntry implements IAuditEntry {
       final String actor, final String messageType, final String messageName, final String messageTxtValue,
       final BigDecimal messageNumValue, final double duration ) throws AuditException {
 
+    auditBatch( Collections.singletonList( new AuditEvent( jobId, instId, objId, objType, actor, messageType,
+      messageName, messageTxtValue, messageNumValue, duration ) ) );
+  }
+
+  /**
+   * Inserts the audit entries with a single JDBC batch, using one connection and one statement. A batch of many
+   * entries is inserted in a single transaction, so that a batch which fails part-way leaves no entries behind that
+   * would be inserted again when the batch is retried.
+   */
+  public void auditBatch( final List<AuditEvent> events ) throws AuditException {
+    if ( events.isEmpty() ) {
+      return;
+    }
+
     Connection con = null;
     try {
-      con = AuditSQLEntry.audc.getAuditConnection();
+      con = getAuditConnection();
+      boolean transaction = events.size() > 1 && con.getAutoCommit();
       try {
+        if ( transaction ) {
+          con.setAutoCommit( false );
+        }
         PreparedStatement stmt = con.prepareStatement( AuditSQLEntry.INSERT_STMT );
         try {
-          setString( stmt, 1, jobId );
-          setString( stmt, 2, instId );
-          setString( stmt, 3, objId );
-          setString( stmt, 4, objType );
-          setString( stmt, 5, actor );
-          setString( stmt, 6, messageType );
-          setString( stmt, 7, messageName );
-          setObject( stmt, 8, messageTxtValue );
-          setBigDec( stmt, 9, messageNumValue );
-          setBigDec( stmt, 10, BigDecimal.valueOf( duration ) );
-          stmt.setTimestamp( 11, new Timestamp( System.currentTimeMillis() ) );
-          stmt.executeUpdate();
+          if ( events.size() == 1 ) {
+            setParameters( stmt, events.get( 0 ) );
+            stmt.executeUpdate();
+          } else {
+            for ( AuditEvent event : events ) {
+              setParameters( stmt, event );
+              stmt.addBatch();
+            }
+            stmt.executeBatch();
+            if ( transaction ) {
+              con.commit();
+            }
+          }
         } catch ( SQLException ex ) {
           Logger.error( this.getClass().getName(), ex.getMessage(), ex );
           try {
@@ -158,18 +178,42 @@ public class AuditSQLEntry implements IAuditEntry {
           stmt.close();
         }
       } finally {
-        con.close();
+        try {
+          if ( transaction ) {
+            con.setAutoCommit( true );
+          }
+        } finally {
+          con.close();
+        }
       }
     } catch ( SQLException ex ) {
       throw new AuditException( ex );
     }
   }
 
+  Connection getAuditConnection() throws SQLException {
+    return AuditSQLEntry.audc.getAuditConnection();
+  }
+
+  private void setParameters( final PreparedStatement stmt, final AuditEvent event ) throws SQLException {
+    setString( stmt, 1, event.getJobId() );
+    setString( stmt, 2, event.getInstId() );
+    setString( stmt, 3, event.getObjId() );
+    setString( stmt, 4, event.getObjType() );
+    setString( stmt, 5, event.getActor() );
+    setString( stmt, 6, event.getMessageType() );
+    setString( stmt, 7, event.getMessageName() );
+    setObject( stmt, 8, event.getMessageTxtValue() );
+    setBigDec( stmt, 9, event.getMessageNumValue() );
+    setBigDec( stmt, 10, BigDecimal.valueOf( event.getDuration() ) );
+    stmt.setTimestamp( 11, new Timestamp( event.getTimestamp() ) );
+  }
+
   private Map<String, String> getColumnsSizeMap() {
     if ( columnsSizeMap == null && TABLE_NAME != null ) {
       Connection con = null;
       try {
-        con = AuditSQLEntry.audc.getAuditConnection();
+        con = getAuditConnection();
         ResultSet columns = getColumnsMetadata( con, TABLE_NAME );
         if ( columns != null ) {
           columnsSizeMap = new HashMap<>();
@@ -0,0 +1,173 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services.audit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A file keeping the audit entries which did not fit in the queue of an {@link AsyncAuditEntry}, until they are
+ * written. Entries are appended by any thread, and drained by the writer thread.
+ * <p/>
+ * While being drained, the entries are moved to a second file, which is only deleted once all its entries were
+ * handed over; if the server stops in the meantime, they are drained again on the next run.
+ */
+class AuditSpillFile {
+
+  private static final String DRAINING_SUFFIX = ".draining"; //$NON-NLS-1$
+
+  private final File file;
+
+  private final File drainingFile;
+
+  AuditSpillFile( File file ) {
+    this.file = file;
+    this.drainingFile = new File( file.getPath() + DRAINING_SUFFIX );
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  void append( AuditEvent event ) throws IOException {
+    append( Collections.singletonList( event ) );
+  }
+
+  synchronized void append( List<AuditEvent> events ) throws IOException {
+    File dir = file.getParentFile();
+    if ( dir != null && !dir.exists() ) {
+      dir.mkdirs();
+    }
+    try ( DataOutputStream out =
+            new DataOutputStream( new BufferedOutputStream( new FileOutputStream( file, true ) ) ) ) {
+      for ( AuditEvent event : events ) {
+        append( out, event );
+      }
+    }
+  }
+
+  private static void append( DataOutputStream out, AuditEvent event ) throws IOException {
+    writeString( out, event.getJobId() );
+    writeString( out, event.getInstId() );
+    writeString( out, event.getObjId() );
+    writeString( out, event.getObjType() );
+    writeString( out, event.getActor() );
+    writeString( out, event.getMessageType() );
+    writeString( out, event.getMessageName() );
+    writeString( out, event.getMessageTxtValue() );
+    writeString( out, event.getMessageNumValue() != null ? event.getMessageNumValue().toString() : null );
+    out.writeDouble( event.getDuration() );
+    out.writeLong( event.getTimestamp() );
+  }
+
+  boolean isEmpty() {
+    return !file.exists() && !drainingFile.exists();
+  }
+
+  /**
+   * Hands the entries of the file over, in batches, and empties the file.
+   *
+   * @param batchSize The maximum number of entries of a batch.
+   * @param consumer  The consumer of the batches.
+   * @return The number of entries handed over.
+   */
+  int drain( int batchSize, Consumer<List<AuditEvent>> consumer ) throws IOException {
+    // entries left over by a previous drain come first
+    int count = drainingFile.exists() ? drain( drainingFile, batchSize, consumer ) : 0;
+    synchronized ( this ) {
+      if ( !file.exists() ) {
+        return count;
+      }
+      if ( !file.renameTo( drainingFile ) ) {
+        throw new IOException( "Could not rename " + file + " to " + drainingFile ); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+    }
+    return count + drain( drainingFile, batchSize, consumer );
+  }
+
+  private int drain( File source, int batchSize, Consumer<List<AuditEvent>> consumer ) throws IOException {
+    int count = 0;
+    List<AuditEvent> batch = new ArrayList<>( batchSize );
+    try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( source ) ) ) ) {
+      while ( true ) {
+        AuditEvent event;
+        try {
+          String jobId = readString( in );
+          String instId = readString( in );
+          String objId = readString( in );
+          String objType = readString( in );
+          String actor = readString( in );
+          String messageType = readString( in );
+          String messageName = readString( in );
+          String messageTxtValue = readString( in );
+          String messageNumValue = readString( in );
+          double duration = in.readDouble();
+          long timestamp = in.readLong();
+          event = new AuditEvent( jobId, instId, objId, objType, actor, messageType, messageName, messageTxtValue,
+            messageNumValue != null ? new BigDecimal( messageNumValue ) : null, duration, timestamp );
+        } catch ( EOFException e ) {
+          // the end of the file, or an entry which was being written when the server stopped
+          break;
+        }
+        batch.add( event );
+        if ( batch.size() >= batchSize ) {
+          consumer.accept( batch );
+          count += batch.size();
+          batch = new ArrayList<>( batchSize );
+        }
+      }
+    }
+    if ( !batch.isEmpty() ) {
+      consumer.accept( batch );
+      count += batch.size();
+    }
+    if ( !source.delete() ) {
+      throw new IOException( "Could not delete " + source ); //$NON-NLS-1$
+    }
+    return count;
+  }
+
+  private static void writeString( DataOutputStream out, String value ) throws IOException {
+    if ( value == null ) {
+      out.writeInt( -1 );
+    } else {
+      byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+      out.writeInt( bytes.length );
+      out.write( bytes );
+    }
+  }
+
+  private static String readString( DataInputStream in ) throws IOException {
+    int length = in.readInt();
+    if ( length < 0 ) {
+      return null;
+    }
+    byte[] bytes = new byte[ length ];
+    in.readFully( bytes );
+    return new String( bytes, StandardCharsets.UTF_8 );
+  }
+}
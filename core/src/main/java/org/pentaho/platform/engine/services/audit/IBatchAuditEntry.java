@@ -0,0 +1,34 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services.audit;
+
+import org.pentaho.platform.api.engine.AuditException;
+import org.pentaho.platform.api.engine.IAuditEntry;
+
+import java.util.List;
+
+/**
+ * An {@link IAuditEntry} able to save many audit entries at once, more efficiently than one at a time.
+ */
+public interface IBatchAuditEntry extends IAuditEntry {
+
+  /**
+   * Saves audit entries to the audit storage location, in the given order. The entries are saved as a whole or not at
+   * all, so that a batch which could not be saved can be saved again without duplicating entries.
+   *
+   * @param events The audit entries.
+   * @throws AuditException If the entries could not be saved.
+   */
+  void auditBatch( List<AuditEvent> events ) throws AuditException;
+}
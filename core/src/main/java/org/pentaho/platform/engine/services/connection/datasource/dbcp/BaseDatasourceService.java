@@ -54,9 +54,7 @@ public abstract class BaseDatasourceService implements IDBDatasourceService {
   public DataSource getDataSource( String dsName ) throws DBDatasourceServiceException {
     DataSource dataSource = null;
     if ( cacheManager != null ) {
-      if ( !cacheManager.cacheEnabled( IDBDatasourceService.JDBC_DATASOURCE ) ) {
-        cacheManager.addCacheRegion( IDBDatasourceService.JDBC_DATASOURCE );
-      }
+      cacheManager.addCacheRegionIfAbsent( IDBDatasourceService.JDBC_DATASOURCE );
       Object foundDs = cacheManager.getFromRegionCache( IDBDatasourceService.JDBC_DATASOURCE, dsName );
       if ( foundDs != null ) {
         dataSource = (DataSource) foundDs;
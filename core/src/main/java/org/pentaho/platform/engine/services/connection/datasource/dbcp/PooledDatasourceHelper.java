@@ -22,6 +22,7 @@ import org.apache.commons.dbcp2.PoolingDataSource;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.math.NumberUtils;
+import org.apache.commons.pool2.impl.AbandonedConfig;
 import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.pentaho.database.DatabaseDialectException;
 import org.pentaho.database.IDatabaseDialect;
@@ -46,14 +47,47 @@ import javax.naming.InitialContext;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
 import java.time.Duration;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 public class PooledDatasourceHelper {
 
+  private static final String PRE_POPULATE_POOL_SETTING = "dbcp-defaults/pre-populate-pool";
+
+  private static final String PRE_POPULATE_POOL_ASYNC_SETTING = "dbcp-defaults/pre-populate-pool-async";
+
+  private static final String PRE_POPULATE_POOL_THREADS_SETTING = "dbcp-defaults/pre-populate-pool-threads";
+
+  private static final int DEFAULT_PRE_POPULATE_POOL_THREADS = 4;
+
+  /**
+   * Connection pooling property, and {@code dbcp-defaults} setting, holding the number of seconds after which a
+   * borrowed connection which was not returned to the pool is considered abandoned and is reclaimed.
+   * Abandoned connection detection is disabled when not positive.
+   */
+  public static final String REMOVE_ABANDONED_TIMEOUT_KEY = "removeAbandonedTimeout"; //$NON-NLS-1$
+
+  private static final String REMOVE_ABANDONED_TIMEOUT_SETTING = "dbcp-defaults/remove-abandoned-timeout";
+
+  /**
+   * Time, in milliseconds, taken to pre-populate the pool of each datasource, by datasource name.
+   */
+  private static final Map<String, Long> poolWarmUpTimes = new ConcurrentHashMap<>();
+
+  private static ExecutorService poolWarmUpExecutor;
+
   public static PoolingDataSource setupPooledDataSource( IDatabaseConnection databaseConnection )
     throws DBDatasourceServiceException {
     return setupPooledDataSource( databaseConnection, true );
@@ -93,14 +127,25 @@ public class PooledDatasourceHelper {
   }
 
   public static GenericObjectPool createGenericPool( IDatabaseConnection databaseConnection, IDatabaseDialect dialect, Map<String, String> attributes ) throws Exception {
+    return createMeteredPool( databaseConnection, dialect, attributes ).getPool();
+  }
+
+  /**
+   * Creates a pool like {@link #createGenericPool}, returning the metrics it was registered with, so that callers
+   * recording borrows do not look them up by name and pick up those of a pool created concurrently for the same
+   * datasource.
+   *
+   * @return The metrics of the new pool; {@link PooledDatasourceMetrics#getPool()} gives the pool itself.
+   */
+  public static PooledDatasourceMetrics createMeteredPool( IDatabaseConnection databaseConnection,
+                                                           IDatabaseDialect dialect, Map<String, String> attributes )
+    throws Exception {
     // As the name says, this is a generic pool; it returns basic Object-class objects.
     GenericObjectPool pool = initializeObjectPool( attributes, databaseConnection, dialect );
-    configurePool( databaseConnection, dialect, attributes, pool );
-
-    return pool;
+    return configurePool( databaseConnection, dialect, attributes, pool );
   }
 
-  private static void configurePool( IDatabaseConnection databaseConnection, IDatabaseDialect dialect, Map<String, String> attributes, GenericObjectPool pool ) throws Exception {
+  private static PooledDatasourceMetrics configurePool( IDatabaseConnection databaseConnection, IDatabaseDialect dialect, Map<String, String> attributes, GenericObjectPool pool ) throws Exception {
     // Configure Max Connections
     pool.setMaxTotal( databaseConnection.getMaximumPoolSize() );
 
@@ -124,29 +169,145 @@ public class PooledDatasourceHelper {
     pool.setTestWhileIdle( testWhileIdle );
     setTimeBetweenEvictionRunsMillis( attributes, pool );
 
+    PooledDatasourceMetrics metrics = PooledDatasourceMetrics.register( databaseConnection.getName(), pool );
+    configureAbandonedConnections( attributes, pool, metrics );
+
     Logger.debug( PooledDatasourceHelper.class, "Pool defaults to " + maxActiveConnection + " max active/"
         + maxIdleConnection + "max idle" + "with " + waitTime + "wait time"//$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
         + " idle connections." ); //$NON-NLS-1$
 
     // initialize the pool to X connections
-    prePopulatePool( pool, maxIdleConnection, databaseConnection.getInitialPoolSize() );
+    prePopulatePool( pool, maxIdleConnection, databaseConnection.getInitialPoolSize(), databaseConnection.getName() );
 
     Logger.debug( PooledDatasourceHelper.class, "Pool now has " + pool.getNumActive() + " active/"
         + pool.getNumIdle() + " idle connections." ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    return metrics;
   }
 
-  private static void prePopulatePool( GenericObjectPool pool, int maxIdleConnection, int initialPoolSize ) throws Exception {
-    String prePopulatePoolStr = PentahoSystem.getSystemSetting( "dbcp-defaults/pre-populate-pool", null );
+  private static void configureAbandonedConnections( Map<String, String> attributes, GenericObjectPool pool,
+                                                    PooledDatasourceMetrics metrics ) {
+    int removeAbandonedTimeout = getIntegerPropertyValue( attributes, REMOVE_ABANDONED_TIMEOUT_KEY,
+      PentahoSystem.getSystemSetting( REMOVE_ABANDONED_TIMEOUT_SETTING, "0" ) );
+    if ( removeAbandonedTimeout <= 0 ) {
+      return;
+    }
+
+    // The pool captures the call stack of each borrow, and logs it when reclaiming an abandoned connection.
+    AbandonedConfig abandonedConfig = new AbandonedConfig();
+    abandonedConfig.setRemoveAbandonedTimeout( Duration.ofSeconds( removeAbandonedTimeout ) );
+    abandonedConfig.setRemoveAbandonedOnBorrow( true );
+    abandonedConfig.setRemoveAbandonedOnMaintenance( true );
+    abandonedConfig.setLogAbandoned( true );
+    abandonedConfig.setLogWriter( metrics.createAbandonedLogWriter() );
+    pool.setAbandonedConfig( abandonedConfig );
+  }
+
+  private static void prePopulatePool( GenericObjectPool pool, int maxIdleConnection, int initialPoolSize,
+                                       String datasourceName ) throws Exception {
+    String prePopulatePoolStr = PentahoSystem.getSystemSetting( PRE_POPULATE_POOL_SETTING, null );
     if ( Boolean.parseBoolean( prePopulatePoolStr ) || initialPoolSize > 0 ) {
       int initialConnections = Math.max( maxIdleConnection, initialPoolSize );
+
+      String prePopulatePoolAsyncStr = PentahoSystem.getSystemSetting( PRE_POPULATE_POOL_ASYNC_SETTING, null );
+      if ( Boolean.parseBoolean( prePopulatePoolAsyncStr ) ) {
+        prePopulatePoolAsync( pool, initialConnections, datasourceName );
+        return;
+      }
+
+      long start = System.nanoTime();
       for ( int i = 0; i < initialConnections; ++i ) {
         pool.addObject();
       }
+      recordPoolWarmUpTime( datasourceName, start );
+
       Logger.debug( PooledDatasourceHelper.class,
               "Pool has been pre-populated with " + initialConnections + " connections" );
     }
   }
 
+  /**
+   * Pre-populates a pool in the background, creating its connections in parallel on the shared warm-up executor.
+   * The pool can be used while it is being pre-populated; borrowers simply create connections on demand, as usual.
+   */
+  @VisibleForTesting
+  static CompletableFuture<Void> prePopulatePoolAsync( GenericObjectPool pool, int initialConnections,
+                                                       String datasourceName ) {
+    long start = System.nanoTime();
+    ExecutorService executor = getPoolWarmUpExecutor();
+
+    CompletableFuture<?>[] connectionFutures = new CompletableFuture<?>[ initialConnections ];
+    for ( int i = 0; i < initialConnections; ++i ) {
+      connectionFutures[ i ] = CompletableFuture.runAsync( () -> {
+        try {
+          pool.addObject();
+        } catch ( Exception e ) {
+          throw new CompletionException( e );
+        }
+      }, executor );
+    }
+
+    return CompletableFuture.allOf( connectionFutures ).whenComplete( ( result, error ) -> {
+      long elapsedMillis = recordPoolWarmUpTime( datasourceName, start );
+      if ( error != null ) {
+        Logger.warn( PooledDatasourceHelper.class, "Pool of datasource " + datasourceName
+          + " could not be fully pre-populated after " + elapsedMillis + " ms", error ); //$NON-NLS-1$ //$NON-NLS-2$
+      } else {
+        Logger.info( PooledDatasourceHelper.class, "Pool of datasource " + datasourceName + " has been pre-populated with "
+          + initialConnections + " connections in " + elapsedMillis + " ms" ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+      }
+    } );
+  }
+
+  private static long recordPoolWarmUpTime( String datasourceName, long start ) {
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+    if ( datasourceName != null ) {
+      poolWarmUpTimes.put( datasourceName, elapsedMillis );
+    }
+
+    return elapsedMillis;
+  }
+
+  /**
+   * Gets the time, in milliseconds, that it took to pre-populate the pool of each datasource, by datasource name.
+   * Pools which are still being pre-populated asynchronously are not included.
+   *
+   * @return An unmodifiable view of the pool warm-up times.
+   */
+  public static Map<String, Long> getPoolWarmUpTimes() {
+    return Collections.unmodifiableMap( poolWarmUpTimes );
+  }
+
+  private static synchronized ExecutorService getPoolWarmUpExecutor() {
+    if ( poolWarmUpExecutor == null ) {
+      int threads = NumberUtils.toInt( PentahoSystem.getSystemSetting( PRE_POPULATE_POOL_THREADS_SETTING, null ),
+        DEFAULT_PRE_POPULATE_POOL_THREADS );
+
+      poolWarmUpExecutor = Executors.newFixedThreadPool( Math.max( 1, threads ), new ThreadFactory() {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread( Runnable r ) {
+          Thread thread = Executors.defaultThreadFactory().newThread( r );
+          thread.setName( "pool-warm-up-" + threadNumber.incrementAndGet() ); //$NON-NLS-1$
+          thread.setDaemon( true );
+          return thread;
+        }
+      } );
+    }
+
+    return poolWarmUpExecutor;
+  }
+
+  /**
+   * Stops any pool pre-population still in progress.
+   */
+  public static synchronized void shutdownPoolWarmUp() {
+    if ( poolWarmUpExecutor != null ) {
+      poolWarmUpExecutor.shutdownNow();
+      poolWarmUpExecutor = null;
+    }
+  }
+
   private static String getValidQuery( Map<String, String> attributes ) {
     return attributes.get( IDBDatasourceService.QUERY_KEY );
   }
@@ -0,0 +1,355 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.engine.services.connection.datasource.dbcp;
+
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.pentaho.platform.api.monitoring.IMonitoringService;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.util.logging.Logger;
+
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects the usage metrics of the connection pool of a pooled datasource.
+ * <p>
+ * Besides the counters maintained by the pool itself, it records a histogram of the time spent waiting to borrow a
+ * connection, and the call stacks of the connections the pool found abandoned. Abandoned connections are reported to
+ * the {@link IMonitoringService}, when one is available, as a {@link PooledDatasourceMetricsEvent}.
+ */
+public class PooledDatasourceMetrics {
+
+  /**
+   * Upper bounds, in milliseconds, of the borrow wait time histogram buckets. A last bucket counts any longer waits.
+   */
+  static final long[] BORROW_WAIT_BUCKETS_MILLIS = { 1, 5, 10, 50, 100, 500, 1000, 5000 };
+
+  private static final int MAX_ABANDONED_STACKS = 10;
+
+  private static final Map<String, PooledDatasourceMetrics> metricsByDatasource = new ConcurrentHashMap<>();
+
+  private final String datasourceName;
+
+  private final GenericObjectPool<?> pool;
+
+  private final AtomicLongArray borrowWaitHistogram = new AtomicLongArray( BORROW_WAIT_BUCKETS_MILLIS.length + 1 );
+
+  private final AtomicLong borrowCount = new AtomicLong();
+
+  private final AtomicLong borrowWaitNanos = new AtomicLong();
+
+  private final AtomicLong borrowFailureCount = new AtomicLong();
+
+  private final AtomicLong abandonedCount = new AtomicLong();
+
+  private final Deque<String> abandonedStacks = new ArrayDeque<>();
+
+  private final long registeredTime = System.currentTimeMillis();
+
+  PooledDatasourceMetrics( String datasourceName, GenericObjectPool<?> pool ) {
+    this.datasourceName = datasourceName;
+    this.pool = pool;
+  }
+
+  // region Registry
+
+  /**
+   * Registers the pool of a datasource, replacing the metrics of any previous pool of a datasource with the same name.
+   *
+   * @param datasourceName The datasource name.
+   * @param pool The connection pool of the datasource.
+   * @return The metrics of the pool.
+   */
+  public static PooledDatasourceMetrics register( String datasourceName, GenericObjectPool<?> pool ) {
+    PooledDatasourceMetrics metrics = new PooledDatasourceMetrics( datasourceName, pool );
+    if ( datasourceName != null ) {
+      metricsByDatasource.put( datasourceName, metrics );
+    }
+    return metrics;
+  }
+
+  /**
+   * Gets the metrics of the pool of a datasource.
+   *
+   * @param datasourceName The datasource name.
+   * @return The metrics, or {@code null}, if the datasource has no registered pool.
+   */
+  public static PooledDatasourceMetrics get( String datasourceName ) {
+    return datasourceName == null ? null : metricsByDatasource.get( datasourceName );
+  }
+
+  /**
+   * Gets the metrics of the pools of all datasources.
+   *
+   * @return An unmodifiable view of the metrics of all registered pools.
+   */
+  public static Collection<PooledDatasourceMetrics> getAll() {
+    return Collections.unmodifiableCollection( metricsByDatasource.values() );
+  }
+
+  /**
+   * Unregisters the pools of all datasources.
+   */
+  public static void clear() {
+    metricsByDatasource.clear();
+  }
+  // endregion
+
+  /**
+   * Records a successful connection borrow.
+   *
+   * @param waitNanos The time spent waiting for the connection, in nanoseconds.
+   */
+  public void recordBorrow( long waitNanos ) {
+    borrowCount.incrementAndGet();
+    borrowWaitNanos.addAndGet( waitNanos );
+    borrowWaitHistogram.incrementAndGet( getBucketIndex( TimeUnit.NANOSECONDS.toMillis( waitNanos ) ) );
+  }
+
+  /**
+   * Records a failed connection borrow, such as a timeout waiting for a connection or a failure to create one.
+   */
+  public void recordBorrowFailure() {
+    borrowFailureCount.incrementAndGet();
+  }
+
+  /**
+   * Records a connection which the pool found abandoned, and reports it to the monitoring service.
+   *
+   * @param borrowStack The call stack of the code that borrowed the connection.
+   */
+  public void recordAbandoned( String borrowStack ) {
+    abandonedCount.incrementAndGet();
+    synchronized ( abandonedStacks ) {
+      if ( abandonedStacks.size() == MAX_ABANDONED_STACKS ) {
+        abandonedStacks.removeFirst();
+      }
+      abandonedStacks.addLast( borrowStack );
+    }
+
+    Logger.warn( PooledDatasourceMetrics.class, "Abandoned connection of datasource " + datasourceName
+      + " was reclaimed. Borrowed by: " + borrowStack ); //$NON-NLS-1$ //$NON-NLS-2$
+
+    IMonitoringService monitoringService = PentahoSystem.get( IMonitoringService.class );
+    if ( monitoringService != null ) {
+      monitoringService.post( new PooledDatasourceMetricsEvent( getSnapshot(), borrowStack ) );
+    }
+  }
+
+  /**
+   * Creates the writer to which the pool logs abandoned connections.
+   * The pool flushes the writer after logging the call stack of each abandoned connection.
+   *
+   * @return The abandoned connections log writer.
+   */
+  PrintWriter createAbandonedLogWriter() {
+    return new PrintWriter( new Writer() {
+      private final StringBuilder buffer = new StringBuilder();
+
+      @Override
+      public synchronized void write( char[] cbuf, int off, int len ) {
+        buffer.append( cbuf, off, len );
+      }
+
+      @Override
+      public synchronized void flush() {
+        if ( buffer.length() > 0 ) {
+          recordAbandoned( buffer.toString() );
+          buffer.setLength( 0 );
+        }
+      }
+
+      @Override
+      public void close() {
+        flush();
+      }
+    } );
+  }
+
+  static int getBucketIndex( long waitMillis ) {
+    for ( int i = 0; i < BORROW_WAIT_BUCKETS_MILLIS.length; i++ ) {
+      if ( waitMillis <= BORROW_WAIT_BUCKETS_MILLIS[ i ] ) {
+        return i;
+      }
+    }
+
+    return BORROW_WAIT_BUCKETS_MILLIS.length;
+  }
+
+  public String getDatasourceName() {
+    return datasourceName;
+  }
+
+  public GenericObjectPool<?> getPool() {
+    return pool;
+  }
+
+  /**
+   * Takes a point-in-time snapshot of the metrics.
+   *
+   * @return The metrics snapshot.
+   */
+  public Snapshot getSnapshot() {
+    Snapshot snapshot = new Snapshot();
+    snapshot.datasourceName = datasourceName;
+    snapshot.numActive = pool.getNumActive();
+    snapshot.numIdle = pool.getNumIdle();
+    snapshot.maxTotal = pool.getMaxTotal();
+    snapshot.numWaiters = pool.getNumWaiters();
+    snapshot.createdCount = pool.getCreatedCount();
+    snapshot.destroyedCount = pool.getDestroyedCount();
+    snapshot.validationFailureCount = pool.getDestroyedByBorrowValidationCount();
+    snapshot.evictedCount = pool.getDestroyedByEvictorCount();
+
+    long uptimeMillis = Math.max( 1, System.currentTimeMillis() - registeredTime );
+    snapshot.creationRatePerMinute = snapshot.createdCount * TimeUnit.MINUTES.toMillis( 1 ) / (double) uptimeMillis;
+
+    snapshot.borrowCount = borrowCount.get();
+    snapshot.borrowFailureCount = borrowFailureCount.get();
+    snapshot.meanBorrowWaitMillis = snapshot.borrowCount == 0
+      ? 0
+      : TimeUnit.NANOSECONDS.toMillis( borrowWaitNanos.get() ) / (double) snapshot.borrowCount;
+
+    Map<String, Long> histogram = new LinkedHashMap<>();
+    for ( int i = 0; i < BORROW_WAIT_BUCKETS_MILLIS.length; i++ ) {
+      histogram.put( "le" + BORROW_WAIT_BUCKETS_MILLIS[ i ] + "ms", borrowWaitHistogram.get( i ) ); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    histogram.put( "gt" + BORROW_WAIT_BUCKETS_MILLIS[ BORROW_WAIT_BUCKETS_MILLIS.length - 1 ] + "ms", //$NON-NLS-1$ //$NON-NLS-2$
+      borrowWaitHistogram.get( BORROW_WAIT_BUCKETS_MILLIS.length ) );
+    snapshot.borrowWaitHistogram = histogram;
+
+    snapshot.abandonedCount = abandonedCount.get();
+    synchronized ( abandonedStacks ) {
+      snapshot.recentAbandonedStacks = new ArrayList<>( abandonedStacks );
+    }
+
+    snapshot.warmUpMillis = datasourceName == null ? null : PooledDatasourceHelper.getPoolWarmUpTimes().get( datasourceName );
+    return snapshot;
+  }
+
+  /**
+   * A point-in-time snapshot of the metrics of a connection pool.
+   */
+  public static class Snapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private String datasourceName;
+    private int numActive;
+    private int numIdle;
+    private int maxTotal;
+    private int numWaiters;
+    private long createdCount;
+    private long destroyedCount;
+    private long validationFailureCount;
+    private long evictedCount;
+    private double creationRatePerMinute;
+    private long borrowCount;
+    private long borrowFailureCount;
+    private double meanBorrowWaitMillis;
+    private Map<String, Long> borrowWaitHistogram;
+    private long abandonedCount;
+    private List<String> recentAbandonedStacks;
+    private Long warmUpMillis;
+
+    public String getDatasourceName() {
+      return datasourceName;
+    }
+
+    public int getNumActive() {
+      return numActive;
+    }
+
+    public int getNumIdle() {
+      return numIdle;
+    }
+
+    public int getMaxTotal() {
+      return maxTotal;
+    }
+
+    public int getNumWaiters() {
+      return numWaiters;
+    }
+
+    public long getCreatedCount() {
+      return createdCount;
+    }
+
+    public long getDestroyedCount() {
+      return destroyedCount;
+    }
+
+    public long getValidationFailureCount() {
+      return validationFailureCount;
+    }
+
+    public long getEvictedCount() {
+      return evictedCount;
+    }
+
+    public double getCreationRatePerMinute() {
+      return creationRatePerMinute;
+    }
+
+    public long getBorrowCount() {
+      return borrowCount;
+    }
+
+    public long getBorrowFailureCount() {
+      return borrowFailureCount;
+    }
+
+    public double getMeanBorrowWaitMillis() {
+      return meanBorrowWaitMillis;
+    }
+
+    /**
+     * Gets the number of borrows by wait time bucket, in ascending bucket order.
+     *
+     * @return The borrow wait time histogram.
+     */
+    public Map<String, Long> getBorrowWaitHistogram() {
+      return borrowWaitHistogram;
+    }
+
+    public long getAbandonedCount() {
+      return abandonedCount;
+    }
+
+    public List<String> getRecentAbandonedStacks() {
+      return recentAbandonedStacks;
+    }
+
+    /**
+     * Gets the time it took to pre-populate the pool, in milliseconds.
+     *
+     * @return The warm-up time, or {@code null}, if the pool was not pre-populated or is still being pre-populated.
+     */
+    public Long getWarmUpMillis() {
+      return warmUpMillis;
+    }
+  }
+}
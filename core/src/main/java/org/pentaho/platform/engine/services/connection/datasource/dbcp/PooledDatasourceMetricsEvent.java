@@ -0,0 +1,62 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.engine.services.connection.datasource.dbcp;
+
+import org.pentaho.platform.api.monitoring.IMonitoringEvent;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Monitoring event carrying the metrics of the connection pool of a pooled datasource.
+ * <p>
+ * Events are posted when the pool reclaims an abandoned connection, in which case the call stack of the code that
+ * borrowed the connection is included.
+ */
+public class PooledDatasourceMetricsEvent implements IMonitoringEvent {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String id = UUID.randomUUID().toString();
+
+  private final PooledDatasourceMetrics.Snapshot metrics;
+
+  private final String abandonedBorrowStack;
+
+  public PooledDatasourceMetricsEvent( PooledDatasourceMetrics.Snapshot metrics, String abandonedBorrowStack ) {
+    this.metrics = metrics;
+    this.abandonedBorrowStack = abandonedBorrowStack;
+  }
+
+  @Override
+  public Serializable getId() {
+    return id;
+  }
+
+  public String getDatasourceName() {
+    return metrics.getDatasourceName();
+  }
+
+  public PooledDatasourceMetrics.Snapshot getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Gets the call stack of the code that borrowed the abandoned connection which triggered this event.
+   *
+   * @return The borrowing call stack, or {@code null}, if the event was not triggered by an abandoned connection.
+   */
+  public String getAbandonedBorrowStack() {
+    return abandonedBorrowStack;
+  }
+}
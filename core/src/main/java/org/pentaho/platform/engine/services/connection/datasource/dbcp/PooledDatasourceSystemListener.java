@@ -71,6 +71,9 @@ public class PooledDatasourceSystemListener extends NonPooledDatasourceSystemLis
 
     Logger.debug( this, "DatasourceSystemListener: Called for shutdown ..." ); //$NON-NLS-1$
 
+    PooledDatasourceHelper.shutdownPoolWarmUp();
+    PooledDatasourceMetrics.clear();
+
     try {
       if ( objectPools != null ) {
         for ( ObjectPool objectPool : objectPools ) {
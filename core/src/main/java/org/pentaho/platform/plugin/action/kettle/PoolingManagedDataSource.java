@@ -20,7 +20,10 @@ import org.pentaho.database.model.IDatabaseConnection;
 import org.pentaho.di.core.database.CachedManagedDataSourceInterface;
 import org.pentaho.platform.api.data.IDBDatasourceService;
 import org.pentaho.platform.engine.services.connection.datasource.dbcp.PooledDatasourceHelper;
+import org.pentaho.platform.engine.services.connection.datasource.dbcp.PooledDatasourceMetrics;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.util.ArrayList;
 import java.util.List;
@@ -32,15 +35,21 @@ public class PoolingManagedDataSource extends PoolingDataSource implements Cache
     private boolean isExpired;
     private String poolConfigHash;
     private List<String> usedBy;
+    private final PooledDatasourceMetrics metrics;
 
     public PoolingManagedDataSource( IDatabaseConnection databaseConnection, IDatabaseDialect dialect )
       throws Exception {
-        super( PooledDatasourceHelper.createGenericPool( databaseConnection, dialect,
+        this( databaseConnection, PooledDatasourceHelper.createMeteredPool( databaseConnection, dialect,
             databaseConnection.getConnectionPoolingProperties() ) );
+    }
+
+    private PoolingManagedDataSource( IDatabaseConnection databaseConnection, PooledDatasourceMetrics metrics ) {
+        super( metrics.getPool() );
 
         isExpired = false;
         poolConfigHash = "";
         usedBy = new ArrayList<>();
+        this.metrics = metrics;
 
         Map<String, String> attributes = databaseConnection.getConnectionPoolingProperties();
 
@@ -55,6 +64,19 @@ public class PoolingManagedDataSource extends PoolingDataSource implements Cache
         }
     }
 
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Connection connection = super.getConnection();
+            metrics.recordBorrow( System.nanoTime() - start );
+            return connection;
+        } catch ( SQLException | RuntimeException e ) {
+            metrics.recordBorrowFailure();
+            throw e;
+        }
+    }
+
     @Override
     public boolean isExpired() {
         return isExpired;
@@ -15,19 +15,35 @@ package org.pentaho.platform.engine.core;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
-
+import static junit.framework.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.pentaho.platform.api.engine.IMimeTypeListener;
 import org.pentaho.platform.api.engine.IPentahoDefinableObjectFactory;
+import org.pentaho.platform.api.engine.IPentahoObjectFactory;
+import org.pentaho.platform.api.engine.IPentahoObjectReference;
+import org.pentaho.platform.api.engine.IPentahoObjectRegistration;
+import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.engine.core.system.StandaloneSession;
 import org.pentaho.platform.engine.core.system.objfac.AggregateObjectFactory;
 import org.pentaho.platform.engine.core.system.objfac.StandaloneObjectFactory;
 import org.pentaho.platform.engine.core.system.objfac.StandaloneSpringPentahoObjectFactory;
+import org.pentaho.platform.engine.core.system.objfac.references.SingletonPentahoObjectReference;
 import org.pentaho.platform.engine.core.system.objfac.spring.PublishedBeanRegistry;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.support.FileSystemXmlApplicationContext;
@@ -37,11 +53,21 @@ import org.springframework.context.support.FileSystemXmlApplicationContext;
  */
 public class AggregateObjectFactoryTest {
 
+  private final List<IPentahoObjectRegistration> registrations = new ArrayList<>();
+
   @Before
   public void setup() {
     PentahoSystem.clearObjectFactory();
   }
 
+  @After
+  public void tearDown() {
+    for ( IPentahoObjectRegistration registration : registrations ) {
+      registration.remove();
+    }
+    registrations.clear();
+  }
+
   @Test
   public void testByKey() throws Exception {
 
@@ -192,4 +218,48 @@ public class AggregateObjectFactoryTest {
     assertEquals( 0, PublishedBeanRegistry.getRegisteredFactories().size() );
 
   }
+
+  @Test
+  public void testSingletonResolutionIsCached() throws Exception {
+    StandaloneSession session = new StandaloneSession();
+    MimeTypeListener listener = new MimeTypeListener();
+    IPentahoObjectFactory factory = mockFactory( listener, 0 );
+
+    AggregateObjectFactory aggFactory = new AggregateObjectFactory();
+    aggFactory.registerObjectFactory( factory );
+
+    assertSame( listener, aggFactory.get( MimeTypeListener.class, session ) );
+    assertSame( listener, aggFactory.get( MimeTypeListener.class, session ) );
+    verify( factory, times( 1 ) )
+        .getObjectReferences( eq( MimeTypeListener.class ), nullable( IPentahoSession.class ), any() );
+
+    // a new factory may define a better candidate
+    MimeTypeListener higherPriorityListener = new MimeTypeListener();
+    aggFactory.registerObjectFactory( mockFactory( higherPriorityListener, 1 ) );
+    assertSame( higherPriorityListener, aggFactory.get( MimeTypeListener.class, session ) );
+  }
+
+  @Test
+  public void testRegisteredObjectsInvalidateResolution() throws Exception {
+    MimeTypeListener listener = new MimeTypeListener();
+    IPentahoObjectRegistration registration = PentahoSystem.registerObject( listener, IMimeTypeListener.class );
+    registrations.add( registration );
+    assertSame( listener, PentahoSystem.get( IMimeTypeListener.class ) );
+
+    registrations.remove( registration );
+    registration.remove();
+    MimeTypeListener otherListener = new MimeTypeListener();
+    registrations.add( PentahoSystem.registerObject( otherListener, IMimeTypeListener.class ) );
+    assertSame( otherListener, PentahoSystem.get( IMimeTypeListener.class ) );
+  }
+
+  private IPentahoObjectFactory mockFactory( MimeTypeListener listener, int priority ) throws Exception {
+    IPentahoObjectReference<MimeTypeListener> reference = new SingletonPentahoObjectReference<>(
+        MimeTypeListener.class, listener, Collections.<String, Object>emptyMap(), priority );
+    IPentahoObjectFactory factory = mock( IPentahoObjectFactory.class );
+    when( factory.objectDefined( MimeTypeListener.class ) ).thenReturn( true );
+    doReturn( Collections.singletonList( reference ) ).when( factory )
+        .getObjectReferences( eq( MimeTypeListener.class ), nullable( IPentahoSession.class ), any() );
+    return factory;
+  }
 }
@@ -18,6 +18,8 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentMatcher;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceListener;
 import org.pentaho.platform.api.engine.IConfiguration;
 import org.pentaho.platform.api.engine.ILogger;
 import org.pentaho.platform.api.engine.IPentahoObjectFactory;
@@ -43,6 +45,8 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -168,6 +172,24 @@ public class PentahoSystemTest {
     PentahoSystem.init();
   }
 
+  @Test
+  public void testSetBundleContextMovesTheServiceListenerToTheNewContext() {
+    BundleContext oldContext = mock( BundleContext.class );
+    BundleContext newContext = mock( BundleContext.class );
+    try {
+      PentahoSystem.setBundleContext( oldContext );
+      PentahoSystem.setBundleContext( newContext );
+
+      verify( oldContext ).addServiceListener( any( ServiceListener.class ) );
+      verify( oldContext ).removeServiceListener( any( ServiceListener.class ) );
+      verify( newContext ).addServiceListener( any( ServiceListener.class ) );
+      verify( newContext, never() ).removeServiceListener( any( ServiceListener.class ) );
+    } finally {
+      PentahoSystem.setBundleContext( null );
+    }
+    verify( newContext ).removeServiceListener( any( ServiceListener.class ) );
+  }
+
   private Class<?> anyClass() {
     return argThat( new AnyClassMatcher() );
   }
@@ -23,9 +23,11 @@ import org.pentaho.platform.api.engine.security.authorization.IAuthorizationUser
 import org.pentaho.platform.api.engine.security.authorization.decisions.IAuthorizationDecision;
 import org.pentaho.platform.engine.security.authorization.core.AuthorizationRequest;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
@@ -33,6 +35,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -223,6 +226,7 @@ public class AuthorizationServiceAuthorizationPolicyTest {
 
     assertTrue( result.isEmpty() );
     verify( mockAuthorizationService, never() ).authorize( any() );
+    verify( mockAuthorizationService, never() ).authorizeAll( anyCollection() );
   }
 
   @Test
@@ -232,16 +236,18 @@ public class AuthorizationServiceAuthorizationPolicyTest {
       .thenReturn( Stream.of( mockAction1, mockAction2, mockAction3 ) );
 
     // Mock authorization decisions: action1=granted, action2=denied, action3=granted
-    when( mockAuthorizationService.authorize( any( AuthorizationRequest.class ) ) )
+    when( mockAuthorizationService.authorizeAll( anyCollection() ) )
       .thenAnswer( invocation -> {
-        AuthorizationRequest request = invocation.getArgument( 0 );
-        IAuthorizationAction action = request.getAction();
+        Collection<IAuthorizationRequest> requests = invocation.getArgument( 0 );
 
-        if ( action == mockAction1 || action == mockAction3 ) {
-          return mockGrantedDecision;
-        }
+        return requests.stream()
+          .map( request -> {
+            IAuthorizationAction action = request.getAction();
+            assertSame( mockUser, request.getPrincipal() );
 
-        return mockDeniedDecision;
+            return action == mockAction1 || action == mockAction3 ? mockGrantedDecision : mockDeniedDecision;
+          } )
+          .collect( Collectors.toList() );
       } );
 
     var policy = new AuthorizationServiceAuthorizationPolicy(
@@ -258,8 +264,10 @@ public class AuthorizationServiceAuthorizationPolicyTest {
     assertTrue( result.contains( "action3" ) );
     assertFalse( result.contains( "action2" ) );
 
-    // Verify authorization service was called for each action
-    verify( mockAuthorizationService, times( 3 ) ).authorize( any( AuthorizationRequest.class ) );
+    // Verify authorization service was called once for all actions
+    verify( mockAuthorizationService, times( 1 ) ).authorizeAll( anyCollection() );
+    verify( mockAuthorizationService, never() ).authorize( any() );
+    verify( mockCurrentPrincipalSupplier, times( 1 ) ).get();
   }
 
   @Test
@@ -267,8 +275,8 @@ public class AuthorizationServiceAuthorizationPolicyTest {
     when( mockActionService.getActions( "test-namespace" ) )
       .thenReturn( Stream.of( mockAction1, mockAction2 ) );
 
-    when( mockAuthorizationService.authorize( any( AuthorizationRequest.class ) ) )
-      .thenReturn( mockDeniedDecision );
+    when( mockAuthorizationService.authorizeAll( anyCollection() ) )
+      .thenReturn( List.of( mockDeniedDecision, mockDeniedDecision ) );
 
     var policy = new AuthorizationServiceAuthorizationPolicy(
       mockActionService,
@@ -279,7 +287,7 @@ public class AuthorizationServiceAuthorizationPolicyTest {
     List<String> result = policy.getAllowedActions( "test-namespace" );
 
     assertTrue( result.isEmpty() );
-    verify( mockAuthorizationService, times( 2 ) ).authorize( any( AuthorizationRequest.class ) );
+    verify( mockAuthorizationService, times( 1 ) ).authorizeAll( anyCollection() );
   }
   // endregion
 }
@@ -0,0 +1,128 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.engine.security.authorization.core;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.platform.api.engine.IAuthorizationAction;
+import org.pentaho.platform.api.engine.security.authorization.AuthorizationDecisionReportingMode;
+import org.pentaho.platform.api.engine.security.authorization.IAuthorizationOptions;
+import org.pentaho.platform.api.engine.security.authorization.IAuthorizationRequest;
+import org.pentaho.platform.api.engine.security.authorization.decisions.IAuthorizationDecision;
+import org.pentaho.platform.engine.security.authorization.core.decisions.AuthorizationErrorDecision;
+import org.pentaho.platform.engine.security.authorization.core.decisions.DefaultAuthorizationDecision;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.pentaho.platform.engine.security.authorization.core.AuthorizationTestHelpers.createTestAction;
+import static org.pentaho.platform.engine.security.authorization.core.AuthorizationTestHelpers.createTestUser;
+
+public class AuthorizationDecisionCacheTest {
+
+  private AuthorizationDecisionCache cache;
+  private IAuthorizationOptions options;
+  private IAuthorizationAction action;
+  private AtomicInteger evaluationCount;
+  private Function<IAuthorizationRequest, IAuthorizationDecision> evaluator;
+
+  @Before
+  public void setUp() {
+    cache = new AuthorizationDecisionCache();
+    options = IAuthorizationOptions.getDefault();
+    action = createTestAction( "action" );
+    evaluationCount = new AtomicInteger();
+    evaluator = request -> {
+      evaluationCount.incrementAndGet();
+      return new DefaultAuthorizationDecision( request, true );
+    };
+  }
+
+  @Test
+  public void testGetCachesDecisionForEqualRequests() {
+    var decision1 = cache.get( new AuthorizationRequest( createTestUser(), action ), options, evaluator );
+    var decision2 = cache.get( new AuthorizationRequest( createTestUser(), action ), options, evaluator );
+
+    assertSame( decision1, decision2 );
+    assertEquals( 1, evaluationCount.get() );
+    assertEquals( 1, cache.getHitCount() );
+    assertEquals( 1, cache.getMissCount() );
+    assertEquals( 1, cache.size() );
+  }
+
+  @Test
+  public void testGetDistinguishesUsersWithSameNameAndDifferentRoles() {
+    cache.get( new AuthorizationRequest( createTestUser( "user", "role1" ), action ), options, evaluator );
+    cache.get( new AuthorizationRequest( createTestUser( "user", "role2" ), action ), options, evaluator );
+
+    assertEquals( 2, evaluationCount.get() );
+    assertEquals( 0, cache.getHitCount() );
+  }
+
+  @Test
+  public void testGetDistinguishesOptions() {
+    var request = new AuthorizationRequest( createTestUser(), action );
+    var otherOptions = new AuthorizationOptions( AuthorizationDecisionReportingMode.FULL );
+
+    cache.get( request, options, evaluator );
+    cache.get( request, otherOptions, evaluator );
+
+    assertEquals( 2, evaluationCount.get() );
+  }
+
+  @Test
+  public void testGetDoesNotCacheErrorDecisions() {
+    var request = new AuthorizationRequest( createTestUser(), action );
+    Function<IAuthorizationRequest, IAuthorizationDecision> errorEvaluator = r -> {
+      evaluationCount.incrementAndGet();
+      return new AuthorizationErrorDecision( r, new RuntimeException( "failure" ) );
+    };
+
+    cache.get( request, options, errorEvaluator );
+    cache.get( request, options, errorEvaluator );
+
+    assertEquals( 2, evaluationCount.get() );
+    assertEquals( 0, cache.size() );
+  }
+
+  @Test
+  public void testInvalidateAllForcesReevaluation() {
+    var request = new AuthorizationRequest( createTestUser(), action );
+
+    cache.get( request, options, evaluator );
+    cache.invalidateAll();
+    cache.get( request, options, evaluator );
+
+    assertEquals( 2, evaluationCount.get() );
+    assertEquals( 2, cache.getMissCount() );
+  }
+
+  @Test
+  public void testGetDoesNotCacheDecisionEvaluatedBeforeInvalidation() {
+    var request = new AuthorizationRequest( createTestUser(), action );
+    Function<IAuthorizationRequest, IAuthorizationDecision> invalidatingEvaluator = r -> {
+      // e.g. a role binding changes while the decision is being evaluated
+      cache.invalidateAll();
+      return evaluator.apply( r );
+    };
+
+    cache.get( request, options, invalidatingEvaluator );
+    assertEquals( 0, cache.size() );
+
+    cache.get( request, options, evaluator );
+    assertEquals( 2, evaluationCount.get() );
+    assertEquals( 1, cache.size() );
+  }
+}
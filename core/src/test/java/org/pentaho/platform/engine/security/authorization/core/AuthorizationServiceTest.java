@@ -33,6 +33,7 @@ import org.pentaho.platform.engine.security.authorization.core.decisions.Derived
 import org.pentaho.platform.engine.security.authorization.core.exceptions.AuthorizationRequestCycleException;
 import org.pentaho.platform.engine.security.authorization.core.exceptions.AuthorizationRequestUndefinedActionException;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.function.BiFunction;
 
@@ -46,6 +47,8 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.pentaho.platform.engine.security.authorization.core.AuthorizationTestHelpers.createMockRule;
 import static org.pentaho.platform.engine.security.authorization.core.AuthorizationTestHelpers.createTestAction;
@@ -311,6 +314,85 @@ public class AuthorizationServiceTest {
     assertEquals( expectedDecision, decision.get() );
   }
 
+  @Test
+  public void testAuthorizeWithDecisionCacheEvaluatesRootRuleOnce() {
+    var rootRuleDecision = mock( IAuthorizationDecision.class );
+
+    when( rootRule.authorize( eq( request ), any( IAuthorizationContext.class ) ) )
+      .thenReturn( Optional.of( rootRuleDecision ) );
+
+    var decisionCache = new AuthorizationDecisionCache();
+    var cachingService = new AuthorizationService( actionService, rootRule, decisionCache );
+
+    assertSame( rootRuleDecision, cachingService.authorize( request, options ) );
+    assertSame( rootRuleDecision, cachingService.authorize( request, options ) );
+
+    verify( rootRule, times( 1 ) ).authorize( eq( request ), any( IAuthorizationContext.class ) );
+    assertEquals( 1, decisionCache.getHitCount() );
+    assertEquals( 1, decisionCache.getMissCount() );
+  }
+
+  @Test
+  public void testAuthorizeWithDecisionCacheDoesNotCacheErrors() {
+    when( rootRule.authorize( eq( request ), any( IAuthorizationContext.class ) ) )
+      .thenThrow( new RuntimeException( "rule failure" ) );
+
+    var decisionCache = new AuthorizationDecisionCache();
+    var cachingService = new AuthorizationService( actionService, rootRule, decisionCache );
+
+    assertTrue( cachingService.authorize( request, options ) instanceof IAuthorizationErrorDecision );
+    assertTrue( cachingService.authorize( request, options ) instanceof IAuthorizationErrorDecision );
+
+    assertEquals( 0, decisionCache.size() );
+    assertEquals( 2, decisionCache.getMissCount() );
+  }
+
+  @Test
+  public void testAuthorizeAllReturnsDecisionsInRequestOrder() {
+    var otherAction = createTestAction( "other-action" );
+    when( actionService.getAction( "other-action" ) ).thenReturn( Optional.of( otherAction ) );
+    var otherRequest = new AuthorizationRequest( createTestUser(), otherAction );
+
+    var decision1 = mock( IAuthorizationDecision.class );
+    var decision2 = mock( IAuthorizationDecision.class );
+    when( rootRule.authorize( eq( request ), any( IAuthorizationContext.class ) ) )
+      .thenReturn( Optional.of( decision1 ) );
+    when( rootRule.authorize( eq( otherRequest ), any( IAuthorizationContext.class ) ) )
+      .thenReturn( Optional.of( decision2 ) );
+
+    var decisions = service.authorizeAll( List.of( otherRequest, request ), options );
+
+    assertEquals( List.of( decision2, decision1 ), decisions );
+  }
+
+  @Test
+  public void testAuthorizeAllEvaluatesCommonSubRequestsOnce() {
+    var commonAction = createTestAction( "common-action" );
+    when( actionService.getAction( "common-action" ) ).thenReturn( Optional.of( commonAction ) );
+    var commonRequest = new AuthorizationRequest( createTestUser(), commonAction );
+
+    var otherAction = createTestAction( "other-action" );
+    when( actionService.getAction( "other-action" ) ).thenReturn( Optional.of( otherAction ) );
+    var otherRequest = new AuthorizationRequest( createTestUser(), otherAction );
+
+    var commonDecision = mock( IAuthorizationDecision.class );
+    when( rootRule.authorize( eq( commonRequest ), any( IAuthorizationContext.class ) ) )
+      .thenReturn( Optional.of( commonDecision ) );
+
+    // Both top-level requests depend on the common request.
+    when( rootRule.authorize( eq( request ), any( IAuthorizationContext.class ) ) )
+      .thenAnswer( invocation -> Optional.of(
+        invocation.getArgument( 1, IAuthorizationContext.class ).authorize( commonRequest ) ) );
+    when( rootRule.authorize( eq( otherRequest ), any( IAuthorizationContext.class ) ) )
+      .thenAnswer( invocation -> Optional.of(
+        invocation.getArgument( 1, IAuthorizationContext.class ).authorize( commonRequest ) ) );
+
+    var decisions = service.authorizeAll( List.of( request, otherRequest ), options );
+
+    assertEquals( List.of( commonDecision, commonDecision ), decisions );
+    verify( rootRule, times( 1 ) ).authorize( eq( commonRequest ), any( IAuthorizationContext.class ) );
+  }
+
   @Test
   public void testAuthorizeRuleWorksWithSubclassRequestTypes() {
     IAuthorizationDecision expectedDecision = mock( IAuthorizationDecision.class );
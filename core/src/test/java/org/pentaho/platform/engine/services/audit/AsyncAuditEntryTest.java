@@ -0,0 +1,319 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services.audit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.platform.api.engine.AuditException;
+import org.pentaho.platform.api.engine.IAuditEntry;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class AsyncAuditEntryTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testEntriesAreWrittenInBatches() {
+    RecordingAuditEntry delegate = new RecordingAuditEntry( null );
+    AsyncAuditEntry auditEntry =
+      new AsyncAuditEntry( delegate, 100, 10, 50, AsyncAuditEntry.OverflowPolicy.BLOCK, null );
+
+    for ( int i = 0; i < 25; i++ ) {
+      audit( auditEntry, i );
+    }
+    auditEntry.shutdown();
+
+    // all the entries are written, in order, in batches of at most 10 entries
+    assertEquals( 25, delegate.events.size() );
+    for ( int i = 0; i < 25; i++ ) {
+      assertEquals( "job" + i, delegate.events.get( i ).getJobId() );
+    }
+    assertTrue( delegate.batchSizes.stream().allMatch( size -> size <= 10 ) );
+
+    AsyncAuditMetrics.Snapshot snapshot = auditEntry.getMetrics().getSnapshot();
+    assertEquals( 25, snapshot.getEnqueuedCount() );
+    assertEquals( 25, snapshot.getWrittenCount() );
+    assertEquals( delegate.batchSizes.size(), snapshot.getFlushCount() );
+    assertEquals( 0, snapshot.getQueueDepth() );
+    assertEquals( 100, snapshot.getQueueCapacity() );
+    assertFalse( AsyncAuditMetrics.getAll().contains( auditEntry.getMetrics() ) );
+  }
+
+  @Test
+  public void testEntriesAreWrittenOneAtATimeWithoutBatchSupport() {
+    IAuditEntry delegate = mock( IAuditEntry.class );
+    AsyncAuditEntry auditEntry =
+      new AsyncAuditEntry( delegate, 100, 10, 50, AsyncAuditEntry.OverflowPolicy.BLOCK, null );
+
+    audit( auditEntry, 1 );
+    audit( auditEntry, 2 );
+    auditEntry.shutdown();
+
+    verify( delegate ).auditAll( eq( "job1" ), anyString(), anyString(), anyString(), anyString(), anyString(),
+      anyString(), anyString(), any( BigDecimal.class ), anyDouble() );
+    verify( delegate ).auditAll( eq( "job2" ), anyString(), anyString(), anyString(), anyString(), anyString(),
+      anyString(), anyString(), any( BigDecimal.class ), anyDouble() );
+
+    // entries audited after the shutdown are written right away
+    audit( auditEntry, 3 );
+    verify( delegate, times( 1 ) ).auditAll( eq( "job3" ), anyString(), anyString(), anyString(), anyString(),
+      anyString(), anyString(), anyString(), any( BigDecimal.class ), anyDouble() );
+  }
+
+  @Test
+  public void testDropOverflowPolicy() throws Exception {
+    CountDownLatch release = new CountDownLatch( 1 );
+    RecordingAuditEntry delegate = new RecordingAuditEntry( release );
+    AsyncAuditEntry auditEntry = new AsyncAuditEntry( delegate, 2, 1, 50, AsyncAuditEntry.OverflowPolicy.DROP, null );
+
+    fillQueue( auditEntry, delegate );
+    audit( auditEntry, 3 );
+
+    release.countDown();
+    auditEntry.shutdown();
+
+    assertEquals( 3, delegate.events.size() );
+    AsyncAuditMetrics.Snapshot snapshot = auditEntry.getMetrics().getSnapshot();
+    assertEquals( 1, snapshot.getDroppedCount() );
+    assertEquals( 3, snapshot.getWrittenCount() );
+  }
+
+  @Test
+  public void testSpillOverflowPolicy() throws Exception {
+    File spillFile = new File( temporaryFolder.getRoot(), "audit/spill.dat" );
+    CountDownLatch release = new CountDownLatch( 1 );
+    RecordingAuditEntry delegate = new RecordingAuditEntry( release );
+    AsyncAuditEntry auditEntry =
+      new AsyncAuditEntry( delegate, 2, 1, 50, AsyncAuditEntry.OverflowPolicy.SPILL, spillFile );
+
+    fillQueue( auditEntry, delegate );
+    audit( auditEntry, 3 );
+    assertTrue( spillFile.exists() );
+
+    release.countDown();
+    auditEntry.shutdown();
+
+    // the spilled entry is written once the queue is empty
+    assertEquals( 4, delegate.events.size() );
+    assertEquals( "job3", delegate.events.get( 3 ).getJobId() );
+    assertFalse( spillFile.exists() );
+    assertEquals( 1, auditEntry.getMetrics().getSnapshot().getSpilledCount() );
+  }
+
+  @Test
+  public void testSpillFileKeepsEntries() throws Exception {
+    AuditSpillFile spillFile = new AuditSpillFile( temporaryFolder.newFile() );
+    spillFile.append( new AuditEvent( "job", null, "obj", "type", "actor", "messageType", "messageName",
+      "\u00e9t\u00e9", new BigDecimal( "12.5" ), 1.5, 1000L ) );
+    spillFile.append( new AuditEvent( "job2", "inst", "obj", "type", "actor", "messageType", "messageName", null,
+      null, 0, 2000L ) );
+
+    List<AuditEvent> events = new ArrayList<>();
+    assertEquals( 2, spillFile.drain( 10, events::addAll ) );
+
+    AuditEvent event = events.get( 0 );
+    assertEquals( "job", event.getJobId() );
+    assertNull( event.getInstId() );
+    assertEquals( "\u00e9t\u00e9", event.getMessageTxtValue() );
+    assertEquals( new BigDecimal( "12.5" ), event.getMessageNumValue() );
+    assertEquals( 1.5, event.getDuration(), 0 );
+    assertEquals( 1000L, event.getTimestamp() );
+    assertNull( events.get( 1 ).getMessageNumValue() );
+    assertTrue( spillFile.isEmpty() );
+  }
+
+  @Test
+  public void testFailedBatchIsRetried() {
+    RecordingAuditEntry delegate = new RecordingAuditEntry( null );
+    delegate.failures.set( 1 );
+    AsyncAuditEntry auditEntry =
+      new AsyncAuditEntry( delegate, 100, 10, 50, AsyncAuditEntry.OverflowPolicy.BLOCK, null );
+
+    audit( auditEntry, 1 );
+    auditEntry.shutdown();
+
+    assertEquals( 1, delegate.events.size() );
+    AsyncAuditMetrics.Snapshot snapshot = auditEntry.getMetrics().getSnapshot();
+    assertEquals( 1, snapshot.getFailedFlushCount() );
+    assertEquals( 1, snapshot.getWrittenCount() );
+    assertEquals( 0, snapshot.getFailedCount() );
+  }
+
+  @Test
+  public void testEntriesWrittenBeforeAFailureAreNotWrittenAgain() {
+    IAuditEntry delegate = mock( IAuditEntry.class );
+    doThrow( new AuditException( "The audit storage is not available" ) ).doNothing().when( delegate )
+      .auditAll( eq( "job2" ), anyString(), anyString(), anyString(), anyString(), anyString(), anyString(),
+        anyString(), any( BigDecimal.class ), anyDouble() );
+    AsyncAuditEntry auditEntry =
+      new AsyncAuditEntry( delegate, 100, 10, 50, AsyncAuditEntry.OverflowPolicy.BLOCK, null );
+
+    for ( int i = 1; i <= 3; i++ ) {
+      audit( auditEntry, i );
+    }
+    auditEntry.shutdown();
+
+    // the batch fails part-way, only the entries which were not written are retried
+    for ( int i = 1; i <= 3; i++ ) {
+      verify( delegate, times( i == 2 ? 2 : 1 ) ).auditAll( eq( "job" + i ), anyString(), anyString(), anyString(),
+        anyString(), anyString(), anyString(), anyString(), any( BigDecimal.class ), anyDouble() );
+    }
+    assertEquals( 3, auditEntry.getMetrics().getSnapshot().getWrittenCount() );
+  }
+
+  @Test
+  public void testEntriesAuditedDuringShutdownAreWritten() throws Exception {
+    RecordingAuditEntry delegate = new RecordingAuditEntry( null );
+    AsyncAuditEntry auditEntry = new AsyncAuditEntry( delegate, 10, 5, 50, AsyncAuditEntry.OverflowPolicy.BLOCK, null );
+    CountDownLatch started = new CountDownLatch( 4 );
+    List<Thread> threads = new ArrayList<>();
+    for ( int t = 0; t < 4; t++ ) {
+      Thread thread = new Thread( () -> {
+        started.countDown();
+        for ( int i = 0; i < 200; i++ ) {
+          audit( auditEntry, i );
+        }
+      } );
+      thread.start();
+      threads.add( thread );
+    }
+
+    assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+    auditEntry.shutdown();
+    for ( Thread thread : threads ) {
+      thread.join( 10000 );
+    }
+
+    // the entries queued after the queue was drained would be lost
+    assertEquals( 800, delegate.events.size() );
+  }
+
+  @Test
+  public void testBatchWhichCannotBeWrittenIsSpilled() throws Exception {
+    File spillFile = new File( temporaryFolder.getRoot(), "audit/spill.dat" );
+    RecordingAuditEntry delegate = new RecordingAuditEntry( null );
+    delegate.failures.set( Integer.MAX_VALUE );
+    AsyncAuditEntry auditEntry =
+      new AsyncAuditEntry( delegate, 100, 10, 50, AsyncAuditEntry.OverflowPolicy.BLOCK, spillFile );
+
+    audit( auditEntry, 1 );
+    audit( auditEntry, 2 );
+    auditEntry.shutdown();
+
+    assertTrue( delegate.events.isEmpty() );
+    assertEquals( 0, auditEntry.getMetrics().getSnapshot().getFailedCount() );
+
+    // the entries are kept for the next run
+    List<AuditEvent> events = new ArrayList<>();
+    new AuditSpillFile( spillFile ).drain( 10, events::addAll );
+    assertEquals( 2, events.size() );
+    assertEquals( "job1", events.get( 0 ).getJobId() );
+    assertEquals( "job2", events.get( 1 ).getJobId() );
+  }
+
+  @Test
+  public void testBatchWhichCannotBeWrittenIsLostWithoutSpillFile() {
+    RecordingAuditEntry delegate = new RecordingAuditEntry( null );
+    delegate.failures.set( Integer.MAX_VALUE );
+    AsyncAuditEntry auditEntry =
+      new AsyncAuditEntry( delegate, 100, 10, 50, AsyncAuditEntry.OverflowPolicy.BLOCK, null );
+
+    audit( auditEntry, 1 );
+    auditEntry.shutdown();
+
+    AsyncAuditMetrics.Snapshot snapshot = auditEntry.getMetrics().getSnapshot();
+    assertEquals( 1, snapshot.getFailedCount() );
+    assertEquals( 3, snapshot.getFailedFlushCount() );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testSpillOverflowPolicyRequiresFile() {
+    new AsyncAuditEntry( mock( IAuditEntry.class ), 2, 1, 50, AsyncAuditEntry.OverflowPolicy.SPILL, null );
+  }
+
+  /**
+   * Makes the writer wait on its first entry, and fills the queue of two entries.
+   */
+  private void fillQueue( AsyncAuditEntry auditEntry, RecordingAuditEntry delegate ) throws InterruptedException {
+    audit( auditEntry, 0 );
+    assertTrue( delegate.writing.await( 10, TimeUnit.SECONDS ) );
+    audit( auditEntry, 1 );
+    audit( auditEntry, 2 );
+  }
+
+  private void audit( IAuditEntry auditEntry, int i ) {
+    auditEntry.auditAll( "job" + i, "inst", "obj", "type", "actor", "messageType", "messageName", "text",
+      BigDecimal.ONE, i );
+  }
+
+  private static class RecordingAuditEntry implements IBatchAuditEntry {
+    private final List<AuditEvent> events = Collections.synchronizedList( new ArrayList<>() );
+    private final List<Integer> batchSizes = Collections.synchronizedList( new ArrayList<>() );
+    private final CountDownLatch writing = new CountDownLatch( 1 );
+    private final CountDownLatch release;
+    private final AtomicInteger failures = new AtomicInteger();
+
+    RecordingAuditEntry( CountDownLatch release ) {
+      this.release = release;
+    }
+
+    @Override
+    public void auditBatch( List<AuditEvent> batch ) {
+      writing.countDown();
+      if ( release != null ) {
+        try {
+          release.await( 10, TimeUnit.SECONDS );
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      if ( failures.getAndDecrement() > 0 ) {
+        throw new AuditException( "The audit storage is not available" );
+      }
+      batchSizes.add( batch.size() );
+      events.addAll( batch );
+    }
+
+    @Override
+    public void auditAll( String jobId, String instId, String objId, String objType, String actor,
+                          String messageType, String messageName, String messageTxtValue,
+                          BigDecimal messageNumValue, double duration ) {
+      auditBatch( Collections.singletonList( new AuditEvent( jobId, instId, objId, objType, actor, messageType,
+        messageName, messageTxtValue, messageNumValue, duration ) ) );
+    }
+  }
+}
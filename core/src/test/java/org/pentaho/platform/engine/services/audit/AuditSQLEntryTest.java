@@ -0,0 +1,112 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services.audit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.pentaho.platform.api.engine.AuditException;
+
+import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AuditSQLEntryTest {
+
+  private AuditSQLEntry auditEntry;
+  private Connection connection;
+  private PreparedStatement statement;
+
+  @Before
+  public void setUp() throws Exception {
+    connection = mock( Connection.class );
+    statement = mock( PreparedStatement.class );
+    when( connection.getAutoCommit() ).thenReturn( true );
+    when( connection.prepareStatement( anyString() ) ).thenReturn( statement );
+    auditEntry = spy( new AuditSQLEntry() );
+    doReturn( connection ).when( auditEntry ).getAuditConnection();
+  }
+
+  @Test
+  public void testBatchIsInsertedInOneTransaction() throws Exception {
+    auditEntry.auditBatch( events( 3 ) );
+
+    InOrder inOrder = inOrder( connection, statement );
+    inOrder.verify( connection ).setAutoCommit( false );
+    inOrder.verify( statement ).executeBatch();
+    inOrder.verify( connection ).commit();
+    inOrder.verify( connection ).setAutoCommit( true );
+    inOrder.verify( connection ).close();
+  }
+
+  @Test
+  public void testBatchWhichFailsPartWayIsRolledBack() throws Exception {
+    // the first entry is inserted before the batch fails
+    when( statement.executeBatch() ).thenThrow( new BatchUpdateException( new int[] { 1 } ) );
+
+    try {
+      auditEntry.auditBatch( events( 3 ) );
+      fail();
+    } catch ( AuditException e ) {
+      // the batch is retried by the caller
+    }
+
+    verify( connection, never() ).commit();
+    InOrder inOrder = inOrder( connection );
+    inOrder.verify( connection ).setAutoCommit( false );
+    inOrder.verify( connection ).rollback();
+    inOrder.verify( connection ).setAutoCommit( true );
+    inOrder.verify( connection ).close();
+  }
+
+  @Test
+  public void testSingleEntryIsInsertedWithoutTransaction() throws Exception {
+    auditEntry.auditBatch( events( 1 ) );
+
+    verify( statement ).executeUpdate();
+    verify( connection, never() ).setAutoCommit( false );
+    verify( connection, never() ).commit();
+    verify( connection ).close();
+  }
+
+  @Test
+  public void testEmptyBatchIsNotInserted() throws Exception {
+    auditEntry.auditBatch( Collections.emptyList() );
+
+    verify( auditEntry, never() ).getAuditConnection();
+  }
+
+  private static List<AuditEvent> events( int count ) {
+    AuditEvent[] events = new AuditEvent[ count ];
+    for ( int i = 0; i < count; i++ ) {
+      events[ i ] = new AuditEvent( "job" + i, "inst", "obj", "type", "actor", "messageType", "messageName", "text",
+        BigDecimal.ONE, i );
+    }
+    return Arrays.asList( events );
+  }
+}
@@ -17,6 +17,7 @@ import com.google.common.collect.ImmutableMap;
 import org.apache.commons.dbcp2.ConnectionFactory;
 import org.apache.commons.dbcp2.DriverManagerConnectionFactory;
 import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -41,9 +42,12 @@ import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import javax.naming.Context;
 import javax.naming.NamingException;
 import javax.sql.DataSource;
+import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.instanceOf;
@@ -52,9 +56,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -346,6 +352,32 @@ public class PooledDatasourceHelperTest {
 
   }
 
+  @Test
+  public void testPrePopulatePoolAsyncAddsConnectionsAndRecordsWarmUpTime() throws Exception {
+    GenericObjectPool pool = mock( GenericObjectPool.class );
+
+    PooledDatasourceHelper.prePopulatePoolAsync( pool, 3, "warm-up-ds" ).get( 10, TimeUnit.SECONDS );
+
+    verify( pool, times( 3 ) ).addObject();
+    assertTrue( PooledDatasourceHelper.getPoolWarmUpTimes().containsKey( "warm-up-ds" ) );
+  }
+
+  @Test
+  public void testPrePopulatePoolAsyncCompletesExceptionallyWhenConnectionFails() throws Exception {
+    GenericObjectPool pool = mock( GenericObjectPool.class );
+    doThrow( new SQLException( "unreachable" ) ).when( pool ).addObject();
+
+    try {
+      PooledDatasourceHelper.prePopulatePoolAsync( pool, 2, "failing-ds" ).get( 10, TimeUnit.SECONDS );
+      fail( "Expected warm-up to fail" );
+    } catch ( ExecutionException e ) {
+      assertThat( e.getCause(), instanceOf( SQLException.class ) );
+    }
+
+    verify( pool, times( 2 ) ).addObject();
+    assertTrue( PooledDatasourceHelper.getPoolWarmUpTimes().containsKey( "failing-ds" ) );
+  }
+
   // region getJndiDataSource(..)
   static abstract class BaseJndiScenario {
     public final Context context;
@@ -519,5 +551,6 @@ public class PooledDatasourceHelperTest {
     if ( mp != null ) {
       mp.stop();
     }
+    PooledDatasourceHelper.shutdownPoolWarmUp();
   }
 }
@@ -0,0 +1,135 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.engine.services.connection.datasource.dbcp;
+
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedStatic;
+import org.pentaho.platform.api.monitoring.IMonitoringService;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
+
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PooledDatasourceMetricsTest {
+
+  private GenericObjectPool<?> pool;
+  private IMonitoringService monitoringService;
+  private MockedStatic<PentahoSystem> pentahoSystemMock;
+
+  @Before
+  public void setUp() {
+    pool = mock( GenericObjectPool.class );
+    when( pool.getNumActive() ).thenReturn( 3 );
+    when( pool.getNumIdle() ).thenReturn( 2 );
+    when( pool.getCreatedCount() ).thenReturn( 7L );
+    when( pool.getDestroyedByBorrowValidationCount() ).thenReturn( 1L );
+
+    monitoringService = mock( IMonitoringService.class );
+    pentahoSystemMock = mockStatic( PentahoSystem.class );
+    pentahoSystemMock.when( () -> PentahoSystem.get( IMonitoringService.class ) ).thenReturn( monitoringService );
+  }
+
+  @After
+  public void tearDown() {
+    pentahoSystemMock.close();
+    PooledDatasourceMetrics.clear();
+  }
+
+  @Test
+  public void testRegisterReplacesMetricsOfSameDatasource() {
+    PooledDatasourceMetrics first = PooledDatasourceMetrics.register( "ds", pool );
+    PooledDatasourceMetrics second = PooledDatasourceMetrics.register( "ds", pool );
+
+    assertSame( second, PooledDatasourceMetrics.get( "ds" ) );
+    assertEquals( 1, PooledDatasourceMetrics.getAll().size() );
+    assertNotSame( first, second );
+    // the replaced metrics still belong to their own pool
+    assertSame( pool, first.getPool() );
+  }
+
+  @Test
+  public void testRegisterWithoutNameIsNotTracked() {
+    PooledDatasourceMetrics.register( null, pool );
+
+    assertTrue( PooledDatasourceMetrics.getAll().isEmpty() );
+    assertNull( PooledDatasourceMetrics.get( null ) );
+  }
+
+  @Test
+  public void testSnapshotIncludesPoolCountersAndBorrowHistogram() {
+    PooledDatasourceMetrics metrics = PooledDatasourceMetrics.register( "ds", pool );
+
+    metrics.recordBorrow( TimeUnit.MICROSECONDS.toNanos( 100 ) );
+    metrics.recordBorrow( TimeUnit.MILLISECONDS.toNanos( 20 ) );
+    metrics.recordBorrow( TimeUnit.SECONDS.toNanos( 10 ) );
+    metrics.recordBorrowFailure();
+
+    PooledDatasourceMetrics.Snapshot snapshot = metrics.getSnapshot();
+
+    assertEquals( "ds", snapshot.getDatasourceName() );
+    assertEquals( 3, snapshot.getNumActive() );
+    assertEquals( 2, snapshot.getNumIdle() );
+    assertEquals( 7L, snapshot.getCreatedCount() );
+    assertEquals( 1L, snapshot.getValidationFailureCount() );
+    assertEquals( 3L, snapshot.getBorrowCount() );
+    assertEquals( 1L, snapshot.getBorrowFailureCount() );
+    assertEquals( Long.valueOf( 1 ), snapshot.getBorrowWaitHistogram().get( "le1ms" ) );
+    assertEquals( Long.valueOf( 1 ), snapshot.getBorrowWaitHistogram().get( "le50ms" ) );
+    assertEquals( Long.valueOf( 1 ), snapshot.getBorrowWaitHistogram().get( "gt5000ms" ) );
+    assertEquals( Long.valueOf( 0 ), snapshot.getBorrowWaitHistogram().get( "le5ms" ) );
+  }
+
+  @Test
+  public void testAbandonedLogWriterRecordsBorrowStackAndPostsEvent() {
+    PooledDatasourceMetrics metrics = PooledDatasourceMetrics.register( "ds", pool );
+
+    PrintWriter writer = metrics.createAbandonedLogWriter();
+    writer.print( "Pooled object created ..." );
+    writer.println( "\tat com.example.Report.run(Report.java:42)" );
+    writer.flush();
+
+    PooledDatasourceMetrics.Snapshot snapshot = metrics.getSnapshot();
+    assertEquals( 1L, snapshot.getAbandonedCount() );
+    assertEquals( 1, snapshot.getRecentAbandonedStacks().size() );
+    assertTrue( snapshot.getRecentAbandonedStacks().get( 0 ).contains( "Report.java:42" ) );
+
+    ArgumentCaptor<PooledDatasourceMetricsEvent> eventCaptor =
+      ArgumentCaptor.forClass( PooledDatasourceMetricsEvent.class );
+    verify( monitoringService ).post( eventCaptor.capture() );
+    assertEquals( "ds", eventCaptor.getValue().getDatasourceName() );
+    assertTrue( eventCaptor.getValue().getAbandonedBorrowStack().contains( "Report.java:42" ) );
+  }
+
+  @Test
+  public void testGetBucketIndex() {
+    assertEquals( 0, PooledDatasourceMetrics.getBucketIndex( 0 ) );
+    assertEquals( 0, PooledDatasourceMetrics.getBucketIndex( 1 ) );
+    assertEquals( 1, PooledDatasourceMetrics.getBucketIndex( 2 ) );
+    assertEquals( PooledDatasourceMetrics.BORROW_WAIT_BUCKETS_MILLIS.length,
+      PooledDatasourceMetrics.getBucketIndex( 5001 ) );
+  }
+}
@@ -486,15 +486,60 @@ public class FileServiceIT {
     paths.add( "path2" );
     paths.add( "path3" );
 
-    doReturn( true ).when( fileService.repository ).hasAccess( nullable( String.class ), any( EnumSet.class ) );
+    Map<String, EnumSet<RepositoryFilePermission>> access = new HashMap<>();
+    for ( String path : paths ) {
+      access.put( "/" + path, EnumSet.of( RepositoryFilePermission.READ, RepositoryFilePermission.WRITE ) );
+    }
+    doReturn( access ).when( fileService.repository ).hasAccess( anyList(), any( EnumSet.class ) );
     List<Setting> settings = fileService.doGetPathsAccessList( new StringListWrapper( paths ) );
-    assertFalse( settings.isEmpty() );
+    assertEquals( 6, settings.size() );
+    assertEquals( "path1", settings.get( 0 ).getName() );
+    assertEquals( String.valueOf( RepositoryFilePermission.READ.ordinal() ), settings.get( 0 ).getValue() );
 
-    doReturn( false ).when( fileService.repository ).hasAccess( nullable( String.class ), any( EnumSet.class ) );
+    doReturn( new HashMap<>() ).when( fileService.repository ).hasAccess( anyList(), any( EnumSet.class ) );
     settings = fileService.doGetPathsAccessList( new StringListWrapper( paths ) );
     assertTrue( settings.isEmpty() );
   }
 
+  @Test
+  public void testDoGetPathsAccessMask() {
+    List<String> paths = new ArrayList<>();
+    paths.add( "path1" );
+    paths.add( "path2" );
+
+    Map<String, EnumSet<RepositoryFilePermission>> access = new HashMap<>();
+    access.put( "/path1", EnumSet.of( RepositoryFilePermission.READ, RepositoryFilePermission.DELETE ) );
+    doReturn( access ).when( fileService.repository ).hasAccess( anyList(), any( EnumSet.class ) );
+
+    List<Setting> settings = fileService.doGetPathsAccessMask( new StringListWrapper( paths ) );
+    assertEquals( 2, settings.size() );
+    assertEquals( "path1", settings.get( 0 ).getName() );
+    assertEquals( "5", settings.get( 0 ).getValue() );
+    assertEquals( "path2", settings.get( 1 ).getName() );
+    assertEquals( "0", settings.get( 1 ).getValue() );
+  }
+
+  @Test
+  public void testDoGetPathsAccessMaskKeepsDuplicatePaths() {
+    List<String> paths = new ArrayList<>();
+    paths.add( "path1" );
+    paths.add( "path2" );
+    paths.add( "path1" );
+
+    Map<String, EnumSet<RepositoryFilePermission>> access = new HashMap<>();
+    access.put( "/path1", EnumSet.of( RepositoryFilePermission.READ ) );
+    doReturn( access ).when( fileService.repository ).hasAccess( anyList(), any( EnumSet.class ) );
+
+    List<Setting> settings = fileService.doGetPathsAccessMask( new StringListWrapper( paths ) );
+    assertEquals( 3, settings.size() );
+    assertEquals( "path1", settings.get( 0 ).getName() );
+    assertEquals( "1", settings.get( 0 ).getValue() );
+    assertEquals( "path2", settings.get( 1 ).getName() );
+    assertEquals( "0", settings.get( 1 ).getValue() );
+    assertEquals( "path1", settings.get( 2 ).getName() );
+    assertEquals( "1", settings.get( 2 ).getValue() );
+  }
+
   @Test( expected = IllegalArgumentException.class )
   public void testDoDeleteFilesPermanentException() throws Exception {
 
@@ -1360,15 +1405,12 @@ public class FileServiceIT {
     doReturn( false ).when( mockedChild ).isFolder();
     children.add( mockedChild );
 
-    Map<String, Serializable> mockedFileMetadata = mock( Map.class );
-    doReturn( pathId ).when( mockedFileMetadata ).get( PentahoJcrConstants.PHO_CONTENTCREATOR );
-    when( fileService.repository.getFileMetadata( mockedChild.getId() ) ).thenReturn( mockedFileMetadata );
-
     doReturn( pathId ).when( fileDetailsMock ).getId();
     doReturn( userFolder ).when( sessionResource ).doGetCurrentUserDir();
     doReturn( workspaceFolder ).when( fileService.repository ).getFile( userFolder );
     doReturn( sessionResource ).when( fileService ).getSessionResource();
-    doReturn( children ).when( fileService.repository ).getChildren( userFolder );
+    doReturn( children ).when( fileService.repository )
+      .findFilesByMetadata( userFolder, PentahoJcrConstants.PHO_CONTENTCREATOR, pathId );
 
     RepositoryFileDto mockedRepositoryFileDto = mock( RepositoryFileDto.class );
     doReturn( mockedRepositoryFileDto ).when( fileService ).toFileDto( mockedChild, null, false );
@@ -1413,15 +1455,12 @@ public class FileServiceIT {
     doReturn( false ).when( mockedChild ).isFolder();
     children.add( mockedChild );
 
-    Map<String, Serializable> mockedFileMetadata = mock( Map.class );
-    doReturn( pathId ).when( mockedFileMetadata ).get( PentahoJcrConstants.PHO_CONTENTCREATOR );
-    when( fileService.repository.getFileMetadata( mockedChild.getId() ) ).thenReturn( mockedFileMetadata );
-
     doReturn( pathId ).when( fileDetailsMock ).getId();
     doReturn( userFolder ).when( sessionResource ).doGetUserDir( user );
     doReturn( workspaceFolder ).when( fileService.repository ).getFile( userFolder );
     doReturn( sessionResource ).when( fileService ).getSessionResource();
-    doReturn( children ).when( fileService.repository ).getChildren( userFolder );
+    doReturn( children ).when( fileService.repository )
+      .findFilesByMetadata( userFolder, PentahoJcrConstants.PHO_CONTENTCREATOR, pathId );
 
     RepositoryFileDto mockedRepositoryFileDto = mock( RepositoryFileDto.class );
     doReturn( mockedRepositoryFileDto ).when( fileService ).toFileDto( mockedChild, null, false );
@@ -1677,6 +1716,41 @@ public class FileServiceIT {
     assertEquals( mockRepositoryFileDto, repositoryFileDtos.get( 0 ) );
   }
 
+  @Test
+  public void testDoGetChildrenPage() {
+    RepositoryFileDto mockRepositoryFileDto = mock( RepositoryFileDto.class );
+    List<RepositoryFileDto> mockRepositoryFileDtos = new ArrayList<>();
+    mockRepositoryFileDtos.add( mockRepositoryFileDto );
+    RepositoryRequest mockRepositoryRequest = mock( RepositoryRequest.class );
+
+    doReturn( true ).when( fileService ).isPathValid( nullable( String.class ) );
+    doReturn( mockRepositoryFileDto ).when( fileService.defaultUnifiedRepositoryWebService ).getFile( nullable( String.class ) );
+    doReturn( mockRepositoryRequest ).when( fileService )
+      .getRepositoryRequest( any(), anyBoolean(), nullable( String.class ), anyBoolean() );
+    doReturn( mockRepositoryFileDtos ).when( fileService.defaultUnifiedRepositoryWebService )
+      .getChildrenFromRequest( mockRepositoryRequest );
+
+    List<RepositoryFileDto> repositoryFileDtos =
+      fileService.doGetChildren( "mock:path:fileName", null, true, true, 100, 50, "name" );
+
+    verify( mockRepositoryRequest ).setOffset( 100 );
+    verify( mockRepositoryRequest ).setLimit( 50 );
+    verify( mockRepositoryRequest ).setSortBy( RepositoryRequest.SORT_KEY.NAME );
+    // the page is already sorted by the repository
+    verify( fileService, never() ).getCollator( anyInt() );
+    assertEquals( mockRepositoryFileDtos, repositoryFileDtos );
+  }
+
+  @Test( expected = InvalidPageRequestException.class )
+  public void testDoGetChildrenPageUnknownSortKey() {
+    fileService.doGetChildren( "mock:path:fileName", null, true, true, 0, 50, "size" );
+  }
+
+  @Test( expected = InvalidPageRequestException.class )
+  public void testDoGetChildrenPageNegativeOffset() {
+    fileService.doGetChildren( "mock:path:fileName", null, true, true, -1, 50, "name" );
+  }
+
   @Test
   public void doSetMetadata() {
     try ( MockedStatic<RepositoryFileHelper> repositoryFileHelperMock = mockStatic( RepositoryFileHelper.class ) ) {
@@ -14,18 +14,20 @@ package org.pentaho.platform.plugin.action.mondrian.catalog;
 
 import java.io.Serializable;
 import java.time.Instant;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * represents the entire regional cache structure for caching Mondrian Catalogs.  The cache is optimized so it can be
  * built incrementally, one catalog at a time, or fully depending upon demands.  The {@Link MondrianCatalogCacheState}
  * tracks whether and and when the cache was fully loaded.
+ * <p>
+ * Catalogs can be put concurrently, as happens while a full load is in progress, and read while being put.
  */
 public class MondrianCatalogCache implements Serializable {
 
   private MondrianCatalogCacheState mondrianCatalogCacheState = new MondrianCatalogCacheState();
-  private Map<String, MondrianCatalog> catalogs = new HashMap<>();
+  private Map<String, MondrianCatalog> catalogs = new ConcurrentHashMap<>();
 
   public MondrianCatalogCacheState getMondrianCatalogCacheState() {
     return mondrianCatalogCacheState;
@@ -41,15 +43,17 @@ public class MondrianCatalogCache implements Serializable {
   }
 
   public void setCatalogs( Map<String, MondrianCatalog> catalogs ) {
-    this.catalogs = catalogs;
+    this.catalogs = catalogs == null ? new ConcurrentHashMap<>() : new ConcurrentHashMap<>( catalogs );
   }
 
   public void putCatalog( String key, MondrianCatalog catalog ) {
-    catalogs.put( key, catalog );
+    if ( key != null && catalog != null ) {
+      catalogs.put( key, catalog );
+    }
   }
 
   public MondrianCatalog getCatalog( String context ) {
-    return catalogs.get( context );
+    return context == null ? null : catalogs.get( context );
   }
 
   public void setFullLoad() {
@@ -14,6 +14,8 @@
 package org.pentaho.platform.plugin.action.mondrian.catalog;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import mondrian.i18n.LocalizingDynamicSchemaProcessor;
 import mondrian.olap.Connection;
 import mondrian.olap.MondrianDef;
@@ -73,6 +75,8 @@ import org.pentaho.platform.util.logging.Logger;
 import org.pentaho.platform.util.messages.LocaleHelper;
 import org.pentaho.platform.util.xml.XMLParserFactoryProducer;
 import org.pentaho.platform.util.xml.dom4j.XmlDom4JHelper;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
@@ -100,6 +104,16 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static org.pentaho.platform.plugin.services.importexport.legacy.MondrianCatalogRepositoryHelper.ANNOTATED_SCHEMA_FILE;
 import static org.pentaho.platform.plugin.services.importexport.legacy.MondrianCatalogRepositoryHelper.ANNOTATIONS_FILE;
@@ -118,6 +132,16 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
   private static final String MONDRIAN_FILE_PROVIDER_IDENTIFIER = "mondrian"; //$NON-NLS-1$
   private static final String MONDRIAN_URI_START = "mondrian:/";
 
+  /**
+   * The system setting with the number of threads used to load the catalogs into the cache. Defaults to the number of
+   * available processors.
+   */
+  private static final String CATALOG_LOAD_THREADS_SETTING = "mondrian-catalog-load-threads"; //$NON-NLS-1$
+
+  private static final int CATALOG_LOCK_STRIPES = 64;
+
+  private static final long CATALOG_LOAD_THREAD_KEEP_ALIVE_SECONDS = 60;
+
   // ~ Static fields/initializers ======================================================================================
 
   private static final Log logger = LogFactory.getLog( MondrianCatalogHelper.class );
@@ -150,7 +174,39 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
 
   // ~ Instance fields =================================================================================================
 
-  private String dataSourcesConfig;
+  private volatile String dataSourcesConfig;
+
+  /**
+   * Serializes the full loads of the catalog cache.
+   */
+  private final ReentrantLock fullLoadLock = new ReentrantLock();
+
+  /**
+   * Serializes the loads and additions of each catalog, by catalog name or definition. Striped, so that the number of
+   * locks does not grow with the catalogs ever loaded.
+   */
+  private final Striped<Lock> catalogLocks = Striped.lock( CATALOG_LOCK_STRIPES );
+
+  /**
+   * Catalog additions hold the read lock and reloads the write lock, so that a reload never replaces the cache by one
+   * built before an added catalog reached the repository.
+   */
+  private final ReadWriteLock reloadLock = new ReentrantReadWriteLock();
+
+  /**
+   * Loads catalogs in parallel; created on first use and shared by all loads.
+   */
+  private volatile ExecutorService catalogLoadExecutor;
+
+  /**
+   * Guards the replacement of the catalog cache of a region by a newly loaded one.
+   */
+  private final Object cacheSwapLock = new Object();
+
+  /**
+   * Incremented each time the catalog cache is replaced by a newly loaded one.
+   */
+  private volatile long cacheGeneration;
 
   /**
    * true to use schema name from catalog definition (aka schema file) as catalog name.
@@ -372,32 +428,85 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
   /**
    * This method will conditionally load the catalogs into the cache, depending on the internal flag to check if it
    * is fully loaded,
-   * It is synchronized to prevent multiple threads from trying to load the catalogs
+   * Full loads are serialized to prevent multiple threads from trying to load the catalogs, while callers finding the
+   * cache already fully loaded do not wait for any lock.
    *
    * @param pentahoSession the pentaho session where the cache is stored
    */
-  synchronized void initIfNotFullyLoaded( final IPentahoSession pentahoSession ) {
+  void initIfNotFullyLoaded( final IPentahoSession pentahoSession ) {
     // First check if the catalogs are initialized and fully loaded for the current locale
-    MondrianCatalogCache mondrianCatalogCache = getCacheForRegion( pentahoSession );
-    if ( mondrianCatalogCache.getMondrianCatalogCacheState().isFullyLoaded() ) {
+    if ( getCacheForRegion( pentahoSession ).getMondrianCatalogCacheState().isFullyLoaded() ) {
       return;
     }
 
-    if ( MondrianCatalogHelper.logger.isDebugEnabled() ) {
-      MondrianCatalogHelper.logger.debug( "init" ); //$NON-NLS-1$
+    fullLoadLock.lock();
+    try {
+      // Another thread may have completed the load while this one waited for the lock
+      MondrianCatalogCache mondrianCatalogCache = getCacheForRegion( pentahoSession );
+      if ( mondrianCatalogCache.getMondrianCatalogCacheState().isFullyLoaded() ) {
+        return;
+      }
+
+      if ( MondrianCatalogHelper.logger.isDebugEnabled() ) {
+        MondrianCatalogHelper.logger.debug( "init" ); //$NON-NLS-1$
+      }
+      // By default, we will use the system to load all schemas into the cache.
+      // access to these schemas is controlled later via the hasAccess() method
+      loadCatalogsIntoCache( makeDataSources(), PentahoSessionHolder.getSession() );
+    } finally {
+      fullLoadLock.unlock();
     }
-    // By default, we will use the system to load all schemas into the cache.
-    // access to these schemas is controlled later via the hasAccess() method
-    loadCatalogsIntoCache( makeDataSources(), PentahoSessionHolder.getSession() );
   }
 
+  /**
+   * Reloads all catalogs. The new catalog cache is fully loaded before replacing the current one, so that readers keep
+   * using the current catalogs while the reload is in progress.
+   *
+   * @param pentahoSession the pentaho session where the cache is stored
+   */
   @Override
-  public synchronized void reInit( final IPentahoSession pentahoSession ) {
+  public void reInit( final IPentahoSession pentahoSession ) {
     final ICacheManager cacheMgr = PentahoSystem.getCacheManager( pentahoSession );
-    if ( cacheMgr.cacheEnabled( MONDRIAN_CATALOG_CACHE_REGION ) ) {
-      cacheMgr.clearRegionCache( MONDRIAN_CATALOG_CACHE_REGION );
+    if ( !cacheMgr.cacheEnabled( MONDRIAN_CATALOG_CACHE_REGION ) ) {
+      initIfNotFullyLoaded( pentahoSession );
+      return;
+    }
+
+    reloadLock.writeLock().lock();
+    fullLoadLock.lock();
+    try {
+      MondrianCatalogCache mondrianCatalogCache = new MondrianCatalogCache();
+      cacheCatalogs( makeDataSources(), mondrianCatalogCache );
+      mondrianCatalogCache.getMondrianCatalogCacheState().setFullyLoaded();
+
+      replaceCacheForRegion( cacheMgr, mondrianCatalogCache );
+    } finally {
+      fullLoadLock.unlock();
+      reloadLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Replaces the catalog cache of the current locale by a newly loaded one. The catalog caches of other locales, as
+   * well as any other entries of the region, are removed, to be loaded again on demand.
+   */
+  private void replaceCacheForRegion( ICacheManager cacheMgr, MondrianCatalogCache mondrianCatalogCache ) {
+    final String localeKey = getLocale().toString();
+    synchronized ( cacheSwapLock ) {
+      final Set<?> keys = cacheMgr.getAllKeysFromRegionCache( MONDRIAN_CATALOG_CACHE_REGION );
+      if ( keys == null ) {
+        cacheMgr.clearRegionCache( MONDRIAN_CATALOG_CACHE_REGION );
+      } else {
+        for ( Object key : new ArrayList<>( keys ) ) {
+          if ( !localeKey.equals( key ) ) {
+            cacheMgr.removeFromRegionCache( MONDRIAN_CATALOG_CACHE_REGION, key );
+          }
+        }
+      }
+
+      cacheMgr.putInRegionCache( MONDRIAN_CATALOG_CACHE_REGION, localeKey, mondrianCatalogCache );
+      cacheGeneration++;
     }
-    initIfNotFullyLoaded( pentahoSession );
   }
 
   private static Locale getLocale() {
@@ -647,7 +756,7 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
     return propertyList.toString();
   }
 
-  public synchronized String getDataSourcesConfig() {
+  public String getDataSourcesConfig() {
     return dataSourcesConfig;
   }
 
@@ -670,8 +779,8 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
    * use the in memory session value of input stream (used by test harness)
    */
   @Override
-  public synchronized void addCatalog( final MondrianCatalog catalog, final boolean overwrite,
-                                       final IPentahoSession pentahoSession ) throws MondrianCatalogServiceException {
+  public void addCatalog( final MondrianCatalog catalog, final boolean overwrite,
+                          final IPentahoSession pentahoSession ) throws MondrianCatalogServiceException {
     String mondrianSchema = (String) pentahoSession.getAttribute( "MONDRIAN_SCHEMA_XML_CONTENT" ); //$NON-NLS-1$
     InputStream schemaInputStream = IOUtils.toInputStream( mondrianSchema );
     addCatalog( schemaInputStream, catalog, overwrite, pentahoSession );
@@ -697,14 +806,36 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
    * @throws MondrianCatalogServiceException
    */
   @Override
-  public synchronized void addCatalog( InputStream schemaInputStream, final MondrianCatalog catalog,
-                                       final boolean overwrite, RepositoryFileAcl acl,
-                                       final IPentahoSession pentahoSession )
+  public void addCatalog( InputStream schemaInputStream, final MondrianCatalog catalog,
+                          final boolean overwrite, RepositoryFileAcl acl,
+                          final IPentahoSession pentahoSession )
     throws MondrianCatalogServiceException {
     if ( MondrianCatalogHelper.logger.isDebugEnabled() ) {
       MondrianCatalogHelper.logger.debug( "addCatalog" ); //$NON-NLS-1$
     }
 
+    // Additions of the same catalog are serialized, while other catalogs remain available
+    try {
+      Lock catalogLock = getCatalogLock( catalog.getName() );
+      reloadLock.readLock().lock();
+      catalogLock.lock();
+      try {
+        addCatalogLocked( schemaInputStream, catalog, overwrite, acl, pentahoSession );
+      } finally {
+        catalogLock.unlock();
+        reloadLock.readLock().unlock();
+      }
+    } catch ( MondrianException e ) {
+      // the catalog was removed from the repository again; reloading needs the locks to be released
+      reInit( pentahoSession );
+      throw e;
+    }
+  }
+
+  private void addCatalogLocked( InputStream schemaInputStream, final MondrianCatalog catalog,
+                                 final boolean overwrite, RepositoryFileAcl acl,
+                                 final IPentahoSession pentahoSession ) {
+
     // if cache was not initialized, do so now
     initIfNotFullyLoaded( pentahoSession );
 
@@ -766,7 +897,6 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
       }
     } catch ( MondrianException e ) {
       helper.deleteHostedCatalog( catalog.getName() );
-      reInit( pentahoSession );
       throw e;
     }
   }
@@ -936,14 +1066,121 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
       return;
     }
 
-    for ( DataSourcesConfig.DataSource dataSource : dataSources.dataSources ) {
-      for ( DataSourcesConfig.Catalog catalog : dataSource.catalogs.catalogs ) {
+    cacheCatalogs( dataSources, mondrianCatalogCache );
+
+    //set cache to fully loaded state
+    mondrianCatalogCache.getMondrianCatalogCacheState().setFullyLoaded();
+  }
+
+  /**
+   * Loads the catalogs of the given data sources into the given cache. When there is more than one catalog, these are
+   * loaded in parallel, using up to {@link #getCatalogLoadThreads()} threads.
+   * <p>
+   * The load threads run with the session, locale and security context of the calling thread. If the load of any
+   * catalog fails with a {@link MondrianException}, that exception is thrown, as when loading sequentially.
+   *
+   * @param dataSources          the data sources
+   * @param mondrianCatalogCache the cache where the catalogs are put
+   */
+  private void cacheCatalogs( final DataSourcesConfig.DataSources dataSources,
+                              final MondrianCatalogCache mondrianCatalogCache ) {
+    List<DataSourcesConfig.Catalog> catalogs = new ArrayList<>();
+    if ( dataSources != null && dataSources.dataSources != null ) {
+      for ( DataSourcesConfig.DataSource dataSource : dataSources.dataSources ) {
+        Collections.addAll( catalogs, dataSource.catalogs.catalogs );
+      }
+    }
+
+    int threadCount = Math.min( catalogs.size(), getCatalogLoadThreads() );
+    if ( threadCount <= 1 ) {
+      for ( DataSourcesConfig.Catalog catalog : catalogs ) {
         cacheCatalog( catalog, mondrianCatalogCache );
       }
+      return;
     }
 
-    //set cache to fully loaded state
-    mondrianCatalogCache.getMondrianCatalogCacheState().setFullyLoaded();
+    final IPentahoSession session = PentahoSessionHolder.getSession();
+    final Locale locale = getLocale();
+    final SecurityContext securityContext = SecurityContextHolder.getContext();
+
+    ExecutorService executor = getCatalogLoadExecutor();
+    List<Future<?>> futures = new ArrayList<>( catalogs.size() );
+    try {
+      for ( DataSourcesConfig.Catalog catalog : catalogs ) {
+        futures.add( executor.submit( () -> {
+          PentahoSessionHolder.setSession( session );
+          LocaleHelper.setThreadLocaleOverride( locale );
+          SecurityContextHolder.setContext( securityContext );
+          try {
+            cacheCatalog( catalog, mondrianCatalogCache );
+          } finally {
+            SecurityContextHolder.clearContext();
+            LocaleHelper.setThreadLocaleOverride( null );
+            PentahoSessionHolder.removeSession();
+          }
+        } ) );
+      }
+
+      for ( Future<?> future : futures ) {
+        future.get();
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new MondrianCatalogServiceException( e );
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof RuntimeException ) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new MondrianCatalogServiceException( e.getCause() );
+    } finally {
+      // do not leave loads of a failed cache running on the shared executor
+      for ( Future<?> future : futures ) {
+        future.cancel( true );
+      }
+    }
+  }
+
+  /**
+   * Gets the executor loading catalogs in parallel, creating it on first use. Its threads are daemons, and end when
+   * idle.
+   */
+  private ExecutorService getCatalogLoadExecutor() {
+    ExecutorService executor = catalogLoadExecutor;
+    if ( executor == null ) {
+      synchronized ( cacheSwapLock ) {
+        executor = catalogLoadExecutor;
+        if ( executor == null ) {
+          int threads = Math.max( 1, getCatalogLoadThreads() );
+          ThreadPoolExecutor threadPool = new ThreadPoolExecutor( threads, threads,
+            CATALOG_LOAD_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat( "mondrian-catalog-load-%d" ) //$NON-NLS-1$
+              .setDaemon( true ).build() );
+          threadPool.allowCoreThreadTimeOut( true );
+          catalogLoadExecutor = executor = threadPool;
+        }
+      }
+    }
+    return executor;
+  }
+
+  /**
+   * Gets the number of threads used to load the catalogs into the cache, as given by the
+   * {@code mondrian-catalog-load-threads} system setting.
+   *
+   * @return The number of threads; the number of available processors, if the setting is not defined or is invalid.
+   */
+  @VisibleForTesting
+  int getCatalogLoadThreads() {
+    String threads = PentahoSystem.getSystemSetting( CATALOG_LOAD_THREADS_SETTING, null );
+    if ( StringUtils.isNotBlank( threads ) ) {
+      try {
+        return Integer.parseInt( threads.trim() );
+      } catch ( NumberFormatException e ) {
+        MondrianCatalogHelper.logger.warn(
+          "Invalid " + CATALOG_LOAD_THREADS_SETTING + " setting: " + threads ); //$NON-NLS-1$
+      }
+    }
+    return Runtime.getRuntime().availableProcessors();
   }
 
   @Override
@@ -1284,24 +1521,44 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
    * @param pentahoSession the pentaho session where the cache is stored
    * @param overwrite      flag to indicate if the catalog should be overwritten
    */
-  private synchronized void loadCatalogIntoCache( String catalogName, final IPentahoSession pentahoSession,
-                                                  boolean overwrite ) {
+  private void loadCatalogIntoCache( String catalogName, final IPentahoSession pentahoSession,
+                                    boolean overwrite ) {
     ICacheManager cacheMgr = PentahoSystem.getCacheManager( pentahoSession );
-    MondrianCatalogCache mondrianCatalogCache = getCacheForRegion( cacheMgr );
-    if ( mondrianCatalogCache.getCatalog( catalogName ) != null && !overwrite ) {
+    if ( getCacheForRegion( cacheMgr ).getCatalog( catalogName ) != null && !overwrite ) {
       return;  //We already have it
     }
 
-    findDatasourceWithCatalog( catalogName, mondrianCatalogCache );
-    cacheMgr.putInRegionCache( MONDRIAN_CATALOG_CACHE_REGION, getLocale().toString(), mondrianCatalogCache );
+    Lock catalogLock = getCatalogLock( catalogName );
+    catalogLock.lock();
+    try {
+      long generation = cacheGeneration;
+      MondrianCatalogCache mondrianCatalogCache = getCacheForRegion( cacheMgr );
+      if ( mondrianCatalogCache.getCatalog( catalogName ) != null && !overwrite ) {
+        return;  //Another thread loaded it meanwhile
+      }
 
-    if ( mondrianCatalogCache.getCatalog( catalogName ) == null && !mondrianCatalogCache.getMondrianCatalogCacheState()
-      .isFullyLoaded() && isCatalogDefinitionString( catalogName ) ) {
-      //We could not find quickly by name, but if its a definition string perhaps we can find it with a full load
-      initIfNotFullyLoaded( pentahoSession );
+      findDatasourceWithCatalog( catalogName, mondrianCatalogCache );
+      synchronized ( cacheSwapLock ) {
+        // Do not put back a cache which a reload replaced meanwhile
+        if ( generation == cacheGeneration ) {
+          cacheMgr.putInRegionCache( MONDRIAN_CATALOG_CACHE_REGION, getLocale().toString(), mondrianCatalogCache );
+        }
+      }
+
+      if ( mondrianCatalogCache.getCatalog( catalogName ) == null && !mondrianCatalogCache
+        .getMondrianCatalogCacheState().isFullyLoaded() && isCatalogDefinitionString( catalogName ) ) {
+        //We could not find quickly by name, but if its a definition string perhaps we can find it with a full load
+        initIfNotFullyLoaded( pentahoSession );
+      }
+    } finally {
+      catalogLock.unlock();
     }
   }
 
+  private Lock getCatalogLock( String catalogName ) {
+    return catalogLocks.get( catalogName == null ? "" : catalogName );
+  }
+
   private MondrianCatalogCache getCacheForRegion( IPentahoSession pentahoSession ) {
     final ICacheManager cacheMgr = PentahoSystem.getCacheManager( pentahoSession );
     return getCacheForRegion( cacheMgr );
@@ -1309,10 +1566,7 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
 
   private MondrianCatalogCache getCacheForRegion( final ICacheManager cacheMgr ) {
     // Create the cache region if necessary.
-    if ( !cacheMgr.cacheEnabled( MONDRIAN_CATALOG_CACHE_REGION ) ) {
-      // Create the region
-      cacheMgr.addCacheRegion( MONDRIAN_CATALOG_CACHE_REGION );
-    }
+    cacheMgr.addCacheRegionIfAbsent( MONDRIAN_CATALOG_CACHE_REGION );
 
     MondrianCatalogCache mondrianCatalogCache =
       (MondrianCatalogCache) cacheMgr.getFromRegionCache( MONDRIAN_CATALOG_CACHE_REGION,
@@ -1426,11 +1680,7 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
 
   private void cacheCatalogsInDataSources( DataSourcesConfig.DataSources dataSources,
                                            MondrianCatalogCache mondrianCatalogCache ) {
-    for ( DataSourcesConfig.DataSource dataSource : dataSources.dataSources ) {
-      for ( DataSourcesConfig.Catalog catalog : dataSource.catalogs.catalogs ) {
-        cacheCatalog( catalog, mondrianCatalogCache );
-      }
-    }
+    cacheCatalogs( dataSources, mondrianCatalogCache );
     mondrianCatalogCache.setFullLoad();
   }
 
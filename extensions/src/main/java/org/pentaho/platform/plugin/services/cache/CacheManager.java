@@ -36,14 +36,21 @@ import org.pentaho.platform.repository.hibernate.HibernateLoadEventListener;
 import org.pentaho.platform.repository.hibernate.HibernateUtil;
 import org.pentaho.platform.util.xml.dom4j.XmlDom4JHelper;
 
+import javax.cache.configuration.Factory;
+import javax.cache.configuration.MutableCacheEntryListenerConfiguration;
+import javax.cache.event.CacheEntryEvent;
+import javax.cache.event.CacheEntryExpiredListener;
+import javax.cache.event.CacheEntryListener;
+import javax.cache.event.CacheEntryRemovedListener;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 /**
@@ -122,7 +129,11 @@ public class CacheManager implements ICacheManager {
   // ~ Instance Fields ======================================================
   private RegionFactory regionFactory;
 
-  private Map<String, Cache> regionCache;
+  /**
+   * Registered regions. Regions are added lazily at runtime while other threads read them on every cache access, so
+   * the registry must be safe for concurrent use.
+   */
+  private final ConcurrentMap<String, HvCache> regionCache = new ConcurrentHashMap<>();
 
   private String regionFactoryClassname;
 
@@ -132,6 +143,13 @@ public class CacheManager implements ICacheManager {
 
   private ICacheExpirationRegistry cacheExpirationRegistry;
 
+  /**
+   * Keys of the <code>SESSION</code> region, grouped by session id, so that evicting a single session does not have to
+   * scan the whole region. Maintained on every put and remove of the region, and pruned by a listener on the
+   * underlying cache when entries expire or are removed by the cache itself.
+   */
+  private final Map<String, Set<String>> sessionKeyIndex = new ConcurrentHashMap<>();
+
   // ~ Constructors =========================================================
 
   /**
@@ -178,16 +196,16 @@ public class CacheManager implements ICacheManager {
         Map<String, Object> cachePropertiesMap = cacheProperties.entrySet().stream()
           .collect( Collectors.toMap( e -> e.getKey().toString(), Map.Entry::getValue) );
         regionFactory.start( HibernateUtil.getSessionFactory().getSessionFactoryOptions(), cachePropertiesMap );
-        regionCache = new HashMap<String, Cache>();
         ( (SessionFactoryImplementor) HibernateUtil.getSessionFactory() ).getServiceRegistry()
           .getService( EventListenerRegistry.class ).prependListeners(
             EventType.LOAD, new HibernateLoadEventListener() );
-        Cache cache = buildCache( SESSION, HibernateUtil.getSessionFactory(), cacheProperties );
+        LastModifiedCache cache = buildCache( SESSION, HibernateUtil.getSessionFactory(), cacheProperties );
         if ( cache == null ) {
           CacheManager.logger
               .error( Messages.getInstance().getString( "CacheManager.ERROR_0005_UNABLE_TO_BUILD_CACHE" ) ); //$NON-NLS-1$
         } else {
           regionCache.put( SESSION, cache );
+          listenForSessionKeyRemoval( cache );
         }
         cache = buildCache( GLOBAL, HibernateUtil.getSessionFactory(), cacheProperties );
         if ( cache == null ) {
@@ -203,6 +221,25 @@ public class CacheManager implements ICacheManager {
     }
   }
 
+  /**
+   * Registers a listener pruning the session key index when entries of the <code>SESSION</code> region expire or are
+   * removed without going through this class.
+   */
+  private void listenForSessionKeyRemoval( HvCache sessionCache ) {
+    try {
+      javax.cache.Cache<Object, Object> cache =
+        ( (JCacheAccessImpl) sessionCache.getStorageAccess() ).getUnderlyingCache();
+      Factory<CacheEntryListener<Object, Object>> listenerFactory = SessionKeyListener::new;
+      cache.registerCacheEntryListener(
+        // synchronous, so that a late removal event cannot unindex a key which was just put again
+        new MutableCacheEntryListenerConfiguration<>( listenerFactory, null, false, true ) );
+    } catch ( RuntimeException e ) {
+      // the index is still pruned when sessions are killed and when entries are counted
+      CacheManager.logger.warn( Messages.getInstance().getString(
+        "CacheManager.WARN_0004_NO_SESSION_KEY_LISTENER", e.getLocalizedMessage() ) ); //$NON-NLS-1$
+    }
+  }
+
   public void cacheStop() {
     if ( cacheEnabled ) {
       regionCache.clear();
@@ -242,25 +279,21 @@ public class CacheManager implements ICacheManager {
   }
 
   public boolean cacheEnabled( String region ) {
-    return regionCache.get( region ) != null;
+    return region != null && regionCache.get( region ) != null;
   }
 
   public void onLogout( final IPentahoSession session ) {
-    removeRegionCache( session.getName() );
+    killSessionCache( session );
+    if ( cacheEnabled && session.getName() != null && cacheEnabled( session.getName() ) ) {
+      removeRegionCache( session.getName() );
+    }
   }
 
   public boolean addCacheRegion( String region, Properties cacheProperties ) {
     boolean returnValue = false;
     if ( checkCacheEnabled() ) {
       if ( !cacheEnabled( region ) ) {
-        Cache cache = buildCache( region, HibernateUtil.getSessionFactory(), cacheProperties );
-        if ( cache == null ) {
-          CacheManager.logger
-              .error( Messages.getInstance().getString( "CacheManager.ERROR_0005_UNABLE_TO_BUILD_CACHE" ) ); //$NON-NLS-1$
-        } else {
-          regionCache.put( region, cache );
-          returnValue = true;
-        }
+        returnValue = createCacheRegion( region, cacheProperties );
       } else {
         CacheManager.logger.warn( Messages.getInstance().getString(
             "CacheManager.WARN_0002_REGION_ALREADY_EXIST", region ) ); //$NON-NLS-1$
@@ -273,14 +306,7 @@ public class CacheManager implements ICacheManager {
     boolean returnValue = false;
     if ( checkCacheEnabled() ) {
       if ( !cacheEnabled( region ) ) {
-        Cache cache = buildCache( region, HibernateUtil.getSessionFactory(), null );
-        if ( cache == null ) {
-          CacheManager.logger
-              .error( Messages.getInstance().getString( "CacheManager.ERROR_0005_UNABLE_TO_BUILD_CACHE" ) ); //$NON-NLS-1$
-        } else {
-          regionCache.put( region, cache );
-          returnValue = true;
-        }
+        returnValue = createCacheRegion( region, null ) || cacheEnabled( region );
       } else {
         CacheManager.logger.warn( Messages.getInstance().getString(
             "CacheManager.WARN_0002_REGION_ALREADY_EXIST", region ) ); //$NON-NLS-1$
@@ -292,9 +318,12 @@ public class CacheManager implements ICacheManager {
 
   public boolean addCacheRegion( String region, Cache cache ) {
     if ( checkCacheEnabled() ) {
-      if ( !cacheEnabled( region ) ) {
-        regionCache.put( region, cache );
-      } else {
+      if ( !( cache instanceof HvCache ) ) {
+        CacheManager.logger
+          .error( Messages.getInstance().getString( "CacheManager.ERROR_0005_UNABLE_TO_BUILD_CACHE" ) ); //$NON-NLS-1$
+        return false;
+      }
+      if ( regionCache.putIfAbsent( region, (HvCache) cache ) != null ) {
         CacheManager.logger.warn( Messages.getInstance().getString(
           "CacheManager.WARN_0002_REGION_ALREADY_EXIST", region ) );
       }
@@ -304,10 +333,41 @@ public class CacheManager implements ICacheManager {
     return true;
   }
 
+  @Override
+  public boolean addCacheRegionIfAbsent( String region ) {
+    if ( !cacheEnabled ) {
+      return false;
+    }
+    return cacheEnabled( region ) || createCacheRegion( region, null ) || cacheEnabled( region );
+  }
+
+  /**
+   * Atomically builds and registers a region unless another thread registered it first.
+   *
+   * @return true if this call registered the region
+   */
+  private boolean createCacheRegion( String region, Properties cacheProperties ) {
+    boolean[] created = new boolean[ 1 ];
+    regionCache.computeIfAbsent( region, r -> {
+      LastModifiedCache cache = buildCache( r, HibernateUtil.getSessionFactory(), cacheProperties );
+      if ( cache == null ) {
+        CacheManager.logger
+          .error( Messages.getInstance().getString( "CacheManager.ERROR_0005_UNABLE_TO_BUILD_CACHE" ) ); //$NON-NLS-1$
+      } else {
+        created[ 0 ] = true;
+      }
+      return cache;
+    } );
+    return created[ 0 ];
+  }
+
   public void clearRegionCache( String region ) {
     if ( checkCacheEnabled() ) {
-       HvCache cache = (HvCache) regionCache.get( region );
+      HvCache cache = regionCache.get( region );
       if ( cache != null ) {
+        if ( SESSION.equals( region ) ) {
+          sessionKeyIndex.clear();
+        }
         try {
           try ( SessionImpl session = ( SessionImpl ) cache.getSessionFactory().openSession() ) {
             cache.getStorageAccess().clearCache( session );
@@ -330,18 +390,21 @@ public class CacheManager implements ICacheManager {
   }
 
   public void putInRegionCache( String region, Object key, Object value ) {
-    if ( checkRegionEnabled( region ) ) {
+    HvCache hvcache = getEnabledRegion( region );
+    if ( hvcache != null ) {
       if ( key == null || value == null ) {
         return;
       }
-      HvCache hvcache = ( HvCache ) regionCache.get( region );  //This is our LastModifiedCache or CarteStatusCache
       hvcache.getDirectAccessRegion().putIntoCache( key, value, null );
+      if ( SESSION.equals( region ) ) {
+        indexSessionKey( key );
+      }
     }
   }
 
   public Object getFromRegionCache( String region, Object key ) {
-    if ( checkRegionEnabled( region ) ) {
-      HvCache hvcache = (HvCache) regionCache.get( region );  //This is our LastModifiedCache or CarteStatusCache
+    HvCache hvcache = getEnabledRegion( region );
+    if ( hvcache != null ) {
       return hvcache.getDirectAccessRegion().getFromCache( key, null );
     }
     return null;
@@ -349,8 +412,8 @@ public class CacheManager implements ICacheManager {
 
   public List<Object> getAllValuesFromRegionCache( String region ) {
     List<Object> list = new ArrayList<>();
-    if ( checkRegionEnabled( region ) ) {
-      HvCache hvcache = (HvCache) regionCache.get( region );  //This is our LastModifiedCache or CarteStatusCache
+    HvCache hvcache = getEnabledRegion( region );
+    if ( hvcache != null ) {
       javax.cache.Cache<Object, Object> cache = ( ( JCacheAccessImpl ) hvcache.getStorageAccess() ).getUnderlyingCache();
       cache.forEach( entry -> list.add( entry.getValue() ) );
     }
@@ -358,16 +421,16 @@ public class CacheManager implements ICacheManager {
   }
 
   public Set getAllKeysFromRegionCache( String region ) {
-    if ( checkRegionEnabled( region ) ) {
-      HvCache hvcache = (HvCache) regionCache.get( region );  //This is our LastModifiedCache or CarteStatusCache
+    HvCache hvcache = getEnabledRegion( region );
+    if ( hvcache != null ) {
       return hvcache.getAllKeys();
     }
     return null;
   }
 
   public Set getAllEntriesFromRegionCache( String region ) {
-    if ( checkRegionEnabled( region ) ) {
-      HvCache hvcache = (HvCache) regionCache.get( region );  //This is our LastModifiedCache or CarteStatusCache
+    HvCache hvcache = getEnabledRegion( region );
+    if ( hvcache != null ) {
       javax.cache.Cache<Object, Object> cache = ( ( JCacheAccessImpl ) hvcache.getStorageAccess() ).getUnderlyingCache();
       Set cacheValues = new HashSet<>();
       cache.forEach( entry -> cacheValues.add( entry.getValue() ) );
@@ -377,9 +440,12 @@ public class CacheManager implements ICacheManager {
   }
 
   public void removeFromRegionCache( String region, Object key ) {
-    if ( checkRegionEnabled( region ) ) {
-      HvCache hvcache = (HvCache) regionCache.get( region );
+    HvCache hvcache = getEnabledRegion( region );
+    if ( hvcache != null ) {
       hvcache.getStorageAccess().evictData( key );
+      if ( SESSION.equals( region ) ) {
+        unindexSessionKey( key );
+      }
     } else {
       CacheManager.logger.warn( Messages.getInstance().getString(
         "CacheManager.WARN_0003_REGION_DOES_NOT_EXIST", region ) ); //$NON-NLS-1$
@@ -413,23 +479,35 @@ public class CacheManager implements ICacheManager {
 
   public void killSessionCache( IPentahoSession session ) {
     if ( cacheEnabled ) {
-      HvCache hvcache = (HvCache) regionCache.get( SESSION );
-      if ( hvcache != null ) {
-        javax.cache.Cache<Object, Object> cache = ( ( JCacheAccessImpl ) hvcache.getStorageAccess() ).getUnderlyingCache();
-        if ( cache != null ) {
-          Iterator<javax.cache.Cache.Entry<Object, Object>> cacheIterator = cache.iterator();
-          while ( cacheIterator.hasNext() ) {
-            javax.cache.Cache.Entry<Object, Object> entry = cacheIterator.next();
-            String key = ( String ) entry.getKey();
-            if ( key.contains( session.getId() ) ) {
-              hvcache.getStorageAccess().evictData( key );
-            }
-          }
+      Set<String> keys = session.getId() != null ? sessionKeyIndex.remove( session.getId() ) : null;
+      HvCache hvcache = regionCache.get( SESSION );
+      if ( hvcache != null && keys != null ) {
+        for ( String key : keys ) {
+          hvcache.getStorageAccess().evictData( key );
         }
       }
     }
   }
 
+  /**
+   * Counts the entries of the session still held by the <code>SESSION</code> region; keys the cache dropped on its own
+   * are pruned from the index on the way.
+   */
+  @Override
+  public int getSessionCacheEntryCount( IPentahoSession session ) {
+    Set<String> keys = session.getId() != null ? sessionKeyIndex.get( session.getId() ) : null;
+    HvCache hvcache = cacheEnabled ? regionCache.get( SESSION ) : null;
+    if ( keys == null || hvcache == null ) {
+      return 0;
+    }
+    for ( String key : keys ) {
+      if ( !hvcache.getStorageAccess().contains( key ) ) {
+        unindexSessionKey( key );
+      }
+    }
+    return keys.size();
+  }
+
   public void killSessionCaches() {
     removeRegionCache( SESSION );
   }
@@ -450,6 +528,40 @@ public class CacheManager implements ICacheManager {
     removeFromRegionCache( SESSION, getCorrectedKey( session, key ) );
   }
 
+  /**
+   * Returns the id of the session a <code>SESSION</code> region key belongs to, or <code>null</code> if the key was not
+   * built by <code>getCorrectedKey</code>.
+   */
+  private static String getSessionId( Object key ) {
+    if ( key instanceof String ) {
+      int separator = ( (String) key ).indexOf( '\t' );
+      return separator > 0 ? ( (String) key ).substring( 0, separator ) : null;
+    }
+    return null;
+  }
+
+  private void indexSessionKey( Object key ) {
+    String sessionId = getSessionId( key );
+    if ( sessionId != null ) {
+      // add under the map lock, so that a concurrent unindexSessionKey cannot drop the set the key is added to
+      sessionKeyIndex.compute( sessionId, ( id, keys ) -> {
+        Set<String> sessionKeys = keys != null ? keys : ConcurrentHashMap.newKeySet();
+        sessionKeys.add( (String) key );
+        return sessionKeys;
+      } );
+    }
+  }
+
+  void unindexSessionKey( Object key ) {
+    String sessionId = getSessionId( key );
+    if ( sessionId != null ) {
+      sessionKeyIndex.computeIfPresent( sessionId, ( id, keys ) -> {
+        keys.remove( key );
+        return keys.isEmpty() ? null : keys;
+      } );
+    }
+  }
+
   private String getCorrectedKey( final IPentahoSession session, final String key ) {
     String sessionId = session.getId();
     if ( sessionId != null ) {
@@ -475,6 +587,18 @@ public class CacheManager implements ICacheManager {
     }
   }
 
+  /**
+   * Returns the region in a single registry lookup, or <code>null</code> (logging why) when the cache or the region is
+   * not enabled.
+   */
+  private HvCache getEnabledRegion( String region ) {
+    HvCache hvcache = cacheEnabled && region != null ? regionCache.get( region ) : null;
+    if ( hvcache == null ) {
+      checkRegionEnabled( region );
+    }
+    return hvcache;
+  }
+
   private boolean checkRegionEnabled( String region ) {
     if ( checkCacheEnabled() ) {
       if ( cacheEnabled( region ) ) {
@@ -508,4 +632,27 @@ public class CacheManager implements ICacheManager {
     }
     return false;
   }
+
+  /**
+   * Prunes the session key index when the cache expires or removes an entry of the <code>SESSION</code> region.
+   */
+  class SessionKeyListener implements CacheEntryExpiredListener<Object, Object>,
+    CacheEntryRemovedListener<Object, Object> {
+
+    @Override
+    public void onExpired( Iterable<CacheEntryEvent<? extends Object, ? extends Object>> events ) {
+      unindex( events );
+    }
+
+    @Override
+    public void onRemoved( Iterable<CacheEntryEvent<? extends Object, ? extends Object>> events ) {
+      unindex( events );
+    }
+
+    private void unindex( Iterable<CacheEntryEvent<? extends Object, ? extends Object>> events ) {
+      for ( CacheEntryEvent<? extends Object, ? extends Object> event : events ) {
+        unindexSessionKey( event.getKey() );
+      }
+    }
+  }
 }
@@ -65,6 +65,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -108,6 +109,10 @@ public class PentahoPlatformExporter extends ZipExportProcessor implements IPent
     return this.performExport( null );
   }
 
+  public void performExport( OutputStream outputStream ) throws ExportException, IOException {
+    this.performExport( null, outputStream );
+  }
+
   public void addExportHelper( IExportHelper helper ) {
     exportHelpers.add( helper );
   }
@@ -123,27 +128,28 @@ public class PentahoPlatformExporter extends ZipExportProcessor implements IPent
   }
 
   /**
-   * Performs the export process, returns a zip File object
+   * Performs the export process, writing the zip entries to the given output stream as they are produced. The whole
+   * repository is always exported, and the manifest is written as the last entry. The output stream is not closed.
    *
    * @throws ExportException indicates an error in import processing
    */
   @Override
-  public File performExport( RepositoryFile exportRepositoryFile ) throws ExportException, IOException {
+  public void performExport( RepositoryFile exportRepositoryFile, OutputStream outputStream )
+    throws ExportException, IOException {
 
     getRepositoryExportLogger().info( Messages.getInstance().getString( "PentahoPlatformExporter.INFO_START_EXPORT_PROCESS" ) );
     // always export root
     exportRepositoryFile = getUnifiedRepository().getFile( ROOT );
 
-    // create temp file
-    File exportFile = File.createTempFile( EXPORT_TEMP_FILENAME_PREFIX, EXPORT_TEMP_FILENAME_EXT );
-    exportFile.deleteOnExit();
-
-    zos = new ZipOutputStream( new FileOutputStream( exportFile ) );
+    zos = new ZipOutputStream( outputStream );
 
+    startPrefetch();
     try {
       exportFileContent( exportRepositoryFile );
     } catch ( ExportException | IOException exception ) {
       getRepositoryExportLogger().error( Messages.getInstance().getString( "PentahoPlatformExporter.ERROR_EXPORT_FILE_CONTENT", exception.getLocalizedMessage() ) );
+    } finally {
+      stopPrefetch();
     }
 
     exportDatasources();
@@ -169,15 +175,15 @@ public class PentahoPlatformExporter extends ZipExportProcessor implements IPent
       zos.closeEntry();
     }
 
-    zos.close();
+    // write the central directory, leaving the output stream open
+    zos.finish();
+    zos.flush();
 
     // clean up
     initManifest();
     zos = null;
 
     getRepositoryExportLogger().info( Messages.getInstance().getString( "PentahoPlatformExporter.INFO_END_EXPORT_PROCESS" ) );
-
-    return exportFile;
   }
 
   protected void exportDatasources() {
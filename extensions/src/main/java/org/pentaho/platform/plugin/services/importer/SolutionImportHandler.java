@@ -14,12 +14,16 @@
 package org.pentaho.platform.plugin.services.importer;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.pentaho.database.model.IDatabaseConnection;
 import org.pentaho.metadata.repository.DomainAlreadyExistsException;
 import org.pentaho.metadata.repository.DomainIdNullException;
 import org.pentaho.metadata.repository.DomainStorageException;
+import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.engine.security.userroledao.AlreadyExistsException;
 import org.pentaho.platform.api.engine.security.userroledao.IPentahoRole;
 import org.pentaho.platform.api.engine.security.userroledao.IUserRoleDao;
@@ -31,12 +35,14 @@ import org.pentaho.platform.api.repository.datasource.IDatasourceMgmtService;
 import org.pentaho.platform.api.repository2.unified.IPlatformImportBundle;
 import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
 import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.api.repository2.unified.RepositoryRequest;
 import org.pentaho.platform.api.scheduler2.IJob;
 import org.pentaho.platform.api.scheduler2.ISchedulerResource;
 import org.pentaho.platform.api.usersettings.IAnyUserSettingService;
 import org.pentaho.platform.api.usersettings.IUserSettingService;
 import org.pentaho.platform.api.usersettings.pojo.IUserSetting;
 import org.pentaho.platform.core.mt.Tenant;
+import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.engine.core.system.TenantUtils;
 import org.pentaho.platform.plugin.services.importexport.DatabaseConnectionConverter;
@@ -47,9 +53,9 @@ import org.pentaho.platform.plugin.services.importexport.ImportSession;
 import org.pentaho.platform.plugin.services.importexport.ImportSession.ManifestFile;
 import org.pentaho.platform.plugin.services.importexport.ImportSource.IRepositoryFileBundle;
 import org.pentaho.platform.plugin.services.importexport.Log4JRepositoryImportLogger;
-import org.pentaho.platform.plugin.services.importexport.RepositoryFileBundle;
 import org.pentaho.platform.plugin.services.importexport.RoleExport;
 import org.pentaho.platform.plugin.services.importexport.UserExport;
+import org.pentaho.platform.plugin.services.importexport.ZipEntryFileBundle;
 import org.pentaho.platform.plugin.services.importexport.exportManifest.ExportManifest;
 import org.pentaho.platform.plugin.services.importexport.exportManifest.Parameters;
 import org.pentaho.platform.plugin.services.importexport.exportManifest.bindings.ExportManifestMetaStore;
@@ -60,21 +66,34 @@ import org.pentaho.platform.plugin.services.messages.Messages;
 import org.pentaho.platform.repository.RepositoryFilenameUtils;
 import org.pentaho.platform.security.policy.rolebased.IRoleAuthorizationPolicyRoleBindingDao;
 import org.pentaho.platform.web.http.api.resources.services.FileService;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 
 public class SolutionImportHandler implements IPlatformImportHandler {
 
@@ -83,6 +102,10 @@ public class SolutionImportHandler implements IPlatformImportHandler {
   private static final String EXPORT_MANIFEST_XML_FILE = "exportManifest.xml";
   private static final String DOMAIN_ID = "domain-id";
   private static final String UTF_8 = StandardCharsets.UTF_8.name();
+  private static final String IMPORT_THREADS_SETTING = "repository-import-threads";
+  private static final String IMPORT_BATCH_SIZE_SETTING = "repository-import-batch-size";
+  private static final int DEFAULT_IMPORT_THREADS = 4;
+  private static final int DEFAULT_IMPORT_BATCH_SIZE = 500;
 
   IRepositoryImportLogger logger = new Log4JRepositoryImportLogger();
   private IUnifiedRepository repository; // TODO inject via Spring
@@ -91,7 +114,13 @@ public class SolutionImportHandler implements IPlatformImportHandler {
   private List<IMimeType> mimeTypes;
   public boolean overwriteFile;
   private List<IRepositoryFileBundle> files;
+  private File zipTempFile;
+  private ZipFile zipFile;
   private boolean isPerformingRestore = false;
+  // the children of the folders looked up during the import of the repository files, by folder path
+  private volatile Map<String, Map<String, RepositoryFile>> folderChildren;
+  private Integer importThreads;
+  private Integer importBatchSize;
   // whether the import was partially successful.
   private boolean partialImport = false;
 
@@ -128,6 +157,15 @@ public class SolutionImportHandler implements IPlatformImportHandler {
   @Override
   public void importFile( IPlatformImportBundle bundle ) throws PlatformImportException, DomainIdNullException,
       DomainAlreadyExistsException, DomainStorageException, IOException {
+    try {
+      importZip( bundle );
+    } finally {
+      closeZipFile();
+    }
+  }
+
+  private void importZip( IPlatformImportBundle bundle ) throws PlatformImportException, DomainIdNullException,
+      DomainAlreadyExistsException, DomainStorageException, IOException {
     IPlatformImporter platformImporter = PentahoSystem.get( IPlatformImporter.class );
     isPerformingRestore = platformImporter.getRepositoryImportLogger().isPerformingRestore();
     partialImport = false;
@@ -190,17 +228,260 @@ public class SolutionImportHandler implements IPlatformImportHandler {
       getLogger().info( Messages.getInstance().getString( "SolutionImportHandler.INFO_START_IMPORT_FILEFOLDER" ) );
       getLogger().info( Messages.getInstance().getString( "SolutionImportHandler.INFO_COUNT_FILEFOLDER", files.size() ) );
     }
-    int successfulFilesImportCount = 0;
-    String manifestVersion = null;
-    if ( manifest != null ) {
-      manifestVersion = manifest.getManifestInformation().getManifestVersion();
-    }
-    RepositoryFileImportBundle importBundle = (RepositoryFileImportBundle) bundle;
-
     LocaleFilesProcessor localeFilesProcessor = new LocaleFilesProcessor();
     IPlatformImporter importer = PentahoSystem.get( IPlatformImporter.class );
+    FilesImport filesImport =
+        new FilesImport( manifest, (RepositoryFileImportBundle) bundle, importer, localeFilesProcessor );
+
+    folderChildren = new ConcurrentHashMap<>();
+    try {
+      // Create the folders first, in the order of the zip, so that the files of each folder can then be imported
+      // independently of the files of the other folders
+      Map<String, List<IRepositoryFileBundle>> filesByFolder = new LinkedHashMap<>();
+      for ( IRepositoryFileBundle fileBundle : files ) {
+        if ( fileBundle.getFile().isFolder() ) {
+          filesImport.importFile( fileBundle );
+        } else {
+          filesByFolder.computeIfAbsent( fileBundle.getPath(), path -> new ArrayList<>() ).add( fileBundle );
+        }
+      }
+
+      // The files replacing a cached import, and those of the folders that do not exist yet, which are created on the
+      // fly, are imported by this thread
+      List<List<IRepositoryFileBundle>> folderImports = new ArrayList<>();
+      for ( List<IRepositoryFileBundle> folderFiles : filesByFolder.values() ) {
+        if ( !filesImport.folderExists( folderFiles.get( 0 ) ) ) {
+          for ( IRepositoryFileBundle fileBundle : folderFiles ) {
+            filesImport.importFile( fileBundle );
+          }
+          continue;
+        }
+        List<IRepositoryFileBundle> independentFiles = new ArrayList<>();
+        for ( IRepositoryFileBundle fileBundle : folderFiles ) {
+          if ( cachedImports.containsKey( filesImport.getRepositoryFilePath( fileBundle ) ) ) {
+            filesImport.importFile( fileBundle );
+          } else {
+            independentFiles.add( fileBundle );
+          }
+        }
+        if ( !independentFiles.isEmpty() ) {
+          folderImports.add( independentFiles );
+        }
+      }
+      importFolderFiles( folderImports, filesImport );
+    } finally {
+      folderChildren = null;
+    }
+
+    // Process locale files.
+    if ( isPerformingRestore ) {
+      getLogger().info( Messages.getInstance().getString( "SolutionImportHandler.INFO_START_IMPORT_LOCALEFILE" ) );
+    }
+    int successfulLocaleFilesProcessed = 0;
+    try {
+      successfulLocaleFilesProcessed = localeFilesProcessor.processLocaleFiles( importer );
+    } catch ( PlatformImportException e ) {
+      if ( isPerformingRestore ) {
+        getLogger().error( Messages.getInstance().getString( "SolutionImportHandler.ERROR_IMPORTING_LOCALE_FILE", e.getLocalizedMessage() ) );
+      }
+    } finally {
+      if ( isPerformingRestore ) {
+        getLogger().info( Messages.getInstance().getString( "SolutionImportHandler.INFO_END_IMPORT_LOCALEFILE" ) );
+      }
+    }
 
-    for ( IRepositoryFileBundle fileBundle : files ) {
+    if ( isPerformingRestore ) {
+      getLogger().info( Messages.getInstance().getString( "SolutionImportHandler.INFO_SUCCESSFUL_REPOSITORY_IMPORT_COUNT", filesImport.getImportedCount() + successfulLocaleFilesProcessed, files.size() ) );
+      getLogger().info( Messages.getInstance().getString( "SolutionImportHandler.INFO_END_IMPORT_FILEFOLDER" ) );
+    }
+  }
+
+  /**
+   * Imports the files of each folder on its own thread, up to the number of threads given by the
+   * {@code repository-import-threads} system setting. The files of a folder are imported in order.
+   */
+  private void importFolderFiles( List<List<IRepositoryFileBundle>> folderImports, FilesImport filesImport )
+    throws IOException {
+    int threadCount = Math.min( folderImports.size(), getImportThreads() );
+    final IRepositoryImportLogger importLogger = filesImport.importer.getRepositoryImportLogger();
+    final Object importJob = importLogger != null ? importLogger.getCurrentJob() : null;
+    // the import log of this thread must be shared with the other threads, to keep track of their files
+    if ( threadCount <= 1 || ( importLogger != null && importLogger.hasLogger() && importJob == null ) ) {
+      for ( List<IRepositoryFileBundle> folderFiles : folderImports ) {
+        for ( IRepositoryFileBundle fileBundle : folderFiles ) {
+          filesImport.importFile( fileBundle );
+        }
+      }
+      return;
+    }
+
+    final IPentahoSession session = PentahoSessionHolder.getSession();
+    final SecurityContext securityContext = SecurityContextHolder.getContext();
+    final ImportSession importSession = getImportSession();
+
+    ExecutorService executor = Executors.newFixedThreadPool( threadCount,
+      new ThreadFactoryBuilder().setNameFormat( "repository-import-%d" ).setDaemon( true ).build() );
+    try {
+      List<Future<?>> futures = new ArrayList<>( folderImports.size() );
+      for ( List<IRepositoryFileBundle> folderFiles : folderImports ) {
+        futures.add( executor.submit( () -> {
+          PentahoSessionHolder.setSession( session );
+          SecurityContextHolder.setContext( securityContext );
+          if ( importJob != null ) {
+            importLogger.setCurrentJob( importJob );
+          }
+          ImportSession folderSession = importSession.fork();
+          ImportSession.setSession( folderSession );
+          try {
+            for ( IRepositoryFileBundle fileBundle : folderFiles ) {
+              filesImport.importFile( fileBundle );
+            }
+          } finally {
+            importSession.merge( folderSession );
+            ImportSession.clearSession();
+            if ( importJob != null ) {
+              importLogger.setCurrentJob( null );
+            }
+            SecurityContextHolder.clearContext();
+            PentahoSessionHolder.removeSession();
+          }
+          return null;
+        } ) );
+      }
+
+      for ( Future<?> future : futures ) {
+        future.get();
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( e.getMessage() );
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof IOException ) {
+        throw (IOException) e.getCause();
+      }
+      if ( e.getCause() instanceof RuntimeException ) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IOException( e.getCause() );
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Gets the number of threads importing the files of different folders at the same time, as given by the
+   * {@code repository-import-threads} system setting.
+   *
+   * @return The number of threads; 4, if the setting is not defined or is invalid.
+   */
+  public int getImportThreads() {
+    if ( importThreads == null ) {
+      importThreads = getIntSetting( IMPORT_THREADS_SETTING, DEFAULT_IMPORT_THREADS );
+    }
+    return importThreads;
+  }
+
+  public void setImportThreads( int importThreads ) {
+    this.importThreads = importThreads;
+  }
+
+  @VisibleForTesting
+  void setFiles( List<IRepositoryFileBundle> files ) {
+    this.files = files;
+  }
+
+  /**
+   * Gets the number of files imported between each progress report of the import log, as given by the
+   * {@code repository-import-batch-size} system setting.
+   *
+   * @return The number of files; 500, if the setting is not defined or is invalid.
+   */
+  public int getImportBatchSize() {
+    if ( importBatchSize == null ) {
+      importBatchSize = getIntSetting( IMPORT_BATCH_SIZE_SETTING, DEFAULT_IMPORT_BATCH_SIZE );
+    }
+    return importBatchSize;
+  }
+
+  public void setImportBatchSize( int importBatchSize ) {
+    this.importBatchSize = importBatchSize;
+  }
+
+  private int getIntSetting( String name, int defaultValue ) {
+    String setting = PentahoSystem.getSystemSetting( name, null );
+    if ( StringUtils.isNotBlank( setting ) ) {
+      try {
+        return Integer.parseInt( setting.trim() );
+      } catch ( NumberFormatException e ) {
+        getLogger().warn( "Invalid " + name + " setting: " + setting );
+      }
+    }
+    return defaultValue;
+  }
+
+  /**
+   * The repository files and folders of an import, and its progress. Safe to use from the threads importing the files
+   * of different folders.
+   */
+  private class FilesImport {
+    private final ExportManifest manifest;
+    private final String manifestVersion;
+    private final RepositoryFileImportBundle importBundle;
+    private final IPlatformImporter importer;
+    private final LocaleFilesProcessor localeFilesProcessor;
+    private final int batchSize = Math.max( 1, getImportBatchSize() );
+    private final long startTime = System.nanoTime();
+    private final AtomicInteger processedCount = new AtomicInteger();
+    private final AtomicInteger importedCount = new AtomicInteger();
+
+    FilesImport( ExportManifest manifest, RepositoryFileImportBundle importBundle, IPlatformImporter importer,
+                 LocaleFilesProcessor localeFilesProcessor ) {
+      this.manifest = manifest;
+      this.manifestVersion = manifest != null ? manifest.getManifestInformation().getManifestVersion() : null;
+      this.importBundle = importBundle;
+      this.importer = importer;
+      this.localeFilesProcessor = localeFilesProcessor;
+    }
+
+    int getImportedCount() {
+      return importedCount.get();
+    }
+
+    void importFile( IRepositoryFileBundle fileBundle ) throws IOException {
+      if ( importRepositoryFile( fileBundle ) ) {
+        importedCount.incrementAndGet();
+      }
+      int processed = processedCount.incrementAndGet();
+      if ( processed % batchSize == 0 && getLogger() instanceof IRepositoryImportLogger ) {
+        long elapsedMillis = Math.max( 1, TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - startTime ) );
+        getLogger().info( Messages.getInstance().getString( "SolutionImportHandler.INFO_IMPORT_PROGRESS", processed,
+            files.size(), processed * 1000L / elapsedMillis ) );
+      }
+    }
+
+    String getRepositoryFilePath( IRepositoryFileBundle fileBundle ) {
+      String fileName = fileBundle.getFile().getName();
+      String actualFilePath = fileBundle.getPath();
+      if ( manifestVersion != null ) {
+        fileName = ExportFileNameEncoder.decodeZipFileName( fileName );
+        actualFilePath = ExportFileNameEncoder.decodeZipFileName( actualFilePath );
+      }
+      return RepositoryFilenameUtils.concat( PentahoPlatformImporter.computeBundlePath( actualFilePath ), fileName );
+    }
+
+    boolean folderExists( IRepositoryFileBundle fileBundle ) {
+      String filePath = fileBundle.getPath();
+      if ( manifestVersion != null ) {
+        filePath = ExportFileNameEncoder.decodeZipFileName( filePath );
+      }
+      filePath = ( filePath.equals( "/" ) || filePath.equals( "\\" ) ) ? "" : filePath;
+      return repository.getFile( RepositoryFilenameUtils.concat( importBundle.getPath(), filePath ) ) != null;
+    }
+
+    /**
+     * @return whether the file or folder was imported
+     */
+    private boolean importRepositoryFile( IRepositoryFileBundle fileBundle ) throws IOException {
       String fileName = fileBundle.getFile().getName();
       String actualFilePath = fileBundle.getPath();
       if ( manifestVersion != null ) {
@@ -212,7 +493,7 @@ public class SolutionImportHandler implements IPlatformImportHandler {
 
       if ( cachedImports.containsKey( repositoryFilePath ) ) {
         getLogger().debug( "Repository object with path [ " + repositoryFilePath + " ] found in the cache" );
-        byte[] bytes = IOUtils.toByteArray( fileBundle.getInputStream() );
+        byte[] bytes = readBytes( fileBundle );
         RepositoryFileImportBundle.Builder builder = cachedImports.get( repositoryFilePath );
         builder.input( new ByteArrayInputStream( bytes ) );
 
@@ -221,8 +502,7 @@ public class SolutionImportHandler implements IPlatformImportHandler {
           if ( isPerformingRestore ) {
             getLogger().debug( "Successfully restored repository object with path [ " + repositoryFilePath + " ] from the cache" );
           }
-          successfulFilesImportCount++;
-          continue;
+          return true;
         } catch ( PlatformImportException e ) {
           if ( isPerformingRestore ) {
             getLogger().error( Messages.getInstance().getString( "SolutionImportHandler.ERROR_IMPORTING_REPOSITORY_OBJECT", repositoryFilePath, e.getLocalizedMessage() ) );
@@ -246,13 +526,17 @@ public class SolutionImportHandler implements IPlatformImportHandler {
         fileName = repositoryFilePath;
         repositoryFilePath = importBundle.getPath();
       } else {
-        byte[] bytes = IOUtils.toByteArray( fileBundle.getInputStream() );
+        byte[] bytes = readBytes( fileBundle );
         bundleInputStream = new ByteArrayInputStream( bytes );
         // If is locale file store it for later processing.
-        if ( localeFilesProcessor.isLocaleFile( fileBundle, importBundle.getPath(), bytes ) ) {
+        boolean isLocaleFile;
+        synchronized ( localeFilesProcessor ) {
+          isLocaleFile = localeFilesProcessor.isLocaleFile( fileBundle, importBundle.getPath(), bytes );
+        }
+        if ( isLocaleFile ) {
           getLogger().trace( Messages.getInstance()
               .getString( "SolutionImportHandler.SkipLocaleFile", repositoryFilePath ) );
-          continue;
+          return false;
         }
         bundleBuilder.input( bundleInputStream );
         bundleBuilder.mime( solutionHelper.getMime( fileName ) );
@@ -277,16 +561,16 @@ public class SolutionImportHandler implements IPlatformImportHandler {
       //may not have rights to such as /home or /public
       if ( manifest != null && manifest.getExportManifestEntity( sourcePath ) == null && fileBundle.getFile()
           .isFolder() ) {
-        continue;
+        return false;
       }
 
       getImportSession().setCurrentManifestKey( sourcePath );
 
-      bundleBuilder.charSet( bundle.getCharSet() );
-      bundleBuilder.overwriteFile( bundle.overwriteInRepository() );
-      bundleBuilder.applyAclSettings( bundle.isApplyAclSettings() );
-      bundleBuilder.retainOwnership( bundle.isRetainOwnership() );
-      bundleBuilder.overwriteAclSettings( bundle.isOverwriteAclSettings() );
+      bundleBuilder.charSet( importBundle.getCharSet() );
+      bundleBuilder.overwriteFile( importBundle.overwriteInRepository() );
+      bundleBuilder.applyAclSettings( importBundle.isApplyAclSettings() );
+      bundleBuilder.retainOwnership( importBundle.isRetainOwnership() );
+      bundleBuilder.overwriteAclSettings( importBundle.isOverwriteAclSettings() );
       bundleBuilder.acl( getImportSession().processAclForFile( sourcePath ) );
       bundleBuilder.extraMetaData( getImportSession().processExtraMetaDataForFile( sourcePath ) );
 
@@ -302,10 +586,11 @@ public class SolutionImportHandler implements IPlatformImportHandler {
         bundleBuilder.schedulable( fileIsScheduleInputSource( manifest, sourcePath ) );
       }
 
+      boolean imported = false;
       IPlatformImportBundle platformImportBundle = build( bundleBuilder );
       try {
         importer.importFile( platformImportBundle );
-        successfulFilesImportCount++;
+        imported = true;
         if ( isPerformingRestore ) {
           getLogger().debug( "Successfully restored repository object with path [ " + repositoryFilePath + " ]" );
         }
@@ -318,28 +603,7 @@ public class SolutionImportHandler implements IPlatformImportHandler {
       if ( bundleInputStream != null ) {
         bundleInputStream.close();
       }
-    }
-
-    // Process locale files.
-    if ( isPerformingRestore ) {
-      getLogger().info( Messages.getInstance().getString( "SolutionImportHandler.INFO_START_IMPORT_LOCALEFILE" ) );
-    }
-    int successfulLocaleFilesProcessed = 0;
-    try {
-      successfulLocaleFilesProcessed = localeFilesProcessor.processLocaleFiles( importer );
-    } catch ( PlatformImportException e ) {
-      if ( isPerformingRestore ) {
-        getLogger().error( Messages.getInstance().getString( "SolutionImportHandler.ERROR_IMPORTING_LOCALE_FILE", e.getLocalizedMessage() ) );
-      }
-    } finally {
-      if ( isPerformingRestore ) {
-        getLogger().info( Messages.getInstance().getString( "SolutionImportHandler.INFO_END_IMPORT_LOCALEFILE" ) );
-      }
-    }
-
-    if ( isPerformingRestore ) {
-      getLogger().info( Messages.getInstance().getString( "SolutionImportHandler.INFO_SUCCESSFUL_REPOSITORY_IMPORT_COUNT", successfulFilesImportCount + successfulLocaleFilesProcessed, files.size() ) );
-      getLogger().info( Messages.getInstance().getString( "SolutionImportHandler.INFO_END_IMPORT_FILEFOLDER" ) );
+      return imported;
     }
   }
 
@@ -396,9 +660,29 @@ public class SolutionImportHandler implements IPlatformImportHandler {
   }
 
   private RepositoryFile getFile( IPlatformImportBundle importBundle, IRepositoryFileBundle fileBundle ) {
-    String repositoryFilePath =
-        repositoryPathConcat( importBundle.getPath(), fileBundle.getPath(), fileBundle.getFile().getName() );
-    return repository.getFile( repositoryFilePath );
+    Map<String, Map<String, RepositoryFile>> children = folderChildren;
+    if ( children == null ) {
+      String repositoryFilePath =
+          repositoryPathConcat( importBundle.getPath(), fileBundle.getPath(), fileBundle.getFile().getName() );
+      return repository.getFile( repositoryFilePath );
+    }
+    String folderPath = repositoryPathConcat( importBundle.getPath(), fileBundle.getPath() );
+    return children.computeIfAbsent( folderPath, this::getChildrenByName ).get( fileBundle.getFile().getName() );
+  }
+
+  /**
+   * Lists the children of a folder in a single query, rather than looking up each file being imported.
+   */
+  private Map<String, RepositoryFile> getChildrenByName( String folderPath ) {
+    Map<String, RepositoryFile> children = new HashMap<>();
+    RepositoryFile folder = repository.getFile( folderPath );
+    if ( folder != null && folder.isFolder() ) {
+      for ( RepositoryFile child : repository.getChildren(
+          new RepositoryRequest( String.valueOf( folder.getId() ), true, 1, null ) ) ) {
+        children.put( child.getName(), child );
+      }
+    }
+    return children;
   }
 
 //  protected void importSchedules( List<IJobScheduleRequest> scheduleList ) throws PlatformImportException {
@@ -968,24 +1252,27 @@ public class SolutionImportHandler implements IPlatformImportHandler {
     return path;
   }
 
+  /**
+   * Lists the entries of the zip, reading the manifest. The zip is copied once to a temporary file and read with random
+   * access, so the content of the entries is only read, straight from the zip, when each entry is imported.
+   */
   private boolean processZip( InputStream inputStream ) {
     this.files = new ArrayList<>();
     if ( isPerformingRestore ) {
       getLogger().info( Messages.getInstance().getString( "SolutionImportHandler.INFO_START_IMPORT_REPOSITORY_OBJECT" ) );
     }
-    try ( ZipInputStream zipInputStream = new ZipInputStream( inputStream ) ) {
+    try {
+      openZipFile( inputStream );
       FileService fileService = new FileService();
-      ZipEntry entry = zipInputStream.getNextEntry();
-      while ( entry != null ) {
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while ( entries.hasMoreElements() ) {
+        ZipEntry entry = entries.nextElement();
         final String entryName = RepositoryFilenameUtils.separatorsToRepository( entry.getName() );
         getLogger().debug( Messages.getInstance().getString( "ZIPFILE.ProcessingEntry", entryName ) );
         final String decodedEntryName = ExportFileNameEncoder.decodeZipFileName( entryName );
-        File tempFile = null;
         boolean isDir = entry.isDirectory();
         if ( !isDir ) {
           if ( !solutionHelper.isInApprovedExtensionList( entryName ) ) {
-            zipInputStream.closeEntry();
-            entry = zipInputStream.getNextEntry();
             partialImport = true;
             continue;
           }
@@ -996,12 +1283,6 @@ public class SolutionImportHandler implements IPlatformImportHandler {
                 Messages.getInstance().getString( "DefaultImportHandler.ERROR_0011_INVALID_FILE_NAME",
                     entryName ), PlatformImportException.PUBLISH_PROHIBITED_SYMBOLS_ERROR );
           }
-
-          tempFile = File.createTempFile( "zip", null );
-          tempFile.deleteOnExit();
-          try ( FileOutputStream fos = new FileOutputStream( tempFile ) ) {
-            IOUtils.copy( zipInputStream, fos );
-          }
         } else {
           if ( !fileService.isValidFileName( decodedEntryName ) ) {
             getLogger().error( Messages.getInstance().getString( "DefaultImportHandler.ERROR_0011_INVALID_FILE_NAME", decodedEntryName ) );
@@ -1017,7 +1298,7 @@ public class SolutionImportHandler implements IPlatformImportHandler {
             file.getParent() == null ? RepositoryFile.SEPARATOR : file.getParent()
                 + RepositoryFile.SEPARATOR;
         IRepositoryFileBundle repoFileBundle =
-            new RepositoryFileBundle( repoFile, null, parentDir, tempFile, UTF_8, null );
+            new ZipEntryFileBundle( zipFile, isDir ? null : entry, repoFile, null, parentDir, UTF_8, null );
 
         if ( EXPORT_MANIFEST_XML_FILE.equals( file.getName() ) ) {
           initializeAclManifest( repoFileBundle );
@@ -1027,8 +1308,6 @@ public class SolutionImportHandler implements IPlatformImportHandler {
           }
           files.add( repoFileBundle );
         }
-        zipInputStream.closeEntry();
-        entry = zipInputStream.getNextEntry();
       }
     } catch ( IOException | PlatformImportException e ) {
       getLogger().error( Messages.getInstance()
@@ -1041,9 +1320,39 @@ public class SolutionImportHandler implements IPlatformImportHandler {
     return true;
   }
 
+  private void openZipFile( InputStream inputStream ) throws IOException {
+    zipTempFile = File.createTempFile( "import", ".zip" );
+    try ( OutputStream outputStream = new FileOutputStream( zipTempFile ) ) {
+      IOUtils.copy( inputStream, outputStream );
+    }
+    zipFile = new ZipFile( zipTempFile );
+  }
+
+  private void closeZipFile() {
+    if ( zipFile != null ) {
+      try {
+        zipFile.close();
+      } catch ( IOException e ) {
+        getLogger().debug( e.getMessage(), e );
+      }
+      zipFile = null;
+    }
+    if ( zipTempFile != null ) {
+      FileUtils.deleteQuietly( zipTempFile );
+      zipTempFile = null;
+    }
+    files = null;
+  }
+
+  private byte[] readBytes( IRepositoryFileBundle fileBundle ) throws IOException {
+    try ( InputStream inputStream = fileBundle.getInputStream() ) {
+      return IOUtils.toByteArray( inputStream );
+    }
+  }
+
   private void initializeAclManifest( IRepositoryFileBundle file ) {
     try {
-      byte[] bytes = IOUtils.toByteArray( file.getInputStream() );
+      byte[] bytes = readBytes( file );
       ByteArrayInputStream in = new ByteArrayInputStream( bytes );
       getImportSession().setManifest( ExportManifest.fromXml( in ) );
     } catch ( Exception e ) {
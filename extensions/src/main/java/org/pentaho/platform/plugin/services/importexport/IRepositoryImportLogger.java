@@ -117,6 +117,23 @@ public interface IRepositoryImportLogger extends Log {
    */
   boolean hasLogger();
 
+  /**
+   * Gets the job started for the current thread, so that other threads taking part in the import can log to it.
+   *
+   * @return the job, or null if there is none or the job can not be shared.
+   */
+  default Object getCurrentJob() {
+    return null;
+  }
+
+  /**
+   * Associates the current thread with a job started on another thread.
+   *
+   * @param job The job returned by {@link #getCurrentJob()}, or null to release the job of the current thread.
+   */
+  default void setCurrentJob( Object job ) {
+  }
+
   boolean isPerformingRestore();
 
   void setPerformingRestore( boolean value );
@@ -62,6 +62,42 @@ public class ImportSession {
     return session;
   }
 
+  /**
+   * Makes the given session the import session of the current thread
+   *
+   * @param session the session, usually created with {@link #fork()}
+   */
+  public static void setSession( ImportSession session ) {
+    sessions.set( session );
+  }
+
+  /**
+   * Creates a session for another thread taking part in this import. The new session has the manifest and the ACL
+   * settings of this session, and the folders created so far; what it imports is added back to this session with
+   * {@link #merge(ImportSession)}.
+   *
+   * @return the new session
+   */
+  public synchronized ImportSession fork() {
+    ImportSession session = new ImportSession();
+    session.setManifest( manifest );
+    session.setAclProperties( applyAclSettings, retainOwnership, overwriteAclSettings );
+    session.foldersCreatedImplicitly.addAll( foldersCreatedImplicitly );
+    return session;
+  }
+
+  /**
+   * Adds the files, folders and schedules imported by a session created with {@link #fork()} to this session
+   *
+   * @param session the forked session
+   */
+  public synchronized void merge( ImportSession session ) {
+    skippedFiles.addAll( session.getSkippedFiles() );
+    foldersCreatedImplicitly.addAll( session.getFoldersCreatedImplicitly() );
+    importedRepositoryFiles.addAll( session.getImportedRepositoryFiles() );
+    importedScheduleJobIds.addAll( session.getImportedScheduleJobIds() );
+  }
+
   /**
    * Clear out any collections, most likely before starting a new import
    */
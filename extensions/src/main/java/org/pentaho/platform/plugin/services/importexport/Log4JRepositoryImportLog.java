@@ -30,7 +30,11 @@ public class Log4JRepositoryImportLog {
   private Logger logger;
   static final String FILE_KEY = "currentFile"; // Intentionally scoped as default
   private OutputStream outputStream;
-  private String currentFilePath;
+  /**
+   * The file being imported by each thread, as the files of an import may be imported concurrently by workers sharing
+   * this log.
+   */
+  private final ThreadLocal<String> currentFilePath = new ThreadLocal<>();
   private String logName;
   private String importRootPath;
   private Level logLevel;
@@ -81,17 +85,17 @@ public class Log4JRepositoryImportLog {
   }
 
   /**
-   * @return the currentFilePath
+   * @return the path of the file being imported by the current thread
    */
   public String getCurrentFilePath() {
-    return currentFilePath;
+    return currentFilePath.get();
   }
 
   /**
-   * @param currentFilePath the currentFilePath to set
+   * @param currentFilePath the path of the file being imported by the current thread
    */
   public void setCurrentFilePath( String currentFilePath ) {
-    this.currentFilePath = currentFilePath;
+    this.currentFilePath.set( currentFilePath );
     MDC.put( FILE_KEY, currentFilePath );
   }
 
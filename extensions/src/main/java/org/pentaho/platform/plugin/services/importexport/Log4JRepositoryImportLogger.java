@@ -99,6 +99,20 @@ public class Log4JRepositoryImportLogger implements IRepositoryImportLogger {
     return ( repositoryImportLog.get() == null ) ? false : true;
   }
 
+  @Override
+  public Object getCurrentJob() {
+    return repositoryImportLog.get();
+  }
+
+  @Override
+  public void setCurrentJob( Object job ) {
+    if ( job == null ) {
+      repositoryImportLog.remove();
+    } else {
+      repositoryImportLog.set( (Log4JRepositoryImportLog) job );
+    }
+  }
+
   @Override
   public boolean isPerformingRestore() {
     return isPerformingRestore;
@@ -0,0 +1,107 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.services.importexport;
+
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.api.repository2.unified.RepositoryFileAcl;
+import org.pentaho.platform.plugin.services.importexport.ImportSource.IRepositoryFileBundle;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * An {@link org.pentaho.platform.plugin.services.importexport.ImportSource.IRepositoryFileBundle} that reads its
+ * content from an entry of a {@link ZipFile}. The entry is only read when its input stream is requested, so no
+ * temporary file is created per entry. The zip file must be kept open while the bundle is in use.
+ */
+public class ZipEntryFileBundle implements IRepositoryFileBundle {
+
+  private final ZipFile zipFile;
+
+  private final ZipEntry entry;
+
+  private final RepositoryFileAcl acl;
+
+  private final RepositoryFile file;
+
+  private String path;
+
+  private final String charset;
+
+  private final String mimeType;
+
+  public ZipEntryFileBundle( final ZipFile zipFile, final ZipEntry entry, final RepositoryFile file,
+                             final RepositoryFileAcl acl, final String path, final String charset,
+                             final String mimeType ) {
+    this.zipFile = zipFile;
+    this.entry = entry;
+    this.file = file;
+    this.acl = acl;
+    this.path = path;
+    this.charset = charset;
+    this.mimeType = mimeType;
+  }
+
+  public RepositoryFileAcl getAcl() {
+    return acl;
+  }
+
+  public RepositoryFile getFile() {
+    return file;
+  }
+
+  /**
+   * Opens a new stream over the content of the zip entry.
+   *
+   * @return the entry content, or {@code null} for folders
+   */
+  public InputStream getInputStream() throws IOException {
+    if ( entry == null || entry.isDirectory() ) {
+      return null;
+    }
+    return new BufferedInputStream( zipFile.getInputStream( entry ) );
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public void setPath( String path ) {
+    this.path = path;
+  }
+
+  public String getCharset() {
+    return charset;
+  }
+
+  public String getMimeType() {
+    return mimeType;
+  }
+
+  public boolean equals( Object obj ) { // Bundles are equal if the path and the name are the same
+    if ( !( obj instanceof ZipEntryFileBundle ) ) {
+      return false;
+    }
+    ZipEntryFileBundle repoObj = (ZipEntryFileBundle) obj;
+    return repoObj.getPath().equals( path ) && repoObj.getFile().getName().equals( file.getName() );
+  }
+
+  public int hashCode() {
+    return new HashCodeBuilder( 47, 53 ).append( path ).append( file.getName() ).toHashCode();
+  }
+}
@@ -13,6 +13,7 @@
 
 package org.pentaho.platform.plugin.services.importexport;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
@@ -30,9 +31,13 @@ import org.pentaho.platform.plugin.services.importexport.exportManifest.ExportMa
 import org.pentaho.platform.plugin.services.importexport.exportManifest.ExportManifestFormatException;
 import org.pentaho.platform.repository2.ClientRepositoryPaths;
 import org.pentaho.platform.api.repository2.unified.webservices.LocaleMapDto;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -40,11 +45,22 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipOutputStream;
@@ -60,10 +76,46 @@ public class ZipExportProcessor extends BaseExportProcessor {
 
   protected List<String> localeExportList;
 
-  private static final int SAFETY_TMP_FILE_SIZE = 50;
-
   private Log logger;
 
+  /**
+   * The system setting holding the number of threads used to prefetch the content of the exported files.
+   */
+  static final String PREFETCH_THREADS_SETTING = "repository-export-prefetch-threads";
+
+  private static final int DEFAULT_PREFETCH_THREADS = 4;
+
+  /**
+   * Files whose exported content is larger than this, in bytes, are not prefetched. Their content is read again when
+   * their entry is written.
+   */
+  static final int MAX_PREFETCH_FILE_SIZE = 8 * 1024 * 1024;
+
+  /**
+   * The maximum number of prefetched bytes held in memory by an export, across all its folders.
+   */
+  static final int MAX_PREFETCH_BYTES = 64 * 1024 * 1024;
+
+  private static final int PREFETCH_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+  /**
+   * The worker pool shared by all exports, created on first use. Its threads stop when idle.
+   */
+  private static volatile ThreadPoolExecutor prefetchExecutor;
+
+  private static final Object prefetchExecutorLock = new Object();
+
+  private Integer prefetchThreads;
+
+  /**
+   * The number of files the export may have in flight on the worker pool, across all its folders.
+   */
+  private Semaphore prefetchPermits;
+
+  /**
+   * The number of prefetched bytes the export may hold in memory, across all its folders.
+   */
+  private Semaphore prefetchBytes;
 
   /**
    * Encapsulates the logic of registering import handlers, generating the manifest, and performing the export
@@ -111,13 +163,29 @@ public class ZipExportProcessor extends BaseExportProcessor {
    * @throws ExportException indicates an error in import processing
    */
   public File performExport( RepositoryFile exportRepositoryFile ) throws ExportException, IOException {
-    logger = getRepositoryExportLogger();
-    File exportFile = null;
-
     // create temp file
-    exportFile = File.createTempFile( EXPORT_TEMP_FILENAME_PREFIX, EXPORT_TEMP_FILENAME_EXT );
+    File exportFile = File.createTempFile( EXPORT_TEMP_FILENAME_PREFIX, EXPORT_TEMP_FILENAME_EXT );
     exportFile.deleteOnExit();
 
+    try ( OutputStream outputStream = new BufferedOutputStream( new FileOutputStream( exportFile ) ) ) {
+      performExport( exportRepositoryFile, outputStream );
+    }
+
+    return exportFile;
+  }
+
+  /**
+   * Performs the export process, writing the zip entries to the given output stream as they are produced, so that no
+   * temporary file is needed. The manifest is written as the last entry. The output stream is not closed.
+   *
+   * @param exportRepositoryFile the file or folder to export
+   * @param outputStream         the stream to write the zip to
+   * @throws ExportException indicates an error in import processing
+   */
+  public void performExport( RepositoryFile exportRepositoryFile, OutputStream outputStream )
+    throws ExportException, IOException {
+    logger = getRepositoryExportLogger();
+
     // get the file path
     String filePath = new File( this.path ).getParent();
     if ( filePath == null ) {
@@ -130,7 +198,9 @@ public class ZipExportProcessor extends BaseExportProcessor {
       throw new FileNotFoundException( "JCR file not found: " + this.path );
     }
 
-    try ( ZipOutputStream zos = new ZipOutputStream( new FileOutputStream( exportFile ) ) ) {
+    ZipOutputStream zos = new ZipOutputStream( outputStream );
+    startPrefetch();
+    try {
       if ( exportRepositoryFile.isFolder() ) { // Handle recursive export
         exportManifest.getManifestInformation().setRootFolder( path.substring( 0, path.lastIndexOf( "/" ) + 1 ) );
 
@@ -144,28 +214,32 @@ public class ZipExportProcessor extends BaseExportProcessor {
         exportManifest.getManifestInformation().setRootFolder( path.substring( 0, path.lastIndexOf( "/" ) + 1 ) );
         exportFile( exportRepositoryFile, zos, filePath );
       }
+    } finally {
+      stopPrefetch();
+    }
 
-      if ( this.withManifest ) {
-        // write manifest to zip output stream
-        ZipEntry entry = new ZipEntry( EXPORT_MANIFEST_FILENAME );
-        zos.putNextEntry( entry );
-
-        // pass output stream to manifest class for writing
-        try {
-          exportManifest.toXml( zos );
-        } catch ( Exception e ) {
-          // todo: add to messages.properties
-          log.error( "Error generating export XML" );
-        }
+    if ( this.withManifest ) {
+      // write manifest to zip output stream
+      ZipEntry entry = new ZipEntry( EXPORT_MANIFEST_FILENAME );
+      zos.putNextEntry( entry );
 
-        zos.closeEntry();
+      // pass output stream to manifest class for writing
+      try {
+        exportManifest.toXml( zos );
+      } catch ( Exception e ) {
+        // todo: add to messages.properties
+        log.error( "Error generating export XML" );
       }
+
+      zos.closeEntry();
     }
 
+    // write the central directory, leaving the output stream open
+    zos.finish();
+    zos.flush();
+
     // clean up
     exportManifest = null;
-
-    return exportFile;
   }
 
   /**
@@ -176,20 +250,39 @@ public class ZipExportProcessor extends BaseExportProcessor {
    */
   public void exportFile( RepositoryFile repositoryFile, OutputStream outputStream, String filePath ) throws
       ExportException, IOException {
+    exportFile( repositoryFile, outputStream, filePath, null );
+  }
+
+  /**
+   * Writes the entries of a file, using its prefetched content, ACL and locale properties when available.
+   *
+   * @param repositoryFile
+   * @param outputStream
+   * @param filePath
+   * @param prefetched     the prefetched file data, or {@code null} to read it from the repository
+   */
+  protected void exportFile( RepositoryFile repositoryFile, OutputStream outputStream, String filePath,
+                             PrefetchedFile prefetched ) throws ExportException, IOException {
 
     // we need a zip
     ZipOutputStream zos = (ZipOutputStream) outputStream;
 
     // iterate through handlers to perform export
-    for ( ExportHandler exportHandler : exportHandlerList ) {
-      try ( InputStream is = exportHandler.doExport( repositoryFile, filePath ) ) {
+    for ( int i = 0; i < exportHandlerList.size(); i++ ) {
+      try ( InputStream is = prefetched != null && prefetched.contents != null
+        ? prefetched.getContent( i )
+        : exportHandlerList.get( i ).doExport( repositoryFile, filePath ) ) {
         // if we don't get a valid input stream back, skip it
         if ( is != null ) {
           if ( logger != null ) {
             logger.debug( "Adding repository object [ " + repositoryFile.getName() + " ] to the manifest" );
           }
 
-          addToManifest( repositoryFile );
+          if ( prefetched != null ) {
+            addToManifest( repositoryFile, prefetched.acl );
+          } else {
+            addToManifest( repositoryFile );
+          }
           if ( logger != null ) {
             logger.debug( "Starting to add repository object [ " + repositoryFile.getName() + " ] to the bundle" );
           }
@@ -203,7 +296,11 @@ public class ZipExportProcessor extends BaseExportProcessor {
             logger.debug( "Successfully added repository object [ " + repositoryFile.getName() + " ] to the bundle" );
             logger.trace( "Starting to create locale entry for repository object [ " + ( ( repositoryFile != null ) ? repositoryFile.getName() : "" ) + " ] " );
           }
-          createLocales( repositoryFile, filePath, repositoryFile.isFolder(), outputStream );
+          if ( prefetched != null ) {
+            writeLocales( repositoryFile, filePath, repositoryFile.isFolder(), zos, prefetched.localeProperties );
+          } else {
+            createLocales( repositoryFile, filePath, repositoryFile.isFolder(), outputStream );
+          }
           if ( logger != null ) {
             logger.trace( "Finished creating locale entry for repository object [ " + ( ( repositoryFile != null ) ? repositoryFile.getName() : "" ) + " ] " );
           }
@@ -219,9 +316,14 @@ public class ZipExportProcessor extends BaseExportProcessor {
    * @throws ExportException
    */
   protected void addToManifest( RepositoryFile repositoryFile ) throws ExportException {
+    if ( this.withManifest ) {
+      addToManifest( repositoryFile, getUnifiedRepository().getAcl( repositoryFile.getId() ) );
+    }
+  }
+
+  private void addToManifest( RepositoryFile repositoryFile, RepositoryFileAcl fileAcl ) throws ExportException {
     if ( this.withManifest ) {
       // add this entity to the manifest
-      RepositoryFileAcl fileAcl = getUnifiedRepository().getAcl( repositoryFile.getId() );
       try {
         getExportManifest().add( repositoryFile, fileAcl );
       } catch ( ExportManifestFormatException e ) {
@@ -246,6 +348,25 @@ public class ZipExportProcessor extends BaseExportProcessor {
     if ( logger != null ) {
       logger.debug( "Found  [ " + children.size() + " ] children in folder [ " + repositoryDir.getName() + " ]" );
     }
+    ContentPrefetcher prefetcher = createPrefetcher( children, filePath );
+    try {
+      exportChildren( children, outputStream, filePath, prefetcher );
+    } finally {
+      if ( prefetcher != null ) {
+        prefetcher.cancel();
+      }
+    }
+    if ( logger != null ) {
+      logger.trace( "Starting to create locale entry for repository object [ " + repositoryDir.getName() + " ] " );
+    }
+    createLocales( repositoryDir, filePath, repositoryDir.isFolder(), outputStream );
+    if ( logger != null ) {
+      logger.trace( "Finished creating locale entry for repository object [ " + repositoryDir.getName() + " ] " );
+    }
+  }
+
+  private void exportChildren( List<RepositoryFile> children, OutputStream outputStream, String filePath,
+                               ContentPrefetcher prefetcher ) throws ExportException, IOException {
     for ( RepositoryFile repositoryFile : children ) {
       // exclude 'etc' folder - datasources and etc.
       if ( isExportCandidate( repositoryFile.getPath() ) ) {
@@ -271,7 +392,16 @@ public class ZipExportProcessor extends BaseExportProcessor {
             if ( logger != null ) {
               logger.debug( "Repository Object [ " + repositoryFile.getName() + " ] is a file. Adding it to the bundle" );
             }
-            exportFile( repositoryFile, outputStream, filePath );
+            if ( prefetcher != null ) {
+              PrefetchedFile prefetched = prefetcher.next();
+              try {
+                exportFile( repositoryFile, outputStream, filePath, prefetched );
+              } finally {
+                prefetcher.release( prefetched );
+              }
+            } else {
+              exportFile( repositoryFile, outputStream, filePath );
+            }
           } catch ( ZipException e ) {
             // possible duplicate entry, log it and continue on with the other files in the directory
             log.debug( e.getMessage(), e );
@@ -283,13 +413,6 @@ public class ZipExportProcessor extends BaseExportProcessor {
         }
       }
     }
-    if ( logger != null ) {
-      logger.trace( "Starting to create locale entry for repository object [ " + repositoryDir.getName() + " ] " );
-    }
-    createLocales( repositoryDir, filePath, repositoryDir.isFolder(), outputStream );
-    if ( logger != null ) {
-      logger.trace( "Finished creating locale entry for repository object [ " + repositoryDir.getName() + " ] " );
-    }
   }
 
   protected boolean isExportCandidate( String path ) {
@@ -343,39 +466,46 @@ public class ZipExportProcessor extends BaseExportProcessor {
    */
   protected void createLocales( RepositoryFile repositoryFile, String filePath, boolean isFolder,
                                 OutputStream outputStream ) throws IOException {
-    ZipEntry entry;
-    String zipEntryName;
-    String name;
-    String localeName;
-    Properties properties;
-    ZipOutputStream zos = (ZipOutputStream) outputStream;
+    writeLocales( repositoryFile, filePath, isFolder, (ZipOutputStream) outputStream,
+      getLocaleProperties( repositoryFile ) );
+  }
+
+  /**
+   * Reads the locale properties of a file or folder, by locale, if its locales are exported.
+   *
+   * @param repositoryFile
+   * @return the locale properties, in the order of the available locales
+   */
+  private Map<String, Properties> getLocaleProperties( RepositoryFile repositoryFile ) {
+    Map<String, Properties> localeProperties = new LinkedHashMap<>();
     // only process files and folders that we know will have locale settings
     if ( supportedLocaleFileExt( repositoryFile ) ) {
-      List<LocaleMapDto> locales = getAvailableLocales( repositoryFile.getId() );
-      zipEntryName = getFixedZipEntryName( repositoryFile, filePath );
-      name = repositoryFile.getName();
-      for ( LocaleMapDto locale : locales ) {
-        localeName = locale.getLocale().equalsIgnoreCase( "default" ) ? "" : "_" + locale.getLocale();
-        if ( isFolder ) {
-          zipEntryName = getFixedZipEntryName( repositoryFile, filePath ) + "index";
-          name = "index";
-        }
-
-        properties = getUnifiedRepository().getLocalePropertiesForFileById( repositoryFile.getId(), locale.getLocale() );
+      for ( LocaleMapDto locale : getAvailableLocales( repositoryFile.getId() ) ) {
+        Properties properties =
+          getUnifiedRepository().getLocalePropertiesForFileById( repositoryFile.getId(), locale.getLocale() );
         if ( properties != null ) {
           properties.remove( "jcr:primaryType" ); // Pentaho Type
-
-          try ( InputStream is = createLocaleFile( name + localeName, properties, locale.getLocale() ) ) {
-            if ( is != null ) {
-              entry = new ZipEntry( zipEntryName + localeName + LOCALE_EXT );
-              zos.putNextEntry( entry );
-              IOUtils.copy( is, outputStream );
-              zos.closeEntry();
-            }
-          }
+          localeProperties.put( locale.getLocale(), properties );
         }
       }
     }
+    return localeProperties;
+  }
+
+  private void writeLocales( RepositoryFile repositoryFile, String filePath, boolean isFolder, ZipOutputStream zos,
+                             Map<String, Properties> localeProperties ) throws IOException {
+    String zipEntryName = getFixedZipEntryName( repositoryFile, filePath );
+    if ( isFolder ) {
+      zipEntryName += "index";
+    }
+    for ( Map.Entry<String, Properties> properties : localeProperties.entrySet() ) {
+      String locale = properties.getKey();
+      String localeName = locale.equalsIgnoreCase( "default" ) ? "" : "_" + locale;
+
+      zos.putNextEntry( new ZipEntry( zipEntryName + localeName + LOCALE_EXT ) );
+      properties.getValue().store( zos, "Locale = " + locale );
+      zos.closeEntry();
+    }
   }
 
   /**
@@ -420,41 +550,309 @@ public class ZipExportProcessor extends BaseExportProcessor {
   }
 
   /**
-   * need to create the locale file
+   * Gets the number of threads used to prefetch the content, ACL and locale properties of the exported files, as given
+   * by the {@code repository-export-prefetch-threads} system setting, unless explicitly set.
    *
-   * @param name
-   * @param properties
-   * @param locale
-   * @throws IOException
-   * @returns inputStream pointer to created file or null
+   * @return the number of threads; 1 or less if files are read sequentially when written
+   */
+  public int getPrefetchThreads() {
+    if ( prefetchThreads == null ) {
+      int threads = DEFAULT_PREFETCH_THREADS;
+      String setting = PentahoSystem.getSystemSetting( PREFETCH_THREADS_SETTING, null );
+      if ( StringUtils.isNotBlank( setting ) ) {
+        try {
+          threads = Integer.parseInt( setting.trim() );
+        } catch ( NumberFormatException e ) {
+          log.warn( "Invalid " + PREFETCH_THREADS_SETTING + " setting: " + setting );
+        }
+      }
+      prefetchThreads = threads;
+    }
+    return prefetchThreads;
+  }
+
+  public void setPrefetchThreads( int prefetchThreads ) {
+    this.prefetchThreads = prefetchThreads;
+  }
+
+  /**
+   * Starts prefetching the exported files on the shared worker pool, if more than one prefetch thread is configured.
+   * The export may have twice as many files in flight as there are threads, and holds at most
+   * {@link #MAX_PREFETCH_BYTES} prefetched bytes, whatever the depth of the exported folders.
+   */
+  protected void startPrefetch() {
+    int threads = getPrefetchThreads();
+    if ( threads > 1 ) {
+      getPrefetchExecutor( threads );
+      prefetchPermits = new Semaphore( threads * 2 );
+      prefetchBytes = new Semaphore( MAX_PREFETCH_BYTES );
+    }
+  }
+
+  protected void stopPrefetch() {
+    prefetchPermits = null;
+    prefetchBytes = null;
+  }
+
+  /**
+   * Gets the prefetched bytes the export may still hold, or {@code null} if it does not prefetch.
+   */
+  Semaphore getPrefetchBytes() {
+    return prefetchBytes;
+  }
+
+  /**
+   * Gets the worker pool shared by all exports, creating it or growing it to the given number of threads.
+   */
+  static ThreadPoolExecutor getPrefetchExecutor( int threads ) {
+    ThreadPoolExecutor executor = prefetchExecutor;
+    if ( executor == null || executor.getMaximumPoolSize() < threads ) {
+      synchronized ( prefetchExecutorLock ) {
+        executor = prefetchExecutor;
+        if ( executor == null ) {
+          executor = new ThreadPoolExecutor( threads, threads, PREFETCH_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat( "repository-export-prefetch-%d" ).setDaemon( true ).build() );
+          executor.allowCoreThreadTimeOut( true );
+          prefetchExecutor = executor;
+        } else if ( executor.getMaximumPoolSize() < threads ) {
+          executor.setMaximumPoolSize( threads );
+          executor.setCorePoolSize( threads );
+        }
+      }
+    }
+    return executor;
+  }
+
+  private ContentPrefetcher createPrefetcher( List<RepositoryFile> children, String filePath ) {
+    if ( prefetchPermits == null ) {
+      return null;
+    }
+    List<RepositoryFile> files = new ArrayList<>();
+    for ( RepositoryFile child : children ) {
+      if ( !child.isFolder() && isExportCandidate( child.getPath() ) ) {
+        files.add( child );
+      }
+    }
+    return files.size() > 1 ? new ContentPrefetcher( files, filePath ) : null;
+  }
+
+  /**
+   * Reads a stream, unless it holds more than the given number of bytes.
+   *
+   * @return the bytes read, or {@code null} if the stream holds more than {@code limit} bytes
+   */
+  private static byte[] readUpTo( InputStream is, int limit ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long copied = IOUtils.copyLarge( is, out, 0, limit + 1L );
+    return copied > limit ? null : out.toByteArray();
+  }
+
+  /**
+   * The content, ACL and locale properties of a file, read ahead of writing its entries.
+   */
+  protected static class PrefetchedFile {
+    /**
+     * The content returned by each export handler, in handler order, or {@code null} if it was not prefetched.
+     */
+    private List<byte[]> contents;
+
+    /**
+     * The number of prefetched content bytes, taken from the prefetch budget of the export.
+     */
+    private int size;
+
+    private RepositoryFileAcl acl;
+
+    private Map<String, Properties> localeProperties;
+
+    private InputStream getContent( int handlerIndex ) {
+      byte[] content = contents.get( handlerIndex );
+      return content == null ? null : new ByteArrayInputStream( content );
+    }
+  }
+
+  /**
+   * Prefetches the files of a folder on the shared worker pool and hands them out in folder order. Files are only
+   * submitted while the export has permits and bytes left in its prefetch budget; the other files are read when
+   * written. The workers run with the session and security context of the exporting thread.
    */
-  private InputStream createLocaleFile( String name, Properties properties, String locale ) throws IOException {
-    if ( properties != null ) {
-      File localeFile = null;
+  private class ContentPrefetcher {
+    private final Iterator<RepositoryFile> pending;
+    private final Deque<Future<PrefetchedFile>> inFlight = new ArrayDeque<>();
+    private final String filePath;
+    private final Semaphore permits = prefetchPermits;
+    private final Semaphore budget = prefetchBytes;
+
+    /**
+     * The bytes of read files this prefetcher holds from the prefetch budget, returned at once when it is cancelled.
+     */
+    private int held;
+
+    private boolean cancelled;
+    private final IPentahoSession session = PentahoSessionHolder.getSession();
+    private final SecurityContext securityContext = SecurityContextHolder.getContext();
+
+    ContentPrefetcher( List<RepositoryFile> files, String filePath ) {
+      this.pending = files.iterator();
+      this.filePath = filePath;
+      fill();
+    }
 
+    private void fill() {
+      while ( pending.hasNext() && permits.tryAcquire() ) {
+        final RepositoryFile repositoryFile = pending.next();
+        try {
+          inFlight.add( prefetchExecutor.submit( () -> {
+            PentahoSessionHolder.setSession( session );
+            SecurityContextHolder.setContext( securityContext );
+            try {
+              return prefetch( repositoryFile );
+            } finally {
+              SecurityContextHolder.clearContext();
+              PentahoSessionHolder.removeSession();
+            }
+          } ) );
+        } catch ( RuntimeException e ) {
+          permits.release();
+          throw e;
+        }
+      }
+    }
+
+    /**
+     * Gets the next file of the folder, waiting for it to be prefetched. Once written, the file must be handed back by
+     * {@link #release(PrefetchedFile)}.
+     *
+     * @return the prefetched file data, or {@code null} if the file was not prefetched and must be read when written
+     */
+    PrefetchedFile next() throws ExportException, IOException {
+      Future<PrefetchedFile> future = inFlight.poll();
+      if ( future == null ) {
+        // the prefetch budget of the export was exhausted when the file came up
+        pending.next();
+        fill();
+        return null;
+      }
       try {
-        localeFile = PentahoSystem
-            .getApplicationContext().createTempFile( getSession(), ExportFileNameEncoder.encodeZipFileName( name ), LOCALE_EXT, true );
-      } catch ( IOException e ) {
-        // BISERVER-14140 - Retry when temp file name exceeds the limit of OS
-        // Retry inside a catch because there isn't an accurate mechanism to determine the effective temp file max length
-        // This is the local temp file only, inside the zip, the final file will have the original name
-        String smallerName = ExportFileNameEncoder.encodeZipFileName( name ).substring( 0, SAFETY_TMP_FILE_SIZE );
-        log.debug( "Error with original name file. Retrying with a smaller temp file name - " + smallerName );
-        localeFile = PentahoSystem
-            .getApplicationContext().createTempFile( getSession(), smallerName, LOCALE_EXT, true );
+        return future.get();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new ExportException( e );
+      } catch ( ExecutionException e ) {
+        if ( e.getCause() instanceof ExportException ) {
+          throw (ExportException) e.getCause();
+        } else if ( e.getCause() instanceof IOException ) {
+          throw (IOException) e.getCause();
+        } else if ( e.getCause() instanceof RuntimeException ) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new ExportException( e.getCause() );
       } finally {
-        if ( localeFile != null ) {
-          localeFile.deleteOnExit();
+        permits.release();
+      }
+    }
+
+    /**
+     * Returns the bytes of a written file to the prefetch budget, and prefetches further files.
+     */
+    void release( PrefetchedFile prefetched ) {
+      if ( prefetched != null ) {
+        synchronized ( this ) {
+          if ( !cancelled ) {
+            held -= prefetched.size;
+            budget.release( prefetched.size );
+          }
         }
       }
+      fill();
+    }
+
+    /**
+     * Stops prefetching and returns the bytes held by the read files to the prefetch budget. Reads that are running
+     * are left to finish, and return their own reservation.
+     */
+    void cancel() {
+      synchronized ( this ) {
+        cancelled = true;
+        budget.release( held );
+        held = 0;
+      }
+      for ( Future<PrefetchedFile> future : inFlight ) {
+        future.cancel( false );
+        permits.release();
+      }
+      inFlight.clear();
+    }
+
+    /**
+     * Reads the content, ACL and locale properties of a file. The content is kept only if the exported content is
+     * small enough and fits in the prefetch budget of the export. The size of the repository file is not relied on, as
+     * the export handlers may convert the content, so {@link #MAX_PREFETCH_FILE_SIZE} bytes are reserved before the
+     * content is read, and the part of them that is not used is returned once it has been read.
+     *
+     * @param repositoryFile
+     * @return the prefetched file data
+     */
+    private PrefetchedFile prefetch( RepositoryFile repositoryFile ) throws ExportException, IOException {
+      PrefetchedFile prefetched = new PrefetchedFile();
+      if ( reserve() ) {
+        List<byte[]> contents = new ArrayList<>( exportHandlerList.size() );
+        int size = 0;
+        try {
+          for ( ExportHandler exportHandler : exportHandlerList ) {
+            try ( InputStream is = exportHandler.doExport( repositoryFile, filePath ) ) {
+              byte[] content = is == null ? null : readUpTo( is, MAX_PREFETCH_FILE_SIZE - size );
+              if ( is != null && content == null ) {
+                // too large, the content is read again when written
+                contents = null;
+                size = 0;
+                break;
+              }
+              contents.add( content );
+              size += content == null ? 0 : content.length;
+            }
+          }
+        } catch ( ExportException | IOException | RuntimeException e ) {
+          keep( 0 );
+          throw e;
+        }
+        if ( keep( size ) && contents != null ) {
+          prefetched.contents = contents;
+          prefetched.size = size;
+        }
+      }
+      if ( withManifest ) {
+        prefetched.acl = getUnifiedRepository().getAcl( repositoryFile.getId() );
+      }
+      prefetched.localeProperties = getLocaleProperties( repositoryFile );
+      return prefetched;
+    }
+
+    /**
+     * Reserves the bytes of a file to read from the prefetch budget.
+     *
+     * @return {@code false} if the budget is exhausted or the prefetcher is cancelled, in which case the content is
+     * not prefetched
+     */
+    private synchronized boolean reserve() {
+      return !cancelled && budget.tryAcquire( MAX_PREFETCH_FILE_SIZE );
+    }
 
-      try ( FileOutputStream fileOut = new FileOutputStream( localeFile ) ) {
-        properties.store( fileOut, "Locale = " + locale );
+    /**
+     * Keeps the given number of bytes of a reservation for the content read, and returns the rest to the budget.
+     *
+     * @return {@code false} if the prefetcher was cancelled during the read; the whole reservation is returned then
+     */
+    private synchronized boolean keep( int size ) {
+      if ( cancelled ) {
+        budget.release( MAX_PREFETCH_FILE_SIZE );
+        return false;
       }
-      return new FileInputStream( localeFile );
+      budget.release( MAX_PREFETCH_FILE_SIZE - size );
+      held += size;
+      return true;
     }
-    return null;
   }
 
   /**
@@ -17,7 +17,9 @@ import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.pentaho.metadata.model.Category;
 import org.pentaho.metadata.model.Domain;
+import org.pentaho.metadata.model.LogicalColumn;
 import org.pentaho.metadata.model.LogicalModel;
 import org.pentaho.metadata.model.concept.IConcept;
 import org.pentaho.metadata.repository.DomainAlreadyExistsException;
@@ -25,6 +27,7 @@ import org.pentaho.metadata.repository.DomainIdNullException;
 import org.pentaho.metadata.repository.DomainStorageException;
 import org.pentaho.metadata.repository.IMetadataDomainRepository;
 import org.pentaho.metadata.util.SecurityHelper;
+import org.pentaho.platform.api.engine.IAclHolder;
 import org.pentaho.platform.api.engine.ICacheManager;
 import org.pentaho.platform.api.engine.ILogoutListener;
 import org.pentaho.platform.api.engine.IPentahoSession;
@@ -37,15 +40,18 @@ import java.io.InputStream;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -69,6 +75,11 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
    */
   public static String CACHE_REGION = "metadata-domain-repository"; //$NON-NLS-1$
 
+  /**
+   * Region holding one parsed {@link Domain} per domain id, shared by all sessions
+   */
+  public static final String SHARED_CACHE_REGION = "metadata-domain-repository-shared"; //$NON-NLS-1$
+
   // default number for threads
   static final int DEFAULT_NUMBER_OF_THREADS = 3;
 
@@ -80,6 +91,144 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
   private final IMetadataDomainRepository delegate;
   private static final String DOMAIN_CACHE_KEY_PREDICATE = "domain-id-cache-for-session:";
 
+  /**
+   * Bumped whenever every shared domain must be discarded (flush / reload)
+   */
+  private final AtomicLong sharedDomainsEpoch = new AtomicLong();
+
+  /**
+   * Per-domain version, bumped whenever a domain is stored, removed or has a model removed
+   */
+  private final Map<String, Long> sharedDomainVersions = new ConcurrentHashMap<>();
+
+  /**
+   * Session domain cache keys indexed by session id and by domain id, and the per-session domain id cache keys, so that
+   * invalidation only touches the affected entries instead of walking the whole region
+   */
+  private final Map<String, Set<CacheKey>> keysBySession = new ConcurrentHashMap<>();
+  private final Map<String, Set<CacheKey>> keysByDomain = new ConcurrentHashMap<>();
+  private final Set<String> domainIdCacheKeys = ConcurrentHashMap.newKeySet();
+
+  // ConcurrentHashMap does not accept null keys
+  private static final String NULL_INDEX_KEY = "\u0000"; //$NON-NLS-1$
+
+  /**
+   * What caused session cache entries to be evicted
+   */
+  public enum EvictionTrigger {
+    /** The session logged out */
+    LOGOUT,
+    /** The domain was stored, removed or had a model removed */
+    DOMAIN_CHANGE,
+    /** The session lost access to the domain */
+    ACCESS_REVOKED,
+    /** All domains were flushed or reloaded */
+    FLUSH
+  }
+
+  private final Map<EvictionTrigger, AtomicLong> evictionCounts = createEvictionCounts();
+
+  private static Map<EvictionTrigger, AtomicLong> createEvictionCounts() {
+    Map<EvictionTrigger, AtomicLong> counts = new EnumMap<>( EvictionTrigger.class );
+    for ( EvictionTrigger trigger : EvictionTrigger.values() ) {
+      counts.put( trigger, new AtomicLong() );
+    }
+    return counts;
+  }
+
+  /**
+   * A parsed domain shared by all sessions, tagged with the version it was loaded at so that a load racing with an
+   * invalidation is never served.
+   */
+  static class SharedDomain implements Serializable {
+    private static final long serialVersionUID = -2861387059815457312L;
+    final long epoch;
+    final long version;
+    final Domain domain;
+
+    /**
+     * Secured copies of the domain, one per distinct set of concepts hidden from sessions
+     */
+    final Map<HiddenConcepts, Domain> views = new ConcurrentHashMap<>();
+
+    SharedDomain( long epoch, long version, Domain domain ) {
+      this.epoch = epoch;
+      this.version = version;
+      this.domain = domain;
+    }
+
+    /**
+     * Returns the domain as seen by a session that cannot read the given concepts. Sessions that can read everything
+     * get the shared domain itself, which must not be changed.
+     */
+    Domain getView( final IMetadataDomainRepository repository, final HiddenConcepts hidden ) {
+      if ( hidden.isEmpty() ) {
+        return domain;
+      }
+      return views.computeIfAbsent( hidden, h -> new SecurityHelper().createSecureDomain( repository, domain ) );
+    }
+  }
+
+  /**
+   * The models, categories and columns of a shared domain a session cannot read. This is all that is cached per session
+   * and domain, so the memory held per session does not grow with the size of the domain.
+   */
+  static class HiddenConcepts implements Serializable {
+    private static final long serialVersionUID = 4417316297553082219L;
+    private static final char PATH_SEPARATOR = '\u0000';
+    final long epoch;
+    final long version;
+    final Set<String> paths;
+
+    HiddenConcepts( long epoch, long version, Set<String> paths ) {
+      this.epoch = epoch;
+      this.version = version;
+      this.paths = paths;
+    }
+
+    static HiddenConcepts of( final IMetadataDomainRepository repository, final SharedDomain shared ) {
+      Set<String> paths = new HashSet<>();
+      List<LogicalModel> models = shared.domain.getLogicalModels();
+      for ( LogicalModel model : models != null ? models : Collections.<LogicalModel>emptyList() ) {
+        if ( !repository.hasAccess( IAclHolder.ACCESS_TYPE_READ, model ) ) {
+          paths.add( model.getId() );
+          continue;
+        }
+        for ( Category category : model.getCategories() ) {
+          String categoryPath = model.getId() + PATH_SEPARATOR + category.getId();
+          if ( !repository.hasAccess( IAclHolder.ACCESS_TYPE_READ, category ) ) {
+            paths.add( categoryPath );
+            continue;
+          }
+          for ( LogicalColumn column : category.getLogicalColumns() ) {
+            if ( !repository.hasAccess( IAclHolder.ACCESS_TYPE_READ, column ) ) {
+              paths.add( categoryPath + PATH_SEPARATOR + column.getId() );
+            }
+          }
+        }
+      }
+      return new HiddenConcepts( shared.epoch, shared.version, paths.isEmpty() ? Collections.emptySet() : paths );
+    }
+
+    boolean isFor( final SharedDomain shared ) {
+      return epoch == shared.epoch && version == shared.version;
+    }
+
+    boolean isEmpty() {
+      return paths.isEmpty();
+    }
+
+    @Override
+    public boolean equals( final Object o ) {
+      return this == o || ( o instanceof HiddenConcepts && paths.equals( ( (HiddenConcepts) o ).paths ) );
+    }
+
+    @Override
+    public int hashCode() {
+      return paths.hashCode();
+    }
+  }
+
   /**
    * this as a public class so that if necessary someone can get access to a session key and clear the cache in their
    * own way via javascript rule / etc
@@ -261,6 +410,40 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
 
   @Override
   public Domain getDomain( final String id ) {
+    if ( !isSharedDomainEnabled() ) {
+      return getSessionDomain( id );
+    }
+    final IPentahoSession session = PentahoSessionHolder.getSession();
+    final CacheKey key = new CacheKey( session.getId(), id );
+    Object cached = cacheManager.getFromRegionCache( CACHE_REGION, key );
+    SharedDomain shared = getSharedDomain( id );
+    if ( shared == null ) {
+      if ( cached != null ) {
+        if ( logger.isDebugEnabled() ) {
+          logger.debug( "User no longer has access to Domain, purging from session cache: " + key );
+        }
+        purgeDomain( id, EvictionTrigger.ACCESS_REVOKED );
+      }
+      return null;
+    }
+    HiddenConcepts hidden = cached instanceof HiddenConcepts ? (HiddenConcepts) cached : null;
+    if ( hidden == null || !hidden.isFor( shared ) ) {
+      hidden = HiddenConcepts.of( this, shared );
+      if ( logger.isDebugEnabled() ) {
+        logger.debug( "Caching hidden concepts by session: " + key ); //$NON-NLS-1$
+      }
+      cacheDomain( key, hidden );
+    } else if ( logger.isDebugEnabled() ) {
+      logger.debug( "Found hidden concepts in cache: " + key ); //$NON-NLS-1$
+    }
+    return shared.getView( this, hidden );
+  }
+
+  /**
+   * Caches a secured copy of the domain per session. Only used when the delegate cannot answer per-user access for a
+   * domain id, so that the domain cannot be shared between sessions.
+   */
+  private Domain getSessionDomain( final String id ) {
     final IPentahoSession session = PentahoSessionHolder.getSession();
     final CacheKey key = new CacheKey( session.getId(), id );
     Domain domain = (Domain) cacheManager.getFromRegionCache( CACHE_REGION, key );
@@ -268,14 +451,6 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
       if ( logger.isDebugEnabled() ) {
         logger.debug( "Found domain in cache: " + key ); //$NON-NLS-1$
       }
-      if ( delegate instanceof IAclAwarePentahoMetadataDomainRepositoryImporter && !( (IAclAwarePentahoMetadataDomainRepositoryImporter) delegate ).hasAccessFor( id ) ) {
-
-        if ( logger.isDebugEnabled() ) {
-          logger.debug( "User no longer has access to Domain, purging from session cache: " + key );
-        }
-        purgeDomain( domain.getId() );
-        domain = null;
-      }
       return domain;
     }
     domain = delegate.getDomain( id );
@@ -291,45 +466,162 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
       if ( logger.isDebugEnabled() ) {
         logger.debug( "Caching domain by session: " + key ); //$NON-NLS-1$
       }
-      cacheManager.putInRegionCache( CACHE_REGION, key, domain );
+      cacheDomain( key, domain );
     }
     return domain;
   }
 
+  /**
+   * Caches the session's domain, or the concepts of the domain it cannot see, and indexes the key by session id and domain id.
+   */
+  private void cacheDomain( final CacheKey key, final Serializable value ) {
+    cacheManager.putInRegionCache( CACHE_REGION, key, value );
+    keysBySession.compute( indexKey( key.sessionId ), ( k, keys ) -> addKey( keys, key ) );
+    keysByDomain.compute( indexKey( key.domainId ), ( k, keys ) -> addKey( keys, key ) );
+  }
+
+  private static Set<CacheKey> addKey( Set<CacheKey> keys, final CacheKey key ) {
+    if ( keys == null ) {
+      keys = ConcurrentHashMap.newKeySet();
+    }
+    keys.add( key );
+    return keys;
+  }
+
+  private static Set<CacheKey> removeKey( final Set<CacheKey> keys, final CacheKey key ) {
+    keys.remove( key );
+    return keys.isEmpty() ? null : keys;
+  }
+
+  private static String indexKey( final String id ) {
+    return id == null ? NULL_INDEX_KEY : id;
+  }
+
+  /**
+   * Evicts the given session cache keys and drops them from both indexes.
+   */
+  private void evict( final Collection<CacheKey> keys, final EvictionTrigger trigger ) {
+    if ( keys == null ) {
+      return;
+    }
+    for ( CacheKey key : keys ) {
+      if ( logger.isDebugEnabled() ) {
+        logger.debug( "Removing domain from cache (" + trigger + "): " + key ); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+      cacheManager.removeFromRegionCache( CACHE_REGION, key );
+      keysBySession.computeIfPresent( indexKey( key.sessionId ), ( k, indexed ) -> removeKey( indexed, key ) );
+      keysByDomain.computeIfPresent( indexKey( key.domainId ), ( k, indexed ) -> removeKey( indexed, key ) );
+      evictionCounts.get( trigger ).incrementAndGet();
+    }
+  }
+
+  /**
+   * Evicts every indexed session cache entry.
+   */
+  private void evictAll( final EvictionTrigger trigger ) {
+    for ( String sessionKey : keysBySession.keySet() ) {
+      evict( keysBySession.remove( sessionKey ), trigger );
+    }
+  }
+
+  /**
+   * Returns how many session cache entries have been evicted for the given reason.
+   *
+   * @param trigger what caused the eviction
+   * @return number of evicted entries
+   */
+  public long getEvictionCount( final EvictionTrigger trigger ) {
+    return evictionCounts.get( trigger ).get();
+  }
+
+  /**
+   * Shared domains are only used when the delegate can answer per-user access for a domain id; otherwise every session
+   * caches its own secured copy of the domain as before.
+   */
+  boolean isSharedDomainEnabled() {
+    return delegate instanceof IAclAwarePentahoMetadataDomainRepositoryImporter
+      && cacheManager.addCacheRegionIfAbsent( SHARED_CACHE_REGION );
+  }
+
+  /**
+   * Returns the parsed domain shared by all sessions, loading it from the delegate on first use. The shared domain is
+   * only used for sessions that have access to it; otherwise the delegate decides, as it would without sharing.
+   *
+   * @param id Domain id
+   * @return the shared parsed domain or null if the delegate has no such domain
+   */
+  SharedDomain getSharedDomain( final String id ) {
+    final long epoch = sharedDomainsEpoch.get();
+    final long version = sharedDomainVersions.getOrDefault( id, 0L );
+    SharedDomain shared = (SharedDomain) cacheManager.getFromRegionCache( SHARED_CACHE_REGION, id );
+    if ( shared != null && shared.epoch == epoch && shared.version == version
+      && ( (IAclAwarePentahoMetadataDomainRepositoryImporter) delegate ).hasAccessFor( id ) ) {
+      if ( logger.isDebugEnabled() ) {
+        logger.debug( "Found shared domain in cache: " + id ); //$NON-NLS-1$
+      }
+      return shared;
+    }
+    Domain domain = delegate.getDomain( id );
+    if ( domain == null ) {
+      return null;
+    }
+    shared = new SharedDomain( epoch, version, domain );
+    if ( epoch == sharedDomainsEpoch.get() && version == sharedDomainVersions.getOrDefault( id, 0L ) ) {
+      cacheManager.putInRegionCache( SHARED_CACHE_REGION, id, shared );
+    }
+    return shared;
+  }
+
+  /**
+   * Discards the shared copy of a domain after it changed in the delegate.
+   *
+   * @param domainId Domain id
+   */
+  private void invalidateSharedDomain( final String domainId ) {
+    if ( domainId != null && isSharedDomainEnabled() ) {
+      sharedDomainVersions.merge( domainId, 1L, Long::sum );
+      cacheManager.removeFromRegionCache( SHARED_CACHE_REGION, domainId );
+    }
+  }
+
+  /**
+   * Discards all shared domains.
+   */
+  private void invalidateSharedDomains() {
+    if ( isSharedDomainEnabled() ) {
+      sharedDomainsEpoch.incrementAndGet();
+      cacheManager.clearRegionCache( SHARED_CACHE_REGION );
+    }
+  }
+
   /**
    * Remove all cache entries whose domain's id is equal to {@code domainId}.
    *
    * @param domainId Domain id to remove from cache
    */
-  private void purgeDomain( final String domainId ) {
-    forAllKeys( new CacheIteratorCallback() {
-      @Override
-      public Boolean call( ICacheManager cacheManager, CacheKey key ) {
-        if ( domainId == null ? key.domainId == null : domainId.equals( key.domainId ) ) {
-          cacheManager.removeFromRegionCache( CACHE_REGION, key );
-        }
-        return true; // continue
-      }
-    } );
+  private void purgeDomain( final String domainId, final EvictionTrigger trigger ) {
+    evict( keysByDomain.remove( indexKey( domainId ) ), trigger );
     removeDomainFromIDCache( domainId );
   }
 
   @Override
   public void reloadDomains() {
-    forAllKeys( REMOVE_ALL_CALLBACK );
+    evictAll( EvictionTrigger.FLUSH );
+    invalidateSharedDomains();
     clearDomainIdsFromCache();
     delegate.reloadDomains();
   }
 
   @Override
   public void flushDomains() {
-    forAllKeys( REMOVE_ALL_CALLBACK );
+    evictAll( EvictionTrigger.FLUSH );
+    invalidateSharedDomains();
     clearDomainIdsFromCache();
     delegate.flushDomains();
   }
 
   protected void flushDomains( final IPentahoSession session ) {
-    forAllKeysInSession( session, REMOVE_ALL_CALLBACK );
+    evict( keysBySession.remove( indexKey( session.getId() ) ), EvictionTrigger.LOGOUT );
     clearDomainIdsFromCache( session );
   }
 
@@ -337,26 +629,9 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
    * Remove domain ID cache for all sessions
    */
   protected void clearDomainIdsFromCache() {
-    try {
-      Set<?> cachedObjects = cacheManager.getAllKeysFromRegionCache( CACHE_REGION );
-      if ( cachedObjects != null ) {
-        for ( Object k : cachedObjects ) {
-          if ( k instanceof String ) {
-            String key = (String) k;
-            if ( key != null && key.startsWith( DOMAIN_CACHE_KEY_PREDICATE ) ) {
-              cacheManager.removeFromRegionCache( CACHE_REGION, key );
-            }
-          }
-        }
-      }
-    } catch ( Throwable e ) {
-      // due to a known issue in hibernate cache
-      // the getAll* methods of ICacheManager throw a NullPointerException if
-      // cache values are null (this can happen due to cache object timeouts)
-      // please see: http://opensource.atlassian.com/projects/hibernate/browse/HHH-3248
-      if ( logger.isDebugEnabled() ) {
-        logger.debug( "", e ); //$NON-NLS-1$
-      }
+    for ( String key : domainIdCacheKeys ) {
+      domainIdCacheKeys.remove( key );
+      cacheManager.removeFromRegionCache( CACHE_REGION, key );
     }
   }
 
@@ -366,8 +641,14 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
    * @param session
    */
   protected void clearDomainIdsFromCache( IPentahoSession session ) {
-    final String key = generateDomainIdCacheKeyForSession( session );
-    if ( cacheManager.getFromRegionCache( CACHE_REGION, key ) != null ) {
+    removeDomainIdCacheKey( generateDomainIdCacheKeyForSession( session ) );
+    for ( PentahoDataSourceType type : PentahoDataSourceType.values() ) {
+      removeDomainIdCacheKey( generateDomainIdCacheKeyForSession( session, type.toString() ) );
+    }
+  }
+
+  private void removeDomainIdCacheKey( final String key ) {
+    if ( domainIdCacheKeys.remove( key ) ) {
       cacheManager.removeFromRegionCache( CACHE_REGION, key );
     }
   }
@@ -397,27 +678,13 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
    * @param domainId
    */
   private void removeDomainFromIDCache( String domainId ) {
-    try {
-      Set<?> cachedObjects = cacheManager.getAllKeysFromRegionCache( CACHE_REGION );
-      if ( cachedObjects != null ) {
-        for ( Object k : cachedObjects ) {
-          if ( k instanceof String ) {
-            String key = (String) k;
-            if ( key != null && key.startsWith( DOMAIN_CACHE_KEY_PREDICATE ) ) {
-              Set<String> domainIds = (Set<String>) cacheManager.getFromRegionCache( CACHE_REGION, key );
-              domainIds.remove( domainId );
-              cacheManager.putInRegionCache( CACHE_REGION, key, domainIds );
-            }
-          }
-        }
-      }
-    } catch ( Throwable e ) {
-      // due to a known issue in hibernate cache
-      // the getAll* methods of ICacheManager throw a NullPointerException if
-      // cache values are null (this can happen due to cache object timeouts)
-      // please see: http://opensource.atlassian.com/projects/hibernate/browse/HHH-3248
-      if ( logger.isDebugEnabled() ) {
-        logger.debug( "", e ); //$NON-NLS-1$
+    for ( String key : domainIdCacheKeys ) {
+      Set<String> domainIds = (Set<String>) cacheManager.getFromRegionCache( CACHE_REGION, key );
+      if ( domainIds == null ) {
+        // expired from the cache
+        domainIdCacheKeys.remove( key );
+      } else if ( domainIds.remove( domainId ) ) {
+        cacheManager.putInRegionCache( CACHE_REGION, key, domainIds );
       }
     }
   }
@@ -447,7 +714,8 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
   @Override
   public void removeDomain( final String domainId ) {
     delegate.removeDomain( domainId );
-    purgeDomain( domainId );
+    invalidateSharedDomain( domainId );
+    purgeDomain( domainId, EvictionTrigger.DOMAIN_CHANGE );
     removeDomainFromIDCache( domainId );
   }
 
@@ -455,7 +723,8 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
   public void storeDomain( final Domain domain, final boolean overwrite ) throws DomainIdNullException,
     DomainAlreadyExistsException, DomainStorageException {
     delegate.storeDomain( domain, overwrite );
-    purgeDomain( domain.getId() );
+    invalidateSharedDomain( domain.getId() );
+    purgeDomain( domain.getId(), EvictionTrigger.DOMAIN_CHANGE );
     clearDomainIdsFromCache();
   }
 
@@ -463,7 +732,8 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
   public void removeModel( final String domainId, final String modelId ) throws DomainIdNullException,
     DomainStorageException {
     delegate.removeModel( domainId, modelId );
-    purgeDomain( domainId );
+    invalidateSharedDomain( domainId );
+    purgeDomain( domainId, EvictionTrigger.DOMAIN_CHANGE );
   }
 
   @Override
@@ -552,6 +822,7 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
     domainIds = delegateGetDomainIds.get();
     if ( domainIdsCacheEnabled ) {
       cacheManager.putInRegionCache( CACHE_REGION, domainKey, new HashSet<>( domainIds ) );
+      domainIdCacheKeys.add( domainKey );
     }
     return domainIds;
   }
@@ -585,6 +856,7 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
     throws DomainIdNullException, DomainAlreadyExistsException, DomainStorageException {
     if ( delegate instanceof IAclAwarePentahoMetadataDomainRepositoryImporter ) {
       ( (IAclAwarePentahoMetadataDomainRepositoryImporter) delegate ).storeDomain( inputStream, domainId, overwrite, acl );
+      invalidateSharedDomain( domainId );
     }
   }
 
@@ -615,6 +887,7 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
     DomainAlreadyExistsException, DomainStorageException {
     if ( delegate instanceof IPentahoMetadataDomainRepositoryImporter ) {
       ( (IAclAwarePentahoMetadataDomainRepositoryImporter) delegate ).storeDomain( inputStream, domainId, overwrite );
+      invalidateSharedDomain( domainId );
     }
   }
 
@@ -624,6 +897,7 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
     if ( delegate instanceof IPentahoMetadataDomainRepositoryImporter ) {
       ( (IAclAwarePentahoMetadataDomainRepositoryImporter) delegate ).addLocalizationFile( domainId, locale,
           inputStream, overwrite );
+      invalidateSharedDomain( domainId );
     }
   }
 
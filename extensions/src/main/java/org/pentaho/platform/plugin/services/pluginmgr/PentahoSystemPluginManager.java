@@ -115,6 +115,7 @@ public class PentahoSystemPluginManager implements IPluginManager {
   private final ISystemConfig systemConfig = PentahoSystem.get( ISystemConfig.class );
   private final Logger logger = LoggerFactory.getLogger( getClass() );
   private final Set<IPluginManagerListener> listeners = new HashSet<>();
+  private volatile PluginRoutingTable routingTable;
 
   private static void createAndRegisterLifecycleListeners( IPlatformPlugin plugin, ClassLoader loader )
     throws PlatformPluginRegistrationException {
@@ -216,6 +217,7 @@ public class PentahoSystemPluginManager implements IPluginManager {
       entry.getValue().remove();
     }
     handleRegistry.clear();
+    routingTable = null;
   }
 
   @Override
@@ -311,6 +313,8 @@ public class PentahoSystemPluginManager implements IPluginManager {
       }
     }
 
+    routingTable = buildRoutingTable();
+
     for ( IPluginManagerListener listener : listeners ) {
       listener.onReload();
     }
@@ -1004,33 +1008,49 @@ public class PentahoSystemPluginManager implements IPluginManager {
   }
 
   @Deprecated
-  @SuppressWarnings( "DuplicatedCode" )
   public String getServicePlugin( String path ) {
-    for ( IPlatformPlugin plugin : PentahoSystem.getAll( IPlatformPlugin.class ) ) {
-      String pluginId = getStaticResourcePluginId( plugin, path );
-      if ( pluginId != null ) {
-        return pluginId;
-      }
+    PluginRoutingTable.Route route = getRoutingTable().getRoute( path );
+    return route != null ? route.getPluginId() : null;
+  }
 
-      for ( IContentGeneratorInfo contentGenerator : plugin.getContentGenerators() ) {
-        String cgId = contentGenerator.getId();
-        if ( isRequested( cgId, path ) ) {
-          return plugin.getId();
-        }
-      }
-    }
+  /**
+   * Gets the static resource route of a request path, which holds the plugin ID, the class loader and the resource
+   * directory of the static resource.
+   *
+   * @param path The request path.
+   * @return The route, or {@code null} if the path is not a static resource of any plugin.
+   */
+  public PluginRoutingTable.Route getStaticResourceRoute( String path ) {
+    return getRoutingTable().getStaticResourceRoute( path );
+  }
 
-    return null;
+  /**
+   * Gets the routing table of the registered plugins. The table is built when the plugins are loaded; it is built on
+   * first use if the plugins were registered without {@link #reload()}.
+   */
+  @VisibleForTesting
+  PluginRoutingTable getRoutingTable() {
+    PluginRoutingTable table = routingTable;
+    if ( table == null ) {
+      table = buildRoutingTable();
+      routingTable = table;
+    }
+    return table;
   }
 
-  private String getStaticResourcePluginId( IPlatformPlugin plugin, String path ) {
-    Map<String, String> resourceMap = plugin.getStaticResourceMap();
-    for ( String url : resourceMap.keySet() ) {
-      if ( isRequested( url, path ) ) {
-        return plugin.getId();
+  private PluginRoutingTable buildRoutingTable() {
+    PluginRoutingTable table = new PluginRoutingTable();
+    // plugins are returned by priority, which is also the precedence of their routes
+    for ( IPlatformPlugin plugin : PentahoSystem.getAll( IPlatformPlugin.class ) ) {
+      ClassLoader classLoader = getClassLoader( plugin.getId() );
+      for ( Map.Entry<String, String> entry : plugin.getStaticResourceMap().entrySet() ) {
+        table.addStaticResource( plugin.getId(), classLoader, entry.getKey(), entry.getValue() );
+      }
+      for ( IContentGeneratorInfo contentGenerator : plugin.getContentGenerators() ) {
+        table.addContentGenerator( plugin.getId(), classLoader, contentGenerator.getId() );
       }
     }
-    return null;
+    return table;
   }
 
   @Override
@@ -1045,15 +1065,7 @@ public class PentahoSystemPluginManager implements IPluginManager {
 
   @Override
   public boolean isStaticResource( String path ) {
-
-    for ( IPlatformPlugin plugin : PentahoSystem.getAll( IPlatformPlugin.class ) ) {
-      String pluginId = getStaticResourcePluginId( plugin, path );
-      if ( pluginId != null ) {
-        return true;
-      }
-    }
-
-    return false;
+    return getStaticResourceRoute( path ) != null;
   }
 
   @Override
@@ -1080,18 +1092,12 @@ public class PentahoSystemPluginManager implements IPluginManager {
 
   @Override
   public InputStream getStaticResource( String path ) {
-    for ( IPlatformPlugin plugin : PentahoSystem.getAll( IPlatformPlugin.class ) ) {
-      Map<String, String> resourceMap = plugin.getStaticResourceMap();
-      for ( String url : resourceMap.keySet() ) {
-        if ( isRequested( url, path ) ) {
-          IPluginResourceLoader resLoader = PentahoSystem.get( IPluginResourceLoader.class, null );
-          ClassLoader classLoader = getClassLoader( plugin.getId() );
-          String resourcePath = path.replace( url, resourceMap.get( url ) );
-          return resLoader.getResourceAsStream( classLoader, resourcePath );
-        }
-      }
+    PluginRoutingTable.Route route = getStaticResourceRoute( path );
+    if ( route == null ) {
+      return null;
     }
-    return null;
+    IPluginResourceLoader resLoader = PentahoSystem.get( IPluginResourceLoader.class, null );
+    return resLoader.getResourceAsStream( route.getClassLoader(), route.getResourcePath( path ) );
   }
 
   @Override
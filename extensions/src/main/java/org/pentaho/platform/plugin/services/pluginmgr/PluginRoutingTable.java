@@ -0,0 +1,180 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.services.pluginmgr;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Routes request paths to the plugins serving them, either as static resources or as content generators.
+ * <p/>
+ * The URLs of the routes are kept in a tree of path elements, so finding the route of a request path takes one
+ * lookup per element of the path, whatever the number of plugins. A route matches a request path when the path starts
+ * with all the elements of the route URL, as defined by {@link PentahoSystemPluginManager#isRequested(String, String)}.
+ * When several routes match, the one added first wins, so routes must be added in plugin priority order, each plugin
+ * adding its static resources before its content generators.
+ * <p/>
+ * The table is built once and not changed afterwards; it is safe for use by concurrent readers.
+ */
+public class PluginRoutingTable {
+
+  private static final String SEPARATOR = "/";
+
+  private final Node root = new Node();
+
+  private int nextRank = 0;
+
+  /**
+   * Adds the route of a static resource URL of a plugin.
+   *
+   * @param pluginId     The plugin ID.
+   * @param classLoader  The class loader of the plugin.
+   * @param url          The static resource URL.
+   * @param resourceBase The plugin directory the URL is mapped to.
+   */
+  public void addStaticResource( String pluginId, ClassLoader classLoader, String url, String resourceBase ) {
+    add( new Route( pluginId, classLoader, url, resourceBase, true, nextRank++ ) );
+  }
+
+  /**
+   * Adds the route of a content generator of a plugin.
+   *
+   * @param pluginId    The plugin ID.
+   * @param classLoader The class loader of the plugin.
+   * @param id          The content generator ID.
+   */
+  public void addContentGenerator( String pluginId, ClassLoader classLoader, String id ) {
+    add( new Route( pluginId, classLoader, id, null, false, nextRank++ ) );
+  }
+
+  private void add( Route route ) {
+    Node node = root;
+    for ( String element : split( route.getUrl() ) ) {
+      node = node.children.computeIfAbsent( element, key -> new Node() );
+    }
+    // the first route added for a URL has precedence
+    if ( node.route == null ) {
+      node.route = route;
+    }
+    if ( route.isStaticResource() && node.staticResourceRoute == null ) {
+      node.staticResourceRoute = route;
+    }
+  }
+
+  /**
+   * Gets the route of a request path, be it a static resource or a content generator.
+   *
+   * @param path The request path.
+   * @return The route, or {@code null} if no plugin serves the path.
+   */
+  public Route getRoute( String path ) {
+    return find( path, false );
+  }
+
+  /**
+   * Gets the static resource route of a request path.
+   *
+   * @param path The request path.
+   * @return The route, or {@code null} if the path is not a static resource of any plugin.
+   */
+  public Route getStaticResourceRoute( String path ) {
+    return find( path, true );
+  }
+
+  private Route find( String path, boolean staticResource ) {
+    Route best = null;
+    Node node = root;
+    for ( String element : split( path ) ) {
+      node = node.children.get( element );
+      if ( node == null ) {
+        break;
+      }
+      Route route = staticResource ? node.staticResourceRoute : node.route;
+      if ( route != null && ( best == null || route.rank < best.rank ) ) {
+        best = route;
+      }
+    }
+    return best;
+  }
+
+  private static String[] split( String path ) {
+    return ( path.startsWith( SEPARATOR ) ? path.substring( 1 ) : path ).split( SEPARATOR );
+  }
+
+  private static class Node {
+    private final Map<String, Node> children = new HashMap<>();
+
+    private Route route;
+
+    private Route staticResourceRoute;
+  }
+
+  /**
+   * A route to a plugin, with everything needed to serve the requests it matches.
+   */
+  public static class Route {
+    private final String pluginId;
+    private final ClassLoader classLoader;
+    private final String url;
+    private final String resourceBase;
+    private final boolean staticResource;
+    private final int rank;
+
+    Route( String pluginId, ClassLoader classLoader, String url, String resourceBase, boolean staticResource,
+           int rank ) {
+      this.pluginId = pluginId;
+      this.classLoader = classLoader;
+      this.url = url;
+      this.resourceBase = resourceBase;
+      this.staticResource = staticResource;
+      this.rank = rank;
+    }
+
+    public String getPluginId() {
+      return pluginId;
+    }
+
+    public ClassLoader getClassLoader() {
+      return classLoader;
+    }
+
+    /**
+     * Gets the URL of the static resource, or the ID of the content generator, the route was added for.
+     */
+    public String getUrl() {
+      return url;
+    }
+
+    /**
+     * Gets the plugin directory the static resource URL is mapped to, or {@code null} for content generators.
+     */
+    public String getResourceBase() {
+      return resourceBase;
+    }
+
+    public boolean isStaticResource() {
+      return staticResource;
+    }
+
+    /**
+     * Gets the plugin relative path of a static resource requested through this route.
+     *
+     * @param path The request path.
+     * @return The resource path.
+     */
+    public String getResourcePath( String path ) {
+      return path.replace( url, resourceBase );
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.resources;
+
+import org.apache.jackrabbit.core.security.authorization.acl.CachingPentahoEntryCollector;
+
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Metrics of the cache of ACL entries shared by all sessions of a repository entry collector.
+ */
+@XmlRootElement( name = "aclEntryCache" )
+public class AclEntryCacheMetrics {
+
+  long sharedCacheHitCount;
+  long sharedCacheMissCount;
+  double sharedCacheHitRate;
+  long sharedCacheSize;
+
+  public AclEntryCacheMetrics() {
+  }
+
+  public AclEntryCacheMetrics( CachingPentahoEntryCollector collector ) {
+    this.sharedCacheHitCount = collector.getSharedCacheHitCount();
+    this.sharedCacheMissCount = collector.getSharedCacheMissCount();
+    this.sharedCacheHitRate = collector.getSharedCacheHitRate();
+    this.sharedCacheSize = collector.getSharedCacheSize();
+  }
+
+  public long getSharedCacheHitCount() {
+    return sharedCacheHitCount;
+  }
+
+  public void setSharedCacheHitCount( long sharedCacheHitCount ) {
+    this.sharedCacheHitCount = sharedCacheHitCount;
+  }
+
+  public long getSharedCacheMissCount() {
+    return sharedCacheMissCount;
+  }
+
+  public void setSharedCacheMissCount( long sharedCacheMissCount ) {
+    this.sharedCacheMissCount = sharedCacheMissCount;
+  }
+
+  public double getSharedCacheHitRate() {
+    return sharedCacheHitRate;
+  }
+
+  public void setSharedCacheHitRate( double sharedCacheHitRate ) {
+    this.sharedCacheHitRate = sharedCacheHitRate;
+  }
+
+  public long getSharedCacheSize() {
+    return sharedCacheSize;
+  }
+
+  public void setSharedCacheSize( long sharedCacheSize ) {
+    this.sharedCacheSize = sharedCacheSize;
+  }
+}
@@ -0,0 +1,44 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.resources;
+
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+
+@XmlRootElement( name = "aclEntryCaches" )
+public class AclEntryCacheMetricsWrapper {
+
+  List<AclEntryCacheMetrics> caches = new ArrayList<>();
+
+  public AclEntryCacheMetricsWrapper() {
+  }
+
+  public AclEntryCacheMetricsWrapper( List<AclEntryCacheMetrics> caches ) {
+    this.caches.addAll( caches );
+  }
+
+  @XmlElement( name = "aclEntryCache" )
+  public List<AclEntryCacheMetrics> getCaches() {
+    return caches;
+  }
+
+  public void setCaches( List<AclEntryCacheMetrics> caches ) {
+    if ( caches != this.caches ) {
+      this.caches.clear();
+      this.caches.addAll( caches );
+    }
+  }
+}
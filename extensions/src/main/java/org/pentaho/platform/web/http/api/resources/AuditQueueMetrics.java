@@ -0,0 +1,152 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.resources;
+
+import org.pentaho.platform.engine.services.audit.AsyncAuditMetrics;
+
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Metrics of the queue of an asynchronous audit entry.
+ */
+@XmlRootElement( name = "auditQueue" )
+public class AuditQueueMetrics {
+
+  int queueDepth;
+  int queueCapacity;
+  long enqueuedCount;
+  long writtenCount;
+  long failedCount;
+  long failedFlushCount;
+  long blockedCount;
+  long droppedCount;
+  long spilledCount;
+  long flushCount;
+  double meanFlushMillis;
+  long maxFlushMillis;
+
+  public AuditQueueMetrics() {
+  }
+
+  public AuditQueueMetrics( AsyncAuditMetrics.Snapshot snapshot ) {
+    this.queueDepth = snapshot.getQueueDepth();
+    this.queueCapacity = snapshot.getQueueCapacity();
+    this.enqueuedCount = snapshot.getEnqueuedCount();
+    this.writtenCount = snapshot.getWrittenCount();
+    this.failedCount = snapshot.getFailedCount();
+    this.failedFlushCount = snapshot.getFailedFlushCount();
+    this.blockedCount = snapshot.getBlockedCount();
+    this.droppedCount = snapshot.getDroppedCount();
+    this.spilledCount = snapshot.getSpilledCount();
+    this.flushCount = snapshot.getFlushCount();
+    this.meanFlushMillis = snapshot.getMeanFlushMillis();
+    this.maxFlushMillis = snapshot.getMaxFlushMillis();
+  }
+
+  public int getQueueDepth() {
+    return queueDepth;
+  }
+
+  public void setQueueDepth( int queueDepth ) {
+    this.queueDepth = queueDepth;
+  }
+
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  public void setQueueCapacity( int queueCapacity ) {
+    this.queueCapacity = queueCapacity;
+  }
+
+  public long getEnqueuedCount() {
+    return enqueuedCount;
+  }
+
+  public void setEnqueuedCount( long enqueuedCount ) {
+    this.enqueuedCount = enqueuedCount;
+  }
+
+  public long getWrittenCount() {
+    return writtenCount;
+  }
+
+  public void setWrittenCount( long writtenCount ) {
+    this.writtenCount = writtenCount;
+  }
+
+  public long getFailedCount() {
+    return failedCount;
+  }
+
+  public void setFailedCount( long failedCount ) {
+    this.failedCount = failedCount;
+  }
+
+  public long getFailedFlushCount() {
+    return failedFlushCount;
+  }
+
+  public void setFailedFlushCount( long failedFlushCount ) {
+    this.failedFlushCount = failedFlushCount;
+  }
+
+  public long getBlockedCount() {
+    return blockedCount;
+  }
+
+  public void setBlockedCount( long blockedCount ) {
+    this.blockedCount = blockedCount;
+  }
+
+  public long getDroppedCount() {
+    return droppedCount;
+  }
+
+  public void setDroppedCount( long droppedCount ) {
+    this.droppedCount = droppedCount;
+  }
+
+  public long getSpilledCount() {
+    return spilledCount;
+  }
+
+  public void setSpilledCount( long spilledCount ) {
+    this.spilledCount = spilledCount;
+  }
+
+  public long getFlushCount() {
+    return flushCount;
+  }
+
+  public void setFlushCount( long flushCount ) {
+    this.flushCount = flushCount;
+  }
+
+  public double getMeanFlushMillis() {
+    return meanFlushMillis;
+  }
+
+  public void setMeanFlushMillis( double meanFlushMillis ) {
+    this.meanFlushMillis = meanFlushMillis;
+  }
+
+  public long getMaxFlushMillis() {
+    return maxFlushMillis;
+  }
+
+  public void setMaxFlushMillis( long maxFlushMillis ) {
+    this.maxFlushMillis = maxFlushMillis;
+  }
+}
@@ -0,0 +1,44 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.resources;
+
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+
+@XmlRootElement( name = "auditQueues" )
+public class AuditQueueMetricsWrapper {
+
+  List<AuditQueueMetrics> queues = new ArrayList<>();
+
+  public AuditQueueMetricsWrapper() {
+  }
+
+  public AuditQueueMetricsWrapper( List<AuditQueueMetrics> queues ) {
+    this.queues.addAll( queues );
+  }
+
+  @XmlElement( name = "auditQueue" )
+  public List<AuditQueueMetrics> getQueues() {
+    return queues;
+  }
+
+  public void setQueues( List<AuditQueueMetrics> queues ) {
+    if ( queues != this.queues ) {
+      this.queues.clear();
+      this.queues.addAll( queues );
+    }
+  }
+}
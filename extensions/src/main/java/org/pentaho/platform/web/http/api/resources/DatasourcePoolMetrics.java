@@ -0,0 +1,239 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.web.http.api.resources;
+
+import org.pentaho.platform.engine.services.connection.datasource.dbcp.PooledDatasourceMetrics;
+
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Metrics of the connection pool of a pooled datasource.
+ */
+@XmlRootElement( name = "datasourcePool" )
+public class DatasourcePoolMetrics {
+
+  String datasourceName;
+  int numActive;
+  int numIdle;
+  int maxTotal;
+  int numWaiters;
+  long createdCount;
+  long destroyedCount;
+  long validationFailureCount;
+  long evictedCount;
+  double creationRatePerMinute;
+  long borrowCount;
+  long borrowFailureCount;
+  double meanBorrowWaitMillis;
+  List<BorrowWaitBucket> borrowWaitHistogram = new ArrayList<>();
+  long abandonedCount;
+  List<String> recentAbandonedStacks = new ArrayList<>();
+  Long warmUpMillis;
+
+  public DatasourcePoolMetrics() {
+  }
+
+  public DatasourcePoolMetrics( PooledDatasourceMetrics.Snapshot snapshot ) {
+    this.datasourceName = snapshot.getDatasourceName();
+    this.numActive = snapshot.getNumActive();
+    this.numIdle = snapshot.getNumIdle();
+    this.maxTotal = snapshot.getMaxTotal();
+    this.numWaiters = snapshot.getNumWaiters();
+    this.createdCount = snapshot.getCreatedCount();
+    this.destroyedCount = snapshot.getDestroyedCount();
+    this.validationFailureCount = snapshot.getValidationFailureCount();
+    this.evictedCount = snapshot.getEvictedCount();
+    this.creationRatePerMinute = snapshot.getCreationRatePerMinute();
+    this.borrowCount = snapshot.getBorrowCount();
+    this.borrowFailureCount = snapshot.getBorrowFailureCount();
+    this.meanBorrowWaitMillis = snapshot.getMeanBorrowWaitMillis();
+    for ( Map.Entry<String, Long> bucket : snapshot.getBorrowWaitHistogram().entrySet() ) {
+      this.borrowWaitHistogram.add( new BorrowWaitBucket( bucket.getKey(), bucket.getValue() ) );
+    }
+    this.abandonedCount = snapshot.getAbandonedCount();
+    this.recentAbandonedStacks.addAll( snapshot.getRecentAbandonedStacks() );
+    this.warmUpMillis = snapshot.getWarmUpMillis();
+  }
+
+  public String getDatasourceName() {
+    return datasourceName;
+  }
+
+  public void setDatasourceName( String datasourceName ) {
+    this.datasourceName = datasourceName;
+  }
+
+  public int getNumActive() {
+    return numActive;
+  }
+
+  public void setNumActive( int numActive ) {
+    this.numActive = numActive;
+  }
+
+  public int getNumIdle() {
+    return numIdle;
+  }
+
+  public void setNumIdle( int numIdle ) {
+    this.numIdle = numIdle;
+  }
+
+  public int getMaxTotal() {
+    return maxTotal;
+  }
+
+  public void setMaxTotal( int maxTotal ) {
+    this.maxTotal = maxTotal;
+  }
+
+  public int getNumWaiters() {
+    return numWaiters;
+  }
+
+  public void setNumWaiters( int numWaiters ) {
+    this.numWaiters = numWaiters;
+  }
+
+  public long getCreatedCount() {
+    return createdCount;
+  }
+
+  public void setCreatedCount( long createdCount ) {
+    this.createdCount = createdCount;
+  }
+
+  public long getDestroyedCount() {
+    return destroyedCount;
+  }
+
+  public void setDestroyedCount( long destroyedCount ) {
+    this.destroyedCount = destroyedCount;
+  }
+
+  public long getValidationFailureCount() {
+    return validationFailureCount;
+  }
+
+  public void setValidationFailureCount( long validationFailureCount ) {
+    this.validationFailureCount = validationFailureCount;
+  }
+
+  public long getEvictedCount() {
+    return evictedCount;
+  }
+
+  public void setEvictedCount( long evictedCount ) {
+    this.evictedCount = evictedCount;
+  }
+
+  public double getCreationRatePerMinute() {
+    return creationRatePerMinute;
+  }
+
+  public void setCreationRatePerMinute( double creationRatePerMinute ) {
+    this.creationRatePerMinute = creationRatePerMinute;
+  }
+
+  public long getBorrowCount() {
+    return borrowCount;
+  }
+
+  public void setBorrowCount( long borrowCount ) {
+    this.borrowCount = borrowCount;
+  }
+
+  public long getBorrowFailureCount() {
+    return borrowFailureCount;
+  }
+
+  public void setBorrowFailureCount( long borrowFailureCount ) {
+    this.borrowFailureCount = borrowFailureCount;
+  }
+
+  public double getMeanBorrowWaitMillis() {
+    return meanBorrowWaitMillis;
+  }
+
+  public void setMeanBorrowWaitMillis( double meanBorrowWaitMillis ) {
+    this.meanBorrowWaitMillis = meanBorrowWaitMillis;
+  }
+
+  @XmlElement( name = "bucket" )
+  public List<BorrowWaitBucket> getBorrowWaitHistogram() {
+    return borrowWaitHistogram;
+  }
+
+  public void setBorrowWaitHistogram( List<BorrowWaitBucket> borrowWaitHistogram ) {
+    this.borrowWaitHistogram = borrowWaitHistogram;
+  }
+
+  public long getAbandonedCount() {
+    return abandonedCount;
+  }
+
+  public void setAbandonedCount( long abandonedCount ) {
+    this.abandonedCount = abandonedCount;
+  }
+
+  @XmlElement( name = "abandonedStack" )
+  public List<String> getRecentAbandonedStacks() {
+    return recentAbandonedStacks;
+  }
+
+  public void setRecentAbandonedStacks( List<String> recentAbandonedStacks ) {
+    this.recentAbandonedStacks = recentAbandonedStacks;
+  }
+
+  public Long getWarmUpMillis() {
+    return warmUpMillis;
+  }
+
+  public void setWarmUpMillis( Long warmUpMillis ) {
+    this.warmUpMillis = warmUpMillis;
+  }
+
+  @XmlRootElement
+  public static class BorrowWaitBucket {
+    String bucket;
+    long count;
+
+    public BorrowWaitBucket() {
+    }
+
+    public BorrowWaitBucket( String bucket, long count ) {
+      this.bucket = bucket;
+      this.count = count;
+    }
+
+    public String getBucket() {
+      return bucket;
+    }
+
+    public void setBucket( String bucket ) {
+      this.bucket = bucket;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public void setCount( long count ) {
+      this.count = count;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.web.http.api.resources;
+
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+
+@XmlRootElement( name = "datasourcePools" )
+public class DatasourcePoolMetricsWrapper {
+
+  List<DatasourcePoolMetrics> pools = new ArrayList<>();
+
+  public DatasourcePoolMetricsWrapper() {
+  }
+
+  public DatasourcePoolMetricsWrapper( List<DatasourcePoolMetrics> pools ) {
+    this.pools.addAll( pools );
+  }
+
+  @XmlElement( name = "datasourcePool" )
+  public List<DatasourcePoolMetrics> getPools() {
+    return pools;
+  }
+
+  public void setPools( List<DatasourcePoolMetrics> pools ) {
+    if ( pools != this.pools ) {
+      this.pools.clear();
+      this.pools.addAll( pools );
+    }
+  }
+}
@@ -64,6 +64,7 @@ import org.pentaho.platform.api.repository2.unified.webservices.StringKeyStringV
 import org.pentaho.platform.security.policy.rolebased.actions.PublishAction;
 import org.pentaho.platform.util.xml.XMLParserFactoryProducer;
 import org.pentaho.platform.web.http.api.resources.services.FileService;
+import org.pentaho.platform.web.http.api.resources.services.InvalidPageRequestException;
 import org.pentaho.platform.web.http.api.resources.utils.FileUtils;
 import org.pentaho.platform.web.http.api.resources.utils.SystemUtils;
 import org.pentaho.platform.web.http.messages.Messages;
@@ -1314,6 +1315,50 @@ public class FileResource extends AbstractJaxRSResource {
     return new SettingsWrapper( fileService.doGetPathsAccessList( pathsWrapper ) );
   }
 
+  /**
+   * Checks the permissions of the current user on the provided list of paths, returning one bitmask per path. The
+   * permission with ordinal <code>n</code> (READ = 0, WRITE = 1, DELETE = 2, ACL_MANAGEMENT = 3, ALL = 4) is granted
+   * when the bit <code>1 &lt;&lt; n</code> is set.
+   *
+   * <p><b>Example Request:</b><br />
+   * POST pentaho/api/repo/files/pathsAccessMask
+   * <br /><b>POST data:</b>
+   * <pre function="syntax.xml">
+   *    &lt;?xml version=&quot;1.0&quot; encoding=&quot;UTF-8&quot;?&gt;
+   *    &lt;stringListWrapper&gt;
+   *    &lt;strings&gt;/public&lt;/strings&gt;
+   *    &lt;/stringListWrapper&gt;
+   *  </pre>
+   * </p>
+   *
+   * @param pathsWrapper Collection of Strings containing the paths to be checked.
+   * @return A collection with the permissions bitmask of each path.
+   *
+   * <p><b>Example Response:</b></p>
+   * <pre function="syntax.xml">
+   *    &lt;settings&gt;
+   *    &lt;setting&gt;
+   *    &lt;name&gt;
+   *    /public
+   *    &lt;/name&gt;
+   *    &lt;value&gt;
+   *    3
+   *    &lt;/value&gt;
+   *    &lt;/setting&gt;
+   *    &lt;/settings&gt;
+   *  </pre>
+   */
+  @POST
+  @Path( "/pathsAccessMask" )
+  @Consumes( {MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON} )
+  @Produces( {MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON} )
+  @StatusCodes( {
+      @ResponseCode( code = 200, condition = "Successfully retrieved the permissions of the given paths." ),
+      @ResponseCode( code = 500, condition = "Unable to retrieve the permissions of the given paths due to some other error." ) } )
+  public SettingsWrapper doGetPathsAccessMask( StringListWrapper pathsWrapper ) {
+    return new SettingsWrapper( fileService.doGetPathsAccessMask( pathsWrapper ) );
+  }
+
   /**
    * Check whether the current user has specific permission on the selected repository file.
    *
@@ -1955,6 +2000,11 @@ public class FileResource extends AbstractJaxRSResource {
    *                    excludeMembers= clause in the same service call.
    * @param showHidden  Include or exclude hidden files from the file list.
    * @param includeAcls Include permission information about the file in the output.
+   * @param offset      Number of children to skip. When offset, limit or sortBy is given, the children are sorted and
+   *                    sliced by the repository, and only the children of the requested page are read.
+   * @param limit       Maximum number of children to return.
+   * @param sortBy      Key to sort the children by, "name" or "title" (default). Sorting by name does not read the
+   *                    localized titles of the children outside of the page.
    * @return A RepositoryFileTreeDto object containing the files at the selected repository path of the repository. Will return files but not folders under the "/" folder. The fields returned will include the name, filesize, description, id and title.
    *
    * <p><b>Example Response:</b></p>
@@ -1985,10 +2035,27 @@ public class FileResource extends AbstractJaxRSResource {
   @StatusCodes( {
       @ResponseCode( code = 200,
           condition = "Successfully retrieved the list of child files from selected repository path of the repository." ),
+      @ResponseCode( code = 400, condition = "Negative offset or limit, or unknown sort key." ),
       @ResponseCode( code = 500, condition = "Server Error." )} )
   public RepositoryFileDtoWrapper doGetChildren( @PathParam( "pathId" ) String pathId,
                                                 @QueryParam( "filter" ) String filter, @QueryParam( "showHidden" ) Boolean showHidden,
-                                                @DefaultValue( "false" ) @QueryParam( "includeAcls" ) Boolean includeAcls ) {
+                                                @DefaultValue( "false" ) @QueryParam( "includeAcls" ) Boolean includeAcls,
+                                                @QueryParam( "offset" ) Integer offset, @QueryParam( "limit" ) Integer limit,
+                                                @QueryParam( "sortBy" ) String sortBy ) {
+
+    if ( offset == null && limit == null && sortBy == null ) {
+      return doGetChildren( pathId, filter, showHidden, includeAcls );
+    }
+    try {
+      return new RepositoryFileDtoWrapper(
+        fileService.doGetChildren( pathId, filter, showHidden, includeAcls, offset, limit, sortBy ) );
+    } catch ( InvalidPageRequestException e ) {
+      throw new WebApplicationException( e, Response.Status.BAD_REQUEST );
+    }
+  }
+
+  public RepositoryFileDtoWrapper doGetChildren( String pathId, String filter, Boolean showHidden,
+                                                Boolean includeAcls ) {
 
     return new RepositoryFileDtoWrapper( fileService.doGetChildren( pathId, filter, showHidden, includeAcls ) );
   }
@@ -0,0 +1,92 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.resources;
+
+import org.pentaho.platform.web.servlet.StaticResourceMetrics;
+
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Metrics of the static resources served for a plugin.
+ */
+@XmlRootElement( name = "pluginStaticResources" )
+public class PluginStaticResourceMetrics {
+
+  String pluginId;
+  long requestCount;
+  long cacheHitCount;
+  long notModifiedCount;
+  long partialCount;
+  long bytesSent;
+
+  public PluginStaticResourceMetrics() {
+  }
+
+  public PluginStaticResourceMetrics( String pluginId, StaticResourceMetrics.Snapshot snapshot ) {
+    this.pluginId = pluginId;
+    this.requestCount = snapshot.getRequestCount();
+    this.cacheHitCount = snapshot.getCacheHitCount();
+    this.notModifiedCount = snapshot.getNotModifiedCount();
+    this.partialCount = snapshot.getPartialCount();
+    this.bytesSent = snapshot.getBytesSent();
+  }
+
+  public String getPluginId() {
+    return pluginId;
+  }
+
+  public void setPluginId( String pluginId ) {
+    this.pluginId = pluginId;
+  }
+
+  public long getRequestCount() {
+    return requestCount;
+  }
+
+  public void setRequestCount( long requestCount ) {
+    this.requestCount = requestCount;
+  }
+
+  public long getCacheHitCount() {
+    return cacheHitCount;
+  }
+
+  public void setCacheHitCount( long cacheHitCount ) {
+    this.cacheHitCount = cacheHitCount;
+  }
+
+  public long getNotModifiedCount() {
+    return notModifiedCount;
+  }
+
+  public void setNotModifiedCount( long notModifiedCount ) {
+    this.notModifiedCount = notModifiedCount;
+  }
+
+  public long getPartialCount() {
+    return partialCount;
+  }
+
+  public void setPartialCount( long partialCount ) {
+    this.partialCount = partialCount;
+  }
+
+  public long getBytesSent() {
+    return bytesSent;
+  }
+
+  public void setBytesSent( long bytesSent ) {
+    this.bytesSent = bytesSent;
+  }
+}
@@ -0,0 +1,44 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.resources;
+
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+
+@XmlRootElement( name = "pluginsStaticResources" )
+public class PluginStaticResourceMetricsWrapper {
+
+  List<PluginStaticResourceMetrics> plugins = new ArrayList<>();
+
+  public PluginStaticResourceMetricsWrapper() {
+  }
+
+  public PluginStaticResourceMetricsWrapper( List<PluginStaticResourceMetrics> plugins ) {
+    this.plugins.addAll( plugins );
+  }
+
+  @XmlElement( name = "pluginStaticResources" )
+  public List<PluginStaticResourceMetrics> getPlugins() {
+    return plugins;
+  }
+
+  public void setPlugins( List<PluginStaticResourceMetrics> plugins ) {
+    if ( plugins != this.plugins ) {
+      this.plugins.clear();
+      this.plugins.addAll( plugins );
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.resources;
+
+import org.pentaho.platform.repository2.unified.jcr.sejcr.PentahoJcrSessionPoolMetrics;
+
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Metrics of a pool of repository (JCR) sessions.
+ */
+@XmlRootElement( name = "repositorySessionPool" )
+public class RepositorySessionPoolMetrics {
+
+  int activeSessions;
+  int idleSessions;
+  int maxActiveSessions;
+  int maxSessionsPerUser;
+  int maxSessionsPerSystemUser;
+  long userPools;
+  long userPoolHitCount;
+  long userPoolMissCount;
+  long userPoolEvictionCount;
+  long checkoutCount;
+  long reentrantCheckoutCount;
+  long createdCount;
+  long waitTimeoutCount;
+  double meanWaitMillis;
+  long maxWaitMillis;
+
+  public RepositorySessionPoolMetrics() {
+  }
+
+  public RepositorySessionPoolMetrics( PentahoJcrSessionPoolMetrics.Snapshot snapshot ) {
+    this.activeSessions = snapshot.getActiveSessions();
+    this.idleSessions = snapshot.getIdleSessions();
+    this.maxActiveSessions = snapshot.getMaxActiveSessions();
+    this.maxSessionsPerUser = snapshot.getMaxSessionsPerUser();
+    this.maxSessionsPerSystemUser = snapshot.getMaxSessionsPerSystemUser();
+    this.userPools = snapshot.getUserPools();
+    this.userPoolHitCount = snapshot.getUserPoolHitCount();
+    this.userPoolMissCount = snapshot.getUserPoolMissCount();
+    this.userPoolEvictionCount = snapshot.getUserPoolEvictionCount();
+    this.checkoutCount = snapshot.getCheckoutCount();
+    this.reentrantCheckoutCount = snapshot.getReentrantCheckoutCount();
+    this.createdCount = snapshot.getCreatedCount();
+    this.waitTimeoutCount = snapshot.getWaitTimeoutCount();
+    this.meanWaitMillis = snapshot.getMeanWaitMillis();
+    this.maxWaitMillis = snapshot.getMaxWaitMillis();
+  }
+
+  public int getActiveSessions() {
+    return activeSessions;
+  }
+
+  public void setActiveSessions( int activeSessions ) {
+    this.activeSessions = activeSessions;
+  }
+
+  public int getIdleSessions() {
+    return idleSessions;
+  }
+
+  public void setIdleSessions( int idleSessions ) {
+    this.idleSessions = idleSessions;
+  }
+
+  public int getMaxActiveSessions() {
+    return maxActiveSessions;
+  }
+
+  public void setMaxActiveSessions( int maxActiveSessions ) {
+    this.maxActiveSessions = maxActiveSessions;
+  }
+
+  public int getMaxSessionsPerUser() {
+    return maxSessionsPerUser;
+  }
+
+  public void setMaxSessionsPerUser( int maxSessionsPerUser ) {
+    this.maxSessionsPerUser = maxSessionsPerUser;
+  }
+
+  public int getMaxSessionsPerSystemUser() {
+    return maxSessionsPerSystemUser;
+  }
+
+  public void setMaxSessionsPerSystemUser( int maxSessionsPerSystemUser ) {
+    this.maxSessionsPerSystemUser = maxSessionsPerSystemUser;
+  }
+
+  public long getUserPools() {
+    return userPools;
+  }
+
+  public void setUserPools( long userPools ) {
+    this.userPools = userPools;
+  }
+
+  public long getUserPoolHitCount() {
+    return userPoolHitCount;
+  }
+
+  public void setUserPoolHitCount( long userPoolHitCount ) {
+    this.userPoolHitCount = userPoolHitCount;
+  }
+
+  public long getUserPoolMissCount() {
+    return userPoolMissCount;
+  }
+
+  public void setUserPoolMissCount( long userPoolMissCount ) {
+    this.userPoolMissCount = userPoolMissCount;
+  }
+
+  public long getUserPoolEvictionCount() {
+    return userPoolEvictionCount;
+  }
+
+  public void setUserPoolEvictionCount( long userPoolEvictionCount ) {
+    this.userPoolEvictionCount = userPoolEvictionCount;
+  }
+
+  public long getCheckoutCount() {
+    return checkoutCount;
+  }
+
+  public void setCheckoutCount( long checkoutCount ) {
+    this.checkoutCount = checkoutCount;
+  }
+
+  public long getReentrantCheckoutCount() {
+    return reentrantCheckoutCount;
+  }
+
+  public void setReentrantCheckoutCount( long reentrantCheckoutCount ) {
+    this.reentrantCheckoutCount = reentrantCheckoutCount;
+  }
+
+  public long getCreatedCount() {
+    return createdCount;
+  }
+
+  public void setCreatedCount( long createdCount ) {
+    this.createdCount = createdCount;
+  }
+
+  public long getWaitTimeoutCount() {
+    return waitTimeoutCount;
+  }
+
+  public void setWaitTimeoutCount( long waitTimeoutCount ) {
+    this.waitTimeoutCount = waitTimeoutCount;
+  }
+
+  public double getMeanWaitMillis() {
+    return meanWaitMillis;
+  }
+
+  public void setMeanWaitMillis( double meanWaitMillis ) {
+    this.meanWaitMillis = meanWaitMillis;
+  }
+
+  public long getMaxWaitMillis() {
+    return maxWaitMillis;
+  }
+
+  public void setMaxWaitMillis( long maxWaitMillis ) {
+    this.maxWaitMillis = maxWaitMillis;
+  }
+}
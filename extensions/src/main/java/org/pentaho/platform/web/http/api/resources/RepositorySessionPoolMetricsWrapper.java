@@ -0,0 +1,44 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.resources;
+
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+
+@XmlRootElement( name = "repositorySessionPools" )
+public class RepositorySessionPoolMetricsWrapper {
+
+  List<RepositorySessionPoolMetrics> pools = new ArrayList<>();
+
+  public RepositorySessionPoolMetricsWrapper() {
+  }
+
+  public RepositorySessionPoolMetricsWrapper( List<RepositorySessionPoolMetrics> pools ) {
+    this.pools.addAll( pools );
+  }
+
+  @XmlElement( name = "repositorySessionPool" )
+  public List<RepositorySessionPoolMetrics> getPools() {
+    return pools;
+  }
+
+  public void setPools( List<RepositorySessionPoolMetrics> pools ) {
+    if ( pools != this.pools ) {
+      this.pools.clear();
+      this.pools.addAll( pools );
+    }
+  }
+}
@@ -17,6 +17,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.LocaleUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.jackrabbit.core.security.authorization.acl.CachingPentahoEntryCollector;
 import org.codehaus.enunciate.Facet;
 import org.codehaus.enunciate.modules.jersey.ExternallyManagedLifecycle;
 
@@ -31,12 +32,16 @@ import org.pentaho.platform.api.usersettings.IUserSettingService;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.api.repository2.unified.webservices.ExecutableFileTypeDto;
+import org.pentaho.platform.engine.services.audit.AsyncAuditMetrics;
+import org.pentaho.platform.engine.services.connection.datasource.dbcp.PooledDatasourceMetrics;
+import org.pentaho.platform.repository2.unified.jcr.sejcr.PentahoJcrSessionPoolMetrics;
 import org.pentaho.platform.security.policy.rolebased.actions.AdministerSecurityAction;
 import org.pentaho.platform.security.policy.rolebased.actions.RepositoryCreateAction;
 import org.pentaho.platform.security.policy.rolebased.actions.RepositoryReadAction;
 import org.pentaho.platform.util.messages.LocaleHelper;
 import org.pentaho.platform.web.http.api.resources.services.SystemService;
 import org.pentaho.platform.web.http.messages.Messages;
+import org.pentaho.platform.web.servlet.StaticResourceMetrics;
 
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
@@ -127,6 +132,121 @@ public class SystemResource extends AbstractJaxRSResource {
     }
   }
 
+  /**
+   * Returns the usage metrics of the connection pools of all pooled datasources: active and idle connections, borrow
+   * wait time histogram, connection creation rate, validation failures and recently abandoned connections.
+   *
+   * @return Response containing the metrics of each datasource connection pool
+   */
+  @GET
+  @Path( "/datasource-pools" )
+  @Produces( { APPLICATION_JSON, APPLICATION_XML } )
+  @Facet ( name = "Unsupported" )
+  public Response getDatasourcePoolMetrics() {
+    if ( !canAdminister() ) {
+      return Response.status( UNAUTHORIZED ).build();
+    }
+
+    List<DatasourcePoolMetrics> pools = new ArrayList<>();
+    for ( PooledDatasourceMetrics metrics : PooledDatasourceMetrics.getAll() ) {
+      pools.add( new DatasourcePoolMetrics( metrics.getSnapshot() ) );
+    }
+
+    return Response.ok( new DatasourcePoolMetricsWrapper( pools ) ).build();
+  }
+
+  /**
+   * Returns the usage metrics of the repository session pools: active and idle sessions, checkouts, sessions created,
+   * checkouts given an unpooled session and the time spent waiting for a session.
+   *
+   * @return Response containing the metrics of each repository session pool
+   */
+  @GET
+  @Path( "/repository-session-pools" )
+  @Produces( { APPLICATION_JSON, APPLICATION_XML } )
+  @Facet ( name = "Unsupported" )
+  public Response getRepositorySessionPoolMetrics() {
+    if ( !canAdminister() ) {
+      return Response.status( UNAUTHORIZED ).build();
+    }
+
+    List<RepositorySessionPoolMetrics> pools = new ArrayList<>();
+    for ( PentahoJcrSessionPoolMetrics metrics : PentahoJcrSessionPoolMetrics.getAll() ) {
+      pools.add( new RepositorySessionPoolMetrics( metrics.getSnapshot() ) );
+    }
+
+    return Response.ok( new RepositorySessionPoolMetricsWrapper( pools ) ).build();
+  }
+
+  /**
+   * Returns the metrics of the static resources served for each plugin: requests, requests served from the resource
+   * cache, requests answered with a 304 or a partial content, and bytes sent.
+   *
+   * @return Response containing the static resource metrics of each plugin
+   */
+  @GET
+  @Path( "/static-resources" )
+  @Produces( { APPLICATION_JSON, APPLICATION_XML } )
+  @Facet ( name = "Unsupported" )
+  public Response getStaticResourceMetrics() {
+    if ( !canAdminister() ) {
+      return Response.status( UNAUTHORIZED ).build();
+    }
+
+    List<PluginStaticResourceMetrics> plugins = new ArrayList<>();
+    for ( Map.Entry<String, StaticResourceMetrics> entry : StaticResourceMetrics.getAll().entrySet() ) {
+      plugins.add( new PluginStaticResourceMetrics( entry.getKey(), entry.getValue().getSnapshot() ) );
+    }
+
+    return Response.ok( new PluginStaticResourceMetricsWrapper( plugins ) ).build();
+  }
+
+  /**
+   * Returns the metrics of the asynchronous audit queues: queue depth, entries written, spilled, dropped or lost, and
+   * the time spent writing batches of entries.
+   *
+   * @return Response containing the metrics of each asynchronous audit queue
+   */
+  @GET
+  @Path( "/audit-queues" )
+  @Produces( { APPLICATION_JSON, APPLICATION_XML } )
+  @Facet ( name = "Unsupported" )
+  public Response getAuditQueueMetrics() {
+    if ( !canAdminister() ) {
+      return Response.status( UNAUTHORIZED ).build();
+    }
+
+    List<AuditQueueMetrics> queues = new ArrayList<>();
+    for ( AsyncAuditMetrics metrics : AsyncAuditMetrics.getAll() ) {
+      queues.add( new AuditQueueMetrics( metrics.getSnapshot() ) );
+    }
+
+    return Response.ok( new AuditQueueMetricsWrapper( queues ) ).build();
+  }
+
+  /**
+   * Returns the metrics of the repository ACL entries shared by all sessions: lookups served by the shared cache,
+   * lookups that missed it, the resulting hit rate and the number of cached entries.
+   *
+   * @return Response containing the shared ACL entry cache metrics of each repository entry collector
+   */
+  @GET
+  @Path( "/acl-entry-caches" )
+  @Produces( { APPLICATION_JSON, APPLICATION_XML } )
+  @Facet ( name = "Unsupported" )
+  public Response getAclEntryCacheMetrics() {
+    if ( !canAdminister() ) {
+      return Response.status( UNAUTHORIZED ).build();
+    }
+
+    List<AclEntryCacheMetrics> caches = new ArrayList<>();
+    for ( CachingPentahoEntryCollector collector : CachingPentahoEntryCollector.getAll() ) {
+      caches.add( new AclEntryCacheMetrics( collector ) );
+    }
+
+    return Response.ok( new AclEntryCacheMetricsWrapper( caches ) ).build();
+  }
+
   /**
    * Returns a list of TimeZones ensuring that the server (default) timezone is at the top of the list (0th element)
    * 
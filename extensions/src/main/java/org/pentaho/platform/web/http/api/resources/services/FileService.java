@@ -100,6 +100,7 @@ import java.security.GeneralSecurityException;
 import java.security.InvalidParameterException;
 import java.text.Collator;
 import java.text.SimpleDateFormat;
+import java.util.AbstractMap;
 import java.util.Date;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -110,6 +111,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -149,17 +151,7 @@ public class FileService {
       encodedFileName = makeEncodedFileName( outputFile );
       IRepositoryExportLogger exportLogger;
       Level level = Level.valueOf( logLevel );
-      FileOutputStream fileOutputStream = null;
-      try {
-        validateFilePath( logFile );
-        fileOutputStream = new FileOutputStream( logFile );
-      } catch ( FileNotFoundException e ) {
-        try {
-          fileOutputStream = retrieveFallbackLogFileLocation( "backup" );
-        } catch ( FileNotFoundException fileNotFoundException ) {
-          throw new ExportException( fileNotFoundException );
-        }
-      }
+      validateFilePath( logFile );
       ByteArrayOutputStream exportLoggerSream = new ByteArrayOutputStream();
       IPentahoPlatformExporter exporter = PentahoSystem.get( IPentahoPlatformExporter.class );
       if ( exporter == null ) {
@@ -173,14 +165,8 @@ public class FileService {
         throw new ExportException( Messages.getInstance().getString( "FileService.ERROR_UNABLE_TO_GET_EXPORT_LOGGER" ) );
       }
       RepositoryTextLayout stringLayout = new RepositoryTextLayout( level );
-      exportLogger.startJob( exportLoggerSream, level, stringLayout );
-      StreamingOutput streamingOutput = getBackupStream();
-      exportLogger.endJob();
-      try {
-        exportLoggerSream.writeTo( fileOutputStream );
-      } catch ( IOException e ) {
-        logger.error( e.getLocalizedMessage() );
-      }
+      StreamingOutput streamingOutput =
+        getBackupStream( exportLogger, exportLoggerSream, level, stringLayout, logFile );
       final String attachment = HttpMimeTypeListener.buildContentDispositionValue( outputFile, true );
       return new DownloadFileWrapper( streamingOutput, attachment, encodedFileName );
     } else {
@@ -254,18 +240,43 @@ public class FileService {
     }
   }
 
-  private StreamingOutput getBackupStream() throws IOException, ExportException {
-    File zipFile = getBackupExporter().performExport();
-    final FileInputStream inputStream = new FileInputStream( zipFile );
-
+  /**
+   * Streams the backup straight to the response as it is produced. The export, and so the export log job, runs when
+   * the response is written.
+   */
+  private StreamingOutput getBackupStream( final IRepositoryExportLogger exportLogger,
+                                           final ByteArrayOutputStream exportLoggerStream, final Level level,
+                                           final RepositoryTextLayout stringLayout,
+                                           final String logFile ) {
     return new StreamingOutput() {
       @Override
       public void write( OutputStream output ) throws IOException {
-        IOUtils.copy( inputStream, output );
+        exportLogger.startJob( exportLoggerStream, level, stringLayout );
+        try {
+          getBackupExporter().performExport( output );
+        } catch ( ExportException e ) {
+          throw new IOException( e );
+        } finally {
+          exportLogger.endJob();
+          // the log file is only opened once the export runs, so it is not left open if the output is never written
+          try ( FileOutputStream logOutputStream = openBackupLogFile( logFile ) ) {
+            exportLoggerStream.writeTo( logOutputStream );
+          } catch ( IOException e ) {
+            logger.error( e.getLocalizedMessage() );
+          }
+        }
       }
     };
   }
 
+  private FileOutputStream openBackupLogFile( String logFile ) throws FileNotFoundException {
+    try {
+      return new FileOutputStream( logFile );
+    } catch ( FileNotFoundException e ) {
+      return retrieveFallbackLogFileLocation( "backup" );
+    }
+  }
+
   /**
    * Moves the list of files to the user's trash folder
    * <p/>
@@ -339,26 +350,68 @@ public class FileService {
   public List<Setting> doGetPathsAccessList( StringListWrapper pathsWrapper ) {
     List<Setting> pathsPermissonsSettings = new ArrayList<Setting>();
 
-    String permissions =
-        RepositoryFilePermission.READ.ordinal() + "|" + RepositoryFilePermission.WRITE.ordinal() + "|"
-            + RepositoryFilePermission.DELETE.ordinal() + "|" + RepositoryFilePermission.ACL_MANAGEMENT.ordinal() + "|"
-            + RepositoryFilePermission.ALL.ordinal();
-
-    List<String> paths = pathsWrapper.getStrings();
-    for ( String path : paths ) {
-      List<Setting> permList = doGetCanAccessList( path, permissions );
-      for ( Setting perm : permList ) {
-        if ( Boolean.parseBoolean( perm.getValue() ) ) {
-          Setting setting = new Setting();
-          setting.setName( path );
-          setting.setValue( perm.getName() );
-          pathsPermissonsSettings.add( setting );
-        }
+    for ( Map.Entry<String, EnumSet<RepositoryFilePermission>> pathAccess
+        : getPathsAccess( pathsWrapper.getStrings() ) ) {
+      for ( RepositoryFilePermission permission : pathAccess.getValue() ) {
+        Setting setting = new Setting();
+        setting.setName( pathAccess.getKey() );
+        setting.setValue( String.valueOf( permission.ordinal() ) );
+        pathsPermissonsSettings.add( setting );
       }
     }
     return pathsPermissonsSettings;
   }
 
+  /**
+   * Gets the permissions of the current user on each of the given paths as a bitmask, where the permission with
+   * ordinal {@code n} is the bit {@code 1 << n}.
+   *
+   * @param pathsWrapper the paths (colon separated paths for the repository files)
+   * @return one setting per path, whose value is the permissions bitmask
+   */
+  public List<Setting> doGetPathsAccessMask( StringListWrapper pathsWrapper ) {
+    List<Setting> pathsAccessMasks = new ArrayList<Setting>();
+
+    for ( Map.Entry<String, EnumSet<RepositoryFilePermission>> pathAccess
+        : getPathsAccess( pathsWrapper.getStrings() ) ) {
+      int mask = 0;
+      for ( RepositoryFilePermission permission : pathAccess.getValue() ) {
+        mask |= 1 << permission.ordinal();
+      }
+      pathsAccessMasks.add( new Setting( pathAccess.getKey(), String.valueOf( mask ) ) );
+    }
+    return pathsAccessMasks;
+  }
+
+  /**
+   * Checks the read, write, delete, ACL management and all permissions on the given paths with a single bulk
+   * repository call.
+   *
+   * @return the permissions of each path, in the order of the paths and keyed by the path as given; a path given
+   * several times has as many entries
+   */
+  private List<Map.Entry<String, EnumSet<RepositoryFilePermission>>> getPathsAccess( List<String> paths ) {
+    EnumSet<RepositoryFilePermission> permissions = EnumSet.of( RepositoryFilePermission.READ,
+        RepositoryFilePermission.WRITE, RepositoryFilePermission.DELETE, RepositoryFilePermission.ACL_MANAGEMENT,
+        RepositoryFilePermission.ALL );
+
+    List<String> repositoryPaths = new ArrayList<String>( paths.size() );
+    for ( String path : paths ) {
+      repositoryPaths.add( idToPath( path ) );
+    }
+    Map<String, EnumSet<RepositoryFilePermission>> repositoryAccess =
+        getRepository().hasAccess( repositoryPaths, permissions );
+
+    List<Map.Entry<String, EnumSet<RepositoryFilePermission>>> access =
+        new ArrayList<Map.Entry<String, EnumSet<RepositoryFilePermission>>>( paths.size() );
+    for ( int i = 0; i < paths.size(); i++ ) {
+      EnumSet<RepositoryFilePermission> granted = repositoryAccess.get( repositoryPaths.get( i ) );
+      access.add( new AbstractMap.SimpleImmutableEntry<String, EnumSet<RepositoryFilePermission>>( paths.get( i ),
+          granted != null ? granted : EnumSet.noneOf( RepositoryFilePermission.class ) ) );
+    }
+    return access;
+  }
+
   /**
    * Creates a new file with the provided contents at a given path
    *
@@ -1633,15 +1686,10 @@ public class FileService {
 
     RepositoryFile workspaceFolder = getRepository().getFile( userDir );
     if ( workspaceFolder != null ) {
-      List<RepositoryFile> children = getRepository().getChildren( workspaceFolder.getId() );
-      for ( RepositoryFile child : children ) {
-        if ( !child.isFolder() ) {
-          Map<String, Serializable> fileMetadata = getRepository().getFileMetadata( child.getId() );
-          String creatorId = (String) fileMetadata.get( metadataConstant );
-          if ( creatorId != null && creatorId.equals( targetComparator ) ) {
-            content.add( toFileDto( child, null, false ) );
-          }
-        }
+      List<RepositoryFile> files =
+          getRepository().findFilesByMetadata( workspaceFolder.getId(), metadataConstant, targetComparator );
+      for ( RepositoryFile file : files ) {
+        content.add( toFileDto( file, null, false ) );
       }
     } else {
       logger.error( Messages.getInstance().getString( "FileResource.WORKSPACE_FOLDER_NOT_FOUND", userDir ) );
@@ -1934,6 +1982,21 @@ public class FileService {
 
   protected StreamingOutput getDownloadStream( RepositoryFile repositoryFile, BaseExportProcessor exportProcessor )
       throws ExportException, IOException {
+    if ( exportProcessor instanceof ZipExportProcessor ) {
+      // write the zip entries straight to the response as they are produced
+      final ZipExportProcessor zipExportProcessor = (ZipExportProcessor) exportProcessor;
+      return new StreamingOutput() {
+        @Override
+        public void write( OutputStream output ) throws IOException {
+          try {
+            zipExportProcessor.performExport( repositoryFile, output );
+          } catch ( ExportException e ) {
+            throw new IOException( e );
+          }
+        }
+      };
+    }
+
     File zipFile = exportProcessor.performExport( repositoryFile );
     final FileInputStream is = new FileInputStream( zipFile );
     // copy streaming output
@@ -2002,6 +2065,43 @@ public class FileService {
     return repositoryFileDtoList;
   }
 
+  /**
+   * Gets one page of the children of a folder. The children are sorted and sliced by the repository, so only the
+   * children of the page are converted, and sorting by name does not read the localized titles.
+   *
+   * @param offset number of children to skip, or null for none
+   * @param limit  maximum number of children to return, or null for all of them
+   * @param sortBy "name" or "title", or null to sort by title
+   * @throws InvalidPageRequestException if the offset or the limit is negative, or the sort key is unknown
+   */
+  public List<RepositoryFileDto> doGetChildren( String pathId, String filter, Boolean showHidden,
+                                                Boolean includeAcls, Integer offset, Integer limit, String sortBy ) {
+
+    if ( ( offset != null && offset < 0 ) || ( limit != null && limit < 0 ) ) {
+      throw new InvalidPageRequestException( "offset and limit must not be negative" );
+    }
+    RepositoryRequest.SORT_KEY sortKey = RepositoryRequest.SORT_KEY.TITLE;
+    if ( !StringUtils.isEmpty( sortBy ) ) {
+      try {
+        sortKey = RepositoryRequest.SORT_KEY.valueOf( sortBy.toUpperCase( Locale.ROOT ) );
+      } catch ( IllegalArgumentException e ) {
+        throw new InvalidPageRequestException( "Unknown sort key: " + sortBy, e );
+      }
+    }
+
+    List<RepositoryFileDto> repositoryFileDtoList = new ArrayList<RepositoryFileDto>();
+    RepositoryFileDto repositoryFileDto = getRepoWs().getFile( FileUtils.idToPath( pathId ) );
+
+    if ( repositoryFileDto != null && isPathValid( repositoryFileDto.getPath() ) ) {
+      RepositoryRequest repositoryRequest = getRepositoryRequest( repositoryFileDto, showHidden, filter, includeAcls );
+      repositoryRequest.setOffset( offset == null ? 0 : offset );
+      repositoryRequest.setLimit( limit == null ? -1 : limit );
+      repositoryRequest.setSortBy( sortKey );
+      repositoryFileDtoList = getRepoWs().getChildrenFromRequest( repositoryRequest );
+    }
+    return repositoryFileDtoList;
+  }
+
   public boolean isShowingTitle( RepositoryRequest repositoryRequest ) {
     if ( repositoryRequest.getExcludeMemberSet() != null && !repositoryRequest.getExcludeMemberSet().isEmpty() ) {
       if ( repositoryRequest.getExcludeMemberSet().contains( "title" ) ) {
@@ -0,0 +1,27 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.web.http.api.resources.services;
+
+/**
+ * Exception thrown when a page of folder children is requested with a negative offset or limit, or an unknown sort
+ * key.
+ */
+public class InvalidPageRequestException extends RuntimeException {
+  public InvalidPageRequestException( String message ) {
+    super( message );
+  }
+
+  public InvalidPageRequestException( String message, Throwable cause ) {
+    super( message, cause );
+  }
+}
@@ -23,6 +23,7 @@ import org.pentaho.platform.api.engine.ICacheManager;
 import org.pentaho.platform.api.engine.IPentahoRequestContext;
 import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.engine.IPluginManager;
+import org.pentaho.platform.api.engine.IPluginManagerListener;
 import org.pentaho.platform.api.engine.ISystemConfig;
 import org.pentaho.platform.api.usersettings.IUserSettingService;
 import org.pentaho.platform.engine.core.system.PentahoRequestContextHolder;
@@ -33,6 +34,7 @@ import org.pentaho.platform.repository2.unified.jcr.JcrRepositoryFileUtils;
 import org.pentaho.platform.util.messages.LocaleHelper;
 import org.pentaho.platform.web.http.ConfigurationAdminNonOsgiProxy;
 import org.pentaho.platform.web.http.api.resources.services.FileService;
+import org.pentaho.platform.web.servlet.StaticResource;
 
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
@@ -44,17 +46,27 @@ import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * If the request is searching for a webcontext.js, it writes out the content of the webcontext.js
+ * <p/>
+ * The parts of webcontext.js which are the same for every user (the RequireJS config, the scripts and styles of the
+ * plugins, the reserved characters) are computed once, and only computed again when the plugins are reloaded or the
+ * settings are refreshed. The response carries an ETag, so that a browser asking again for an unchanged webcontext.js
+ * gets a 304.
  */
 public class PentahoWebContextFilter implements Filter {
 
@@ -91,13 +103,15 @@ public class PentahoWebContextFilter implements Filter {
 
   private String ssoEnabled = null;
 
-  // Changed to not do so much work for every request
-  private static final ThreadLocal<byte[]> THREAD_LOCAL_REQUIRE_SCRIPT = new ThreadLocal<>();
   protected static ICacheManager cache = PentahoSystem.getCacheManager( null );
 
   private LazyInitializer<String> lazyServicesPath;
   private ConfigurationAdminNonOsgiProxy configurationAdminProxy;
 
+  private volatile StaticContent staticContent;
+
+  private final AtomicLong staticContentGeneration = new AtomicLong();
+
   @Override
   public void init( FilterConfig filterConfig ) throws ServletException {
     this.configurationAdminProxy = new ConfigurationAdminNonOsgiProxy();
@@ -110,6 +124,16 @@ public class PentahoWebContextFilter implements Filter {
     };
     this.setSsoEnabled( filterConfig.getInitParameter( PARAM_SSO_ENABLED ) );
     fileService = new FileService();
+
+    IPluginManager pluginManager = getPluginManager();
+    if ( pluginManager != null ) {
+      pluginManager.addPluginManagerListener( new IPluginManagerListener() {
+        @Override
+        public void onReload() {
+          invalidateStaticContent();
+        }
+      } );
+    }
   }
 
   @Override
@@ -140,8 +164,11 @@ public class PentahoWebContextFilter implements Filter {
 
       try {
         response.setContentType( "text/javascript" );
-        OutputStream out = response.getOutputStream();
-        HashMap<String, String> webContextVariables = getWebContextVariables( httpRequest );
+        StaticContent staticContent = getStaticContent();
+        HashMap<String, String> webContextVariables = getWebContextVariables( httpRequest, staticContent );
+        String requestParameters = getRequestParameters( httpRequest );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream( staticContent.getSizeHint() );
 
         out.write( initialCommentBytes );
 
@@ -155,7 +182,7 @@ public class PentahoWebContextFilter implements Filter {
 
         printWebContextVar( out, webContextVariables, "active_theme" );
 
-        printWebContextVar( out, webContextVariables, "requireCfg", false, false );
+        out.write( staticContent.requireCfgVar );
 
         // This var will enable correct redirect in Session Expire Dialog for a SSO scenario
         if ( getSsoEnabled() != null ) {
@@ -166,15 +193,9 @@ public class PentahoWebContextFilter implements Filter {
         printPentahoEnvironmentConfig( out, webContextVariables );
 
         // Let all plugins contribute to the RequireJS config
-        printResourcesForContext( REQUIRE_JS, out, httpRequest, false );
-
-        byte[] requireScriptBytes = THREAD_LOCAL_REQUIRE_SCRIPT.get();
-        if ( requireScriptBytes == null ) {
-          printDocumentWrite( out, REQUIREJS_LOCATION );
-          printDocumentWrite( out, REQUIREJS_CONFIG_LOCATION );
-        } else {
-          out.write( requireScriptBytes );
-        }
+        printResourcesForContext( REQUIRE_JS, out, staticContent, requestParameters, false );
+
+        out.write( staticContent.requireScript );
 
         printWebContextVar( out, webContextVariables, "SESSION_NAME" );
 
@@ -187,11 +208,7 @@ public class PentahoWebContextFilter implements Filter {
 
         printWebContextVar( out, webContextVariables, "DEFAULT_FOLDER" );
 
-        printWebContextVar( out, webContextVariables, "RESERVED_CHARS" );
-
-        printWebContextVar( out, webContextVariables, "RESERVED_CHARS_DISPLAY" );
-
-        printWebContextVar( out, webContextVariables, "RESERVED_CHARS_REGEX_PATTERN", true, false );
+        out.write( staticContent.reservedCharsVars );
 
         boolean noOsgiRequireConfig = "true".equals( request.getParameter( "noOsgiRequireConfig" ) );
         if ( !noOsgiRequireConfig && !"anonymousUser".equals( getSession().getName() ) ) {
@@ -208,21 +225,24 @@ public class PentahoWebContextFilter implements Filter {
 
         if ( !requireJsOnly ) {
           // print global resources defined in plugins
-          printResourcesForContext( GLOBAL, out, httpRequest, false );
+          printResourcesForContext( GLOBAL, out, staticContent, requestParameters, false );
 
           // print out external-resources defined in plugins if a context has been passed in
           boolean cssOnly = "true".equals( request.getParameter( "cssOnly" ) );
 
           String contextName = getContextNameVar( httpRequest );
           if ( StringUtils.isNotEmpty( contextName ) ) {
-            printResourcesForContext( contextName, out, httpRequest, cssOnly );
+            printResourcesForContext( contextName, out, staticContent, requestParameters, cssOnly );
           }
         }
 
         // Any subclass can add more information to webcontext.js
         addCustomInfo( out );
 
-        out.close();
+        // webcontext.js depends on the user, so it may only be kept by the browser, which must check it is unchanged
+        httpResponse.setHeader( "Cache-Control", "private, no-cache" );
+        new StaticResource( out.toByteArray(), null, System.currentTimeMillis(), false )
+          .send( httpRequest, httpResponse );
         return;
       } finally {
         httpRequest.removeAttribute( FILTER_APPLIED );
@@ -286,9 +306,14 @@ public class PentahoWebContextFilter implements Filter {
   }
 
   HashMap<String, String> getWebContextVariables( HttpServletRequest request ) throws IOException {
+    return getWebContextVariables( request, getStaticContent() );
+  }
+
+  private HashMap<String, String> getWebContextVariables( HttpServletRequest request, StaticContent staticContent )
+    throws IOException {
     HashMap<String, String> map = new HashMap<>();
 
-    map.put( "requireCfg", getRequireCfgVar() );                             // Global JS variable
+    map.put( "requireCfg", staticContent.requireCfg );                      // Global JS variable
     map.put( "ssoEnabled", getSsoEnabled() );                                // Global JS variable
 
     map.put( "application", getApplicationVar( request ) );                  // Internal variable
@@ -303,9 +328,9 @@ public class PentahoWebContextFilter implements Filter {
     map.put( "HOME_FOLDER", getHomeFolderVar() );                            // Global JS environment variable
     map.put( "DEFAULT_FOLDER", getDefaultFolderVar() );                      // Global JS environment variable
 
-    map.put( "RESERVED_CHARS", getReservedCharsVar() );                      // Global JS environment variable
-    map.put( "RESERVED_CHARS_DISPLAY", getReservedCharsDisplayVar() );       // Global JS environment variable
-    map.put( "RESERVED_CHARS_REGEX_PATTERN", getReservedRegexPatternVar() ); // Global JS environment variable
+    map.put( "RESERVED_CHARS", staticContent.reservedChars );                // Global JS environment variable
+    map.put( "RESERVED_CHARS_DISPLAY", staticContent.reservedCharsDisplay ); // Global JS environment variable
+    map.put( "RESERVED_CHARS_REGEX_PATTERN", staticContent.reservedRegex );  // Global JS environment variable
 
     map.put( PLATFORM_OSGI_BRIDGE_ID, getOsgiBridgePath( request ) );        // Internal variable
     map.put( SERVICES_CONTEXT_PROPERTY, getServicesPath() );                 // Internal variable
@@ -427,13 +452,13 @@ public class PentahoWebContextFilter implements Filter {
     return "http";
   }
 
-  private String getRequireCfgVar() {
+  private String getRequireCfgVar( Integer waitTime ) {
     // setup a RequireJS config object for plugins to extend
     StringBuilder requireCfg = new StringBuilder();
 
     requireCfg
             .append( "{" )
-            .append( "\n  waitSeconds: " ).append( getRequireWaitTime() ).append( "," )
+            .append( "\n  waitSeconds: " ).append( waitTime ).append( "," )
             .append( "\n  paths: {}," )
             .append( "\n  shim: {}," )
             .append( "\n  map: {\"*\": {}}," )
@@ -446,19 +471,169 @@ public class PentahoWebContextFilter implements Filter {
   }
   // endregion
 
-  // region Print Methods
-  private void printResourcesForContext( String contextName, OutputStream out, HttpServletRequest request,
-                                         boolean printCssOnly ) throws IOException {
+  // region Static Content
+  /**
+   * Gets the parts of webcontext.js which are the same for every user, computing them again if the RequireJS wait
+   * time setting changed since they were computed.
+   */
+  StaticContent getStaticContent() throws IOException {
+    Integer waitTime = getRequireWaitTime();
+    StaticContent content = staticContent;
+    if ( content == null || !content.waitTime.equals( waitTime ) ) {
+      long generation = staticContentGeneration.get();
+      content = buildStaticContent( waitTime );
+      // do not keep content built while the plugins were being reloaded
+      if ( generation == staticContentGeneration.get() ) {
+        staticContent = content;
+      }
+    }
+    return content;
+  }
+
+  /**
+   * Discards the parts of webcontext.js which are the same for every user, so that they are computed again by the
+   * next request. Called when the plugins are reloaded.
+   */
+  void invalidateStaticContent() {
+    staticContentGeneration.incrementAndGet();
+    staticContent = null;
+  }
+
+  private StaticContent buildStaticContent( Integer waitTime ) throws IOException {
+    StaticContent content = new StaticContent( waitTime );
+    content.requireCfg = getRequireCfgVar( waitTime );
+    content.reservedChars = getReservedCharsVar();
+    content.reservedCharsDisplay = getReservedCharsDisplayVar();
+    content.reservedRegex = getReservedRegexPatternVar();
+
+    HashMap<String, String> variables = new HashMap<>();
+    variables.put( "requireCfg", content.requireCfg );
+    variables.put( "RESERVED_CHARS", content.reservedChars );
+    variables.put( "RESERVED_CHARS_DISPLAY", content.reservedCharsDisplay );
+    variables.put( "RESERVED_CHARS_REGEX_PATTERN", content.reservedRegex );
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    printWebContextVar( out, variables, "requireCfg", false, false );
+    content.requireCfgVar = out.toByteArray();
+
+    out.reset();
+    printDocumentWrite( out, REQUIREJS_LOCATION );
+    printDocumentWrite( out, REQUIREJS_CONFIG_LOCATION );
+    content.requireScript = out.toByteArray();
+
+    out.reset();
+    printWebContextVar( out, variables, "RESERVED_CHARS" );
+    printWebContextVar( out, variables, "RESERVED_CHARS_DISPLAY" );
+    printWebContextVar( out, variables, "RESERVED_CHARS_REGEX_PATTERN", true, false );
+    content.reservedCharsVars = out.toByteArray();
+
+    return content;
+  }
+
+  private ExternalResources getExternalResources( String contextName, StaticContent staticContent ) {
+    ExternalResources resources = staticContent.resourcesByContext.get( contextName );
+    if ( resources == null ) {
+      List<String> externalResources = getPluginManager().getExternalResourcesForContext( contextName );
+      resources = new ExternalResources( contextName, externalResources );
+
+      // the context name comes from the request, so only the contexts defined by plugins are kept
+      if ( externalResources != null && !externalResources.isEmpty() ) {
+        staticContent.resourcesByContext.putIfAbsent( contextName, resources );
+      }
+    }
+    return resources;
+  }
 
-    IPluginManager pluginManager = getPluginManager();
+  /**
+   * The parts of webcontext.js which are the same for every user.
+   */
+  static class StaticContent {
+    private final Integer waitTime;
+    private final ConcurrentMap<String, ExternalResources> resourcesByContext = new ConcurrentHashMap<>();
+
+    private String requireCfg;
+    private String reservedChars;
+    private String reservedCharsDisplay;
+    private String reservedRegex;
+
+    private byte[] requireCfgVar;
+    private byte[] requireScript;
+    private byte[] reservedCharsVars;
+
+    StaticContent( Integer waitTime ) {
+      this.waitTime = waitTime;
+    }
+
+    int getSizeHint() {
+      return 4096 + requireCfgVar.length + requireScript.length + reservedCharsVars.length;
+    }
+  }
+
+  /**
+   * The external resources of a context, rendered once. The request parameters, which are appended to the URL of
+   * each resource, are written between the two parts of each resource.
+   */
+  static class ExternalResources {
+    private final byte[] header;
+    private final List<Resource> resources = new ArrayList<>();
 
+    ExternalResources( String contextName, List<String> externalResources ) {
+      header = ( "\n<!-- Injecting web resources defined in by plugins as external-resources for: "
+        + Encode.forHtml( contextName ) + "-->" ).getBytes();
+
+      if ( externalResources != null ) {
+        for ( String res : externalResources ) {
+          if ( res == null ) {
+            continue;
+          }
+
+          if ( res.endsWith( JS ) ) {
+            resources.add( new Resource( true, "\ndocument.write(\"<script language='javascript' " //$NON-NLS-1$
+              + "type='text/javascript' src='\" + CONTEXT_PATH + \"" + res.trim(), //$NON-NLS-1$
+              "'></scr\"+\"ipt>\");" ) ); //$NON-NLS-1$
+          } else if ( res.endsWith( CSS ) ) {
+            resources.add( new Resource( false, "\ndocument.write(\"<link rel='stylesheet' " //$NON-NLS-1$
+              + "type='text/css' href='\" + CONTEXT_PATH + \"" + res.trim(), "'/>\");" ) ); //$NON-NLS-1$
+          }
+        }
+      }
+    }
+
+    void write( OutputStream out, byte[] requestParameters, boolean printCssOnly ) throws IOException {
+      out.write( header );
+      for ( Resource resource : resources ) {
+        if ( resource.script && printCssOnly ) {
+          continue;
+        }
+        out.write( resource.prefix );
+        out.write( requestParameters );
+        out.write( resource.suffix );
+      }
+    }
+
+    private static class Resource {
+      private final boolean script;
+      private final byte[] prefix;
+      private final byte[] suffix;
+
+      Resource( boolean script, String prefix, String suffix ) {
+        this.script = script;
+        this.prefix = prefix.getBytes();
+        this.suffix = suffix.getBytes();
+      }
+    }
+  }
+  // endregion
+
+  // region Print Methods
+  private String getRequestParameters( HttpServletRequest request ) {
     String reqStr = "";
     Map paramMap = request.getParameterMap();
 
     // Fix for BISERVER-7613, BISERVER-7614, BISERVER-7615
     // Make sure that parameters in the URL are encoded for Javascript safety since they'll be
     // added to Javascript fragments that get executed.
-    if ( paramMap.size() > 0 ) {
+    if ( paramMap != null && paramMap.size() > 0 ) {
       StringBuilder sb = new StringBuilder();
       Map.Entry<String, String[]> me;
       char sep = '?'; // first separator is '?'
@@ -478,26 +653,12 @@ public class PentahoWebContextFilter implements Filter {
       reqStr = sb.toString(); // get the request string.
     }
 
-    List<String> externalResources = pluginManager.getExternalResourcesForContext( contextName );
-    out.write( ( "\n<!-- Injecting web resources defined in by plugins as external-resources for: "
-      + Encode.forHtml( contextName ) + "-->" ).getBytes() );
-
-    if ( externalResources != null ) {
-      for ( String res : externalResources ) {
-        if ( res == null ) {
-          continue;
-        }
-
-        if ( res.endsWith( JS ) && !printCssOnly ) {
-          out.write( ( "\ndocument.write(\"<script language='javascript' type='text/javascript' src='\" + CONTEXT_PATH + \"" + res.trim() + reqStr + "'></scr\"+\"ipt>\");" //$NON-NLS-1$ //$NON-NLS-2$
-          ).getBytes() );
-        } else if ( res.endsWith( CSS ) ) {
-          out.write( ( "\ndocument.write(\"<link rel='stylesheet' type='text/css' href='\" + CONTEXT_PATH + \"" + res.trim() + reqStr + "'/>\");" //$NON-NLS-1$ //$NON-NLS-2$
-          ).getBytes() );
-        }
-      }
-    }
+    return reqStr;
+  }
 
+  private void printResourcesForContext( String contextName, OutputStream out, StaticContent staticContent,
+                                         String requestParameters, boolean printCssOnly ) throws IOException {
+    getExternalResources( contextName, staticContent ).write( out, requestParameters.getBytes(), printCssOnly );
   }
 
   private void printWebContextVar( OutputStream out, HashMap<String, String> webContextVariables,
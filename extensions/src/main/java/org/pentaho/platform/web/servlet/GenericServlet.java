@@ -42,7 +42,6 @@ import org.pentaho.platform.web.servlet.messages.Messages;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -289,37 +288,42 @@ public class GenericServlet extends ServletBase {
         if ( mimeType != null ) {
           response.setContentType( mimeType );
         }
-        OutputStream out = response.getOutputStream();
 
         // do we have this resource cached?
-        ByteArrayOutputStream byteStream = null;
+        StaticResource resource = null;
 
         if ( cacheOn ) {
-          byteStream = (ByteArrayOutputStream) getCacheManager().getFromRegionCache( CACHE_FILE, pathInfo );
+          Object cached = getCacheManager().getFromRegionCache( CACHE_FILE, pathInfo );
+          if ( cached instanceof StaticResource ) {
+            resource = (StaticResource) cached;
+          }
         }
 
-        if ( byteStream != null ) {
-          IOUtils.write( byteStream.toByteArray(), out );
-          return;
-        }
-        InputStream resourceStream = pluginManager.getStaticResource( pathInfo );
-        if ( resourceStream != null ) {
-          try {
-            byteStream = new ByteArrayOutputStream();
-            IOUtils.copy( resourceStream, byteStream );
+        boolean cacheHit = resource != null;
+        if ( resource == null ) {
+          InputStream resourceStream = pluginManager.getStaticResource( pathInfo );
+          if ( resourceStream != null ) {
+            try {
+              // plugin resources do not expose their dates, they are considered modified when loaded; compressed
+              // variants and ETags are only worth computing for resources which are cached
+              resource =
+                StaticResource.read( resourceStream, mimeType, System.currentTimeMillis(), cacheOn, cacheOn );
+            } finally {
+              IOUtils.closeQuietly( resourceStream );
+            }
 
             // if cache is enabled, drop file in cache
             if ( cacheOn ) {
-              getCacheManager().putInRegionCache( CACHE_FILE, pathInfo, byteStream );
+              getCacheManager().putInRegionCache( CACHE_FILE, pathInfo, resource );
             }
-
-            // write it out
-            IOUtils.write( byteStream.toByteArray(), out );
-            return;
-          } finally {
-            IOUtils.closeQuietly( resourceStream );
           }
         }
+
+        if ( resource != null ) {
+          long bytesSent = resource.send( request, response );
+          StaticResourceMetrics.forPlugin( pluginId ).recordRequest( cacheHit, response.getStatus(), bytesSent );
+          return;
+        }
         logger.error( Messages.getInstance().getErrorString(
           "GenericServlet.ERROR_0004_RESOURCE_NOT_FOUND", pluginId, pathInfo ) ); //$NON-NLS-1$
         response.sendError( 404 );
@@ -0,0 +1,342 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.servlet;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An immutable static resource, ready to be sent over HTTP.
+ * <p/>
+ * The content is kept as is, together with its gzip variant when the resource is worth compressing, so that serving
+ * the resource never copies nor compresses it again. Requests are answered with a strong ETag, unless the resource is
+ * built without one, and a Last-Modified date; conditional requests ({@code If-None-Match}, {@code If-Modified-Since}) get a 304 when the resource did not
+ * change, and single byte-range requests ({@code Range}, {@code If-Range}) get the requested part of the content.
+ */
+public class StaticResource implements Serializable {
+
+  private static final long serialVersionUID = 3384106934178622340L;
+
+  /**
+   * Resources smaller than this are not compressed, as the gain would not be worth the Content-Encoding.
+   */
+  static final int MIN_COMPRESSED_SIZE = 1024;
+
+  private static final String GZIP = "gzip";
+  private static final String GZIP_ETAG_SUFFIX = "-" + GZIP;
+  private static final String BYTES_UNIT = "bytes";
+
+  private final byte[] content;
+
+  private final byte[] gzipContent;
+
+  /**
+   * The strong ETag, hashed from the content on first use instead of when the resource is read. Not serialized, it is
+   * computed again after deserialization.
+   */
+  private transient volatile String etag;
+
+  /**
+   * Whether the resource is sent with an ETag. Hashing the content is only worth it for resources served more than
+   * once, or whose Last-Modified date does not tell whether they changed.
+   */
+  private final boolean withEtag;
+
+  private final long lastModified;
+
+  /**
+   * @param content      The resource content. It is not copied and must not be changed afterwards.
+   * @param mimeType     The mime type of the resource, used to decide whether it is worth compressing; may be null.
+   * @param lastModified The date the resource was last modified, in milliseconds.
+   * @param precompress  Whether to compute the gzip variant of the resource, when it is worth compressing.
+   */
+  public StaticResource( byte[] content, String mimeType, long lastModified, boolean precompress ) {
+    this( content, mimeType, lastModified, precompress, true );
+  }
+
+  /**
+   * @param content      The resource content. It is not copied and must not be changed afterwards.
+   * @param mimeType     The mime type of the resource, used to decide whether it is worth compressing; may be null.
+   * @param lastModified The date the resource was last modified, in milliseconds.
+   * @param precompress  Whether to compute the gzip variant of the resource, when it is worth compressing.
+   * @param withEtag     Whether to send the resource with an ETag hashed from its content.
+   */
+  public StaticResource( byte[] content, String mimeType, long lastModified, boolean precompress,
+                         boolean withEtag ) {
+    this.content = content;
+    this.withEtag = withEtag;
+    // HTTP dates have a precision of a second
+    this.lastModified = lastModified / 1000 * 1000;
+    this.gzipContent = precompress && isCompressible( mimeType, content.length ) ? gzip( content ) : null;
+  }
+
+  /**
+   * Reads a static resource from a stream. The stream is not closed.
+   */
+  public static StaticResource read( InputStream inputStream, String mimeType, long lastModified,
+                                     boolean precompress, boolean withEtag ) throws IOException {
+    return new StaticResource( IOUtils.toByteArray( inputStream ), mimeType, lastModified, precompress, withEtag );
+  }
+
+  public int getLength() {
+    return content.length;
+  }
+
+  /**
+   * @return The strong ETag of the resource, or {@code null} if it is sent without one.
+   */
+  public String getEtag() {
+    if ( !withEtag ) {
+      return null;
+    }
+    String result = etag;
+    if ( result == null ) {
+      // concurrent computations give the same value
+      result = computeEtag( content );
+      etag = result;
+    }
+    return result;
+  }
+
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  public boolean hasGzipVariant() {
+    return gzipContent != null;
+  }
+
+  /**
+   * Sends the resource, or the part of it requested, as the response to a request. The content type and caching
+   * headers other than the validators must already be set.
+   *
+   * @return The number of content bytes written.
+   */
+  public long send( HttpServletRequest request, HttpServletResponse response ) throws IOException {
+    boolean gzip = gzipContent != null && acceptsGzip( request.getHeader( "Accept-Encoding" ) );
+    if ( gzipContent != null ) {
+      response.addHeader( "Vary", "Accept-Encoding" );
+    }
+    if ( withEtag ) {
+      response.setHeader( "ETag", gzip ? variantEtag( GZIP_ETAG_SUFFIX ) : getEtag() );
+    }
+    response.setDateHeader( "Last-Modified", lastModified );
+    response.setHeader( "Accept-Ranges", BYTES_UNIT );
+
+    if ( isNotModified( request ) ) {
+      response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+      return 0;
+    }
+
+    String range = request.getHeader( "Range" );
+    if ( range != null && "GET".equals( request.getMethod() ) && isRangeValid( request ) ) {
+      long[] bounds = parseRange( range, content.length );
+      if ( bounds == null ) {
+        // not a single byte range, send the whole content
+        return sendContent( response, gzip );
+      }
+      if ( bounds.length == 0 ) {
+        response.setHeader( "Content-Range", BYTES_UNIT + " */" + content.length );
+        response.sendError( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE );
+        return 0;
+      }
+      // ranges apply to the identity content
+      int start = (int) bounds[ 0 ];
+      int length = (int) ( bounds[ 1 ] - bounds[ 0 ] + 1 );
+      if ( withEtag ) {
+        response.setHeader( "ETag", getEtag() );
+      }
+      response.setStatus( HttpServletResponse.SC_PARTIAL_CONTENT );
+      response.setHeader( "Content-Range", BYTES_UNIT + " " + bounds[ 0 ] + "-" + bounds[ 1 ] + "/" + content.length );
+      return write( response, content, start, length );
+    }
+
+    return sendContent( response, gzip );
+  }
+
+  private long sendContent( HttpServletResponse response, boolean gzip ) throws IOException {
+    if ( gzip ) {
+      response.setHeader( "Content-Encoding", GZIP );
+      return write( response, gzipContent, 0, gzipContent.length );
+    }
+    return write( response, content, 0, content.length );
+  }
+
+  private long write( HttpServletResponse response, byte[] bytes, int offset, int length ) throws IOException {
+    response.setContentLength( length );
+    OutputStream out = response.getOutputStream();
+    out.write( bytes, offset, length );
+    return length;
+  }
+
+  /**
+   * A request is answered with a 304 if any of its ETags matches, or, when it has none, if the resource was not
+   * modified since the given date.
+   */
+  boolean isNotModified( HttpServletRequest request ) {
+    String ifNoneMatch = request.getHeader( "If-None-Match" );
+    if ( ifNoneMatch != null ) {
+      for ( String tag : ifNoneMatch.split( "," ) ) {
+        tag = tag.trim();
+        if ( tag.startsWith( "W/" ) ) {
+          tag = tag.substring( 2 );
+        }
+        if ( "*".equals( tag )
+          || withEtag && ( getEtag().equals( tag ) || variantEtag( GZIP_ETAG_SUFFIX ).equals( tag ) ) ) {
+          return true;
+        }
+      }
+      return false;
+    }
+    long ifModifiedSince = getDateHeader( request, "If-Modified-Since" );
+    return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+  }
+
+  private boolean isRangeValid( HttpServletRequest request ) {
+    String ifRange = request.getHeader( "If-Range" );
+    if ( ifRange == null ) {
+      return true;
+    }
+    ifRange = ifRange.trim();
+    if ( ifRange.startsWith( "\"" ) ) {
+      // only strong validators can be used to combine ranges
+      return withEtag && getEtag().equals( ifRange );
+    }
+    long date = getDateHeader( request, "If-Range" );
+    return date != -1 && lastModified <= date;
+  }
+
+  private static long getDateHeader( HttpServletRequest request, String name ) {
+    try {
+      return request.getDateHeader( name );
+    } catch ( IllegalArgumentException e ) {
+      // malformed dates are ignored
+      return -1;
+    }
+  }
+
+  /**
+   * Parses a single byte range.
+   *
+   * @return The first and last positions of the range; an empty array if the range cannot be satisfied; or
+   * {@code null} if the header is not a single byte range, in which case it is ignored.
+   */
+  static long[] parseRange( String range, long length ) {
+    if ( !range.startsWith( BYTES_UNIT + "=" ) ) {
+      return null;
+    }
+    String spec = range.substring( BYTES_UNIT.length() + 1 ).trim();
+    int dash = spec.indexOf( '-' );
+    if ( dash == -1 || spec.indexOf( ',' ) != -1 ) {
+      return null;
+    }
+    try {
+      String first = spec.substring( 0, dash ).trim();
+      String last = spec.substring( dash + 1 ).trim();
+      long start;
+      long end;
+      if ( first.isEmpty() ) {
+        // suffix range, the last n bytes
+        long suffixLength = Long.parseLong( last );
+        if ( suffixLength <= 0 ) {
+          return new long[ 0 ];
+        }
+        start = Math.max( length - suffixLength, 0 );
+        end = length - 1;
+      } else {
+        start = Long.parseLong( first );
+        end = last.isEmpty() ? length - 1 : Math.min( Long.parseLong( last ), length - 1 );
+        if ( end < start ) {
+          return last.isEmpty() || Long.parseLong( last ) >= start ? new long[ 0 ] : null;
+        }
+      }
+      if ( start >= length ) {
+        return new long[ 0 ];
+      }
+      return new long[] { start, end };
+    } catch ( NumberFormatException e ) {
+      return null;
+    }
+  }
+
+  static boolean acceptsGzip( String acceptEncoding ) {
+    if ( acceptEncoding == null ) {
+      return false;
+    }
+    for ( String coding : acceptEncoding.split( "," ) ) {
+      String[] parts = coding.trim().split( ";" );
+      if ( GZIP.equalsIgnoreCase( parts[ 0 ].trim() ) ) {
+        for ( int i = 1; i < parts.length; i++ ) {
+          String param = parts[ i ].trim();
+          if ( param.startsWith( "q=" ) ) {
+            try {
+              return Double.parseDouble( param.substring( 2 ) ) > 0;
+            } catch ( NumberFormatException e ) {
+              return false;
+            }
+          }
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static boolean isCompressible( String mimeType, int length ) {
+    if ( mimeType == null || length < MIN_COMPRESSED_SIZE ) {
+      return false;
+    }
+    return mimeType.startsWith( "text/" ) || mimeType.endsWith( "javascript" ) || mimeType.endsWith( "json" )
+      || mimeType.endsWith( "xml" ) || mimeType.equals( "image/svg+xml" );
+  }
+
+  private String variantEtag( String suffix ) {
+    String strongEtag = getEtag();
+    return strongEtag.substring( 0, strongEtag.length() - 1 ) + suffix + "\"";
+  }
+
+  private static String computeEtag( byte[] content ) {
+    try {
+      byte[] digest = MessageDigest.getInstance( "SHA-256" ).digest( content );
+      return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString( digest ) + "\"";
+    } catch ( NoSuchAlgorithmException e ) {
+      // every Java platform is required to support SHA-256
+      throw new IllegalStateException( e );
+    }
+  }
+
+  private static byte[] gzip( byte[] content ) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream( content.length / 2 );
+    try ( GZIPOutputStream out = new GZIPOutputStream( bytes ) ) {
+      out.write( content );
+    } catch ( IOException e ) {
+      // cannot happen when writing to memory
+      throw new IllegalStateException( e );
+    }
+    byte[] compressed = bytes.toByteArray();
+    // keep the variant only if it is smaller
+    return compressed.length < content.length ? compressed : null;
+  }
+}
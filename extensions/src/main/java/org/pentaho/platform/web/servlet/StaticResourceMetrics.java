@@ -0,0 +1,145 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.servlet;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the metrics of the static resources served for a plugin by the {@link GenericServlet}.
+ */
+public class StaticResourceMetrics {
+
+  private static final ConcurrentMap<String, StaticResourceMetrics> allMetrics = new ConcurrentHashMap<>();
+
+  private final String pluginId;
+
+  private final AtomicLong requestCount = new AtomicLong();
+
+  private final AtomicLong cacheHitCount = new AtomicLong();
+
+  private final AtomicLong notModifiedCount = new AtomicLong();
+
+  private final AtomicLong partialCount = new AtomicLong();
+
+  private final AtomicLong bytesSent = new AtomicLong();
+
+  StaticResourceMetrics( String pluginId ) {
+    this.pluginId = pluginId;
+  }
+
+  /**
+   * Gets the metrics of a plugin, creating them on first use.
+   *
+   * @param pluginId The plugin ID.
+   * @return The metrics of the plugin.
+   */
+  static StaticResourceMetrics forPlugin( String pluginId ) {
+    return allMetrics.computeIfAbsent( pluginId, StaticResourceMetrics::new );
+  }
+
+  /**
+   * Gets the metrics of all plugins which served static resources.
+   *
+   * @return An unmodifiable view of the metrics, by plugin ID.
+   */
+  public static Map<String, StaticResourceMetrics> getAll() {
+    return Collections.unmodifiableMap( allMetrics );
+  }
+
+  public String getPluginId() {
+    return pluginId;
+  }
+
+  /**
+   * Records a static resource request.
+   *
+   * @param cacheHit  Whether the resource was found in the cache.
+   * @param status    The response status.
+   * @param bytesSent The number of content bytes written.
+   */
+  void recordRequest( boolean cacheHit, int status, long bytesSent ) {
+    requestCount.incrementAndGet();
+    if ( cacheHit ) {
+      cacheHitCount.incrementAndGet();
+    }
+    if ( status == 304 ) {
+      notModifiedCount.incrementAndGet();
+    } else if ( status == 206 ) {
+      partialCount.incrementAndGet();
+    }
+    this.bytesSent.addAndGet( bytesSent );
+  }
+
+  /**
+   * Takes a point-in-time snapshot of the metrics.
+   *
+   * @return The metrics snapshot.
+   */
+  public Snapshot getSnapshot() {
+    Snapshot snapshot = new Snapshot();
+    snapshot.requestCount = requestCount.get();
+    snapshot.cacheHitCount = cacheHitCount.get();
+    snapshot.notModifiedCount = notModifiedCount.get();
+    snapshot.partialCount = partialCount.get();
+    snapshot.bytesSent = bytesSent.get();
+    return snapshot;
+  }
+
+  /**
+   * A point-in-time snapshot of the static resource metrics of a plugin.
+   */
+  public static class Snapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private long requestCount;
+    private long cacheHitCount;
+    private long notModifiedCount;
+    private long partialCount;
+    private long bytesSent;
+
+    public long getRequestCount() {
+      return requestCount;
+    }
+
+    /**
+     * Gets the number of requests served from the cached resource, without reading the plugin resource.
+     */
+    public long getCacheHitCount() {
+      return cacheHitCount;
+    }
+
+    /**
+     * Gets the number of requests answered with a 304, without sending the content.
+     */
+    public long getNotModifiedCount() {
+      return notModifiedCount;
+    }
+
+    public long getPartialCount() {
+      return partialCount;
+    }
+
+    /**
+     * Gets the number of content bytes sent, after compression.
+     */
+    public long getBytesSent() {
+      return bytesSent;
+    }
+  }
+}
@@ -12,6 +12,7 @@
 
 package org.pentaho.platform.plugin.action.mondrian.catalog;
 
+import mondrian.olap.MondrianException;
 import mondrian.xmla.DataSourcesConfig;
 import mondrian.xmla.DataSourcesConfig.Catalog;
 import mondrian.xmla.DataSourcesConfig.Catalogs;
@@ -55,6 +56,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -70,6 +72,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.spy;
@@ -150,6 +153,107 @@ public class MondrianCatalogHelperTest {
     }
   }
 
+  @Test
+  public void testLoadCatalogsIntoCacheInParallel() throws Exception {
+    Catalog[] catalogs = new Catalog[ 4 ];
+    for ( int i = 0; i < catalogs.length; i++ ) {
+      catalogs[ i ] = new Catalog();
+      catalogs[ i ].name = "catalog" + i;
+      catalogs[ i ].definition = "mondrian:/catalog" + i;
+    }
+    DataSource ds = new DataSource();
+    ds.catalogs = new Catalogs();
+    ds.catalogs.catalogs = catalogs;
+    dsList = new DataSourcesConfig.DataSources();
+    dsList.dataSources = new DataSource[] { ds };
+
+    Set<String> loadThreads = ConcurrentHashMap.newKeySet();
+    doReturn( 4 ).when( mch ).getCatalogLoadThreads();
+    doAnswer( invocation -> {
+      loadThreads.add( Thread.currentThread().getName() );
+      return String.format( "<schema name=\"%s\"><cube name=\"cube1\"/></schema>",
+        ( (Catalog) invocation.getArgument( 0 ) ).name );
+    } ).when( mch ).getCatalogAsString( any() );
+
+    ICacheManager testCacheManager = new TestICacheManager();
+    try ( MockedStatic<PentahoSystem> pentahoSystem = mockStatic( PentahoSystem.class ) ) {
+      pentahoSystem.when( () -> PentahoSystem.getCacheManager( any() ) ).thenReturn( testCacheManager );
+
+      mch.loadCatalogsIntoCache( dsList, null );
+    }
+
+    MondrianCatalogCache cache = (MondrianCatalogCache) testCacheManager
+      .getFromRegionCache( MONDRIAN_CATALOG_CACHE_REGION, Locale.getDefault().toString() );
+    Assert.assertTrue( cache.getMondrianCatalogCacheState().isFullyLoaded() );
+    assertEquals( catalogs.length * 2, cache.getCatalogs().size() );
+    for ( Catalog catalog : catalogs ) {
+      assertEquals( catalog.definition, cache.getCatalog( catalog.name ).getDefinition() );
+    }
+    Assert.assertTrue( loadThreads.stream().allMatch( name -> name.startsWith( "mondrian-catalog-load-" ) ) );
+  }
+
+  @Test
+  public void testLoadCatalogsIntoCacheReusesLoadThreads() throws Exception {
+    Catalog[] catalogs = new Catalog[ 4 ];
+    for ( int i = 0; i < catalogs.length; i++ ) {
+      catalogs[ i ] = new Catalog();
+      catalogs[ i ].name = "catalog" + i;
+      catalogs[ i ].definition = "mondrian:/catalog" + i;
+    }
+    DataSource ds = new DataSource();
+    ds.catalogs = new Catalogs();
+    ds.catalogs.catalogs = catalogs;
+    dsList = new DataSourcesConfig.DataSources();
+    dsList.dataSources = new DataSource[] { ds };
+
+    Set<Thread> loadThreads = ConcurrentHashMap.newKeySet();
+    doReturn( 2 ).when( mch ).getCatalogLoadThreads();
+    doAnswer( invocation -> {
+      loadThreads.add( Thread.currentThread() );
+      return String.format( "<schema name=\"%s\"><cube name=\"cube1\"/></schema>",
+        ( (Catalog) invocation.getArgument( 0 ) ).name );
+    } ).when( mch ).getCatalogAsString( any() );
+
+    try ( MockedStatic<PentahoSystem> pentahoSystem = mockStatic( PentahoSystem.class ) ) {
+      pentahoSystem.when( () -> PentahoSystem.getCacheManager( any() ) ).thenReturn( new TestICacheManager() );
+      mch.loadCatalogsIntoCache( dsList, null );
+      pentahoSystem.when( () -> PentahoSystem.getCacheManager( any() ) ).thenReturn( new TestICacheManager() );
+      mch.loadCatalogsIntoCache( dsList, null );
+    }
+
+    // both loads ran on the same two threads
+    Assert.assertTrue( loadThreads.size() <= 2 );
+  }
+
+  @Test
+  public void testLoadCatalogsIntoCacheInParallelPropagatesMondrianException() throws Exception {
+    Catalog[] catalogs = new Catalog[ 2 ];
+    for ( int i = 0; i < catalogs.length; i++ ) {
+      catalogs[ i ] = new Catalog();
+      catalogs[ i ].name = "catalog" + i;
+      catalogs[ i ].definition = "mondrian:/catalog" + i;
+    }
+    DataSource ds = new DataSource();
+    ds.catalogs = new Catalogs();
+    ds.catalogs.catalogs = catalogs;
+    dsList = new DataSourcesConfig.DataSources();
+    dsList.dataSources = new DataSource[] { ds };
+
+    doReturn( 2 ).when( mch ).getCatalogLoadThreads();
+    doThrow( new MondrianException( "invalid schema" ) ).when( mch ).getCatalogAsString( any() );
+
+    ICacheManager testCacheManager = new TestICacheManager();
+    try ( MockedStatic<PentahoSystem> pentahoSystem = mockStatic( PentahoSystem.class ) ) {
+      pentahoSystem.when( () -> PentahoSystem.getCacheManager( any() ) ).thenReturn( testCacheManager );
+
+      assertThrows( MondrianException.class, () -> mch.loadCatalogsIntoCache( dsList, null ) );
+    }
+
+    MondrianCatalogCache cache = (MondrianCatalogCache) testCacheManager
+      .getFromRegionCache( MONDRIAN_CATALOG_CACHE_REGION, Locale.getDefault().toString() );
+    Assert.assertFalse( cache.getMondrianCatalogCacheState().isFullyLoaded() );
+  }
+
   @Test( timeout = 2000, expected = SAXException.class )
   public void shouldNotFailAndReturnNullWhenMaliciousXmlIsGiven()
     throws IOException, ParserConfigurationException, SAXException {
@@ -652,6 +756,7 @@ public class MondrianCatalogHelperTest {
     ds.catalogs.catalogs = new Catalog[ 1 ];
 
     Catalog ct = new Catalog();
+    ct.name = "catalog";
     ct.definition = DEFINITION;
 
     ds.catalogs.catalogs[ 0 ] = ct;
@@ -0,0 +1,210 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.services.cache;
+
+import org.hibernate.Cache;
+import org.hibernate.cache.spi.DirectAccessRegion;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.pentaho.platform.api.engine.ICacheManager;
+import org.pentaho.platform.api.engine.IPentahoSession;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.cache.event.CacheEntryEvent;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CacheManagerTest {
+
+  private CacheManager cacheManager;
+  private StorageAccess storageAccess;
+  private IPentahoSession sessionA;
+  private IPentahoSession sessionB;
+
+  @Before
+  public void setUp() {
+    try ( MockedStatic<PentahoSystem> ignored = mockStatic( PentahoSystem.class ) ) {
+      cacheManager = new CacheManager();
+    }
+
+    HvCache sessionCache = mock( HvCache.class );
+    storageAccess = mock( StorageAccess.class );
+    when( storageAccess.contains( any() ) ).thenReturn( true );
+    when( sessionCache.getStorageAccess() ).thenReturn( storageAccess );
+    when( sessionCache.getDirectAccessRegion() ).thenReturn( mock( DirectAccessRegion.class ) );
+
+    getRegions().put( ICacheManager.SESSION, sessionCache );
+    ReflectionTestUtils.setField( cacheManager, "cacheEnabled", true );
+
+    sessionA = mockSession( "session-a", "userA" );
+    sessionB = mockSession( "session-b", "userB" );
+  }
+
+  @Test
+  public void testKillSessionCacheEvictsOnlyThatSession() {
+    cacheManager.putInSessionCache( sessionA, "one", "1" );
+    cacheManager.putInSessionCache( sessionA, "two", "2" );
+    cacheManager.putInSessionCache( sessionB, "one", "1" );
+    assertEquals( 2, cacheManager.getSessionCacheEntryCount( sessionA ) );
+    assertEquals( 1, cacheManager.getSessionCacheEntryCount( sessionB ) );
+
+    cacheManager.killSessionCache( sessionA );
+
+    verify( storageAccess ).evictData( "session-a\tone" );
+    verify( storageAccess ).evictData( "session-a\ttwo" );
+    verify( storageAccess, never() ).evictData( "session-b\tone" );
+    assertEquals( 0, cacheManager.getSessionCacheEntryCount( sessionA ) );
+    assertEquals( 1, cacheManager.getSessionCacheEntryCount( sessionB ) );
+  }
+
+  @Test
+  public void testRemoveFromSessionCacheUpdatesIndex() {
+    cacheManager.putInSessionCache( sessionA, "one", "1" );
+    cacheManager.putInSessionCache( sessionA, "one", "1" );
+    cacheManager.putInSessionCache( sessionA, "two", "2" );
+    assertEquals( 2, cacheManager.getSessionCacheEntryCount( sessionA ) );
+
+    cacheManager.removeFromSessionCache( sessionA, "one" );
+    assertEquals( 1, cacheManager.getSessionCacheEntryCount( sessionA ) );
+
+    cacheManager.killSessionCache( sessionA );
+    verify( storageAccess, times( 1 ) ).evictData( "session-a\tone" );
+    verify( storageAccess, times( 1 ) ).evictData( "session-a\ttwo" );
+  }
+
+  @Test
+  public void testNullValueIsNotIndexed() {
+    cacheManager.putInSessionCache( sessionA, "one", null );
+    assertEquals( 0, cacheManager.getSessionCacheEntryCount( sessionA ) );
+
+    cacheManager.killSessionCache( sessionA );
+    verify( storageAccess, never() ).evictData( any() );
+  }
+
+  @Test
+  public void testOnLogoutKillsSessionCache() {
+    cacheManager.putInSessionCache( sessionA, "one", "1" );
+
+    cacheManager.onLogout( sessionA );
+
+    verify( storageAccess ).evictData( "session-a\tone" );
+    assertEquals( 0, cacheManager.getSessionCacheEntryCount( sessionA ) );
+  }
+
+  @Test
+  public void testKeysPutDirectlyInSessionRegionAreIndexed() {
+    cacheManager.putInRegionCache( ICacheManager.SESSION, "session-a\tone", "1" );
+    cacheManager.putInRegionCache( ICacheManager.SESSION, "no-session", "1" );
+    assertEquals( 1, cacheManager.getSessionCacheEntryCount( sessionA ) );
+
+    cacheManager.killSessionCache( sessionA );
+
+    verify( storageAccess ).evictData( "session-a\tone" );
+    verify( storageAccess, never() ).evictData( "no-session" );
+  }
+
+  @Test
+  public void testEntryCountPrunesKeysDroppedByTheCache() {
+    cacheManager.putInSessionCache( sessionA, "one", "1" );
+    cacheManager.putInSessionCache( sessionA, "two", "2" );
+    when( storageAccess.contains( "session-a\tone" ) ).thenReturn( false );
+
+    assertEquals( 1, cacheManager.getSessionCacheEntryCount( sessionA ) );
+
+    cacheManager.killSessionCache( sessionA );
+    verify( storageAccess, never() ).evictData( "session-a\tone" );
+    verify( storageAccess ).evictData( "session-a\ttwo" );
+  }
+
+  @Test
+  @SuppressWarnings( "unchecked" )
+  public void testListenerPrunesExpiredAndRemovedKeys() {
+    cacheManager.putInSessionCache( sessionA, "one", "1" );
+    cacheManager.putInSessionCache( sessionA, "two", "2" );
+    cacheManager.putInSessionCache( sessionB, "one", "1" );
+    CacheEntryEvent<Object, Object> expired = mock( CacheEntryEvent.class );
+    when( expired.getKey() ).thenReturn( "session-a\tone" );
+    CacheEntryEvent<Object, Object> removed = mock( CacheEntryEvent.class );
+    when( removed.getKey() ).thenReturn( "session-b\tone" );
+
+    CacheManager.SessionKeyListener listener = cacheManager.new SessionKeyListener();
+    listener.onExpired( Collections.singletonList( expired ) );
+    listener.onRemoved( Collections.singletonList( removed ) );
+
+    assertEquals( 1, cacheManager.getSessionCacheEntryCount( sessionA ) );
+    assertEquals( 0, cacheManager.getSessionCacheEntryCount( sessionB ) );
+    assertFalse( getSessionKeyIndex().containsKey( "session-b" ) );
+  }
+
+  @Test
+  public void testAddCacheRegionKeepsFirstRegistration() {
+    HvCache first = mock( HvCache.class );
+    HvCache second = mock( HvCache.class );
+
+    assertTrue( cacheManager.addCacheRegion( "region", first ) );
+    assertTrue( cacheManager.addCacheRegion( "region", second ) );
+
+    assertSame( first, getRegions().get( "region" ) );
+    assertTrue( cacheManager.addCacheRegionIfAbsent( "region" ) );
+    assertSame( first, getRegions().get( "region" ) );
+  }
+
+  @Test
+  public void testAddCacheRegionRejectsForeignCache() {
+    assertFalse( cacheManager.addCacheRegion( "region", mock( Cache.class ) ) );
+    assertFalse( cacheManager.cacheEnabled( "region" ) );
+  }
+
+  @Test
+  public void testRegionAccessWhenCacheDisabled() {
+    ReflectionTestUtils.setField( cacheManager, "cacheEnabled", false );
+
+    assertFalse( cacheManager.addCacheRegionIfAbsent( ICacheManager.SESSION ) );
+    assertNull( cacheManager.getFromRegionCache( ICacheManager.SESSION, "key" ) );
+    assertFalse( cacheManager.cacheEnabled( null ) );
+  }
+
+  @SuppressWarnings( "unchecked" )
+  private Map<String, HvCache> getRegions() {
+    return (Map<String, HvCache>) ReflectionTestUtils.getField( cacheManager, "regionCache" );
+  }
+
+  @SuppressWarnings( "unchecked" )
+  private Map<String, ?> getSessionKeyIndex() {
+    return (Map<String, ?>) ReflectionTestUtils.getField( cacheManager, "sessionKeyIndex" );
+  }
+
+  private static IPentahoSession mockSession( String id, String name ) {
+    IPentahoSession session = mock( IPentahoSession.class );
+    when( session.getId() ).thenReturn( id );
+    when( session.getName() ).thenReturn( name );
+    return session;
+  }
+}
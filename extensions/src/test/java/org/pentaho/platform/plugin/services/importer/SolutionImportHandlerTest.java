@@ -26,8 +26,10 @@ import org.pentaho.platform.api.engine.security.userroledao.IUserRoleDao;
 import org.pentaho.platform.api.mimetype.IMimeType;
 import org.pentaho.platform.api.mimetype.IPlatformMimeResolver;
 import org.pentaho.platform.api.mt.ITenant;
+import org.pentaho.platform.api.repository2.unified.IPlatformImportBundle;
 import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
 import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.api.repository2.unified.RepositoryRequest;
 import org.pentaho.platform.api.scheduler2.ICronJobTrigger;
 import org.pentaho.platform.api.scheduler2.IJobScheduleParam;
 import org.pentaho.platform.api.scheduler2.IJobScheduleRequest;
@@ -38,6 +40,7 @@ import org.pentaho.platform.api.usersettings.IUserSettingService;
 import org.pentaho.platform.api.usersettings.pojo.IUserSetting;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.plugin.services.importexport.ExportManifestUserSetting;
+import org.pentaho.platform.plugin.services.importexport.IRepositoryImportLogger;
 import org.pentaho.platform.plugin.services.importexport.ImportSession;
 import org.pentaho.platform.plugin.services.importexport.ImportSession.ManifestFile;
 import org.pentaho.platform.plugin.services.importexport.ImportSource.IRepositoryFileBundle;
@@ -46,16 +49,25 @@ import org.pentaho.platform.plugin.services.importexport.RoleExport;
 import org.pentaho.platform.plugin.services.importexport.UserExport;
 import org.pentaho.platform.plugin.services.importexport.exportManifest.ExportManifest;
 import org.pentaho.platform.plugin.services.importexport.exportManifest.bindings.ExportManifestMetaStore;
+import org.pentaho.platform.repository.RepositoryFilenameUtils;
 import org.pentaho.platform.security.policy.rolebased.IRoleAuthorizationPolicyRoleBindingDao;
 
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -79,6 +91,7 @@ public class SolutionImportHandlerTest {
       mockMimeResolver = mock( IPlatformMimeResolver.class );
       pentahoSystemMockedStatic.when( () -> PentahoSystem.get( IPlatformMimeResolver.class ) )
         .thenReturn( mockMimeResolver );
+      pentahoSystemMockedStatic.when( () -> PentahoSystem.get( IUnifiedRepository.class ) ).thenReturn( repository );
       importHandler = spy( new SolutionImportHandler( mimeTypes ) );
     }
 
@@ -526,6 +539,108 @@ public class SolutionImportHandlerTest {
     Assert.assertTrue( importHandler.fileIsScheduleInputSource( manifest, "/public/test/file3" ) );
     Assert.assertTrue( importHandler.fileIsScheduleInputSource( manifest, "public/test/file3" ) );
   }
+  @Test
+  public void testImportRepositoryFilesAndFolders_importsFoldersFirstAndTheFilesOfEachFolderInOrder()
+    throws Exception {
+    List<String> imports = Collections.synchronizedList( new ArrayList<>() );
+    List<String> fileThreads = Collections.synchronizedList( new ArrayList<>() );
+    Map<String, Boolean> hidden = Collections.synchronizedMap( new HashMap<>() );
+    setUpFilesImport( imports, fileThreads, hidden, 4 );
+    RepositoryFile existingFile = new RepositoryFile.Builder( "f1.prpt" ).hidden( true ).build();
+    when( repository.getChildren( any( RepositoryRequest.class ) ) ).thenAnswer( invocation ->
+      "a".equals( ( (RepositoryRequest) invocation.getArgument( 0 ) ).getPath() )
+        ? Collections.singletonList( existingFile ) : Collections.emptyList() );
+
+    importHandler.setFiles( Arrays.asList( fileBundle( "/", "a", true ), fileBundle( "a/", "f1.prpt", false ),
+      fileBundle( "/", "b", true ), fileBundle( "b/", "f1.prpt", false ), fileBundle( "a/", "f2.prpt", false ),
+      fileBundle( "b/", "f2.prpt", false ) ) );
+    importHandler.importRepositoryFilesAndFolders( null, importBundle() );
+
+    Assert.assertEquals( 6, imports.size() );
+    Assert.assertEquals( Arrays.asList( "folder", "folder" ), Arrays.asList(
+      imports.get( 0 ).split( ":" )[ 0 ], imports.get( 1 ).split( ":" )[ 0 ] ) );
+    Assert.assertTrue( imports.indexOf( "file:/public/a/f1.prpt" ) < imports.indexOf( "file:/public/a/f2.prpt" ) );
+    Assert.assertTrue( imports.indexOf( "file:/public/b/f1.prpt" ) < imports.indexOf( "file:/public/b/f2.prpt" ) );
+    for ( String fileThread : fileThreads ) {
+      Assert.assertTrue( fileThread, fileThread.startsWith( "repository-import-" ) );
+    }
+
+    // the existing files are looked up once per folder, not once per file
+    verify( repository, times( 2 ) ).getChildren( any( RepositoryRequest.class ) );
+    Assert.assertEquals( Boolean.TRUE, hidden.get( "/public/a/f1.prpt" ) );
+    Assert.assertEquals( RepositoryFile.HIDDEN_BY_DEFAULT, hidden.get( "/public/a/f2.prpt" ) );
+    Assert.assertEquals( RepositoryFile.HIDDEN_BY_DEFAULT, hidden.get( "/public/b/f1.prpt" ) );
+  }
+
+  @Test
+  public void testImportRepositoryFilesAndFolders_importsFilesOfMissingFoldersOnTheCallingThread() throws Exception {
+    List<String> imports = Collections.synchronizedList( new ArrayList<>() );
+    List<String> fileThreads = Collections.synchronizedList( new ArrayList<>() );
+    setUpFilesImport( imports, fileThreads, new HashMap<>(), 4 );
+    when( repository.getChildren( any( RepositoryRequest.class ) ) ).thenReturn( Collections.emptyList() );
+
+    importHandler.setFiles( Arrays.asList( fileBundle( "/", "c", true ), fileBundle( "c/", "f1.prpt", false ),
+      fileBundle( "c/", "f2.prpt", false ) ) );
+    importHandler.importRepositoryFilesAndFolders( null, importBundle() );
+
+    Assert.assertEquals( 3, imports.size() );
+    Assert.assertTrue( imports.get( 0 ).startsWith( "folder:" ) );
+    Assert.assertEquals( Arrays.asList( "file:/public/c/f1.prpt", "file:/public/c/f2.prpt" ), imports.subList( 1, 3 ) );
+    Assert.assertEquals( Arrays.asList( Thread.currentThread().getName(), Thread.currentThread().getName() ),
+      fileThreads );
+  }
+
+  /**
+   * Sets up the import of repository files into /public, where the folders a and b exist. Each import is recorded as
+   * "folder:path" or "file:path", along with the thread importing each file and whether it is hidden.
+   */
+  private void setUpFilesImport( List<String> imports, List<String> fileThreads, Map<String, Boolean> hidden,
+                                 int importThreads ) throws Exception {
+    PentahoSystem.registerObject( mockMimeResolver );
+    IPlatformImporter importer = mockToPentahoSystem( IPlatformImporter.class );
+    when( importer.getRepositoryImportLogger() ).thenReturn( mock( IRepositoryImportLogger.class ) );
+    doAnswer( invocation -> {
+      RepositoryFileImportBundle bundle = invocation.getArgument( 0 );
+      String path = RepositoryFilenameUtils.concat( bundle.getPath(), bundle.getName() );
+      if ( "text/directory".equals( bundle.getMimeType() ) ) {
+        imports.add( "folder:" + path );
+      } else {
+        imports.add( "file:" + path );
+        fileThreads.add( Thread.currentThread().getName() );
+        hidden.put( path, bundle.isHidden() );
+      }
+      return null;
+    } ).when( importer ).importFile( any( IPlatformImportBundle.class ) );
+
+    Map<String, RepositoryFile> folders = new HashMap<>();
+    folders.put( "/public/a", new RepositoryFile.Builder( "a" ).id( "a" ).folder( true ).build() );
+    folders.put( "/public/b", new RepositoryFile.Builder( "b" ).id( "b" ).folder( true ).build() );
+    when( repository.getFile( anyString() ) ).thenAnswer( invocation -> {
+      String path = invocation.getArgument( 0 );
+      return folders.get( path.endsWith( "/" ) ? path.substring( 0, path.length() - 1 ) : path );
+    } );
+
+    when( importHandler.getImportSession().getManifestFile( anyString(), anyBoolean() ) )
+      .thenReturn( mock( ManifestFile.class ) );
+    importHandler.cachedImports = new HashMap<>();
+    importHandler.setImportThreads( importThreads );
+    importHandler.setImportBatchSize( 500 );
+  }
+
+  private RepositoryFileImportBundle importBundle() {
+    RepositoryFileImportBundle importBundle = new RepositoryFileImportBundle();
+    importBundle.setPath( "/public" );
+    return importBundle;
+  }
+
+  private IRepositoryFileBundle fileBundle( String path, String name, boolean folder ) throws Exception {
+    IRepositoryFileBundle fileBundle = mock( IRepositoryFileBundle.class );
+    when( fileBundle.getFile() ).thenReturn( new RepositoryFile.Builder( name ).folder( folder ).build() );
+    when( fileBundle.getPath() ).thenReturn( path );
+    when( fileBundle.getInputStream() ).thenAnswer( invocation -> new ByteArrayInputStream( name.getBytes() ) );
+    return fileBundle;
+  }
+
   @After
   public void tearDown() throws Exception {
     ImportSession.getSession().getImportedScheduleJobIds().clear();
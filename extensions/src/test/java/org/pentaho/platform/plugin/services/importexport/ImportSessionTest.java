@@ -17,6 +17,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.mock;
@@ -107,6 +108,34 @@ public class ImportSessionTest {
     assertNull( ImportSession.getSession().getManifest() );
   }
 
+  @Test
+  public void testForkAndMerge() {
+    ExportManifest manifest = mock( ExportManifest.class );
+    importSession.setManifest( manifest );
+    importSession.setAclProperties( true, false, true );
+    importSession.getFoldersCreatedImplicitly().add( "/public/folder" );
+
+    ImportSession forked = importSession.fork();
+    assertSame( manifest, forked.getManifest() );
+    assertTrue( forked.isApplyAclSettings() );
+    assertFalse( forked.isRetainOwnership() );
+    assertTrue( forked.isOverwriteAclSettings() );
+    assertTrue( forked.getFoldersCreatedImplicitly().contains( "/public/folder" ) );
+
+    RepositoryFile file = new RepositoryFile.Builder( "file" ).build();
+    forked.addImportedRepositoryFile( file );
+    forked.addImportedScheduleJobId( "jobId" );
+    forked.getSkippedFiles().add( "/public/skipped" );
+    forked.getFoldersCreatedImplicitly().add( "/public/folder2" );
+    assertFalse( importSession.getImportedRepositoryFiles().contains( file ) );
+
+    importSession.merge( forked );
+    assertTrue( importSession.getImportedRepositoryFiles().contains( file ) );
+    assertTrue( importSession.getImportedScheduleJobIds().contains( "jobId" ) );
+    assertTrue( importSession.getSkippedFiles().contains( "/public/skipped" ) );
+    assertTrue( importSession.getFoldersCreatedImplicitly().contains( "/public/folder2" ) );
+  }
+
   @Test
   public void testProcessExtraMetaDataForFile() throws ExportManifestFormatException {
     ExportManifest manifest = mock( ExportManifest.class );
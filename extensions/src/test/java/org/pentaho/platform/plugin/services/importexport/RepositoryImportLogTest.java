@@ -50,6 +50,27 @@ public class RepositoryImportLogTest extends TestCase {
     }
   }
 
+  public void testCurrentFilePathIsKeptPerThreadInASharedJob() throws Exception {
+    Log4JRepositoryImportLogger sharedLogger = new Log4JRepositoryImportLogger();
+    sharedLogger.startJob( new ByteArrayOutputStream(), "/shared", Level.DEBUG );
+    Log4JRepositoryImportLog job = (Log4JRepositoryImportLog) sharedLogger.getCurrentJob();
+    sharedLogger.setCurrentFilePath( "/shared/main" );
+
+    String[] workerFilePath = new String[ 1 ];
+    Thread worker = new Thread( () -> {
+      sharedLogger.setCurrentJob( job );
+      sharedLogger.setCurrentFilePath( "/shared/worker" );
+      workerFilePath[ 0 ] = job.getCurrentFilePath();
+      sharedLogger.setCurrentJob( null );
+    } );
+    worker.start();
+    worker.join( 10000 );
+
+    assertEquals( "/shared/worker", workerFilePath[ 0 ] );
+    assertEquals( "/shared/main", job.getCurrentFilePath() );
+    sharedLogger.endJob();
+  }
+
   public static class TestRun implements Runnable {
     String outputFile;
     String threadNumber;
@@ -0,0 +1,90 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.services.importexport;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class ZipEntryFileBundleTest {
+  static final String PATH = "public/folder/";
+  static final String CHAR_SET = "UTF-8";
+
+  private File tmpFile;
+  private ZipFile zipFile;
+
+  @Before
+  public void setup() throws Exception {
+    tmpFile = File.createTempFile( "tempfile", ".zip" );
+    try ( ZipOutputStream zos = new ZipOutputStream( new FileOutputStream( tmpFile ) ) ) {
+      zos.putNextEntry( new ZipEntry( PATH ) );
+      zos.closeEntry();
+      zos.putNextEntry( new ZipEntry( PATH + "dummy.ext" ) );
+      zos.write( "content".getBytes( StandardCharsets.UTF_8 ) );
+      zos.closeEntry();
+    }
+    zipFile = new ZipFile( tmpFile );
+  }
+
+  @After
+  public void cleanup() throws Exception {
+    zipFile.close();
+    tmpFile.delete();
+  }
+
+  @Test
+  public void testGetInputStreamReadsEntry() throws Exception {
+    RepositoryFile file = new RepositoryFile.Builder( "dummy.ext" ).build();
+    ZipEntryFileBundle bundle =
+      new ZipEntryFileBundle( zipFile, zipFile.getEntry( PATH + "dummy.ext" ), file, null, PATH, CHAR_SET, null );
+
+    // each call opens a new stream over the entry
+    for ( int i = 0; i < 2; i++ ) {
+      try ( InputStream inputStream = bundle.getInputStream() ) {
+        assertEquals( "content", IOUtils.toString( inputStream, StandardCharsets.UTF_8 ) );
+      }
+    }
+  }
+
+  @Test
+  public void testGetInputStreamOfFolder() throws Exception {
+    RepositoryFile folder = new RepositoryFile.Builder( "folder" ).folder( true ).build();
+    ZipEntryFileBundle bundle = new ZipEntryFileBundle( zipFile, null, folder, null, "public/", CHAR_SET, null );
+
+    assertNull( bundle.getInputStream() );
+  }
+
+  @Test
+  public void testEquals() throws Exception {
+    RepositoryFile file = new RepositoryFile.Builder( "dummy.ext" ).build();
+    ZipEntryFileBundle bundle = new ZipEntryFileBundle( zipFile, null, file, null, PATH, CHAR_SET, null );
+
+    assertEquals( bundle, new ZipEntryFileBundle( zipFile, null, file, null, PATH, CHAR_SET, null ) );
+    assertNotEquals( bundle, new ZipEntryFileBundle( zipFile, null, file, null, "diffPath", CHAR_SET, null ) );
+  }
+}
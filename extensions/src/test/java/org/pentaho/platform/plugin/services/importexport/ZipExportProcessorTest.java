@@ -30,9 +30,12 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.io.ByteArrayOutputStream;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -42,6 +45,7 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.Level;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -348,6 +352,170 @@ public class ZipExportProcessorTest {
     assertEquals( "entries count", expectedEntries.length, zipEntriesFiles.size() );
   }
 
+  @Test
+  public void testPerformExport_toOutputStream() throws Exception {
+    String expFolderPath = "/home/test user/two words/";
+    ZipExportProcessor zipMF = new ZipExportProcessor( expFolderPath, repo, true );
+
+    exportHandler.setConverters( assignConverterForExt( defaultConverter, "prpt" ) );
+    zipMF.addExportHandler( exportHandler );
+
+    // mock logger to prevent npe
+    IRepositoryExportLogger exportLogger = new Log4JRepositoryExportLogger();
+    zipMF.setRepositoryExportLogger( exportLogger );
+    ByteArrayOutputStream zipOutputStream = new ByteArrayOutputStream();
+    zipMF.performExport( repo.getFile( expFolderPath ), zipOutputStream );
+
+    List<String> zipEntries = new ArrayList<>();
+    try ( ZipInputStream zis = new ZipInputStream( new ByteArrayInputStream( zipOutputStream.toByteArray() ) ) ) {
+      for ( ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry() ) {
+        if ( !entry.isDirectory() ) {
+          zipEntries.add( entry.getName().replaceAll( "\\\\", "/" ) );
+        }
+      }
+    }
+    final String[] expectedEntries =
+        new String[] {"two+words/eval+%28%2B%29%25.prpt", "two+words/eval+%28%2B%29%25.prpt_en.locale",
+            "two+words/index_en.locale", "exportManifest.xml"};
+    for ( String e : expectedEntries ) {
+      assertTrue( "expected entry: [" + e + "]", zipEntries.contains( e ) );
+    }
+    assertEquals( "entries count", expectedEntries.length, zipEntries.size() );
+    assertEquals( "manifest is the last entry", "exportManifest.xml", zipEntries.get( zipEntries.size() - 1 ) );
+  }
+
+  @Test
+  public void testPerformExport_prefetchKeepsEntryOrder() throws Exception {
+    IUnifiedRepository folderRepo = mock( IUnifiedRepository.class );
+    RepositoryFile folder =
+        new RepositoryFile.Builder( "reports" ).path( "/public/reports" ).id( "reports" ).folder( true ).build();
+    List<RepositoryFile> files = new ArrayList<>();
+    for ( int i = 0; i < 20; i++ ) {
+      files.add( new RepositoryFile.Builder( "report" + i + ".prpt" ).path( "/public/reports/report" + i + ".prpt" )
+          .id( "report" + i ).build() );
+    }
+    doReturn( files ).when( folderRepo ).getChildren( any( RepositoryRequest.class ) );
+    doReturn( Collections.singletonList( LOCALE_DEFAULT ) ).when( folderRepo )
+        .getAvailableLocalesForFileById( any( Serializable.class ) );
+    doAnswer( invocation -> {
+      Properties properties = new Properties();
+      properties.setProperty( "title", String.valueOf( invocation.getArguments()[ 0 ] ) );
+      return properties;
+    } ).when( folderRepo ).getLocalePropertiesForFileById( any( Serializable.class ), any( String.class ) );
+    doAnswer( invocation -> new SimpleRepositoryFileData(
+        new ByteArrayInputStream( String.valueOf( invocation.getArguments()[ 0 ] ).getBytes() ), "UTF-8",
+        MIME_PRPT.getName() ) ).when( folderRepo ).getDataForRead( any( Serializable.class ), any( Class.class ) );
+
+    exportHandler.setConverters( assignConverterForExt( new StreamConverter( folderRepo ), "prpt" ) );
+
+    Map<String, String> sequentialEntries = exportToMap( folderRepo, folder, 1 );
+    Map<String, String> prefetchedEntries = exportToMap( folderRepo, folder, 4 );
+
+    assertEquals( "entries count", 1 + files.size() * 2 + 1, sequentialEntries.size() );
+    assertEquals( new ArrayList<>( sequentialEntries.keySet() ), new ArrayList<>( prefetchedEntries.keySet() ) );
+    for ( int i = 0; i < files.size(); i++ ) {
+      assertEquals( "report" + i, prefetchedEntries.get( "reports/report" + i + ".prpt" ) );
+      assertTrue( prefetchedEntries.get( "reports/report" + i + ".prpt_en.locale" ).contains( "title=report" + i ) );
+    }
+  }
+
+  @Test
+  public void testPerformExport_prefetchReadsNestedFoldersAndLargeConvertedContent() throws Exception {
+    IUnifiedRepository folderRepo = mock( IUnifiedRepository.class );
+    RepositoryFile folder =
+        new RepositoryFile.Builder( "reports" ).path( "/public/reports" ).id( "reports" ).folder( true ).build();
+    List<RepositoryFile> files = new ArrayList<>();
+    files.add( new RepositoryFile.Builder( "sub" ).path( "/public/reports/sub" ).id( "sub" ).folder( true ).build() );
+    // the file size is not set, as for content converted on export
+    for ( String name : new String[] { "first", "large", "last" } ) {
+      files.add( new RepositoryFile.Builder( name + ".prpt" ).path( "/public/reports/" + name + ".prpt" ).id( name )
+          .build() );
+    }
+    List<RepositoryFile> subFiles = new ArrayList<>();
+    for ( int i = 0; i < 5; i++ ) {
+      subFiles.add( new RepositoryFile.Builder( "report" + i + ".prpt" )
+          .path( "/public/reports/sub/report" + i + ".prpt" ).id( "report" + i ).build() );
+    }
+    doAnswer( invocation -> "sub".equals( ( (RepositoryRequest) invocation.getArguments()[ 0 ] ).getPath() )
+        ? subFiles : files ).when( folderRepo ).getChildren( any( RepositoryRequest.class ) );
+    doReturn( Collections.singletonList( LOCALE_DEFAULT ) ).when( folderRepo )
+        .getAvailableLocalesForFileById( any( Serializable.class ) );
+    doReturn( new Properties() ).when( folderRepo )
+        .getLocalePropertiesForFileById( any( Serializable.class ), any( String.class ) );
+    byte[] large = new byte[ ZipExportProcessor.MAX_PREFETCH_FILE_SIZE + 1 ];
+    Arrays.fill( large, (byte) 'x' );
+    doAnswer( invocation -> new SimpleRepositoryFileData( new ByteArrayInputStream(
+        "large".equals( invocation.getArguments()[ 0 ] )
+          ? large : String.valueOf( invocation.getArguments()[ 0 ] ).getBytes() ), "UTF-8", MIME_PRPT.getName() ) )
+        .when( folderRepo ).getDataForRead( any( Serializable.class ), any( Class.class ) );
+
+    exportHandler.setConverters( assignConverterForExt( new StreamConverter( folderRepo ), "prpt" ) );
+
+    Map<String, String> sequentialEntries = exportToMap( folderRepo, folder, 1 );
+    Map<String, String> prefetchedEntries = exportToMap( folderRepo, folder, 4 );
+
+    assertEquals( new ArrayList<>( sequentialEntries.keySet() ), new ArrayList<>( prefetchedEntries.keySet() ) );
+    assertEquals( large.length, prefetchedEntries.get( "reports/large.prpt" ).length() );
+    assertEquals( "first", prefetchedEntries.get( "reports/first.prpt" ) );
+    assertEquals( "last", prefetchedEntries.get( "reports/last.prpt" ) );
+    for ( int i = 0; i < subFiles.size(); i++ ) {
+      assertEquals( "report" + i, prefetchedEntries.get( "reports/sub/report" + i + ".prpt" ) );
+    }
+  }
+
+  @Test
+  public void testPerformExport_prefetchReturnsTheWholeBudget() throws Exception {
+    IUnifiedRepository folderRepo = mock( IUnifiedRepository.class );
+    RepositoryFile folder =
+        new RepositoryFile.Builder( "reports" ).path( "/public/reports" ).id( "reports" ).folder( true ).build();
+    List<RepositoryFile> files = new ArrayList<>();
+    for ( String name : new String[] { "first", "large", "last" } ) {
+      files.add( new RepositoryFile.Builder( name + ".prpt" ).path( "/public/reports/" + name + ".prpt" ).id( name )
+          .build() );
+    }
+    doReturn( files ).when( folderRepo ).getChildren( any( RepositoryRequest.class ) );
+    doReturn( Collections.emptyList() ).when( folderRepo ).getAvailableLocalesForFileById( any( Serializable.class ) );
+    byte[] large = new byte[ ZipExportProcessor.MAX_PREFETCH_FILE_SIZE + 1 ];
+    doAnswer( invocation -> new SimpleRepositoryFileData( new ByteArrayInputStream(
+        "large".equals( invocation.getArguments()[ 0 ] )
+          ? large : String.valueOf( invocation.getArguments()[ 0 ] ).getBytes() ), "UTF-8", MIME_PRPT.getName() ) )
+        .when( folderRepo ).getDataForRead( any( Serializable.class ), any( Class.class ) );
+    exportHandler.setConverters( assignConverterForExt( new StreamConverter( folderRepo ), "prpt" ) );
+
+    List<Integer> availableBytes = new ArrayList<>();
+    ZipExportProcessor zipNoMF = new ZipExportProcessor( folder.getPath(), folderRepo, false ) {
+      @Override
+      protected void stopPrefetch() {
+        availableBytes.add( getPrefetchBytes().availablePermits() );
+        super.stopPrefetch();
+      }
+    };
+    zipNoMF.addExportHandler( exportHandler );
+    zipNoMF.setPrefetchThreads( 4 );
+    zipNoMF.performExport( folder, new ByteArrayOutputStream() );
+
+    // the reservations made before reading are returned, including the one of the file too large to prefetch
+    assertEquals( Collections.singletonList( ZipExportProcessor.MAX_PREFETCH_BYTES ), availableBytes );
+  }
+
+  private Map<String, String> exportToMap( IUnifiedRepository folderRepo, RepositoryFile folder, int prefetchThreads )
+      throws Exception {
+    ZipExportProcessor zipNoMF = new ZipExportProcessor( folder.getPath(), folderRepo, false );
+    zipNoMF.addExportHandler( exportHandler );
+    zipNoMF.setPrefetchThreads( prefetchThreads );
+
+    ByteArrayOutputStream zipOutputStream = new ByteArrayOutputStream();
+    zipNoMF.performExport( folder, zipOutputStream );
+
+    Map<String, String> entries = new LinkedHashMap<>();
+    try ( ZipInputStream zis = new ZipInputStream( new ByteArrayInputStream( zipOutputStream.toByteArray() ) ) ) {
+      for ( ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry() ) {
+        entries.put( entry.getName(), IOUtils.toString( zis, "UTF-8" ) );
+      }
+    }
+    return entries;
+  }
+
   private Map<String, Converter> assignConverterForExt( Converter conv, String... exts ) {
     final Map<String, Converter> converters = new HashMap<String, Converter>();
     for ( String ext : exts ) {
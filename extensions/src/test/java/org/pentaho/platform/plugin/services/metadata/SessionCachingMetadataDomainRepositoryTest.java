@@ -19,6 +19,8 @@ import org.junit.Test;
 
 import org.mockito.Mockito;
 import org.pentaho.metadata.model.Domain;
+import org.pentaho.metadata.model.LogicalModel;
+import org.pentaho.metadata.model.concept.IConcept;
 import org.pentaho.metadata.repository.IMetadataDomainRepository;
 import org.pentaho.platform.api.engine.ICacheManager;
 import org.pentaho.platform.api.engine.IConfiguration;
@@ -26,6 +28,7 @@ import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.engine.ISystemConfig;
 import org.pentaho.platform.config.SystemConfig;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
+import org.pentaho.platform.engine.core.system.SimpleMapCacheManager;
 import org.pentaho.platform.engine.core.system.StandaloneSession;
 import org.pentaho.test.platform.plugin.services.metadata.MockSessionAwareMetadataDomainRepository;
 
@@ -47,8 +50,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -139,6 +145,135 @@ public class SessionCachingMetadataDomainRepositoryTest {
             "domain-id-cache-for-session:1" );
   }
 
+  @Test
+  public void testGetDomainSharesParsedDomainAcrossSessions() throws Exception {
+    PentahoMetadataDomainRepository delegate = mock( PentahoMetadataDomainRepository.class );
+    Domain domain = new Domain();
+    domain.setId( "id" );
+    when( delegate.getDomain( "id" ) ).thenReturn( domain );
+    when( delegate.hasAccessFor( "id" ) ).thenReturn( true );
+    SessionCachingMetadataDomainRepository repo =
+      new SessionCachingMetadataDomainRepository( delegate, new SimpleMapCacheManager(), true, 1 );
+
+    PentahoSessionHolder.setSession( new StandaloneSession( "session", "1" ) );
+    Domain fromSession1 = repo.getDomain( "id" );
+    PentahoSessionHolder.setSession( new StandaloneSession( "session", "2" ) );
+    Domain fromSession2 = repo.getDomain( "id" );
+
+    // the domain is parsed once and sessions that can read all of it share it
+    verify( delegate, times( 1 ) ).getDomain( "id" );
+    assertSame( domain, fromSession1 );
+    assertSame( fromSession1, fromSession2 );
+
+    repo.storeDomain( domain, true );
+    PentahoSessionHolder.setSession( new StandaloneSession( "session", "3" ) );
+    repo.getDomain( "id" );
+    verify( delegate, times( 2 ) ).getDomain( "id" );
+  }
+
+  @Test
+  public void testGetDomainDoesNotCopyDomainPerSession() throws Exception {
+    PentahoMetadataDomainRepository delegate = mock( PentahoMetadataDomainRepository.class );
+    Domain domain = new Domain();
+    domain.setId( "id" );
+    LogicalModel open = new LogicalModel();
+    open.setId( "open" );
+    LogicalModel restricted = new LogicalModel();
+    restricted.setId( "restricted" );
+    domain.getLogicalModels().add( open );
+    domain.getLogicalModels().add( restricted );
+    when( delegate.getDomain( "id" ) ).thenReturn( domain );
+    when( delegate.hasAccessFor( "id" ) ).thenReturn( true );
+    // only admins can read the restricted model
+    when( delegate.hasAccess( anyInt(), any( IConcept.class ) ) ).thenAnswer( invocation ->
+      !"restricted".equals( ( (IConcept) invocation.getArgument( 1 ) ).getId() )
+        || "admin".equals( PentahoSessionHolder.getSession().getName() ) );
+    SimpleMapCacheManager cacheManager = new SimpleMapCacheManager();
+    SessionCachingMetadataDomainRepository repo =
+      new SessionCachingMetadataDomainRepository( delegate, cacheManager, true, 1 );
+
+    PentahoSessionHolder.setSession( new StandaloneSession( "admin", "1" ) );
+    Domain fromAdmin1 = repo.getDomain( "id" );
+    PentahoSessionHolder.setSession( new StandaloneSession( "admin", "2" ) );
+    Domain fromAdmin2 = repo.getDomain( "id" );
+    PentahoSessionHolder.setSession( new StandaloneSession( "user", "3" ) );
+    Domain fromUser3 = repo.getDomain( "id" );
+    PentahoSessionHolder.setSession( new StandaloneSession( "user", "4" ) );
+    Domain fromUser4 = repo.getDomain( "id" );
+
+    verify( delegate, times( 1 ) ).getDomain( "id" );
+    assertSame( domain, fromAdmin1 );
+    assertSame( domain, fromAdmin2 );
+    // sessions that cannot read the same concepts share one secured copy
+    assertNotSame( domain, fromUser3 );
+    assertSame( fromUser3, fromUser4 );
+    assertEquals( 1, fromUser3.getLogicalModels().size() );
+    assertEquals( "open", fromUser3.getLogicalModels().get( 0 ).getId() );
+
+    // sessions only cache the concepts they cannot read, never a domain
+    for ( String sessionId : Arrays.asList( "1", "2", "3", "4" ) ) {
+      Object cached = cacheManager.getFromRegionCache( SessionCachingMetadataDomainRepository.CACHE_REGION,
+        new SessionCachingMetadataDomainRepository.CacheKey( sessionId, "id" ) );
+      assertTrue( cached instanceof SessionCachingMetadataDomainRepository.HiddenConcepts );
+    }
+  }
+
+  @Test
+  public void testGetDomainDoesNotShareWithoutAccess() throws Exception {
+    PentahoMetadataDomainRepository delegate = mock( PentahoMetadataDomainRepository.class );
+    Domain domain = new Domain();
+    domain.setId( "id" );
+    when( delegate.getDomain( "id" ) ).thenReturn( domain );
+    when( delegate.hasAccessFor( "id" ) ).thenReturn( true );
+    SessionCachingMetadataDomainRepository repo =
+      new SessionCachingMetadataDomainRepository( delegate, new SimpleMapCacheManager(), true, 1 );
+
+    PentahoSessionHolder.setSession( new StandaloneSession( "session", "1" ) );
+    repo.getDomain( "id" );
+
+    when( delegate.hasAccessFor( "id" ) ).thenReturn( false );
+    when( delegate.getDomain( "id" ) ).thenReturn( null );
+    PentahoSessionHolder.setSession( new StandaloneSession( "session", "2" ) );
+
+    assertNull( repo.getDomain( "id" ) );
+    verify( delegate, times( 2 ) ).getDomain( "id" );
+  }
+
+  @Test
+  public void testIndexedEvictionBySessionAndDomain() throws Exception {
+    IMetadataDomainRepository delegate = mock( IMetadataDomainRepository.class );
+    for ( String id : Arrays.asList( "a", "b" ) ) {
+      Domain domain = new Domain();
+      domain.setId( id );
+      when( delegate.getDomain( id ) ).thenReturn( domain );
+    }
+    SessionCachingMetadataDomainRepository repo =
+      new SessionCachingMetadataDomainRepository( delegate, new SimpleMapCacheManager(), true, 1 );
+    IPentahoSession session1 = new StandaloneSession( "session", "1" );
+    IPentahoSession session2 = new StandaloneSession( "session", "2" );
+    for ( IPentahoSession session : Arrays.asList( session1, session2 ) ) {
+      PentahoSessionHolder.setSession( session );
+      repo.getDomain( "a" );
+      repo.getDomain( "b" );
+    }
+    verify( delegate, times( 2 ) ).getDomain( "a" );
+
+    repo.onLogout( session1 );
+    assertEquals( 2, repo.getEvictionCount( SessionCachingMetadataDomainRepository.EvictionTrigger.LOGOUT ) );
+
+    // session 2 is untouched by session 1 logging out
+    repo.getDomain( "a" );
+    verify( delegate, times( 2 ) ).getDomain( "a" );
+
+    repo.removeDomain( "a" );
+    assertEquals( 1, repo.getEvictionCount( SessionCachingMetadataDomainRepository.EvictionTrigger.DOMAIN_CHANGE ) );
+    repo.getDomain( "b" );
+    verify( delegate, times( 2 ) ).getDomain( "b" );
+
+    repo.flushDomains();
+    assertEquals( 1, repo.getEvictionCount( SessionCachingMetadataDomainRepository.EvictionTrigger.FLUSH ) );
+  }
+
   @Test
   public void testCreateCallablesGetDomain() throws Exception {
     MockSessionAwareMetadataDomainRepository mock = Mockito.mock( MockSessionAwareMetadataDomainRepository.class );
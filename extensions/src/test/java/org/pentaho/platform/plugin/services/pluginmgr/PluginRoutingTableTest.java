@@ -0,0 +1,81 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.services.pluginmgr;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class PluginRoutingTableTest {
+
+  private ClassLoader loader1;
+  private ClassLoader loader2;
+  private PluginRoutingTable table;
+
+  @Before
+  public void setUp() {
+    loader1 = mock( ClassLoader.class );
+    loader2 = mock( ClassLoader.class );
+
+    // routes are added in plugin priority order, static resources first
+    table = new PluginRoutingTable();
+    table.addStaticResource( "plugin1", loader1, "/plugin1/resources", "resources/web" );
+    table.addContentGenerator( "plugin1", loader1, "shared" );
+    table.addStaticResource( "plugin2", loader2, "/plugin2", "web" );
+    table.addStaticResource( "plugin2", loader2, "/shared/static", "static" );
+    table.addContentGenerator( "plugin2", loader2, "plugin2" );
+  }
+
+  @Test
+  public void testStaticResourceRoute() {
+    PluginRoutingTable.Route route = table.getStaticResourceRoute( "/plugin1/resources/js/main.js" );
+    assertEquals( "plugin1", route.getPluginId() );
+    assertSame( loader1, route.getClassLoader() );
+    assertTrue( route.isStaticResource() );
+    assertEquals( "resources/web/js/main.js", route.getResourcePath( "/plugin1/resources/js/main.js" ) );
+  }
+
+  @Test
+  public void testRoutesMatchWholePathElements() {
+    assertNull( table.getRoute( "/plugin1/resourcesX/main.js" ) );
+    assertNull( table.getRoute( "/plugin" ) );
+    assertNull( table.getRoute( "/plugin1" ) );
+  }
+
+  @Test
+  public void testFirstAddedRouteWins() {
+    // plugin1 has a content generator matching the path, which has precedence over the resource of plugin2
+    PluginRoutingTable.Route route = table.getRoute( "/shared/static/file.css" );
+    assertEquals( "plugin1", route.getPluginId() );
+    assertFalse( route.isStaticResource() );
+
+    // while the static resource is still found for the path
+    route = table.getStaticResourceRoute( "/shared/static/file.css" );
+    assertEquals( "plugin2", route.getPluginId() );
+    assertEquals( "static/file.css", route.getResourcePath( "/shared/static/file.css" ) );
+  }
+
+  @Test
+  public void testStaticResourceHasPrecedenceWithinPlugin() {
+    PluginRoutingTable.Route route = table.getRoute( "plugin2/file.html" );
+    assertEquals( "plugin2", route.getPluginId() );
+    assertTrue( route.isStaticResource() );
+  }
+}
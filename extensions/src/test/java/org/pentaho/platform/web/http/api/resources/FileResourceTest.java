@@ -41,6 +41,7 @@ import org.pentaho.platform.repository2.unified.fileio.RepositoryFileOutputStrea
 import org.pentaho.platform.repository2.unified.webservices.DefaultUnifiedRepositoryWebService;
 import org.pentaho.platform.security.policy.rolebased.actions.PublishAction;
 import org.pentaho.platform.web.http.api.resources.services.FileService;
+import org.pentaho.platform.web.http.api.resources.services.InvalidPageRequestException;
 import org.pentaho.platform.web.http.api.resources.utils.FileUtils;
 import org.pentaho.platform.web.http.messages.Messages;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
@@ -93,6 +94,7 @@ import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -1358,6 +1360,19 @@ public class FileResourceTest {
     verify( fileResource.fileService, times( 1 ) ).doGetPathsAccessList( pathsWrapper );
   }
 
+  @Test
+  public void testDoGetPathsAccessMask() {
+    StringListWrapper pathsWrapper = mock( StringListWrapper.class );
+
+    List<Setting> mockList = mock( List.class );
+    doReturn( mockList ).when( fileResource.fileService ).doGetPathsAccessMask( pathsWrapper );
+
+    SettingsWrapper testList = fileResource.doGetPathsAccessMask( pathsWrapper );
+    assertEquals( mockList, testList.getSettings() );
+
+    verify( fileResource.fileService, times( 1 ) ).doGetPathsAccessMask( pathsWrapper );
+  }
+
   @Test
   public void testDoGetCanAccessList() {
 
@@ -1673,6 +1688,44 @@ public class FileResourceTest {
       includeAcls );
   }
 
+  @Test
+  public void testDoGetChildrenPage() {
+    String filter = "filter";
+    Boolean showHidden = Boolean.TRUE;
+    Boolean includeAcls = Boolean.TRUE;
+
+    List<RepositoryFileDto> mockList = mock( List.class );
+    doReturn( mockList ).when( fileResource.fileService )
+      .doGetChildren( PATH_ID, filter, showHidden, includeAcls, 0, 100, "name" );
+
+    RepositoryFileDtoWrapper testList =
+      fileResource.doGetChildren( PATH_ID, filter, showHidden, includeAcls, 0, 100, "name" );
+    assertEquals( mockList, testList.getRepositoryFileDto() );
+
+    verify( fileResource.fileService, never() ).doGetChildren( PATH_ID, filter, showHidden, includeAcls );
+  }
+
+  @Test
+  public void testDoGetChildrenPageBadRequest() {
+    doThrow( new InvalidPageRequestException( "Unknown sort key: size" ) ).when( fileResource.fileService )
+      .doGetChildren( PATH_ID, null, null, false, 0, 100, "size" );
+
+    try {
+      fileResource.doGetChildren( PATH_ID, null, null, false, 0, 100, "size" );
+      fail();
+    } catch ( WebApplicationException e ) {
+      assertEquals( Response.Status.BAD_REQUEST.getStatusCode(), e.getResponse().getStatus() );
+    }
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testDoGetChildrenPageDoesNotMapOtherIllegalArguments() {
+    doThrow( new IllegalArgumentException() ).when( fileResource.fileService )
+      .doGetChildren( PATH_ID, null, null, false, 0, 100, "name" );
+
+    fileResource.doGetChildren( PATH_ID, null, null, false, 0, 100, "name" );
+  }
+
   @Test
   public void testDoGetDeletedFiles() {
     List<RepositoryFileDto> mockList = mock( List.class );
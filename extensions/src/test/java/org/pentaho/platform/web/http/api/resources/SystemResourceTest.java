@@ -13,34 +13,57 @@
 
 package org.pentaho.platform.web.http.api.resources;
 
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.jackrabbit.core.security.authorization.acl.CachingPentahoEntryCollector;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.pentaho.platform.api.engine.IAuthorizationPolicy;
 import org.pentaho.platform.api.usersettings.IUserSettingService;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
+import org.pentaho.platform.engine.services.audit.AsyncAuditMetrics;
+import org.pentaho.platform.engine.services.connection.datasource.dbcp.PooledDatasourceMetrics;
+import org.pentaho.platform.repository2.unified.jcr.sejcr.PentahoJcrSessionPoolMetrics;
+import org.pentaho.platform.security.policy.rolebased.actions.AdministerSecurityAction;
+import org.pentaho.platform.web.servlet.StaticResourceMetrics;
 import org.pentaho.test.platform.engine.core.MicroPlatform;
 import org.springframework.util.Assert;
 
 import jakarta.ws.rs.core.Response;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.when;
 
 public class SystemResourceTest {
   SystemResource systemResource;
   private static MicroPlatform platform;
+  private static IAuthorizationPolicy policy;
 
   @BeforeClass
   public static void initPlatform() throws Exception {
     platform = new MicroPlatform();
+    policy = mock( IAuthorizationPolicy.class );
     platform.defineInstance( IUserSettingService.class, mock( IUserSettingService.class ) );
+    platform.defineInstance( IAuthorizationPolicy.class, policy );
     platform.start();
   }
 
   @Before
   public void setup() {
     PentahoSessionHolder.setSession( null );
+    reset( policy );
+    when( policy.isAllowed( anyString() ) ).thenReturn( true );
     systemResource = new SystemResource();
   }
 
@@ -64,4 +87,179 @@ public class SystemResourceTest {
     }
     Assert.notNull( resp, "Response must not be null" );
   }
+
+  @Test
+  public void testGetDatasourcePoolMetricsRequiresAdministrator() {
+    when( policy.isAllowed( AdministerSecurityAction.NAME ) ).thenReturn( false );
+
+    Response resp = systemResource.getDatasourcePoolMetrics();
+
+    assertEquals( Response.Status.UNAUTHORIZED.getStatusCode(), resp.getStatus() );
+    assertNull( resp.getEntity() );
+  }
+
+  @Test
+  public void testGetDatasourcePoolMetrics() {
+    GenericObjectPool<?> pool = mock( GenericObjectPool.class );
+    when( pool.getNumActive() ).thenReturn( 3 );
+    when( pool.getMaxTotal() ).thenReturn( 20 );
+    PooledDatasourceMetrics.register( "testDatasource", pool ).recordBorrow( TimeUnit.MILLISECONDS.toNanos( 2 ) );
+    try {
+      Response resp = systemResource.getDatasourcePoolMetrics();
+
+      assertEquals( Response.Status.OK.getStatusCode(), resp.getStatus() );
+      List<DatasourcePoolMetrics> pools = ( (DatasourcePoolMetricsWrapper) resp.getEntity() ).getPools();
+      assertEquals( 1, pools.size() );
+      assertEquals( "testDatasource", pools.get( 0 ).getDatasourceName() );
+      assertEquals( 3, pools.get( 0 ).getNumActive() );
+      assertEquals( 20, pools.get( 0 ).getMaxTotal() );
+      assertEquals( 1, pools.get( 0 ).getBorrowCount() );
+    } finally {
+      PooledDatasourceMetrics.clear();
+    }
+  }
+
+  @Test
+  public void testGetRepositorySessionPoolMetricsRequiresAdministrator() {
+    when( policy.isAllowed( AdministerSecurityAction.NAME ) ).thenReturn( false );
+
+    Response resp = systemResource.getRepositorySessionPoolMetrics();
+
+    assertEquals( Response.Status.UNAUTHORIZED.getStatusCode(), resp.getStatus() );
+    assertNull( resp.getEntity() );
+  }
+
+  @Test
+  public void testGetRepositorySessionPoolMetrics() {
+    PentahoJcrSessionPoolMetrics.Snapshot snapshot = mock( PentahoJcrSessionPoolMetrics.Snapshot.class );
+    when( snapshot.getActiveSessions() ).thenReturn( 4 );
+    when( snapshot.getMaxActiveSessions() ).thenReturn( 100 );
+    when( snapshot.getCheckoutCount() ).thenReturn( 42L );
+    PentahoJcrSessionPoolMetrics metrics = mock( PentahoJcrSessionPoolMetrics.class );
+    when( metrics.getSnapshot() ).thenReturn( snapshot );
+    try ( MockedStatic<PentahoJcrSessionPoolMetrics> allMetrics = mockStatic( PentahoJcrSessionPoolMetrics.class ) ) {
+      allMetrics.when( PentahoJcrSessionPoolMetrics::getAll ).thenReturn( Collections.singletonList( metrics ) );
+
+      Response resp = systemResource.getRepositorySessionPoolMetrics();
+
+      assertEquals( Response.Status.OK.getStatusCode(), resp.getStatus() );
+      List<RepositorySessionPoolMetrics> pools = ( (RepositorySessionPoolMetricsWrapper) resp.getEntity() ).getPools();
+      assertEquals( 1, pools.size() );
+      assertEquals( 4, pools.get( 0 ).getActiveSessions() );
+      assertEquals( 100, pools.get( 0 ).getMaxActiveSessions() );
+      assertEquals( 42, pools.get( 0 ).getCheckoutCount() );
+    }
+  }
+
+  @Test
+  public void testGetAclEntryCacheMetricsRequiresAdministrator() {
+    when( policy.isAllowed( AdministerSecurityAction.NAME ) ).thenReturn( false );
+
+    Response resp = systemResource.getAclEntryCacheMetrics();
+
+    assertEquals( Response.Status.UNAUTHORIZED.getStatusCode(), resp.getStatus() );
+    assertNull( resp.getEntity() );
+  }
+
+  @Test
+  public void testGetAclEntryCacheMetrics() {
+    CachingPentahoEntryCollector collector = mock( CachingPentahoEntryCollector.class );
+    when( collector.getSharedCacheHitCount() ).thenReturn( 3L );
+    when( collector.getSharedCacheMissCount() ).thenReturn( 1L );
+    when( collector.getSharedCacheHitRate() ).thenReturn( 0.75 );
+    when( collector.getSharedCacheSize() ).thenReturn( 2L );
+    try ( MockedStatic<CachingPentahoEntryCollector> collectors = mockStatic( CachingPentahoEntryCollector.class ) ) {
+      collectors.when( CachingPentahoEntryCollector::getAll ).thenReturn( Collections.singletonList( collector ) );
+
+      Response resp = systemResource.getAclEntryCacheMetrics();
+
+      assertEquals( Response.Status.OK.getStatusCode(), resp.getStatus() );
+      List<AclEntryCacheMetrics> caches = ( (AclEntryCacheMetricsWrapper) resp.getEntity() ).getCaches();
+      assertEquals( 1, caches.size() );
+      assertEquals( 3, caches.get( 0 ).getSharedCacheHitCount() );
+      assertEquals( 1, caches.get( 0 ).getSharedCacheMissCount() );
+      assertEquals( 0.75, caches.get( 0 ).getSharedCacheHitRate(), 0 );
+      assertEquals( 2, caches.get( 0 ).getSharedCacheSize() );
+    }
+  }
+
+  @Test
+  public void testGetStaticResourceMetricsRequiresAdministrator() {
+    when( policy.isAllowed( AdministerSecurityAction.NAME ) ).thenReturn( false );
+
+    Response resp = systemResource.getStaticResourceMetrics();
+
+    assertEquals( Response.Status.UNAUTHORIZED.getStatusCode(), resp.getStatus() );
+    assertNull( resp.getEntity() );
+  }
+
+  @Test
+  public void testGetStaticResourceMetrics() {
+    StaticResourceMetrics.Snapshot snapshot = mock( StaticResourceMetrics.Snapshot.class );
+    when( snapshot.getRequestCount() ).thenReturn( 10L );
+    when( snapshot.getCacheHitCount() ).thenReturn( 7L );
+    when( snapshot.getNotModifiedCount() ).thenReturn( 4L );
+    when( snapshot.getPartialCount() ).thenReturn( 1L );
+    when( snapshot.getBytesSent() ).thenReturn( 2048L );
+    StaticResourceMetrics metrics = mock( StaticResourceMetrics.class );
+    when( metrics.getSnapshot() ).thenReturn( snapshot );
+    try ( MockedStatic<StaticResourceMetrics> allMetrics = mockStatic( StaticResourceMetrics.class ) ) {
+      allMetrics.when( StaticResourceMetrics::getAll ).thenReturn( Collections.singletonMap( "analyzer", metrics ) );
+
+      Response resp = systemResource.getStaticResourceMetrics();
+
+      assertEquals( Response.Status.OK.getStatusCode(), resp.getStatus() );
+      List<PluginStaticResourceMetrics> plugins =
+        ( (PluginStaticResourceMetricsWrapper) resp.getEntity() ).getPlugins();
+      assertEquals( 1, plugins.size() );
+      assertEquals( "analyzer", plugins.get( 0 ).getPluginId() );
+      assertEquals( 10, plugins.get( 0 ).getRequestCount() );
+      assertEquals( 7, plugins.get( 0 ).getCacheHitCount() );
+      assertEquals( 4, plugins.get( 0 ).getNotModifiedCount() );
+      assertEquals( 1, plugins.get( 0 ).getPartialCount() );
+      assertEquals( 2048, plugins.get( 0 ).getBytesSent() );
+    }
+  }
+
+  @Test
+  public void testGetAuditQueueMetricsRequiresAdministrator() {
+    when( policy.isAllowed( AdministerSecurityAction.NAME ) ).thenReturn( false );
+
+    Response resp = systemResource.getAuditQueueMetrics();
+
+    assertEquals( Response.Status.UNAUTHORIZED.getStatusCode(), resp.getStatus() );
+    assertNull( resp.getEntity() );
+  }
+
+  @Test
+  public void testGetAuditQueueMetrics() {
+    AsyncAuditMetrics.Snapshot snapshot = mock( AsyncAuditMetrics.Snapshot.class );
+    when( snapshot.getQueueDepth() ).thenReturn( 5 );
+    when( snapshot.getQueueCapacity() ).thenReturn( 100 );
+    when( snapshot.getEnqueuedCount() ).thenReturn( 40L );
+    when( snapshot.getWrittenCount() ).thenReturn( 30L );
+    when( snapshot.getFailedCount() ).thenReturn( 1L );
+    when( snapshot.getDroppedCount() ).thenReturn( 2L );
+    when( snapshot.getSpilledCount() ).thenReturn( 3L );
+    when( snapshot.getFlushCount() ).thenReturn( 4L );
+    AsyncAuditMetrics metrics = mock( AsyncAuditMetrics.class );
+    when( metrics.getSnapshot() ).thenReturn( snapshot );
+    try ( MockedStatic<AsyncAuditMetrics> allMetrics = mockStatic( AsyncAuditMetrics.class ) ) {
+      allMetrics.when( AsyncAuditMetrics::getAll ).thenReturn( Collections.singletonList( metrics ) );
+
+      Response resp = systemResource.getAuditQueueMetrics();
+
+      assertEquals( Response.Status.OK.getStatusCode(), resp.getStatus() );
+      List<AuditQueueMetrics> queues = ( (AuditQueueMetricsWrapper) resp.getEntity() ).getQueues();
+      assertEquals( 1, queues.size() );
+      assertEquals( 5, queues.get( 0 ).getQueueDepth() );
+      assertEquals( 100, queues.get( 0 ).getQueueCapacity() );
+      assertEquals( 40, queues.get( 0 ).getEnqueuedCount() );
+      assertEquals( 30, queues.get( 0 ).getWrittenCount() );
+      assertEquals( 1, queues.get( 0 ).getFailedCount() );
+      assertEquals( 2, queues.get( 0 ).getDroppedCount() );
+      assertEquals( 3, queues.get( 0 ).getSpilledCount() );
+      assertEquals( 4, queues.get( 0 ).getFlushCount() );
+    }
+  }
 }
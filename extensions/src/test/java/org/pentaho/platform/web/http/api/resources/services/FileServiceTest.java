@@ -17,6 +17,7 @@ import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.MockedStatic;
 import org.pentaho.platform.api.engine.IPentahoObjectFactory;
 import org.pentaho.platform.api.engine.IPentahoObjectReference;
 import org.pentaho.platform.api.engine.IPentahoSession;
@@ -25,15 +26,23 @@ import org.pentaho.platform.api.engine.ISystemSettings;
 import org.pentaho.platform.api.engine.ObjectFactoryException;
 import org.pentaho.platform.api.engine.IAuthorizationPolicy;
 import org.pentaho.platform.api.repository2.unified.webservices.RepositoryFileDto;
+import org.pentaho.platform.api.util.IPentahoPlatformExporter;
+import org.pentaho.platform.api.util.IRepositoryExportLogger;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.plugin.services.exporter.PentahoPlatformExporter;
 import org.pentaho.platform.repository2.ClientRepositoryPaths;
 import org.pentaho.platform.repository2.unified.fileio.RepositoryFileOutputStream;
 import org.pentaho.platform.repository2.unified.webservices.DefaultUnifiedRepositoryWebService;
 import org.pentaho.platform.security.policy.rolebased.actions.RepositoryCreateAction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +55,7 @@ import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -586,6 +596,28 @@ public class FileServiceTest {
     assertEquals( "true", fileService.doGetCanEdit() );
   }
 
+  @Test
+  public void testSystemBackupOpensLogFileOnlyWhenWritten() throws Exception {
+    File logFile = new File( Files.createTempDirectory( "backup" ).toFile(), "backup.log" );
+    PentahoPlatformExporter exporter = mock( PentahoPlatformExporter.class );
+    when( exporter.getRepositoryExportLogger() ).thenReturn( mock( IRepositoryExportLogger.class ) );
+    doReturn( true ).when( fileService ).doCanAdminister();
+
+    try ( MockedStatic<PentahoSystem> pentahoSystem = mockStatic( PentahoSystem.class ) ) {
+      pentahoSystem.when( () -> PentahoSystem.get( IPentahoPlatformExporter.class ) ).thenReturn( exporter );
+      pentahoSystem.when( () -> PentahoSystem.get( IPentahoPlatformExporter.class, "IPentahoPlatformExporter", null ) )
+        .thenReturn( exporter );
+
+      FileService.DownloadFileWrapper wrapper =
+        fileService.systemBackup( logFile.getPath(), "INFO", "backup.zip" );
+      assertFalse( logFile.exists() );
+
+      wrapper.getOutputStream().write( new ByteArrayOutputStream() );
+      verify( exporter ).performExport( any( OutputStream.class ) );
+      assertTrue( logFile.exists() );
+    }
+  }
+
   private static String encode( String pathControlCharacter ) throws UnsupportedEncodingException {
     return URLEncoder.encode( pathControlCharacter, UTF_8 );
   }
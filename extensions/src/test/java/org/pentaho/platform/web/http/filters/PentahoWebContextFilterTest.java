@@ -17,6 +17,7 @@ import org.apache.commons.lang.StringEscapeUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.pentaho.platform.api.engine.IApplicationContext;
 import org.pentaho.platform.api.engine.ICacheManager;
@@ -25,6 +26,7 @@ import org.pentaho.platform.api.engine.IPentahoObjectReference;
 import org.pentaho.platform.api.engine.IPentahoRequestContext;
 import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.engine.IPluginManager;
+import org.pentaho.platform.api.engine.IPluginManagerListener;
 import org.pentaho.platform.api.engine.ISystemConfig;
 import org.pentaho.platform.api.engine.ISystemSettings;
 import org.pentaho.platform.api.engine.ObjectFactoryException;
@@ -45,11 +47,13 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -74,6 +78,7 @@ public class PentahoWebContextFilterTest {
 
   private HttpServletRequest mockRequest;
   private HttpServletResponse mockResponse;
+  private IPluginManager mockPluginManager;
   private java.io.ByteArrayOutputStream mockResponseOutputStream;
 
   private PentahoWebContextFilter pentahoWebContextFilter;
@@ -183,8 +188,8 @@ public class PentahoWebContextFilterTest {
     doReturn( this.reservedChars ).when( this.pentahoWebContextFilter ).getRepositoryReservedChars();
 
 
-    IPluginManager mockPluginManager = mock( IPluginManager.class );
-    doReturn( mockPluginManager ).when( this.pentahoWebContextFilter ).getPluginManager();
+    this.mockPluginManager = mock( IPluginManager.class );
+    doReturn( this.mockPluginManager ).when( this.pentahoWebContextFilter ).getPluginManager();
     doReturn( PentahoWebContextFilter.DEFAULT_SERVICES_ROOT )
             .when( this.pentahoWebContextFilter ).initializeServicesPath();
 
@@ -458,6 +463,49 @@ public class PentahoWebContextFilterTest {
     }
   }
 
+  @Test
+  public void testStaticContentIsComputedOnce() throws ServletException, IOException {
+    when( this.mockPluginManager.getExternalResourcesForContext( "requirejs" ) )
+      .thenReturn( Collections.singletonList( "content/plugin/require-cfg.js" ) );
+    when( this.mockRequest.getParameterMap() )
+      .thenReturn( Collections.singletonMap( "locale", new String[] { "pt" } ) );
+
+    String expected = "src='\" + CONTEXT_PATH + \"content/plugin/require-cfg.js?locale=pt'></scr\"+\"ipt>\");";
+    assertTrue( executeWebContextFilter().contains( expected ) );
+    this.mockResponseOutputStream.reset();
+    assertTrue( executeWebContextFilter().contains( expected ) );
+
+    verify( this.mockPluginManager, times( 1 ) ).getExternalResourcesForContext( "requirejs" );
+    verify( this.pentahoWebContextFilter, times( 1 ) ).getRepositoryReservedChars();
+
+    // reloading the plugins discards the static content
+    ArgumentCaptor<IPluginManagerListener> listener = ArgumentCaptor.forClass( IPluginManagerListener.class );
+    verify( this.mockPluginManager ).addPluginManagerListener( listener.capture() );
+    listener.getValue().onReload();
+    executeWebContextFilter();
+
+    verify( this.mockPluginManager, times( 2 ) ).getExternalResourcesForContext( "requirejs" );
+  }
+
+  @Test
+  public void testDoGetNotModified() throws ServletException, IOException {
+    final String response = executeWebContextFilter();
+
+    ArgumentCaptor<String> etag = ArgumentCaptor.forClass( String.class );
+    verify( this.mockResponse ).setHeader( eq( "ETag" ), etag.capture() );
+    verify( this.mockResponse ).setHeader( "Cache-Control", "private, no-cache" );
+
+    // the same content gets the same ETag
+    this.mockResponseOutputStream.reset();
+    assertEquals( response, executeWebContextFilter() );
+
+    this.mockResponseOutputStream.reset();
+    when( this.mockRequest.getHeader( "If-None-Match" ) ).thenReturn( etag.getValue() );
+    assertEquals( "", executeWebContextFilter() );
+
+    verify( this.mockResponse ).setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+  }
+
   @Test
   public void testDoGetWithFullyQualifiedUrlDefaultLocalReferer() throws ServletException, IOException {
     when( this.mockRequest.getHeader( "referer" ) ).thenReturn( this.serverAddress + "/other/app" );
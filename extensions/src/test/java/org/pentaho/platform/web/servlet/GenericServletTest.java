@@ -24,7 +24,6 @@ import org.pentaho.platform.api.engine.IPluginManager;
 import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 
 import static org.junit.Assert.assertFalse;
@@ -106,7 +105,7 @@ public class GenericServletTest {
     when( pluginManager.getPluginSetting( eq( "my-plugin" ), eq( "settings/cache" ), any() ) )
       .thenReturn( "true" );
     when( cacheManager.getFromRegionCache( CACHE_FILE, "/my-plugin/resource.js" ) ).thenReturn(
-      mock( ByteArrayOutputStream.class ) );
+      new StaticResource( new byte[ 0 ], "text/javascript", 0, true ) );
 
     boolean result = genericServlet.isStaticResource( request );
     assertTrue( result );
@@ -0,0 +1,193 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.servlet;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StaticResourceTest {
+  private static final byte[] CONTENT = StringUtils.repeat( "var a = 1;\n", 200 ).getBytes( StandardCharsets.UTF_8 );
+
+  private StaticResource resource;
+  private HttpServletRequest request;
+  private HttpServletResponse response;
+  private ServletOutputStream out;
+
+  @Before
+  public void setUp() throws Exception {
+    resource = new StaticResource( CONTENT, "text/javascript", 1234567L, true );
+    request = mock( HttpServletRequest.class );
+    response = mock( HttpServletResponse.class );
+    out = mock( ServletOutputStream.class );
+    when( request.getMethod() ).thenReturn( "GET" );
+    when( request.getDateHeader( anyString() ) ).thenReturn( -1L );
+    when( response.getOutputStream() ).thenReturn( out );
+  }
+
+  @Test
+  public void testValidators() {
+    assertTrue( resource.getEtag().startsWith( "\"" ) && resource.getEtag().endsWith( "\"" ) );
+    assertEquals( resource.getEtag(), new StaticResource( CONTENT.clone(), null, 0, false ).getEtag() );
+    assertNotEquals( resource.getEtag(), new StaticResource( new byte[ 1 ], null, 0, false ).getEtag() );
+    assertEquals( 1234000L, resource.getLastModified() );
+  }
+
+  @Test
+  public void testEtagIsComputedAgainAfterDeserialization() {
+    String etag = resource.getEtag();
+    StaticResource copy = (StaticResource) SerializationUtils.clone( resource );
+    assertEquals( etag, copy.getEtag() );
+  }
+
+  @Test
+  public void testSendWithoutEtag() throws Exception {
+    resource = new StaticResource( CONTENT, "text/javascript", 1234567L, false, false );
+    when( request.getHeader( "If-None-Match" ) ).thenReturn( new StaticResource( CONTENT, null, 0, false ).getEtag() );
+
+    assertNull( resource.getEtag() );
+    assertEquals( CONTENT.length, resource.send( request, response ) );
+
+    verify( response, never() ).setHeader( eq( "ETag" ), anyString() );
+    verify( response ).setDateHeader( "Last-Modified", 1234000L );
+    verify( out ).write( CONTENT, 0, CONTENT.length );
+  }
+
+  @Test
+  public void testSendContent() throws Exception {
+    assertEquals( CONTENT.length, resource.send( request, response ) );
+
+    verify( response ).setHeader( "ETag", resource.getEtag() );
+    verify( response ).setDateHeader( "Last-Modified", 1234000L );
+    verify( response ).setContentLength( CONTENT.length );
+    verify( response, never() ).setHeader( eq( "Content-Encoding" ), anyString() );
+    verify( out ).write( CONTENT, 0, CONTENT.length );
+  }
+
+  @Test
+  public void testSendGzipVariant() throws Exception {
+    when( request.getHeader( "Accept-Encoding" ) ).thenReturn( "deflate, gzip;q=0.8" );
+
+    long length = resource.send( request, response );
+
+    assertTrue( resource.hasGzipVariant() );
+    assertTrue( length < CONTENT.length );
+    verify( response ).setHeader( "Content-Encoding", "gzip" );
+    verify( response ).addHeader( "Vary", "Accept-Encoding" );
+    verify( response ).setContentLength( (int) length );
+    verify( response, never() ).setHeader( "ETag", resource.getEtag() );
+  }
+
+  @Test
+  public void testNotCompressed() {
+    assertFalse( new StaticResource( CONTENT, "text/javascript", 0, false ).hasGzipVariant() );
+    assertFalse( new StaticResource( CONTENT, "image/png", 0, true ).hasGzipVariant() );
+    assertFalse( new StaticResource( new byte[ 10 ], "text/css", 0, true ).hasGzipVariant() );
+    assertFalse( StaticResource.acceptsGzip( "gzip;q=0" ) );
+    assertFalse( StaticResource.acceptsGzip( null ) );
+  }
+
+  @Test
+  public void testNotModified() throws Exception {
+    when( request.getHeader( "If-None-Match" ) ).thenReturn( "\"other\", W/" + resource.getEtag() );
+
+    assertEquals( 0, resource.send( request, response ) );
+
+    verify( response ).setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+    verify( response, never() ).getOutputStream();
+  }
+
+  @Test
+  public void testModifiedEtag() throws Exception {
+    when( request.getHeader( "If-None-Match" ) ).thenReturn( "\"other\"" );
+    // the date is ignored when an ETag is given
+    when( request.getDateHeader( "If-Modified-Since" ) ).thenReturn( 2000000L );
+
+    assertEquals( CONTENT.length, resource.send( request, response ) );
+    verify( response, never() ).setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+  }
+
+  @Test
+  public void testNotModifiedSince() throws Exception {
+    when( request.getDateHeader( "If-Modified-Since" ) ).thenReturn( 1234000L );
+
+    assertEquals( 0, resource.send( request, response ) );
+    verify( response ).setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+  }
+
+  @Test
+  public void testRange() throws Exception {
+    when( request.getHeader( "Accept-Encoding" ) ).thenReturn( "gzip" );
+    when( request.getHeader( "Range" ) ).thenReturn( "bytes=10-19" );
+
+    assertEquals( 10, resource.send( request, response ) );
+
+    verify( response ).setStatus( HttpServletResponse.SC_PARTIAL_CONTENT );
+    verify( response ).setHeader( "Content-Range", "bytes 10-19/" + CONTENT.length );
+    verify( response, never() ).setHeader( "Content-Encoding", "gzip" );
+    verify( out ).write( CONTENT, 10, 10 );
+  }
+
+  @Test
+  public void testRangeNotSatisfiable() throws Exception {
+    when( request.getHeader( "Range" ) ).thenReturn( "bytes=" + CONTENT.length + "-" );
+
+    assertEquals( 0, resource.send( request, response ) );
+
+    verify( response ).setHeader( "Content-Range", "bytes */" + CONTENT.length );
+    verify( response ).sendError( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE );
+  }
+
+  @Test
+  public void testRangeIgnoredWhenChanged() throws Exception {
+    when( request.getHeader( "Range" ) ).thenReturn( "bytes=10-19" );
+    when( request.getHeader( "If-Range" ) ).thenReturn( "\"other\"" );
+
+    assertEquals( CONTENT.length, resource.send( request, response ) );
+    verify( response, never() ).setStatus( anyInt() );
+  }
+
+  @Test
+  public void testParseRange() {
+    assertArrayEquals( new long[] { 0, 99 }, StaticResource.parseRange( "bytes=0-", 100 ) );
+    assertArrayEquals( new long[] { 90, 99 }, StaticResource.parseRange( "bytes=-10", 100 ) );
+    assertArrayEquals( new long[] { 0, 99 }, StaticResource.parseRange( "bytes=-200", 100 ) );
+    assertArrayEquals( new long[] { 50, 99 }, StaticResource.parseRange( "bytes=50-500", 100 ) );
+    assertArrayEquals( new long[ 0 ], StaticResource.parseRange( "bytes=100-", 100 ) );
+    assertNull( StaticResource.parseRange( "bytes=0-1,5-6", 100 ) );
+    assertNull( StaticResource.parseRange( "items=0-1", 100 ) );
+    assertNull( StaticResource.parseRange( "bytes=a-b", 100 ) );
+    assertNull( StaticResource.parseRange( "bytes=5-1", 100 ) );
+  }
+}
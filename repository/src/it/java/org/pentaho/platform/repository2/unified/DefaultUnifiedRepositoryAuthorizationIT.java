@@ -53,6 +53,7 @@ import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -558,6 +559,56 @@ public class DefaultUnifiedRepositoryAuthorizationIT extends DefaultUnifiedRepos
         .of( RepositoryFilePermission.READ ) ) );
   }
 
+  @Test
+  public void testHasAccessOfManyPathsMatchesHasAccessOfEachPath() throws Exception {
+    loginAsSysTenantAdmin();
+    ITenant tenantAcme =
+        tenantManager.createTenant( systemTenant, TENANT_ID_ACME, tenantAdminRoleName, tenantAuthenticatedRoleName,
+            ANONYMOUS_ROLE_NAME );
+    userRoleDao.createUser( tenantAcme, USERNAME_ADMIN, PASSWORD, "", new String[] { tenantAdminRoleName } );
+
+    login( USERNAME_ADMIN, tenantAcme, new String[] { tenantAdminRoleName, tenantAuthenticatedRoleName } );
+    userRoleDao.createUser( tenantAcme, USERNAME_SUZY, PASSWORD, "", null );
+    userRoleDao.createUser( tenantAcme, USERNAME_TIFFANY, PASSWORD, "", null );
+    defaultBackingRepositoryLifecycleManager.newTenant();
+    login( USERNAME_SUZY, tenantAcme, new String[] { tenantAuthenticatedRoleName } );
+
+    String homeFolderPath = ClientRepositoryPaths.getUserHomeFolderPath( PentahoSessionHolder.getSession().getName() );
+    RepositoryFile homeFolder = repo.getFile( homeFolderPath );
+    RepositoryFile grantedFolder =
+        repo.createFolder( homeFolder.getId(), new RepositoryFile.Builder( "granted" ).folder( true ).build(), null );
+    RepositoryFile inheritedFolder = repo.createFolder( grantedFolder.getId(),
+        new RepositoryFile.Builder( "inherited" ).folder( true ).build(), null );
+    RepositoryFile deniedFolder =
+        repo.createFolder( homeFolder.getId(), new RepositoryFile.Builder( "denied" ).folder( true ).build(), null );
+    repo.updateAcl( new RepositoryFileAcl.Builder( repo.getAcl( grantedFolder.getId() ) ).entriesInheriting( false )
+        .ace( new RepositoryFileSid( userNameUtils.getPrincipleId( tenantAcme, USERNAME_SUZY ) ),
+            RepositoryFilePermission.ALL ).build() );
+    repo.updateAcl( new RepositoryFileAcl.Builder( repo.getAcl( deniedFolder.getId() ) ).entriesInheriting( false )
+        .ace( new RepositoryFileSid( userNameUtils.getPrincipleId( tenantAcme, USERNAME_TIFFANY ) ),
+            RepositoryFilePermission.READ ).build() );
+
+    String missingPath = homeFolderPath + RepositoryFile.SEPARATOR + "doesnotexist";
+    List<String> paths =
+        Arrays.asList( grantedFolder.getPath(), inheritedFolder.getPath(), deniedFolder.getPath(), missingPath );
+    EnumSet<RepositoryFilePermission> permissions = EnumSet.of( RepositoryFilePermission.READ,
+        RepositoryFilePermission.WRITE, RepositoryFilePermission.DELETE, RepositoryFilePermission.ACL_MANAGEMENT,
+        RepositoryFilePermission.ALL );
+    Map<String, EnumSet<RepositoryFilePermission>> access = repo.hasAccess( paths, permissions );
+
+    assertEquals( paths, new ArrayList<String>( access.keySet() ) );
+    for ( String path : paths ) {
+      for ( RepositoryFilePermission permission : permissions ) {
+        assertEquals( path + " " + permission, repo.hasAccess( path, EnumSet.of( permission ) ),
+            access.get( path ).contains( permission ) );
+      }
+    }
+    assertEquals( permissions, access.get( grantedFolder.getPath() ) );
+    assertEquals( permissions, access.get( inheritedFolder.getPath() ) );
+    assertFalse( access.get( deniedFolder.getPath() ).contains( RepositoryFilePermission.READ ) );
+    assertTrue( access.get( missingPath ).isEmpty() );
+  }
+
   @Test
   public void testGetEffectiveAces() throws Exception {
     loginAsSysTenantAdmin();
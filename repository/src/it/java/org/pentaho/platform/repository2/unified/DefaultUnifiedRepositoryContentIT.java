@@ -995,6 +995,69 @@ public class DefaultUnifiedRepositoryContentIT extends DefaultUnifiedRepositoryB
     assertEquals( 0, children.size() );
   }
 
+  @Test
+  public void testGetChildrenPage() throws Exception {
+    loginAsSysTenantAdmin();
+    ITenant tenantAcme =
+        tenantManager.createTenant( systemTenant, TENANT_ID_ACME, tenantAdminRoleName, tenantAuthenticatedRoleName,
+            ANONYMOUS_ROLE_NAME );
+    userRoleDao.createUser( tenantAcme, USERNAME_ADMIN, PASSWORD, "", new String[] { tenantAdminRoleName } );
+
+    login( USERNAME_ADMIN, tenantAcme, new String[] { tenantAdminRoleName, tenantAuthenticatedRoleName } );
+    userRoleDao.createUser( tenantAcme, USERNAME_SUZY, PASSWORD, "", null );
+
+    login( USERNAME_SUZY, tenantAcme, new String[] { tenantAuthenticatedRoleName } );
+
+    final String rootFolderID = String.valueOf( repo.getFile( ClientRepositoryPaths.getRootFolderPath() ).getId() );
+    RepositoryRequest request = new RepositoryRequest( rootFolderID, true, -1, null );
+    request.setSortBy( RepositoryRequest.SORT_KEY.NAME );
+    List<RepositoryFile> children = repo.getChildren( request );
+    assertEquals( 3, children.size() );
+    assertEquals( "etc", children.get( 0 ).getName() );
+    assertEquals( "home", children.get( 1 ).getName() );
+    assertEquals( "public", children.get( 2 ).getName() );
+
+    request.setOffset( 1 );
+    request.setLimit( 1 );
+    children = repo.getChildren( request );
+    assertEquals( 1, children.size() );
+    assertEquals( "home", children.get( 0 ).getName() );
+
+    request.setOffset( 3 );
+    assertTrue( repo.getChildren( request ).isEmpty() );
+  }
+
+  @Test
+  public void testGetChildrenPageSortedByTitle() throws Exception {
+    loginAsSysTenantAdmin();
+    ITenant tenantAcme =
+        tenantManager.createTenant( systemTenant, TENANT_ID_ACME, tenantAdminRoleName, tenantAuthenticatedRoleName,
+            ANONYMOUS_ROLE_NAME );
+    userRoleDao.createUser( tenantAcme, USERNAME_ADMIN, PASSWORD, "", new String[] { tenantAdminRoleName } );
+
+    login( USERNAME_ADMIN, tenantAcme, new String[] { tenantAdminRoleName, tenantAuthenticatedRoleName } );
+    userRoleDao.createUser( tenantAcme, USERNAME_SUZY, PASSWORD, "", null );
+
+    login( USERNAME_SUZY, tenantAcme, new String[] { tenantAuthenticatedRoleName } );
+
+    RepositoryFile parentFolder = repo.getFile( ClientRepositoryPaths.getUserHomeFolderPath( USERNAME_SUZY ) );
+    repo.createFolder( parentFolder.getId(), new RepositoryFile.Builder( "a" ).folder( true ).title( "Zulu" )
+        .build(), null );
+    repo.createFolder( parentFolder.getId(), new RepositoryFile.Builder( "b" ).folder( true ).build(), null );
+    repo.createFolder( parentFolder.getId(), new RepositoryFile.Builder( "c" ).folder( true ).title( "alpha" )
+        .build(), null );
+
+    RepositoryRequest request = new RepositoryRequest( String.valueOf( parentFolder.getId() ), true, -1, null );
+    request.setSortBy( RepositoryRequest.SORT_KEY.TITLE );
+    request.setOffset( 1 );
+    request.setLimit( 2 );
+    List<RepositoryFile> children = repo.getChildren( request );
+    assertEquals( 2, children.size() );
+    // the title falls back to the name when there is none
+    assertEquals( "b", children.get( 0 ).getName() );
+    assertEquals( "Zulu", children.get( 1 ).getTitle() );
+  }
+
   /**
    * A user should only be able to see his home folder (unless your the admin).
    */
@@ -1980,6 +2043,40 @@ public class DefaultUnifiedRepositoryContentIT extends DefaultUnifiedRepositoryB
     assertEquals( value5, savedMap.get( key5 ) );
   }
 
+  @Test
+  public void testFindFilesByMetadata() throws Exception {
+    loginAsSysTenantAdmin();
+    ITenant tenantAcme =
+        tenantManager.createTenant( systemTenant, TENANT_ID_ACME, tenantAdminRoleName, tenantAuthenticatedRoleName,
+            ANONYMOUS_ROLE_NAME );
+    userRoleDao.createUser( tenantAcme, USERNAME_ADMIN, PASSWORD, "", new String[] { tenantAdminRoleName } );
+
+    login( USERNAME_ADMIN, tenantAcme, new String[] { tenantAdminRoleName, tenantAuthenticatedRoleName } );
+    userRoleDao.createUser( tenantAcme, USERNAME_SUZY, PASSWORD, "", null );
+
+    login( USERNAME_SUZY, tenantAcme, new String[] { tenantAuthenticatedRoleName } );
+
+    final String parentFolderPath = ClientRepositoryPaths.getUserHomeFolderPath( USERNAME_SUZY );
+    RepositoryFile parentFolder = repo.getFile( parentFolderPath );
+    RepositoryFile newFile1 = createSampleFile( parentFolderPath, "helloworld.sample1", "sampleString1", true, 1, true );
+    RepositoryFile newFile2 = createSampleFile( parentFolderPath, "helloworld.sample2", "sampleString2", true, 2, true );
+    RepositoryFile newFile3 = createSampleFile( parentFolderPath, "helloworld.sample3", "sampleString3", true, 3, true );
+
+    Map<String, Serializable> metadataMap = new HashMap<String, Serializable>();
+    metadataMap.put( "myMetadataString", "creatorA" );
+    repo.setFileMetadata( newFile1.getId(), metadataMap );
+    repo.setFileMetadata( newFile3.getId(), metadataMap );
+    metadataMap.put( "myMetadataString", "creatorB" );
+    repo.setFileMetadata( newFile2.getId(), metadataMap );
+
+    List<RepositoryFile> files = repo.findFilesByMetadata( parentFolder.getId(), "myMetadataString", "creatorA" );
+    assertEquals( 2, files.size() );
+    assertEquals( newFile1.getId(), files.get( 0 ).getId() );
+    assertEquals( newFile3.getId(), files.get( 1 ).getId() );
+
+    assertTrue( repo.findFilesByMetadata( parentFolder.getId(), "myMetadataString", "creatorC" ).isEmpty() );
+  }
+
   @Test
   public void testFileCreator() throws Exception {
     loginAsSysTenantAdmin();
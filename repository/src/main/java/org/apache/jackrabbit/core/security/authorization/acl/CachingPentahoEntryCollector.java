@@ -13,6 +13,9 @@
 
 package org.apache.jackrabbit.core.security.authorization.acl;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.collections4.map.LRUMap;
 import org.apache.jackrabbit.core.NodeImpl;
 import org.apache.jackrabbit.core.SessionImpl;
@@ -28,11 +31,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.jcr.RepositoryException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -40,6 +47,10 @@ import java.util.regex.Pattern;
  * <code>CachingEntryCollector</code> extends <code>PentahoEntryCollector</code> by keeping a cache of ACEs per access
  * controlled nodeId.
  * <p/>
+ * Besides the cache of each Pentaho session, entries that do not depend on the user they were collected for are kept
+ * in a cache shared by all sessions. Shared entries are only used for users to whom no magic ACE definition applies at
+ * the path of the entries, and the shared cache is cleared on any access control modification.
+ * <p/>
  * This class is a copy of the one in trunk of Jackrabbit. Backported here for performance reasons.
  */
 public class CachingPentahoEntryCollector extends PentahoEntryCollector {
@@ -55,6 +66,17 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
   private final Map<IPentahoSession, ConcurrentMap<NodeId, FutureEntries>> futuresBySession = Collections
       .synchronizedMap( new LRUMap<IPentahoSession, ConcurrentMap<NodeId, FutureEntries>>( 512, 128 ) );
 
+  private static final Set<CachingPentahoEntryCollector> instances = Collections.synchronizedSet(
+      Collections.newSetFromMap( new WeakHashMap<CachingPentahoEntryCollector, Boolean>() ) );
+
+  private final Cache<NodeId, PentahoEntries> sharedEntries;
+
+  private final AtomicLong sharedEntriesGeneration = new AtomicLong();
+
+  private final AtomicLong sharedHitCount = new AtomicLong();
+
+  private final AtomicLong sharedMissCount = new AtomicLong();
+
   /**
    * Create a new instance.
    *
@@ -77,6 +99,96 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
     } );
 
     cacheManager = PentahoSystem.getCacheManager( null ); // not session instanced
+
+    int sharedMaxSize = 10000;
+    String propname = "org.apache.jackrabbit.core.security.authorization.acl.CachingEntryCollector.sharedMaxsize";
+    try {
+      sharedMaxSize = Integer.parseInt( System.getProperty( propname, Integer.toString( sharedMaxSize ) ) );
+    } catch ( NumberFormatException ex ) {
+      log.debug( "Parsing system property " + propname + " with value: " + System.getProperty( propname ), ex );
+    }
+
+    log.info( "Creating shared cache with max size of: " + sharedMaxSize );
+    sharedEntries = CacheBuilder.newBuilder().maximumSize( sharedMaxSize ).build();
+    instances.add( this );
+  }
+
+  /**
+   * Clears the shared entries of all caching entry collectors. To be called when an ACL is modified, so that the
+   * change is visible at once, rather than only after the access control modifications are observed.
+   */
+  public static void invalidateSharedEntries() {
+    synchronized ( instances ) {
+      for ( CachingPentahoEntryCollector collector : instances ) {
+        collector.clearSharedEntries();
+      }
+    }
+  }
+
+  /**
+   * Gets all open caching entry collectors, so that the metrics of their shared caches can be published.
+   *
+   * @return A copy of the open caching entry collectors.
+   */
+  public static Collection<CachingPentahoEntryCollector> getAll() {
+    synchronized ( instances ) {
+      return new ArrayList<>( instances );
+    }
+  }
+
+  /**
+   * Gets the number of lookups that were served by the shared cache.
+   */
+  public long getSharedCacheHitCount() {
+    return sharedHitCount.get();
+  }
+
+  /**
+   * Gets the number of lookups that could not be served by the shared cache.
+   */
+  public long getSharedCacheMissCount() {
+    return sharedMissCount.get();
+  }
+
+  /**
+   * Gets the ratio of lookups that were served by the shared cache, or {@code 0} if there were no lookups.
+   */
+  public double getSharedCacheHitRate() {
+    long hits = sharedHitCount.get();
+    long lookups = hits + sharedMissCount.get();
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  /**
+   * Gets the number of entries in the shared cache.
+   */
+  public long getSharedCacheSize() {
+    return sharedEntries.size();
+  }
+
+  private void clearSharedEntries() {
+    synchronized ( sharedEntries ) {
+      sharedEntriesGeneration.incrementAndGet();
+      sharedEntries.invalidateAll();
+    }
+    if ( log.isDebugEnabled() ) {
+      log.debug( "Cleared shared ACL entries; hit rate: " + getSharedCacheHitRate() + ", hits: "
+          + getSharedCacheHitCount() + ", misses: " + getSharedCacheMissCount() );
+    }
+  }
+
+  /**
+   * Gets the shared entries of a node, if they are valid for the current user.
+   */
+  private PentahoEntries getSharedEntries( NodeId nodeId ) throws RepositoryException {
+    PentahoEntries entries = sharedEntries.getIfPresent( nodeId );
+    if ( entries != null && hasPentahoSession() && !hasMagicAces( entries.getMagicAcePath() ) ) {
+      sharedHitCount.incrementAndGet();
+      return entries;
+    }
+
+    sharedMissCount.incrementAndGet();
+    return null;
   }
 
   private void flushCachesOfSession( IPentahoSession iPentahoSession ) {
@@ -116,6 +228,9 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
   protected void close() {
     super.close();
 
+    instances.remove( this );
+    clearSharedEntries();
+
     performAgainstAllInCache( new CacheCallable() {
       @Override public void call( EntryCache cache ) {
         cache.clear();
@@ -140,6 +255,12 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
   protected PentahoEntries getEntries( NodeImpl node ) throws RepositoryException {
     NodeId nodeId = node.getNodeId();
     Entries entries = getCache().get( nodeId );
+    if ( entries == null ) {
+      entries = getSharedEntries( nodeId );
+      if ( entries != null ) {
+        getCache().put( nodeId, entries );
+      }
+    }
     if ( entries == null ) {
       // fetch entries and update the cache
       entries = updateCache( node );
@@ -153,6 +274,12 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
   @Override
   protected Entries getEntries( NodeId nodeId ) throws RepositoryException {
     Entries entries = getCache().get( nodeId );
+    if ( entries == null ) {
+      entries = getSharedEntries( nodeId );
+      if ( entries != null ) {
+        getCache().put( nodeId, entries );
+      }
+    }
     if ( entries == null ) {
       // fetch entries and update the cache
       NodeImpl n = getNodeById( nodeId );
@@ -169,16 +296,34 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
    * @throws RepositoryException If an error occurs.
    */
   private Entries internalUpdateCache( NodeImpl node ) throws RepositoryException {
-    Entries entries = super.getEntries( node );
+    long generation = sharedEntriesGeneration.get();
+    PentahoEntries entries = collectEntries( node );
     if ( ( isRootId( node.getNodeId() ) && getCache().specialCasesRoot() ) || !entries.isEmpty() ) {
       // adjust the 'nextId' to point to the next access controlled
       // ancestor node instead of the parent and remember the entries.
       // entries.setNextId(getNextID(node));
       getCache().put( node.getNodeId(), entries );
+
+      if ( entries.getMagicAcePath() != null ) {
+        synchronized ( sharedEntries ) {
+          // skip entries collected before an access control modification
+          if ( generation == sharedEntriesGeneration.get() ) {
+            sharedEntries.put( node.getNodeId(), entries );
+          }
+        }
+      }
     } // else: not access controlled -> ignore.
     return entries;
   }
 
+  /**
+   * Collects the entries of the given node, bypassing the caches.
+   */
+  @VisibleForTesting
+  PentahoEntries collectEntries( NodeImpl node ) throws RepositoryException {
+    return super.getEntries( node );
+  }
+
   /**
    * Update cache for the given node id
    *
@@ -312,6 +457,11 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
   @Override
   @SuppressWarnings( "unchecked" )
   public void notifyListeners( AccessControlModifications modifications ) {
+    // shared entries of inheriting descendants are affected as well
+    if ( !modifications.getNodeIdentifiers().isEmpty() ) {
+      clearSharedEntries();
+    }
+
     /* Update cache for all affected access controlled nodes */
     for ( Object key : modifications.getNodeIdentifiers() ) {
       if ( !( key instanceof NodeId ) ) {
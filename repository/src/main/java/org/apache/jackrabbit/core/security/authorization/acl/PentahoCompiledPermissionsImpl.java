@@ -13,6 +13,8 @@
 
 package org.apache.jackrabbit.core.security.authorization.acl;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.jackrabbit.api.JackrabbitWorkspace;
 import org.apache.jackrabbit.core.ItemManager;
 import org.apache.jackrabbit.core.NodeImpl;
@@ -30,23 +32,34 @@ import org.apache.jackrabbit.core.security.authorization.Permission;
 import org.apache.jackrabbit.core.security.authorization.PrivilegeBits;
 import org.apache.jackrabbit.core.security.authorization.PrivilegeManagerImpl;
 import org.apache.jackrabbit.core.security.authorization.PrivilegeRegistry;
+import org.apache.jackrabbit.core.security.principal.EveryonePrincipal;
 import org.apache.jackrabbit.spi.Name;
 import org.apache.jackrabbit.spi.Path;
 import org.apache.jackrabbit.util.Text;
+import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.repository2.unified.ServerRepositoryPaths;
 import org.pentaho.platform.repository2.unified.jcr.JcrRepositoryFileAclUtils;
 import org.pentaho.platform.repository2.unified.jcr.JcrRepositoryFileUtils;
 import org.pentaho.platform.repository2.unified.jcr.PentahoJcrConstants;
+import org.pentaho.platform.repository2.unified.jcr.jackrabbit.security.SpringSecurityRolePrincipal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.jcr.ItemNotFoundException;
 import javax.jcr.RepositoryException;
 import java.security.Principal;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A copy-paste of {@code CompiledPermissionsImpl} modified with more lenient locking on cache to prevent deadlocks
@@ -54,15 +67,33 @@ import java.util.Set;
  * href="http://jira.pentaho.com/browse/BISERVER-8382">BISERVER-8382</a><br/>
  * This shouldn't differ from {@code CompiledPermissionsImpl} except for the extra lock and the
  * <code>synchronized</code> changes within {@link #canRead(Path, ItemId)}
+ * <p/>
+ * Results for existing items are also kept in a cache shared by the instances using the same entry collector, that is
+ * by the sessions of a workspace of one repository, keyed by the principal names of the session, the name of the
+ * Pentaho session user and the item id. A result is in addition shared by all sessions with the same group principals,
+ * as long as no entry of the item applies to the user principals of the session. The shared cache is cleared on any
+ * access control modification, and by {@link #invalidateSharedCache()}.
  *
  * @see CompiledPermissionsImpl
  */
 public class PentahoCompiledPermissionsImpl extends AbstractCompiledPermissions implements AccessControlListener {
 
+  private static final Logger log = LoggerFactory.getLogger( PentahoCompiledPermissionsImpl.class );
+
+  /**
+   * Shared caches by entry collector. Weak keys, so that the caches of a shut down repository are discarded with it.
+   */
+  private static final Map<EntryCollector, SharedCache> sharedCaches =
+    Collections.synchronizedMap( new WeakHashMap<EntryCollector, SharedCache>() );
+
   private final List<String> principalNames;
+  private final Set<String> principalNameSet;
+  private final Set<String> groupPrincipalNames;
+  private final List<String> userPrincipalNames;
   private final SessionImpl session;
   private final EntryCollector entryCollector;
   private final AccessControlUtils util;
+  private final SharedCache sharedCache;
 
   /*
    * Start with initial map size of 1024 and grow up to 5000 before removing LRU items.
@@ -77,11 +108,21 @@ public class PentahoCompiledPermissionsImpl extends AbstractCompiledPermissions
     this.session = session;
     this.entryCollector = entryCollector;
     this.util = util;
+    this.sharedCache = sharedCaches.computeIfAbsent( entryCollector, key -> new SharedCache() );
 
     principalNames = new ArrayList<String>( principals.size() );
+    Set<String> groupNames = new HashSet<String>();
+    userPrincipalNames = new ArrayList<String>();
     for ( Principal princ : principals ) {
       principalNames.add( princ.getName() );
+      if ( princ instanceof SpringSecurityRolePrincipal || princ instanceof EveryonePrincipal ) {
+        groupNames.add( princ.getName() );
+      } else {
+        userPrincipalNames.add( princ.getName() );
+      }
     }
+    principalNameSet = Collections.unmodifiableSet( new HashSet<String>( principalNames ) );
+    groupPrincipalNames = Collections.unmodifiableSet( groupNames );
 
     if ( listenToEvents ) {
       /*
@@ -207,7 +248,19 @@ public class PentahoCompiledPermissionsImpl extends AbstractCompiledPermissions
     }
 
     boolean isAcItem = util.isAcItem( absPath );
-    return buildResult( node, existingNode, isAcItem, new PentahoEntryFilterImpl( principalNames, absPath, session ) );
+    if ( !existingNode ) {
+      return buildResult( node, false, isAcItem, new PentahoEntryFilterImpl( principalNames, absPath, session ) );
+    }
+
+    SharedLookup lookup = lookupShared( node, node.getNodeId(), isAcItem );
+    Result result = lookup == null ? null : lookup.get( sharedCache.results );
+    if ( result == null ) {
+      result = buildResult( node, true, isAcItem, new PentahoEntryFilterImpl( principalNames, absPath, session ) );
+      if ( lookup != null ) {
+        lookup.put( sharedCache.results, result );
+      }
+    }
+    return result;
   }
 
   @Override
@@ -270,6 +323,15 @@ public class PentahoCompiledPermissionsImpl extends AbstractCompiledPermissions
     NodeImpl node = (NodeImpl) itemMgr.getItem( nodeId );
 
     boolean isAcItem = util.isAcItem( node );
+    SharedLookup lookup = lookupShared( node, id, isAcItem );
+    Boolean sharedCanRead = lookup == null ? null : lookup.get( sharedCache.reads );
+    if ( sharedCanRead != null ) {
+      synchronized ( monitor ) {
+        readCache.put( id, sharedCanRead );
+      }
+      return sharedCanRead;
+    }
+
     EntryFilterImpl filter;
     if ( path == null ) {
       filter = new PentahoEntryFilterImpl( principalNames, id, session );
@@ -314,6 +376,9 @@ public class PentahoCompiledPermissionsImpl extends AbstractCompiledPermissions
     synchronized ( monitor ) {
       readCache.put( id, canRead );
     }
+    if ( lookup != null ) {
+      lookup.put( sharedCache.reads, canRead );
+    }
     // } // readMonitor
     return canRead;
   }
@@ -326,9 +391,176 @@ public class PentahoCompiledPermissionsImpl extends AbstractCompiledPermissions
    */
   public void acModified( AccessControlModifications modifications ) {
     // ignore the details of the modifications and clear all caches.
+    sharedCache.invalidate();
     clearCache();
   }
 
+  // ----------------------------------------------------< shared cache >---
+
+  /**
+   * Clears the results shared by all compiled permissions, in every repository. To be called when an ACL is modified.
+   * Changes of role bindings need no invalidation, as results are shared by principal set.
+   */
+  public static void invalidateSharedCache() {
+    synchronized ( sharedCaches ) {
+      for ( SharedCache cache : sharedCaches.values() ) {
+        cache.invalidate();
+      }
+    }
+    log.debug( "Cleared shared compiled permissions" );
+  }
+
+  private static <T> Cache<SharedCacheKey, T> createSharedCache() {
+    int maxsize = 20000;
+    String propname =
+      "org.apache.jackrabbit.core.security.authorization.acl.PentahoCompiledPermissionsImpl.sharedMaxsize";
+    try {
+      maxsize = Integer.parseInt( System.getProperty( propname, Integer.toString( maxsize ) ) );
+    } catch ( NumberFormatException ex ) {
+      log.debug( "Parsing system property " + propname + " with value: " + System.getProperty( propname ), ex );
+    }
+    return CacheBuilder.newBuilder().maximumSize( maxsize ).build();
+  }
+
+  /**
+   * Starts looking up the shared values of an item.
+   *
+   * @return The lookup, or null if values cannot be shared without a Pentaho session.
+   */
+  private SharedLookup lookupShared( NodeImpl node, ItemId id, boolean isAcItem ) {
+    String pentahoUserName = getPentahoUserName();
+    return pentahoUserName == null ? null : new SharedLookup( node, id, isAcItem, pentahoUserName );
+  }
+
+  /**
+   * Checks whether any entry of the given item applies to the user principals of this session, including the ACEs
+   * given to the owner or by magic ACE definitions. Without such entries, the permissions only depend on the group
+   * principals of the session.
+   */
+  private boolean hasUserEntries( NodeImpl node, ItemId id, boolean isAcItem ) throws RepositoryException {
+    if ( userPrincipalNames.isEmpty() ) {
+      return false;
+    }
+    NodeImpl n = ACLProvider.getNode( node, isAcItem );
+    return !entryCollector.collectEntries( n, new PentahoEntryFilterImpl( userPrincipalNames, id, session ) )
+      .isEmpty();
+  }
+
+  /**
+   * Entries include magic ACEs for the Pentaho session user, so results are only shared while there is one.
+   */
+  private static String getPentahoUserName() {
+    IPentahoSession pentahoSession = PentahoSessionHolder.getSession();
+    if ( pentahoSession == null || pentahoSession.getId() == null || pentahoSession.getId().trim().isEmpty() ) {
+      return null;
+    }
+    return pentahoSession.getName();
+  }
+
+  /**
+   * The values shared by the compiled permissions of one entry collector.
+   */
+  private static final class SharedCache {
+    private final Cache<SharedCacheKey, Result> results = createSharedCache();
+    private final Cache<SharedCacheKey, Boolean> reads = createSharedCache();
+    private final AtomicLong generation = new AtomicLong();
+
+    void invalidate() {
+      synchronized ( generation ) {
+        generation.incrementAndGet();
+        results.invalidateAll();
+        reads.invalidateAll();
+      }
+    }
+  }
+
+  /**
+   * The lookup of the shared values of an item, first for the principals of this session, and then for its group
+   * principals, if no entry of the item applies to its user principals. Whether there are such entries is checked at
+   * most once per lookup, and the value computed after a miss is stored under the same keys.
+   */
+  private final class SharedLookup {
+    private final NodeImpl node;
+    private final ItemId id;
+    private final boolean isAcItem;
+    private final SharedCacheKey principalsKey;
+    private final long generation;
+    private Boolean hasUserEntries;
+
+    SharedLookup( NodeImpl node, ItemId id, boolean isAcItem, String pentahoUserName ) {
+      this.node = node;
+      this.id = id;
+      this.isAcItem = isAcItem;
+      this.principalsKey = new SharedCacheKey( principalNameSet, pentahoUserName, id, isAcItem );
+      this.generation = sharedCache.generation.get();
+    }
+
+    <T> T get( Cache<SharedCacheKey, T> cache ) throws RepositoryException {
+      T value = cache.getIfPresent( principalsKey );
+      if ( value == null && !hasUserEntries() ) {
+        value = cache.getIfPresent( groupsKey() );
+      }
+      return value;
+    }
+
+    <T> void put( Cache<SharedCacheKey, T> cache, T value ) throws RepositoryException {
+      boolean groupsOnly = !hasUserEntries();
+      synchronized ( sharedCache.generation ) {
+        // skip values computed before an access control modification
+        if ( generation != sharedCache.generation.get() ) {
+          return;
+        }
+        cache.put( principalsKey, value );
+        if ( groupsOnly ) {
+          cache.put( groupsKey(), value );
+        }
+      }
+    }
+
+    private boolean hasUserEntries() throws RepositoryException {
+      if ( hasUserEntries == null ) {
+        hasUserEntries = PentahoCompiledPermissionsImpl.this.hasUserEntries( node, id, isAcItem );
+      }
+      return hasUserEntries;
+    }
+
+    private SharedCacheKey groupsKey() {
+      return new SharedCacheKey( groupPrincipalNames, null, id, isAcItem );
+    }
+  }
+
+  private static final class SharedCacheKey {
+    private final Set<String> principalNames;
+    private final String pentahoUserName;
+    private final ItemId itemId;
+    private final boolean isAcItem;
+
+    SharedCacheKey( Set<String> principalNames, String pentahoUserName, ItemId itemId, boolean isAcItem ) {
+      this.principalNames = principalNames;
+      this.pentahoUserName = pentahoUserName;
+      this.itemId = itemId;
+      this.isAcItem = isAcItem;
+    }
+
+    @Override
+    public boolean equals( Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( !( o instanceof SharedCacheKey ) ) {
+        return false;
+      }
+      SharedCacheKey that = (SharedCacheKey) o;
+      return isAcItem == that.isAcItem && itemId.equals( that.itemId )
+        && Objects.equals( pentahoUserName, that.pentahoUserName ) && principalNames.equals( that.principalNames );
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash( principalNames, pentahoUserName, itemId, isAcItem );
+    }
+  }
+
   /**
    * Returns stored entriesInheriting flag for given node
    */
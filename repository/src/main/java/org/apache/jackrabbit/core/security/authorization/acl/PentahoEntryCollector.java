@@ -201,7 +201,16 @@ public class PentahoEntryCollector extends EntryCollector {
     // ancestorAcl points to first ancestor of ACL that is access-controlled and is not inheriting--possibly null
     // owner is an owner string--possibly null
 
-    return new PentahoEntries( getAcesIncludingMagicAces( currentNode.getPath(), owner, ancestorAcl, acl ), null );
+    List<PentahoEntry> aces = getAcesIncludingMagicAces( currentNode.getPath(), owner, ancestorAcl, acl );
+
+    // without ancestor ACEs, which may carry magic ACEs of the ancestors, and without magic ACEs for the current user,
+    // the entries are the same for every user to whom no magic ACE definition applies at the path of the ACL
+    String magicAcePath = null;
+    if ( ancestorAcl == null && hasPentahoSession() && !hasMagicAces( currentNode.getPath() ) ) {
+      magicAcePath = currentNode.getPath();
+    }
+
+    return new PentahoEntries( aces, null, magicAcePath );
   }
 
   /**
@@ -247,8 +256,7 @@ public class PentahoEntryCollector extends EntryCollector {
   protected List<PentahoEntry> getAcesIncludingMagicAces( final String path, final String owner,
                                                                 final ACLTemplate ancestorAcl, final ACLTemplate acl )
     throws RepositoryException {
-    if ( PentahoSessionHolder.getSession() == null || PentahoSessionHolder.getSession().getId() == null
-        || PentahoSessionHolder.getSession().getId().trim().equals( "" ) ) { //$NON-NLS-1$
+    if ( !hasPentahoSession() ) {
       if ( log.isDebugEnabled() ) {
         log.debug( "no PentahoSession so no magic ACEs" ); //$NON-NLS-1$
       }
@@ -258,43 +266,11 @@ public class PentahoEntryCollector extends EntryCollector {
       addOwnerAce( owner, acl );
     }
 
-    boolean match = false;
-    IRoleAuthorizationPolicyRoleBindingDao roleBindingDao = null;
-    try {
-      roleBindingDao =
-        PentahoSystem.getObjectFactory().get( IRoleAuthorizationPolicyRoleBindingDao.class,
-          "roleAuthorizationPolicyRoleBindingDaoTarget", PentahoSessionHolder.getSession() );
-    } catch ( ObjectFactoryException e ) {
-      e.printStackTrace();
-    }
+    IRoleAuthorizationPolicyRoleBindingDao roleBindingDao = getMagicAceRoleBindingDao();
 
     ITenant tenant = JcrTenantUtils.getTenant();
     for ( final MagicAceDefinition def : getMagicAceDefinitions() ) {
-      match = false;
-
-      String substitutedPath = MessageFormat.format( def.path, tenant.getRootFolderAbsolutePath() );
-      if ( isAllowed( roleBindingDao, def.logicalRole ) ) {
-        if ( def.applyToTarget ) {
-          match = path.equals( substitutedPath );
-        }
-        if ( !match && def.applyToChildren ) {
-          match = path.startsWith( substitutedPath + "/" );
-          // check to see if we should exclude the match due to the exclude list
-          if ( match && def.exceptChildren != null ) {
-            for ( String childPath : def.exceptChildren ) {
-              String substitutedChildPath = MessageFormat.format( childPath, tenant.getRootFolderAbsolutePath() );
-              if ( path.startsWith( substitutedChildPath + "/" ) ) {
-                match = false;
-                break;
-              }
-            }
-          }
-        }
-        if ( !match && def.applyToAncestors ) {
-          match = substitutedPath.startsWith( path + "/" );
-        }
-      }
-      if ( match ) {
+      if ( isMagicAceDefinitionMatch( def, path, tenant ) && isAllowed( roleBindingDao, def.logicalRole ) ) {
         Principal principal =
             new MagicPrincipal( JcrTenantUtils.getTenantedUser( PentahoSessionHolder.getSession().getName() ) );
         // unfortunately, we need the ACLTemplate because it alone can create ACEs that can be cast successfully
@@ -311,6 +287,79 @@ public class PentahoEntryCollector extends EntryCollector {
     return acEntries;
   }
 
+  /**
+   * Checks whether the current user is given any magic ACEs on the given path.
+   *
+   * @param path the path of an access-controlled node
+   * @return {@code true} if a magic ACE definition matching the path applies to the current user
+   */
+  protected boolean hasMagicAces( final String path ) throws RepositoryException {
+    if ( !hasPentahoSession() ) {
+      return false;
+    }
+
+    IRoleAuthorizationPolicyRoleBindingDao roleBindingDao = null;
+    ITenant tenant = JcrTenantUtils.getTenant();
+    for ( final MagicAceDefinition def : getMagicAceDefinitions() ) {
+      if ( isMagicAceDefinitionMatch( def, path, tenant ) ) {
+        if ( roleBindingDao == null ) {
+          roleBindingDao = getMagicAceRoleBindingDao();
+        }
+        if ( isAllowed( roleBindingDao, def.logicalRole ) ) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  protected boolean hasPentahoSession() {
+    IPentahoSession pentahoSession = PentahoSessionHolder.getSession();
+    return pentahoSession != null && pentahoSession.getId() != null
+        && !pentahoSession.getId().trim().equals( "" ); //$NON-NLS-1$
+  }
+
+  private IRoleAuthorizationPolicyRoleBindingDao getMagicAceRoleBindingDao() {
+    IRoleAuthorizationPolicyRoleBindingDao roleBindingDao = null;
+    try {
+      roleBindingDao =
+        PentahoSystem.getObjectFactory().get( IRoleAuthorizationPolicyRoleBindingDao.class,
+          "roleAuthorizationPolicyRoleBindingDaoTarget", PentahoSessionHolder.getSession() );
+    } catch ( ObjectFactoryException e ) {
+      e.printStackTrace();
+    }
+    return roleBindingDao;
+  }
+
+  /**
+   * Checks whether the path of a magic ACE definition, within the given tenant, matches the given path.
+   */
+  private boolean isMagicAceDefinitionMatch( final MagicAceDefinition def, final String path, final ITenant tenant ) {
+    boolean match = false;
+
+    String substitutedPath = MessageFormat.format( def.path, tenant.getRootFolderAbsolutePath() );
+    if ( def.applyToTarget ) {
+      match = path.equals( substitutedPath );
+    }
+    if ( !match && def.applyToChildren ) {
+      match = path.startsWith( substitutedPath + "/" );
+      // check to see if we should exclude the match due to the exclude list
+      if ( match && def.exceptChildren != null ) {
+        for ( String childPath : def.exceptChildren ) {
+          String substitutedChildPath = MessageFormat.format( childPath, tenant.getRootFolderAbsolutePath() );
+          if ( path.startsWith( substitutedChildPath + "/" ) ) {
+            match = false;
+            break;
+          }
+        }
+      }
+    }
+    if ( !match && def.applyToAncestors ) {
+      match = substitutedPath.startsWith( path + "/" );
+    }
+    return match;
+  }
+
   /**
    * Selects (and modifies) ACEs containing JCR_ADD_CHILD_NODES or JCR_REMOVE_CHILD_NODES privileges from the given
    * ACL.
@@ -540,15 +589,34 @@ public class PentahoEntryCollector extends EntryCollector {
 
     private List<PentahoEntry> aces;
 
+    private final String magicAcePath;
+
     @SuppressWarnings( { "rawtypes", "unchecked" } )
     PentahoEntries( List aces, NodeId nextId  ) {
+      this( aces, nextId, null );
+    }
+
+    @SuppressWarnings( { "rawtypes", "unchecked" } )
+    PentahoEntries( List aces, NodeId nextId, String magicAcePath ) {
       super( null, nextId );
       this.aces = (List<PentahoEntry>) aces;
+      this.magicAcePath = magicAcePath;
     }
 
     PentahoEntries( Entries e  ) {
       super( e.getACEs(), e.getNextId() );
       this.aces = new ArrayList<PentahoEntry>();
+      this.magicAcePath = null;
+    }
+
+    /**
+     * Gets the path at which magic ACE definitions were evaluated, when the entries are the same for every user to whom
+     * no magic ACE definition applies at that path.
+     *
+     * @return the path, or {@code null} if the entries are specific to the user they were collected for
+     */
+    String getMagicAcePath() {
+      return magicAcePath;
     }
 
     @SuppressWarnings( { "unchecked", "rawtypes" } )
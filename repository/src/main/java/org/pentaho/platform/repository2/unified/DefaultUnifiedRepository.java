@@ -88,6 +88,16 @@ public class DefaultUnifiedRepository implements IUnifiedRepository {
     return repositoryFileAclDao.hasAccess( path, permissions );
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Map<String, EnumSet<RepositoryFilePermission>> hasAccess( final List<String> paths,
+      final EnumSet<RepositoryFilePermission> permissions ) {
+    Assert.notNull( paths, "Paths must not be null" );
+    return repositoryFileAclDao.hasAccess( paths, permissions );
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -535,6 +545,18 @@ public class DefaultUnifiedRepository implements IUnifiedRepository {
     return repositoryFileDao.getFileMetadata( fileId );
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<RepositoryFile> findFilesByMetadata( final Serializable folderId, final String metadataKey,
+      final String metadataValue ) {
+    Assert.notNull( folderId, "Folder ID must not be null" );
+    Assert.hasText( metadataKey, "Metadata key must not be empty" );
+    Assert.notNull( metadataValue, "Metadata value must not be null" );
+    return repositoryFileDao.findFilesByMetadata( folderId, metadataKey, metadataValue );
+  }
+
   public List<Character> getReservedChars() {
     return repositoryFileDao.getReservedChars();
   }
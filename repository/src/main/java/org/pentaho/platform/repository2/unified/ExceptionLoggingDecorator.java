@@ -378,6 +378,16 @@ public class ExceptionLoggingDecorator implements IUnifiedRepository {
     }, Messages.getInstance().getString( "ExceptionLoggingDecorator.hasAccess", path ) ); //$NON-NLS-1$
   }
 
+  @Override
+  public Map<String, EnumSet<RepositoryFilePermission>> hasAccess( final List<String> paths,
+      final EnumSet<RepositoryFilePermission> permissions ) {
+    return callLogThrow( new Callable<Map<String, EnumSet<RepositoryFilePermission>>>() {
+      public Map<String, EnumSet<RepositoryFilePermission>> call() throws Exception {
+        return delegatee.hasAccess( paths, permissions );
+      }
+    }, Messages.getInstance().getString( "ExceptionLoggingDecorator.hasAccess", paths ) ); //$NON-NLS-1$
+  }
+
   public void lockFile( final Serializable fileId, final String message ) {
     callLogThrow( new Callable<Void>() {
       public Void call() throws Exception {
@@ -589,6 +599,17 @@ public class ExceptionLoggingDecorator implements IUnifiedRepository {
     }, Messages.getInstance().getString( "ExceptionLoggingDecorator.getFileMetadata", fileId ) ); //$NON-NLS-1$
   }
 
+  @Override
+  public List<RepositoryFile> findFilesByMetadata( final Serializable folderId, final String metadataKey,
+      final String metadataValue ) {
+    return callLogThrow( new Callable<List<RepositoryFile>>() {
+      public List<RepositoryFile> call() throws Exception {
+        return delegatee.findFilesByMetadata( folderId, metadataKey, metadataValue );
+      }
+    }, Messages.getInstance().getString( "ExceptionLoggingDecorator.findFilesByMetadata", folderId, //$NON-NLS-1$
+        metadataKey ) );
+  }
+
   public List<Character> getReservedChars() {
     return callLogThrow( new Callable<List<Character>>() {
       public List<Character> call() throws Exception {
@@ -20,7 +20,9 @@ import org.pentaho.platform.api.repository2.unified.RepositoryFileSid;
 
 import java.io.Serializable;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A data access object for reading and writing {@code RepositoryFileAcl} instances. The methods in this interface
@@ -55,6 +57,30 @@ public interface IRepositoryFileAclDao {
    */
   boolean hasAccess( final String relPath, final EnumSet<RepositoryFilePermission> permissions );
 
+  /**
+   * Returns the permissions the user has on each path, among those given.
+   * 
+   * @param relPaths
+   *          paths to files or folders
+   * @param permissions
+   *          permissions to check, each on its own
+   * @return for each path, in order, the permissions the user has; no permission if the path does not exist
+   */
+  default Map<String, EnumSet<RepositoryFilePermission>> hasAccess( final List<String> relPaths,
+      final EnumSet<RepositoryFilePermission> permissions ) {
+    Map<String, EnumSet<RepositoryFilePermission>> access = new LinkedHashMap<>();
+    for ( String relPath : relPaths ) {
+      EnumSet<RepositoryFilePermission> granted = EnumSet.noneOf( RepositoryFilePermission.class );
+      for ( RepositoryFilePermission permission : permissions ) {
+        if ( hasAccess( relPath, EnumSet.of( permission ) ) ) {
+          granted.add( permission );
+        }
+      }
+      access.put( relPath, granted );
+    }
+    return access;
+  }
+
   /**
    * Returns ACL for file.
    * 
@@ -14,6 +14,7 @@
 package org.pentaho.platform.repository2.unified;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -117,6 +118,17 @@ public interface IRepositoryFileDao {
 
   Map<String, Serializable> getFileMetadata( final Serializable fileId );
 
+  default List<RepositoryFile> findFilesByMetadata( final Serializable folderId, final String metadataKey,
+      final String metadataValue ) {
+    List<RepositoryFile> files = new ArrayList<RepositoryFile>();
+    for ( RepositoryFile child : getChildren( folderId, null, null ) ) {
+      if ( !child.isFolder() && metadataValue.equals( getFileMetadata( child.getId() ).get( metadataKey ) ) ) {
+        files.add( child );
+      }
+    }
+    return files;
+  }
+
   List<Character> getReservedChars();
 
   List<Locale> getAvailableLocalesForFileById( final Serializable fileId );
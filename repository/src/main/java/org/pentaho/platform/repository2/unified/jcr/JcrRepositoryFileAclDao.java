@@ -15,6 +15,8 @@ package org.pentaho.platform.repository2.unified.jcr;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.jackrabbit.core.security.authorization.acl.CachingPentahoEntryCollector;
+import org.apache.jackrabbit.core.security.authorization.acl.PentahoCompiledPermissionsImpl;
 import org.pentaho.platform.api.mt.ITenant;
 import org.pentaho.platform.api.repository2.unified.RepositoryFileAce;
 import org.pentaho.platform.api.repository2.unified.RepositoryFileAcl;
@@ -46,8 +48,13 @@ import java.io.Serializable;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Jackrabbit-based implementation of {@link IRepositoryFileAclDao}.
@@ -189,6 +196,68 @@ public class JcrRepositoryFileAclDao implements IRepositoryFileAclDao {
     } );
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * All the paths are checked in one session, and the privileges of each node are read once, then matched against
+   * those needed by each permission.
+   */
+  @Override
+  @SuppressWarnings( "unchecked" )
+  public Map<String, EnumSet<RepositoryFilePermission>> hasAccess( final List<String> relPaths,
+      final EnumSet<RepositoryFilePermission> permissions ) {
+    return (Map<String, EnumSet<RepositoryFilePermission>>) jcrTemplate.execute( new JcrCallback() {
+      public Object doInJcr( final Session session ) throws RepositoryException, IOException {
+        DefaultPermissionConversionHelper permissionConversionHelper = new DefaultPermissionConversionHelper( session );
+        Map<RepositoryFilePermission, Set<String>> permissionPrivileges =
+            new EnumMap<>( RepositoryFilePermission.class );
+        for ( RepositoryFilePermission permission : permissions ) {
+          permissionPrivileges.put( permission, toPrivilegeNames(
+            permissionConversionHelper.pentahoPermissionsToPrivileges( session, EnumSet.of( permission ) ) ) );
+        }
+
+        AccessControlManager acMgr = session.getAccessControlManager();
+        Map<String, EnumSet<RepositoryFilePermission>> access = new LinkedHashMap<>();
+        for ( String relPath : relPaths ) {
+          EnumSet<RepositoryFilePermission> granted = EnumSet.noneOf( RepositoryFilePermission.class );
+          try {
+            String absPath = pathConversionHelper.relToAbs( relPath );
+            Set<String> privileges = toPrivilegeNames( acMgr.getPrivileges( JcrStringHelper.pathEncode( absPath ) ) );
+            for ( Map.Entry<RepositoryFilePermission, Set<String>> entry : permissionPrivileges.entrySet() ) {
+              if ( privileges.containsAll( entry.getValue() ) ) {
+                granted.add( entry.getKey() );
+              }
+            }
+          } catch ( PathNotFoundException e ) {
+            // never throw an exception if the path does not exist; just grant no permission
+          }
+          access.put( relPath, granted );
+        }
+        return access;
+      }
+    } );
+  }
+
+  /**
+   * Gets the names of the non-aggregate privileges making up the given privileges, so that they can be compared as
+   * sets.
+   */
+  private static Set<String> toPrivilegeNames( final Privilege[] privileges ) {
+    Set<String> names = new HashSet<>();
+    for ( Privilege privilege : privileges ) {
+      if ( privilege.isAggregate() ) {
+        for ( Privilege aggregated : privilege.getAggregatePrivileges() ) {
+          if ( !aggregated.isAggregate() ) {
+            names.add( aggregated.getName() );
+          }
+        }
+      } else {
+        names.add( privilege.getName() );
+      }
+    }
+    return names;
+  }
+
   private RepositoryFileAcl toAcl( final Session session, final PentahoJcrConstants pentahoJcrConstants,
       final Serializable id ) throws RepositoryException {
 
@@ -430,6 +499,8 @@ public class JcrRepositoryFileAclDao implements IRepositoryFileAclDao {
     }
     acMgr.setPolicy( absPath, acList );
     session.save();
+    CachingPentahoEntryCollector.invalidateSharedEntries();
+    PentahoCompiledPermissionsImpl.invalidateSharedCache();
     return getAcl( fileId );
 
   }
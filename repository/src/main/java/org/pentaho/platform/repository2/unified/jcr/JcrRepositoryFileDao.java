@@ -1156,6 +1156,21 @@ public class JcrRepositoryFileDao implements IRepositoryFileDao {
     } );
   }
 
+  @Override
+  @SuppressWarnings( "unchecked" )
+  public List<RepositoryFile> findFilesByMetadata( final Serializable folderId, final String metadataKey,
+      final String metadataValue ) {
+    Assert.notNull( folderId, "Folder ID must not be null" );
+    return (List<RepositoryFile>) jcrTemplate.execute( new JcrCallback() {
+      @Override
+      public Object doInJcr( final Session session ) throws RepositoryException, IOException {
+        PentahoJcrConstants pentahoJcrConstants = new PentahoJcrConstants( session );
+        return JcrRepositoryFileUtils.findFilesByMetadata( session, pentahoJcrConstants, pathConversionHelper,
+            lockHelper, folderId, metadataKey, metadataValue );
+      }
+    } );
+  }
+
   @Override
   public List<Character> getReservedChars() {
     return JcrRepositoryFileUtils.getReservedChars();
@@ -14,13 +14,13 @@
 package org.pentaho.platform.repository2.unified.jcr;
 
 import java.io.Serializable;
+import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -41,6 +41,11 @@ import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.UnsupportedRepositoryOperationException;
 import javax.jcr.lock.Lock;
+import javax.jcr.query.QueryResult;
+import javax.jcr.query.qom.Constraint;
+import javax.jcr.query.qom.QueryObjectModelConstants;
+import javax.jcr.query.qom.QueryObjectModelFactory;
+import javax.jcr.query.qom.Selector;
 import javax.jcr.version.Version;
 import javax.jcr.version.VersionHistory;
 import javax.jcr.version.VersionManager;
@@ -50,8 +55,8 @@ import org.apache.commons.lang.mutable.MutableBoolean;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.jackrabbit.JcrConstants;
-import org.apache.jackrabbit.core.NodeImpl;
 import org.apache.jackrabbit.core.VersionManagerImpl;
+import org.apache.jackrabbit.util.ChildrenCollectorFilter;
 import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.locale.IPentahoLocale;
 import org.pentaho.platform.api.repository2.unified.IRepositoryAccessVoterManager;
@@ -723,6 +728,11 @@ public class JcrRepositoryFileUtils {
       nodeIterator = folderNode.getNodes();
     }
 
+    if ( repositoryRequest.isPaged() ) {
+      return getChildrenPage( session, pentahoJcrConstants, pathConversionHelper, lockHelper, repositoryRequest,
+          nodeIterator );
+    }
+
     while ( nodeIterator.hasNext() ) {
       Node node = nodeIterator.nextNode();
       if ( isSupportedNodeType( pentahoJcrConstants, node ) ) {
@@ -739,6 +749,136 @@ public class JcrRepositoryFileUtils {
 
   }
 
+  /**
+   * Gets one page of the children of a folder, sorted by title unless sorting by name is requested. The hidden and
+   * ACL flags, and the names or titles to sort by, are read straight from the child nodes, and only the children of
+   * the page are turned into files. Sorting by title still reads the locale maps of every child.
+   */
+  private static List<RepositoryFile> getChildrenPage( final Session session,
+      final PentahoJcrConstants pentahoJcrConstants, final IPathConversionHelper pathConversionHelper,
+      final ILockHelper lockHelper, final RepositoryRequest repositoryRequest, final NodeIterator nodeIterator )
+    throws RepositoryException {
+    List<Node> nodes = new ArrayList<Node>();
+    while ( nodeIterator.hasNext() ) {
+      Node node = nodeIterator.nextNode();
+      if ( isSupportedNodeType( pentahoJcrConstants, node ) && !getBooleanProperty( node,
+          pentahoJcrConstants.getPHO_ACLNODE() ) && ( repositoryRequest.isShowHidden() || !getBooleanProperty( node,
+          pentahoJcrConstants.getPHO_HIDDEN() ) ) ) {
+        nodes.add( node );
+      }
+    }
+
+    int fromIndex = Math.min( repositoryRequest.getOffset(), nodes.size() );
+    int toIndex = repositoryRequest.getLimit() < 0 ? nodes.size()
+        : (int) Math.min( (long) fromIndex + repositoryRequest.getLimit(), nodes.size() );
+
+    boolean sortByName = repositoryRequest.getSortBy() == RepositoryRequest.SORT_KEY.NAME;
+    IPentahoLocale pentahoLocale = new PentahoLocale( LocaleHelper.getLocale() );
+    final Map<Node, String> keys = new HashMap<Node, String>();
+    for ( Node node : nodes ) {
+      keys.put( node, sortByName ? getNodeName( session, pentahoJcrConstants, node )
+          : getNodeTitle( session, pentahoJcrConstants, node, pentahoLocale ) );
+    }
+    final Collator collator = Collator.getInstance( LocaleHelper.getLocale() );
+    collator.setStrength( Collator.PRIMARY ); // ignore case
+    nodes.sort( ( node1, node2 ) -> compareText( collator, keys.get( node1 ), keys.get( node2 ) ) );
+
+    List<RepositoryFile> children = new ArrayList<RepositoryFile>();
+    for ( Node node : nodes.subList( fromIndex, toIndex ) ) {
+      children.add( nodeToFile( session, pentahoJcrConstants, pathConversionHelper, lockHelper, node ) );
+    }
+    children.removeIf( Objects::isNull );
+    return children;
+  }
+
+  /**
+   * Gets the title of a node for a locale, resolved as {@link RepositoryFileProxy#getTitle()} does, or the name of the
+   * node when it has none.
+   */
+  static String getNodeTitle( final Session session, final PentahoJcrConstants pentahoJcrConstants,
+      final Node node, final IPentahoLocale pentahoLocale ) throws RepositoryException {
+    String name = getNodeName( session, pentahoJcrConstants, node );
+    String title = null;
+    if ( isPentahoHierarchyNode( session, pentahoJcrConstants, node ) ) {
+      if ( node.hasNode( pentahoJcrConstants.getPHO_LOCALES() ) ) {
+        // [BISERVER-8337] localize title
+        LocalePropertyResolver lpr = new LocalePropertyResolver( name );
+        LocalizationUtil localizationUtil = new LocalizationUtil( getLocalePropertiesMap( session,
+            pentahoJcrConstants, node.getNode( pentahoJcrConstants.getPHO_LOCALES() ) ), pentahoLocale.getLocale() );
+        title = localizationUtil.resolveLocalizedString( lpr.resolveDefaultTitleKey(), null );
+        if ( org.apache.commons.lang.StringUtils.isBlank( title ) ) {
+          title = localizationUtil.resolveLocalizedString( lpr.resolveTitleKey(), null );
+          if ( org.apache.commons.lang.StringUtils.isBlank( title ) ) {
+            title = localizationUtil.resolveLocalizedString( lpr.resolveNameKey(), title );
+          }
+        }
+      }
+      // BISERVER-8609 - Backwards compatibility. Fallback to the old data structure if title is not found
+      if ( title == null && node.hasNode( pentahoJcrConstants.getPHO_TITLE() ) ) {
+        title = getLocalizedString( session, pentahoJcrConstants, node.getNode( pentahoJcrConstants.getPHO_TITLE() ),
+            pentahoLocale );
+      }
+    }
+    return title != null ? title : name;
+  }
+
+  private static boolean getBooleanProperty( final Node node, final String propertyName )
+    throws RepositoryException {
+    return node.hasProperty( propertyName ) && node.getProperty( propertyName ).getBoolean();
+  }
+
+  private static int compareText( final Collator collator, final String text1, final String text2 ) {
+    if ( text1 == null || text2 == null ) {
+      return text1 == null ? ( text2 == null ? 0 : -1 ) : 1;
+    }
+    int result = collator.compare( text1, text2 );
+    return result != 0 ? result : text1.compareTo( text2 ); // use lexical order if equals ignore case
+  }
+
+  /**
+   * Finds the visible files of a folder having the given metadata value. The metadata nodes are found with a query,
+   * which is answered by the search index, instead of reading the metadata of every child of the folder.
+   */
+  public static List<RepositoryFile> findFilesByMetadata( final Session session,
+      final PentahoJcrConstants pentahoJcrConstants, final IPathConversionHelper pathConversionHelper,
+      final ILockHelper lockHelper, final Serializable folderId, final String metadataKey,
+      final String metadataValue ) throws RepositoryException {
+    Node folderNode = session.getNodeByIdentifier( JcrStringHelper.idEncode( folderId.toString() ) );
+    Assert.isTrue( isPentahoFolder( pentahoJcrConstants, folderNode ), "The specified node must be a Pentaho folder." );
+
+    String prefix = session.getNamespacePrefix( PentahoJcrConstants.PHO_NS );
+    QueryObjectModelFactory fac = session.getWorkspace().getQueryManager().getQOMFactory();
+    final String selectorName = "selector"; //$NON-NLS-1$
+    final Selector selector = fac.selector( "nt:base", selectorName ); //$NON-NLS-1$
+    Constraint metadataConstraint =
+        fac.comparison( fac.propertyValue( selectorName, prefix + ":" + metadataKey ), //$NON-NLS-1$
+            QueryObjectModelConstants.JCR_OPERATOR_EQUAL_TO,
+            fac.literal( session.getValueFactory().createValue( metadataValue ) ) );
+    Constraint descendantNodeConstraint = fac.descendantNode( selectorName, folderNode.getPath() );
+    QueryResult result =
+        fac.createQuery( selector, fac.and( descendantNodeConstraint, metadataConstraint ), null, null ).execute();
+
+    List<RepositoryFile> files = new ArrayList<RepositoryFile>();
+    NodeIterator nodeIterator = result.getNodes();
+    while ( nodeIterator.hasNext() ) {
+      Node metadataNode = nodeIterator.nextNode();
+      if ( !metadataNode.getName().equals( pentahoJcrConstants.getPHO_METADATA() ) ) {
+        continue;
+      }
+      // only the files directly in the folder
+      Node fileNode = metadataNode.getParent();
+      if ( !fileNode.getParent().isSame( folderNode ) || !isPentahoFile( pentahoJcrConstants, fileNode ) ) {
+        continue;
+      }
+      RepositoryFile file = nodeToFile( session, pentahoJcrConstants, pathConversionHelper, lockHelper, fileNode );
+      if ( file != null && !file.isAclNode() && !file.isHidden() ) {
+        files.add( file );
+      }
+    }
+    Collections.sort( files );
+    return files;
+  }
+
   @Deprecated
   public static List<RepositoryFile> getChildren( final Session session, final PentahoJcrConstants pentahoJcrConstants,
       final IPathConversionHelper pathConversionHelper, final ILockHelper lockHelper, final Serializable folderId,
@@ -1147,10 +1287,9 @@ public class JcrRepositoryFileUtils {
    * Returns a RepositoryFileTree for a given node. This method will be called recursively for each folder it processes.
    * The childNodeFilter is a filter used directly by the JCR jar to filter node names. Since JCR does not know a folder
    * from a file (that is our construct), it is not capable of filtering out filenames but not folder names. Therefore,
-   * this logic will create two sets of children nodes. The <code>filteredChildrenSet</code> keeps the child nodes that
-   * satisfied the childNodeFilter. The <code> childrenFolderSet</code> keeps a set of all child folder nodes regardless
-   * of the value of the filter. We use the <code>childrenFolderSet</code> to know what folders to traverse, but we use
-   * the <code>filteredChildrenSet </code> to determine what actual files to include in the returned tree.
+   * when a filter is given, the children of a folder are iterated once, unfiltered, and each child node is matched
+   * against the filter. Child nodes that satisfy the childNodeFilter are included in the returned tree, while child
+   * folder nodes that do not are only traversed, to look for files that do satisfy it.
    * <p>
    * Just because we process a folder node does not necessarily mean the folder will be reported in the tree. It must
    * first find a file that satisfies the criteria of the <code>childNodeFilter</code> mask. A file meeting the criteria
@@ -1196,81 +1335,89 @@ public class JcrRepositoryFileUtils {
             .getId() ), PentahoSessionHolder.getSession() ) ) ) {
       return null;
     }
-    List<RepositoryFileTree> children;
-    HashSet<Node> childrenFolderSet;
+    return getTreeByFile( session, pentahoJcrConstants, pathConversionHelper, lockHelper, fileNode, rootFile, depth,
+        childNodeFilter, showHidden, accessVoterManager, types, foundFiltered, includeSystemFolders, rootPath );
+  }
+
+  /**
+   * Returns a RepositoryFileTree for a given node, which was already converted to the given file and checked for
+   * access. Each child node is converted and checked for access once, by <code>checkNodeForTree</code>, which then
+   * calls back this method to process the next lower level. The child nodes of files are not iterated, as these are
+   * never files or folders themselves.
+   */
+  private static RepositoryFileTree getTreeByFile( final Session session, final PentahoJcrConstants pentahoJcrConstants,
+      final IPathConversionHelper pathConversionHelper, final ILockHelper lockHelper, final Node fileNode,
+      final RepositoryFile file, final int depth, final String childNodeFilter, final boolean showHidden,
+      IRepositoryAccessVoterManager accessVoterManager, RepositoryRequest.FILES_TYPE_FILTER types,
+      MutableBoolean foundFiltered, final boolean includeSystemFolders, final String rootPath )
+      throws RepositoryException {
+
     // if depth is neither negative (indicating unlimited depth) nor positive (indicating at least one more level
     // to go)
-    if ( depth != 0 ) {
-      children = new ArrayList<RepositoryFileTree>();
-      int numberOfPasses = childNodeFilter != null && !childNodeFilter.equals( "*" ) ? 2 : 1;
-
-      // get Filtered Children set
-      HashSet<Node> filteredChildrenSet;
-      filteredChildrenSet = new HashSet<Node>();
-      NodeIterator childNodes = fileNode.getNodes( childNodeFilter );
-      while ( childNodes.hasNext() ) {
-        Node childNode = childNodes.nextNode();
-
-        boolean pentahoFolder = isPentahoFolder( pentahoJcrConstants, childNode );
-        if ( !( !pentahoFolder && types == RepositoryRequest.FILES_TYPE_FILTER.FOLDERS || pentahoFolder
-            && types == RepositoryRequest.FILES_TYPE_FILTER.FILES ) ) {
-          // do not to include (skip) system_folder children that are at root level if includeSystemFolders is false
-          if ( !( !includeSystemFolders && ( rootPath.equals( childNode.getParent().getPath() ) && isSystemFolder(
-            session, childNode ) ) ) ) {
-            filteredChildrenSet.add( childNode );
-          }
-        }
-      }
+    if ( depth == 0 ) {
+      return new RepositoryFileTree( file, null );
+    }
 
-      // Now get the unfiltered folder set not already in Filtered Set
-      childrenFolderSet = new HashSet<Node>();
-      if ( numberOfPasses == 2 ) {
-        if ( isPentahoFolder( pentahoJcrConstants, fileNode ) ) {
-          childNodes = fileNode.getNodes();
-          while ( childNodes.hasNext() ) {
-            Node childNode = childNodes.nextNode();
-            boolean pentahoFolder = isPentahoFolder( pentahoJcrConstants, childNode );
-            if ( pentahoFolder ) {
-              childrenFolderSet.add( childNode );
-            }
-          }
-        }
-      }
+    List<RepositoryFileTree> children = new ArrayList<RepositoryFileTree>();
+    if ( !isPentahoFolder( pentahoJcrConstants, fileNode ) ) {
+      // the child nodes of a file hold its content and metadata, which are not part of the tree
+      return new RepositoryFileTree( file, children );
+    }
 
-      // Now work on the unfiltered set of folders, if any, add them only if file have been found somewhere down the
-      // tree
-      for ( Node childNode : childrenFolderSet ) {
-        checkNodeForTree( childNode, children, session, pentahoJcrConstants, pathConversionHelper, childNodeFilter,
-            lockHelper, depth, showHidden, accessVoterManager, types, foundFiltered, false, includeSystemFolders, rootPath );
-      }
+    // When filtering, folders not satisfying the filter must also be traversed, so all children are iterated and
+    // matched against the filter here, instead of having JCR filter them
+    boolean matchChildNodeFilter = childNodeFilter != null && !childNodeFilter.equals( "*" );
+    // do not to include (skip) system_folder children that are at root level if includeSystemFolders is false
+    boolean skipSystemFolders = !includeSystemFolders && rootPath.equals( fileNode.getPath() );
+
+    NodeIterator childNodes = matchChildNodeFilter ? fileNode.getNodes() : fileNode.getNodes( childNodeFilter );
+    while ( childNodes.hasNext() ) {
+      Node childNode = childNodes.nextNode();
 
-      // And finally, add Children in filtered
-      for ( Node childNode : filteredChildrenSet ) {
+      boolean pentahoFolder = isPentahoFolder( pentahoJcrConstants, childNode );
+      boolean filtered = !matchChildNodeFilter || ChildrenCollectorFilter.matches( childNode.getName(),
+          childNodeFilter );
+      if ( filtered && !( !pentahoFolder && types == RepositoryRequest.FILES_TYPE_FILTER.FOLDERS || pentahoFolder
+          && types == RepositoryRequest.FILES_TYPE_FILTER.FILES ) && !( skipSystemFolders && pentahoFolder
+          && isSystemFolder( session, pentahoJcrConstants, childNode ) ) ) {
         foundFiltered.setValue( true );
         checkNodeForTree( childNode, children, session, pentahoJcrConstants, pathConversionHelper, childNodeFilter,
-            lockHelper, depth, showHidden, accessVoterManager, types, foundFiltered, true, includeSystemFolders, rootPath );
+            lockHelper, depth, showHidden, accessVoterManager, types, foundFiltered, true, includeSystemFolders,
+            rootPath );
+      } else if ( matchChildNodeFilter && pentahoFolder ) {
+        // add the folder only if files have been found somewhere down the tree
+        checkNodeForTree( childNode, children, session, pentahoJcrConstants, pathConversionHelper, childNodeFilter,
+            lockHelper, depth, showHidden, accessVoterManager, types, foundFiltered, false, includeSystemFolders,
+            rootPath );
       }
-
-      children.removeIf( Objects::isNull );
-      Collections.sort( children );
-    } else {
-      children = null;
     }
-    return new RepositoryFileTree( rootFile, children );
+
+    children.removeIf( Objects::isNull );
+    Collections.sort( children );
+    return new RepositoryFileTree( file, children );
   }
 
-  private static boolean isSystemFolder( Session session, Node childNode ) throws RepositoryException {
-    Map<String, Serializable> fileMeta = getFileMetadata( session, ( (NodeImpl) childNode ).getNodeId() );
-    boolean isSystemFolder = fileMeta.containsKey( IUnifiedRepository.SYSTEM_FOLDER ) ? (Boolean) fileMeta
-        .get( IUnifiedRepository.SYSTEM_FOLDER ) : false;
-    return isSystemFolder;
+  /**
+   * Reads the system folder flag directly from the metadata of the given folder node.
+   */
+  private static boolean isSystemFolder( Session session, PentahoJcrConstants pentahoJcrConstants, Node folderNode )
+    throws RepositoryException {
+    Node metadataNode;
+    try {
+      metadataNode = NodeHelper.checkGetNode( folderNode, pentahoJcrConstants.getPHO_METADATA() );
+    } catch ( PathNotFoundException pathNotFound ) { // No meta on this folder
+      return false;
+    }
+    String propertyName =
+        session.getNamespacePrefix( PentahoJcrConstants.PHO_NS ) + ":" + IUnifiedRepository.SYSTEM_FOLDER; //$NON-NLS-1$
+    return metadataNode.hasProperty( propertyName ) && metadataNode.getProperty( propertyName ).getBoolean();
   }
 
   /**
-   * This method is called twice by <code>getTreeNode</code>. It's job is to determine whether the current child node
-   * should be added to the list of children for the node being processed. It is a separate method simply because it is
-   * too much code to appear twice in the above <code>getTreeNode</code> method. It also makes the recursive call back
-   * to getTreeByNode to process the next lower level of folder node (it must process the lower levels to know if the
+   * This method is called by <code>getTreeByFile</code> for each child node to process. It's job is to determine
+   * whether the current child node should be added to the list of children for the node being processed. It converts
+   * the child node to a file and checks the access to it once, and then makes the recursive call back to
+   * getTreeByFile to process the next lower level of folder node (it must process the lower levels to know if the
    * folder should be added). Finally, it returns the foundFiltered boolean to let the caller know if a file was found
    * that satisfied the childNodeFilter.
    */
@@ -1281,8 +1428,8 @@ public class JcrRepositoryFileUtils {
       MutableBoolean foundFiltered, boolean isRootFiltered, final boolean includeSystemFolders,
       final String rootPath ) throws RepositoryException {
 
-    RepositoryFile file = nodeToFile( session, pentahoJcrConstants, pathConversionHelper, lockHelper, childNode );
     if ( isSupportedNodeType( pentahoJcrConstants, childNode ) ) {
+      RepositoryFile file = nodeToFile( session, pentahoJcrConstants, pathConversionHelper, lockHelper, childNode );
       RepositoryFileAcl fileAcl;
       try {
         fileAcl = JcrRepositoryFileAclUtils.getAcl( session, pentahoJcrConstants, file.getId() );
@@ -1290,11 +1437,15 @@ public class JcrRepositoryFileUtils {
         return;
       }
       if ( accessVoterManager.hasAccess( file, RepositoryFilePermission.READ, fileAcl, PentahoSessionHolder.getSession() ) ) {
+        if ( ( !showHidden && file.isHidden() ) || file.isAclNode() ) {
+          return;
+        }
         MutableBoolean foundFilteredAtomic = new MutableBoolean( !isPentahoFolder( pentahoJcrConstants, childNode ) );
         RepositoryFileTree repositoryFileTree =
-            getTreeByNode( session, pentahoJcrConstants, pathConversionHelper, lockHelper, childNode, depth - 1,
-                childNodeFilter, showHidden, accessVoterManager, types, foundFilteredAtomic, includeSystemFolders, rootPath );
-        if ( repositoryFileTree != null && ( foundFilteredAtomic.booleanValue() || isRootFiltered ) ) {
+            getTreeByFile( session, pentahoJcrConstants, pathConversionHelper, lockHelper, childNode, file, depth - 1,
+                childNodeFilter, showHidden, accessVoterManager, types, foundFilteredAtomic, includeSystemFolders,
+                rootPath );
+        if ( foundFilteredAtomic.booleanValue() || isRootFiltered ) {
           foundFiltered.setValue( true );
           children.add( repositoryFileTree );
         }
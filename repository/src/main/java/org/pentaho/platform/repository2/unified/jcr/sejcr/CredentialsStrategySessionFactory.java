@@ -306,6 +306,9 @@ public class CredentialsStrategySessionFactory implements InitializingBean, Disp
       unregisterNamespaces();
       unregisterNodeTypes();
     }
+    if ( sessionFactory instanceof GuavaCachePoolPentahoJcrSessionFactory ) {
+      ( (GuavaCachePoolPentahoJcrSessionFactory) sessionFactory ).close();
+    }
   }
 
   /**
@@ -644,6 +647,8 @@ public class CredentialsStrategySessionFactory implements InitializingBean, Disp
         if ( logoutDelegate.shouldLogout() ) {
           target.logout();
         }
+        // a pooled session is returned to its pool, which discards it if it was logged out
+        GuavaCachePoolPentahoJcrSessionFactory.returnSession( target );
         return null;
       } else {
         try {
@@ -15,14 +15,16 @@ package org.pentaho.platform.repository2.unified.jcr.sejcr;
 
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 import com.google.common.cache.RemovalListener;
 import org.apache.jackrabbit.core.SessionImpl;
 import org.pentaho.platform.api.engine.ISystemConfig;
+import org.pentaho.platform.api.mt.ITenantedPrincipleNameResolver;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.repository2.unified.jcr.JcrTenantUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.extensions.jcr.SessionFactoryUtils;
 
 import javax.jcr.Credentials;
 import javax.jcr.Repository;
@@ -30,12 +32,27 @@ import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.SimpleCredentials;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * JCR Session Factory which caches Sessions by Credentials per Thread. The size of the cache and TTL of the entries can
- * be configured with repository.spring.properties
+ * JCR Session Factory which pools Sessions by user. The pool of each user holds a bounded number of sessions, and the
+ * number of sessions checked out across all users is bounded as well. The limits, the maximum time to wait for a
+ * session and the TTL of idle sessions can be configured with repository.spring.properties
+ * <p>
+ * The system users (the repository admin and the single tenant admin, used by {@code SecurityHelper.runAsSystem}) have
+ * a limit of their own, and never wait: once their pool is exhausted they are given unpooled sessions right away, so
+ * system threads are not held back by the sessions of end users.
+ * <p>
+ * A session is checked out by {@link #getSession(Credentials)} and bound to the current thread, so that nested calls of
+ * the same thread for the same user share it. It is returned to the pool by {@link #returnSession(Session)} once every
+ * call that checked it out has returned it.
  * <p>
  * Created by nbaker on 6/9/14.
  */
@@ -44,13 +61,34 @@ class GuavaCachePoolPentahoJcrSessionFactory extends NoCachePentahoJcrSessionFac
 
   static final String USAGE_COUNT = "usage_count"; // attribute key for tracking session usages
 
-  private CredentialsStrategySessionFactory credentialsStrategySessionFactory;
+  static final String POOLED_SESSION = "pooled_session"; // attribute key for the checkout of a pooled session
+
   private int cacheDuration = 300;
   private int cacheSize = 100;
+  private int maxSessionsPerUser = 10;
+  private int maxActiveSessions = 1000;
+  private int maxSessionsPerSystemUser = maxActiveSessions;
+  private long maxWaitMillis = 10000;
 
   private Logger logger = LoggerFactory.getLogger( getClass() );
   private PentahoTransactionManager transactionManager;
 
+  private final AtomicInteger idleSessionCount = new AtomicInteger();
+
+  private final ThreadLocal<Map<String, PooledSession>> threadSessions =
+    ThreadLocal.withInitial( ConcurrentHashMap::new );
+
+  private final Semaphore activeSessionPermits;
+
+  private final PentahoJcrSessionPoolMetrics metrics;
+
+  /**
+   * Session pools by user id.
+   * <p>
+   * Pools not accessed for longer than the TTL are discarded, logging out their idle sessions. Sessions checked out of
+   * a discarded pool are logged out when returned, so sessions still in use are never logged out.
+   */
+  private final LoadingCache<String, UserSessionPool> userPools;
 
   public GuavaCachePoolPentahoJcrSessionFactory( Repository repository, String workspace ) {
     this( repository, workspace, null );
@@ -64,147 +102,327 @@ class GuavaCachePoolPentahoJcrSessionFactory extends NoCachePentahoJcrSessionFac
     ISystemConfig systemConfig = PentahoSystem.get( ISystemConfig.class );
     if ( systemConfig != null && systemConfig.getConfiguration( "repository" ) != null ) {
       try {
-        this.cacheDuration =
-          Integer.parseInt( systemConfig.getConfiguration( "repository" ).getProperties().getProperty(
-            "cache-ttl", "300" ) );
-
-
-        this.cacheSize =
-          Integer.parseInt( systemConfig.getConfiguration( "repository" ).getProperties().getProperty(
-            "cache-size", "100" ) );
+        Properties properties = systemConfig.getConfiguration( "repository" ).getProperties();
+        this.cacheDuration = Integer.parseInt( properties.getProperty( "cache-ttl", "300" ) );
+        this.cacheSize = Integer.parseInt( properties.getProperty( "cache-size", "100" ) );
+        this.maxSessionsPerUser = Integer.parseInt( properties.getProperty( "session-pool-max-per-user", "10" ) );
+        this.maxActiveSessions = Integer.parseInt( properties.getProperty( "session-pool-max-active", "1000" ) );
+        this.maxSessionsPerSystemUser = Integer.parseInt(
+          properties.getProperty( "session-pool-max-per-system-user", String.valueOf( maxActiveSessions ) ) );
+        this.maxWaitMillis = Long.parseLong( properties.getProperty( "session-pool-max-wait", "10000" ) );
       } catch ( IOException e ) {
         logger.info( "Could not find repository.cache-duration" );
       }
     }
-  }
 
-  /**
-   * Session cache by credentials, partitioned by thread. Two threads obtaining sessions for the same credentials cannot
-   * use the same Session.
-   * <p>
-   * Sessions from the cache will have a "usage_count" attribute set to track if still in use, to verify they can be
-   * safely logged out on eviction. See
-   * {@link PentahoJcrTemplate#execute(org.springframework.extensions.jcr.JcrCallback,
-   * boolean)}
-   */
-  private LoadingCache<CacheKey, Session> sessionCache =
-    CacheBuilder.newBuilder()
+    activeSessionPermits = new Semaphore( maxActiveSessions, true );
+    userPools = CacheBuilder.newBuilder()
       .expireAfterAccess( cacheDuration, TimeUnit.SECONDS )
-      .maximumSize( cacheSize )
-      .removalListener( (RemovalListener<CacheKey, Session>) objectObjectRemovalNotification -> {
-        Session session = objectObjectRemovalNotification.getValue();
-        if ( sessionIsUnused( session ) ) {
-          logger.debug( "Logging out cached session after eviction " + session );
-          session.logout();
-        } else {
-          logger.warn( "Session has expired from cache, but still marked as in use.  May be orphaned.  " + session );
-        }
-      } ).recordStats()
-      .build( new CacheLoader<CacheKey, Session>() {
-        @Override public Session load( CacheKey credKey ) throws Exception {
-          Session session = GuavaCachePoolPentahoJcrSessionFactory.super.getSession( credKey.creds );
-          if ( session instanceof SessionImpl ) {
-            ( (SessionImpl) session ).setAttribute( USAGE_COUNT, new AtomicInteger( 0 ) );
-          } else {
-            logger.warn( "Expected a Jackrabbit SessionImpl.  Will not be tracking usage." );
-          }
-          return session;
+      .removalListener( (RemovalListener<String, UserSessionPool>) notification -> notification.getValue().close() )
+      .recordStats()
+      .build( new CacheLoader<String, UserSessionPool>() {
+        @Override public UserSessionPool load( String userId ) {
+          return isSystemUser( userId )
+            ? new UserSessionPool( maxSessionsPerSystemUser, 0 )
+            : new UserSessionPool( maxSessionsPerUser, maxWaitMillis );
         }
       } );
-
-  private boolean sessionIsUnused( Session session ) {
-    return session.getAttribute( USAGE_COUNT ) instanceof AtomicInteger
-      && ( (AtomicInteger) session.getAttribute( USAGE_COUNT ) ).get() == 0;
+    metrics = PentahoJcrSessionPoolMetrics.register( this );
   }
 
   @Override public Session getSession( Credentials creds ) throws RepositoryException {
-
-
-    // Aquire from cache
     Session session;
 
     if ( transactionManager == null || !transactionManager.isCreatingTransaction() ) {
       if ( logger.isDebugEnabled() ) {
-        logger.debug( "Thread is not transacted, checking cache for session: " + creds );
+        logger.debug( "Thread is not transacted, checking out pooled session: " + creds );
       }
-      try {
-        CacheKey key = new CacheKey( creds );
-        // find or create
-        session = sessionCache.get( key );
-        if ( !session.isLive() ) {
-          if ( logger.isDebugEnabled() ) {
-            logger.debug( "Cached session is not longer alive. disposing: " + creds );
-          }
-          sessionCache.invalidate( key );
-          session = sessionCache.get( key );
-        }
+      session = checkout( creds );
+    } else {
+      if ( logger.isDebugEnabled() ) {
+        logger.debug( "Thread is transacted, obtaining session directly, not pooled: " + creds );
+      }
+      session = super.getSession( creds );
+    }
+    return session;
+  }
 
-        if ( SessionFactoryUtils.isSessionThreadBound( session, credentialsStrategySessionFactory ) ) {
-          if ( logger.isDebugEnabled() ) {
-            logger.debug(
-              "Session is bound to a transaction. This should never happen, ignoring this session and creating a new "
-                +
-                "session: "
-                + creds );
-          }
-          sessionCache.invalidate( key );
-          session = sessionCache.get( key );
-        }
+  /**
+   * Returns a session checked out of a pool. Sessions are only returned to their pool once every checkout by the owning
+   * thread has been returned. Sessions which are no longer live are discarded. Does nothing for sessions which were
+   * not checked out of a pool.
+   *
+   * @param session the session, or a proxy of it
+   */
+  static void returnSession( Session session ) {
+    if ( session != null && session.getAttribute( POOLED_SESSION ) instanceof PooledSession ) {
+      ( (PooledSession) session.getAttribute( POOLED_SESSION ) ).release();
+    }
+  }
 
-        session.refresh( false );
+  private Session checkout( Credentials creds ) throws RepositoryException {
+    String userId = ( (SimpleCredentials) creds ).getUserID();
+    Map<String, PooledSession> leases = threadSessions.get();
+
+    PooledSession lease = leases.get( userId );
+    if ( lease != null && lease.acquireAgain() ) {
+      metrics.recordReentrantCheckout();
+      return lease.session;
+    }
 
-      } catch ( Exception e ) {
-        logger.error( "Error obtaining session from cache. Creating one directly instead: " + creds, e );
+    long start = System.nanoTime();
+    UserSessionPool pool = userPools.getUnchecked( userId );
+    boolean userAdmitted = false;
+    boolean admitted = false;
+    try {
+      // wait for a session of the user first, so that a user at its limit does not hold permits of other users
+      userAdmitted = pool.permits.tryAcquire( pool.maxWaitMillis, TimeUnit.MILLISECONDS );
+      if ( userAdmitted ) {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos( pool.maxWaitMillis ) - ( System.nanoTime() - start );
+        admitted = activeSessionPermits.tryAcquire( Math.max( 0, remainingNanos ), TimeUnit.NANOSECONDS );
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+    metrics.recordCheckout( System.nanoTime() - start );
+
+    if ( !admitted ) {
+      if ( userAdmitted ) {
+        pool.permits.release();
+      }
+      metrics.recordWaitTimeout();
+      logger.warn( "No pooled session available, creating an unpooled session instead: " + userId );
+      return startLease( super.getSession( creds ), null, userId, leases );
+    }
+
+    Session session;
+    try {
+      session = pool.poll();
+      if ( session == null ) {
         session = super.getSession( creds );
+        metrics.recordCreated();
+      } else if ( session.hasPendingChanges() ) {
+        session.refresh( false );
       }
-    } else {
-      if ( logger.isDebugEnabled() ) {
-        logger.debug( "Thread is transacted, obtaining session directly, not cached: " + creds );
+    } catch ( RepositoryException | RuntimeException e ) {
+      pool.permits.release();
+      activeSessionPermits.release();
+      throw e;
+    }
+    return startLease( session, pool, userId, leases );
+  }
+
+  private Session startLease( Session session, UserSessionPool pool, String userId,
+                              Map<String, PooledSession> leases ) {
+    if ( !( session instanceof SessionImpl ) ) {
+      logger.warn( "Expected a Jackrabbit SessionImpl.  Will not be pooling or tracking usage." );
+      if ( pool != null ) {
+        pool.permits.release();
+        activeSessionPermits.release();
       }
-      session = super.getSession( creds );
+      return session;
     }
+
+    SessionImpl sessionImpl = (SessionImpl) session;
+    if ( !( sessionImpl.getAttribute( USAGE_COUNT ) instanceof AtomicInteger ) ) {
+      sessionImpl.setAttribute( USAGE_COUNT, new AtomicInteger( 0 ) );
+    }
+    PooledSession lease = new PooledSession( sessionImpl, pool, userId, leases );
+    sessionImpl.setAttribute( POOLED_SESSION, lease );
+    leases.put( userId, lease );
     return session;
   }
 
+  private void endLease( PooledSession lease ) {
+    lease.leases.remove( lease.userId, lease );
+    SessionImpl session = lease.session;
+    session.setAttribute( POOLED_SESSION, null );
+
+    if ( lease.pool == null ) {
+      // unpooled session created after waiting for a pooled one timed out
+      logoutQuietly( session );
+      return;
+    }
+
+    try {
+      if ( !session.isLive() ) {
+        logger.debug( "Returned session is no longer alive. disposing: " + lease.userId );
+      } else if ( !lease.pool.offer( session ) ) {
+        logoutQuietly( session );
+      }
+    } finally {
+      lease.pool.permits.release();
+      activeSessionPermits.release();
+    }
+  }
+
   /**
-   * Used by the sessionCache as a key for Jcr Sessions.
+   * Discards the session pools, logging out their idle sessions, and stops publishing the metrics of the factory.
+   * Sessions still checked out are logged out when returned.
    */
-  private class CacheKey {
-    SimpleCredentials creds;
-    Long threadId;
+  void close() {
+    userPools.invalidateAll();
+    userPools.cleanUp();
+    PentahoJcrSessionPoolMetrics.unregister( metrics );
+  }
 
-    private CacheKey( Credentials creds ) {
-      this.creds = (SimpleCredentials) creds;
-      this.threadId = Thread.currentThread().getId();
+  /**
+   * Tells whether a user is one of the system users: the repository admin, or the single tenant admin.
+   */
+  private boolean isSystemUser( String userId ) {
+    if ( userId == null ) {
+      return false;
+    }
+    if ( userId.equals( PentahoSystem.get( String.class, "repositoryAdminUsername", null ) ) ) {
+      return true;
     }
+    ITenantedPrincipleNameResolver userNameUtils = JcrTenantUtils.getUserNameUtils();
+    String principalName = userNameUtils != null ? userNameUtils.getPrincipleName( userId ) : userId;
+    return principalName != null
+      && principalName.equals( PentahoSystem.get( String.class, "singleTenantAdminUserName", null ) );
+  }
 
-    @Override
-    public boolean equals( Object o ) {
-      if ( this == o ) {
-        return true;
-      }
-      if ( o == null || getClass() != o.getClass() ) {
-        return false;
+  private void logoutQuietly( Session session ) {
+    try {
+      if ( session.isLive() ) {
+        session.logout();
       }
+    } catch ( RuntimeException e ) {
+      logger.warn( "Error logging out session " + session, e );
+    }
+  }
 
-      CacheKey cacheKey = (CacheKey) o;
+  PentahoJcrSessionPoolMetrics getMetrics() {
+    return metrics;
+  }
 
-      if ( creds != null ? !creds.getUserID().equals( cacheKey.creds.getUserID() ) : cacheKey.creds != null ) {
-        return false;
+  int getMaxActiveSessions() {
+    return maxActiveSessions;
+  }
+
+  int getMaxSessionsPerUser() {
+    return maxSessionsPerUser;
+  }
+
+  int getMaxSessionsPerSystemUser() {
+    return maxSessionsPerSystemUser;
+  }
+
+  int getActiveSessionCount() {
+    return maxActiveSessions - activeSessionPermits.availablePermits();
+  }
+
+  int getIdleSessionCount() {
+    return idleSessionCount.get();
+  }
+
+  long getUserPoolCount() {
+    return userPools.size();
+  }
+
+  CacheStats getUserPoolStats() {
+    return userPools.stats();
+  }
+
+  /**
+   * The idle sessions of a user, most recently returned first, and the permits bounding the number of sessions of the
+   * user.
+   */
+  private class UserSessionPool {
+    private final Semaphore permits;
+    private final long maxWaitMillis;
+    private final Deque<IdleSession> idle = new ArrayDeque<>();
+    private boolean closed;
+
+    private UserSessionPool( int maxSessions, long maxWaitMillis ) {
+      this.permits = new Semaphore( maxSessions, true );
+      this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Takes the most recently returned idle session, logging out the ones idle for longer than the TTL.
+     */
+    synchronized Session poll() {
+      long expiry = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis( cacheDuration );
+      while ( !idle.isEmpty() && idle.peekLast().returnedTime < expiry ) {
+        idleSessionCount.decrementAndGet();
+        logoutQuietly( idle.pollLast().session );
       }
-      if ( threadId != null ? !threadId.equals( cacheKey.threadId ) : cacheKey.threadId != null ) {
-        return false;
+      while ( !idle.isEmpty() ) {
+        idleSessionCount.decrementAndGet();
+        Session session = idle.pollFirst().session;
+        if ( session.isLive() ) {
+          return session;
+        }
       }
+      return null;
+    }
 
+    /**
+     * Keeps a returned session, unless the pool was discarded or the maximum number of idle sessions is reached.
+     */
+    synchronized boolean offer( Session session ) {
+      if ( closed || idleSessionCount.get() >= cacheSize ) {
+        return false;
+      }
+      idleSessionCount.incrementAndGet();
+      idle.offerFirst( new IdleSession( session ) );
       return true;
     }
 
-    @Override
-    public int hashCode() {
-      int result = creds != null ? creds.getUserID().hashCode() : 0;
-      result = 31 * result + ( threadId != null ? threadId.hashCode() : 0 );
-      return result;
+    synchronized void close() {
+      closed = true;
+      while ( !idle.isEmpty() ) {
+        idleSessionCount.decrementAndGet();
+        Session session = idle.pollFirst().session;
+        logger.debug( "Logging out pooled session after eviction " + session );
+        logoutQuietly( session );
+      }
+    }
+  }
+
+  private static class IdleSession {
+    private final Session session;
+    private final long returnedTime = System.currentTimeMillis();
+
+    private IdleSession( Session session ) {
+      this.session = session;
     }
   }
 
+  /**
+   * The checkout of a session by a thread. Nested checkouts by the same thread share it.
+   */
+  private class PooledSession {
+    private final SessionImpl session;
+    private final UserSessionPool pool;
+    private final String userId;
+    private final Map<String, PooledSession> leases;
+    private int checkouts = 1;
+
+    private PooledSession( SessionImpl session, UserSessionPool pool, String userId,
+                           Map<String, PooledSession> leases ) {
+      this.session = session;
+      this.pool = pool;
+      this.userId = userId;
+      this.leases = leases;
+    }
+
+    synchronized boolean acquireAgain() {
+      if ( checkouts == 0 || !session.isLive() ) {
+        return false;
+      }
+      checkouts++;
+      return true;
+    }
+
+    void release() {
+      synchronized ( this ) {
+        if ( checkouts == 0 || --checkouts > 0 ) {
+          return;
+        }
+      }
+      endLease( this );
+    }
+  }
 }
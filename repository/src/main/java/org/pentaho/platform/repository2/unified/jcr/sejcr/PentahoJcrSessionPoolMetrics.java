@@ -0,0 +1,221 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.repository2.unified.jcr.sejcr;
+
+import com.google.common.cache.CacheStats;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the usage metrics of a pool of JCR sessions, including the time spent waiting to check out a session.
+ */
+public class PentahoJcrSessionPoolMetrics {
+
+  private static final List<PentahoJcrSessionPoolMetrics> allMetrics = new CopyOnWriteArrayList<>();
+
+  private final GuavaCachePoolPentahoJcrSessionFactory pool;
+
+  private final AtomicLong checkoutCount = new AtomicLong();
+
+  private final AtomicLong reentrantCheckoutCount = new AtomicLong();
+
+  private final AtomicLong createdCount = new AtomicLong();
+
+  private final AtomicLong waitTimeoutCount = new AtomicLong();
+
+  private final AtomicLong waitNanos = new AtomicLong();
+
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+
+  PentahoJcrSessionPoolMetrics( GuavaCachePoolPentahoJcrSessionFactory pool ) {
+    this.pool = pool;
+  }
+
+  static PentahoJcrSessionPoolMetrics register( GuavaCachePoolPentahoJcrSessionFactory pool ) {
+    PentahoJcrSessionPoolMetrics metrics = new PentahoJcrSessionPoolMetrics( pool );
+    allMetrics.add( metrics );
+    return metrics;
+  }
+
+  /**
+   * Stops publishing the metrics of a session pool, once the pool is closed.
+   */
+  static void unregister( PentahoJcrSessionPoolMetrics metrics ) {
+    allMetrics.remove( metrics );
+  }
+
+  /**
+   * Gets the metrics of all session pools.
+   *
+   * @return An unmodifiable view of the metrics of all session pools.
+   */
+  public static Collection<PentahoJcrSessionPoolMetrics> getAll() {
+    return Collections.unmodifiableCollection( allMetrics );
+  }
+
+  /**
+   * Records the checkout of a session from the pool.
+   *
+   * @param waitNanos The time spent waiting to be admitted, in nanoseconds.
+   */
+  void recordCheckout( long waitNanos ) {
+    checkoutCount.incrementAndGet();
+    this.waitNanos.addAndGet( waitNanos );
+    maxWaitNanos.accumulateAndGet( waitNanos, Math::max );
+  }
+
+  /**
+   * Records a nested checkout, served by the session already checked out by the thread.
+   */
+  void recordReentrantCheckout() {
+    reentrantCheckoutCount.incrementAndGet();
+  }
+
+  void recordCreated() {
+    createdCount.incrementAndGet();
+  }
+
+  void recordWaitTimeout() {
+    waitTimeoutCount.incrementAndGet();
+  }
+
+  /**
+   * Takes a point-in-time snapshot of the metrics.
+   *
+   * @return The metrics snapshot.
+   */
+  public Snapshot getSnapshot() {
+    Snapshot snapshot = new Snapshot();
+    snapshot.activeSessions = pool.getActiveSessionCount();
+    snapshot.idleSessions = pool.getIdleSessionCount();
+    snapshot.maxActiveSessions = pool.getMaxActiveSessions();
+    snapshot.maxSessionsPerUser = pool.getMaxSessionsPerUser();
+    snapshot.maxSessionsPerSystemUser = pool.getMaxSessionsPerSystemUser();
+    snapshot.userPools = pool.getUserPoolCount();
+
+    CacheStats stats = pool.getUserPoolStats();
+    snapshot.userPoolHitCount = stats.hitCount();
+    snapshot.userPoolMissCount = stats.missCount();
+    snapshot.userPoolEvictionCount = stats.evictionCount();
+
+    snapshot.checkoutCount = checkoutCount.get();
+    snapshot.reentrantCheckoutCount = reentrantCheckoutCount.get();
+    snapshot.createdCount = createdCount.get();
+    snapshot.waitTimeoutCount = waitTimeoutCount.get();
+    snapshot.meanWaitMillis = snapshot.checkoutCount == 0
+      ? 0
+      : TimeUnit.NANOSECONDS.toMicros( waitNanos.get() ) / 1000d / snapshot.checkoutCount;
+    snapshot.maxWaitMillis = TimeUnit.NANOSECONDS.toMillis( maxWaitNanos.get() );
+    return snapshot;
+  }
+
+  /**
+   * A point-in-time snapshot of the metrics of a session pool.
+   */
+  public static class Snapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private int activeSessions;
+    private int idleSessions;
+    private int maxActiveSessions;
+    private int maxSessionsPerUser;
+    private int maxSessionsPerSystemUser;
+    private long userPools;
+    private long userPoolHitCount;
+    private long userPoolMissCount;
+    private long userPoolEvictionCount;
+    private long checkoutCount;
+    private long reentrantCheckoutCount;
+    private long createdCount;
+    private long waitTimeoutCount;
+    private double meanWaitMillis;
+    private long maxWaitMillis;
+
+    /**
+     * Gets the number of sessions checked out of the pool.
+     */
+    public int getActiveSessions() {
+      return activeSessions;
+    }
+
+    public int getIdleSessions() {
+      return idleSessions;
+    }
+
+    public int getMaxActiveSessions() {
+      return maxActiveSessions;
+    }
+
+    public int getMaxSessionsPerUser() {
+      return maxSessionsPerUser;
+    }
+
+    public int getMaxSessionsPerSystemUser() {
+      return maxSessionsPerSystemUser;
+    }
+
+    /**
+     * Gets the number of users with a session pool.
+     */
+    public long getUserPools() {
+      return userPools;
+    }
+
+    public long getUserPoolHitCount() {
+      return userPoolHitCount;
+    }
+
+    public long getUserPoolMissCount() {
+      return userPoolMissCount;
+    }
+
+    public long getUserPoolEvictionCount() {
+      return userPoolEvictionCount;
+    }
+
+    public long getCheckoutCount() {
+      return checkoutCount;
+    }
+
+    public long getReentrantCheckoutCount() {
+      return reentrantCheckoutCount;
+    }
+
+    public long getCreatedCount() {
+      return createdCount;
+    }
+
+    /**
+     * Gets the number of checkouts which were given an unpooled session, after timing out waiting for a pooled one or,
+     * for system users, right away when their pool was exhausted.
+     */
+    public long getWaitTimeoutCount() {
+      return waitTimeoutCount;
+    }
+
+    public double getMeanWaitMillis() {
+      return meanWaitMillis;
+    }
+
+    public long getMaxWaitMillis() {
+      return maxWaitMillis;
+    }
+  }
+}
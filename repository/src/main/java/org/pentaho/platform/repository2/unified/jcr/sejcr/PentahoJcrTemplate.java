@@ -88,12 +88,16 @@ public class PentahoJcrTemplate extends JcrTemplate {
 
   private void releaseSession( Session session ) {
     getUsageCount( session ).decrementAndGet();
+    // sessions bound to a transaction are returned once the transaction completes
+    if ( !SessionFactoryUtils.isSessionThreadBound( session, getSessionFactory() ) ) {
+      GuavaCachePoolPentahoJcrSessionFactory.returnSession( session );
+    }
   }
 
   /**
-   * Cached Sessions retrieved from {@link GuavaCachePoolPentahoJcrSessionFactory}
+   * Pooled Sessions retrieved from {@link GuavaCachePoolPentahoJcrSessionFactory}
    * will have a "usage_count" attribute indicating whether the session is
-   * currently in use.  This allows safe eviction.
+   * currently in use.
    */
   private AtomicInteger getUsageCount( Session session ) {
     Objects.requireNonNull( session );
@@ -35,6 +35,7 @@ import org.pentaho.platform.api.engine.IAuthorizationAction;
 import org.pentaho.platform.api.engine.ICacheManager;
 import org.pentaho.platform.api.engine.IPluginManager;
 import org.pentaho.platform.api.engine.IPluginManagerListener;
+import org.pentaho.platform.api.engine.security.authorization.IAuthorizationDecisionCache;
 import org.pentaho.platform.api.engine.security.userroledao.NotFoundException;
 import org.pentaho.platform.api.mt.ITenant;
 import org.pentaho.platform.api.mt.ITenantedPrincipleNameResolver;
@@ -128,6 +129,7 @@ public abstract class AbstractJcrBackedRoleBindingDao implements IRoleAuthorizat
             if ( cacheManager.cacheEnabled( LOGICAL_ROLE_BINDINGS_REGION ) ) {
               cacheManager.removeRegionCache( LOGICAL_ROLE_BINDINGS_REGION );
             }
+            invalidateAuthorizationDecisions();
             loaded = true;
           }
         }
@@ -307,6 +309,17 @@ public abstract class AbstractJcrBackedRoleBindingDao implements IRoleAuthorizat
     // update cache
     String roleId = tenantedRoleNameUtils.getPrincipleId( tenant, runtimeRoleName );
     cacheManager.putInRegionCache( LOGICAL_ROLE_BINDINGS_REGION, roleId, logicalRoleNames );
+    invalidateAuthorizationDecisions();
+  }
+
+  /**
+   * Discards cached authorization decisions, which may have been based on the previous role bindings.
+   */
+  protected void invalidateAuthorizationDecisions() {
+    IAuthorizationDecisionCache decisionCache = PentahoSystem.get( IAuthorizationDecisionCache.class );
+    if ( decisionCache != null ) {
+      decisionCache.invalidateAll();
+    }
   }
 
   private String getPrincipalName( String principalId ) {
@@ -0,0 +1,169 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.apache.jackrabbit.core.security.authorization.acl;
+
+import org.apache.jackrabbit.core.NodeImpl;
+import org.apache.jackrabbit.core.SessionImpl;
+import org.apache.jackrabbit.core.id.NodeId;
+import org.apache.jackrabbit.core.security.authorization.AccessControlModifications;
+import org.apache.jackrabbit.core.security.authorization.AccessControlObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.pentaho.platform.api.engine.ICacheManager;
+import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.engine.core.system.StandaloneSession;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+public class CachingPentahoEntryCollectorTest {
+
+  private final NodeId nodeId = new NodeId();
+  private final AtomicInteger collectCount = new AtomicInteger();
+  private NodeImpl node;
+  private CachingPentahoEntryCollector collector;
+  private PentahoEntryCollector.PentahoEntries collected;
+  private boolean magicAces;
+  private Runnable onCollect;
+
+  @Before
+  public void setUp() throws Exception {
+    node = mock( NodeImpl.class );
+    when( node.getNodeId() ).thenReturn( nodeId );
+    collected = new PentahoEntryCollector.PentahoEntries( Collections.singletonList( new Object() ), null, "/public" );
+    onCollect = () -> { };
+    PentahoSessionHolder.setSession( new StandaloneSession( "user1", "session1" ) );
+
+    // the session caches always miss, so that every lookup consults the shared cache
+    ICacheManager cacheManager = mock( ICacheManager.class );
+    try ( MockedStatic<PentahoSystem> pentahoSystem = mockStatic( PentahoSystem.class ) ) {
+      pentahoSystem.when( () -> PentahoSystem.getCacheManager( null ) ).thenReturn( cacheManager );
+      collector = new CachingPentahoEntryCollector( mock( SessionImpl.class, RETURNS_DEEP_STUBS ), new NodeId(),
+          Collections.emptyMap() ) {
+        @Override
+        PentahoEntryCollector.PentahoEntries collectEntries( NodeImpl node ) {
+          collectCount.incrementAndGet();
+          onCollect.run();
+          return collected;
+        }
+
+        @Override
+        protected boolean hasMagicAces( String path ) {
+          return magicAces;
+        }
+      };
+    }
+  }
+
+  @After
+  public void tearDown() {
+    collector.close();
+    PentahoSessionHolder.removeSession();
+  }
+
+  @Test
+  public void testSharesEntriesAcrossSessions() throws Exception {
+    collector.getEntries( node );
+    PentahoSessionHolder.setSession( new StandaloneSession( "user2", "session2" ) );
+
+    assertSame( collected, collector.getEntries( node ) );
+    assertEquals( 1, collectCount.get() );
+    assertEquals( 1, collector.getSharedCacheHitCount() );
+    assertEquals( 1, collector.getSharedCacheSize() );
+    assertTrue( CachingPentahoEntryCollector.getAll().contains( collector ) );
+  }
+
+  @Test
+  public void testDoesNotShareEntriesWithMagicAces() throws Exception {
+    // entries collected for a user given magic ACEs are specific to that user
+    collected = new PentahoEntryCollector.PentahoEntries( Collections.singletonList( new Object() ), null, null );
+
+    collector.getEntries( node );
+    PentahoSessionHolder.setSession( new StandaloneSession( "user2", "session2" ) );
+    collector.getEntries( node );
+
+    assertEquals( 2, collectCount.get() );
+    assertEquals( 0, collector.getSharedCacheSize() );
+  }
+
+  @Test
+  public void testDoesNotServeSharedEntriesToUsersWithMagicAces() throws Exception {
+    collector.getEntries( node );
+    magicAces = true;
+    PentahoSessionHolder.setSession( new StandaloneSession( "admin", "session2" ) );
+    collector.getEntries( node );
+
+    assertEquals( 2, collectCount.get() );
+    assertEquals( 0, collector.getSharedCacheHitCount() );
+  }
+
+  @Test
+  public void testDoesNotServeSharedEntriesWithoutPentahoSession() throws Exception {
+    collector.getEntries( node );
+    PentahoSessionHolder.removeSession();
+    collector.getEntries( node );
+
+    assertEquals( 2, collectCount.get() );
+    assertEquals( 0, collector.getSharedCacheHitCount() );
+  }
+
+  @Test
+  public void testAccessControlModificationInvalidatesSharedEntries() throws Exception {
+    collector.getEntries( node );
+    AccessControlModifications modifications = mock( AccessControlModifications.class );
+    when( modifications.getNodeIdentifiers() ).thenReturn( Collections.singleton( nodeId ) );
+    when( modifications.getType( nodeId ) ).thenReturn( AccessControlObserver.POLICY_MODIFIED );
+
+    collector.notifyListeners( modifications );
+
+    assertEquals( 0, collector.getSharedCacheSize() );
+    PentahoSessionHolder.setSession( new StandaloneSession( "user2", "session2" ) );
+    collector.getEntries( node );
+    assertEquals( 2, collectCount.get() );
+  }
+
+  @Test
+  public void testInvalidateSharedEntries() throws Exception {
+    collector.getEntries( node );
+
+    CachingPentahoEntryCollector.invalidateSharedEntries();
+
+    assertEquals( 0, collector.getSharedCacheSize() );
+  }
+
+  @Test
+  public void testDropsEntriesCollectedBeforeInvalidation() throws Exception {
+    // e.g. an ACL is updated while the entries are being collected
+    onCollect = CachingPentahoEntryCollector::invalidateSharedEntries;
+    collector.getEntries( node );
+    assertEquals( 0, collector.getSharedCacheSize() );
+
+    onCollect = () -> { };
+    PentahoSessionHolder.setSession( new StandaloneSession( "user2", "session2" ) );
+    collector.getEntries( node );
+    assertEquals( 2, collectCount.get() );
+    assertEquals( 1, collector.getSharedCacheSize() );
+  }
+}
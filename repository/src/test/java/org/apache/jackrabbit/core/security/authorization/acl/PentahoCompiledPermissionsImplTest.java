@@ -13,17 +13,31 @@
 
 package org.apache.jackrabbit.core.security.authorization.acl;
 
+import org.apache.jackrabbit.core.ItemManager;
+import org.apache.jackrabbit.core.NodeImpl;
 import org.apache.jackrabbit.core.SessionImpl;
+import org.apache.jackrabbit.core.id.NodeId;
 import org.apache.jackrabbit.core.security.authorization.AbstractCompiledPermissions;
 import org.apache.jackrabbit.core.security.authorization.AccessControlUtils;
+import org.apache.jackrabbit.core.security.principal.PrincipalImpl;
 import org.apache.jackrabbit.spi.Path;
+import org.junit.After;
 import org.junit.Test;
+import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
+import org.pentaho.platform.engine.core.system.StandaloneSession;
 
 import javax.jcr.RepositoryException;
+import java.security.Principal;
 import java.util.Collections;
+import java.util.Set;
 
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Created by nbaker on 5/3/2017.
@@ -71,4 +85,87 @@ public class PentahoCompiledPermissionsImplTest {
 
   }
 
+  @After
+  public void tearDown() {
+    PentahoSessionHolder.removeSession();
+    PentahoCompiledPermissionsImpl.invalidateSharedCache();
+  }
+
+  @Test
+  public void getResultIsSharedBetweenSessionsWithSamePrincipals() throws Exception {
+    PentahoSessionHolder.setSession( new StandaloneSession( "suzy" ) );
+
+    Path path = mock( Path.class );
+    NodeImpl node = mock( NodeImpl.class );
+    when( node.getNodeId() ).thenReturn( new NodeId() );
+    EntryCollector entryCollector = mock( EntryCollector.class );
+    when( entryCollector.collectEntries( any(), any() ) ).thenReturn( Collections.emptyList() );
+
+    PentahoCompiledPermissionsImpl cp1 = createCompiledPermissions( path, node, entryCollector );
+    PentahoCompiledPermissionsImpl cp2 = createCompiledPermissions( path, node, entryCollector );
+    AbstractCompiledPermissions.Result result1 = cp1.getResult( path );
+    AbstractCompiledPermissions.Result result2 = cp2.getResult( path );
+    assertSame( result1, result2 );
+    verify( entryCollector, times( 1 ) ).collectEntries( any(), any() );
+
+    PentahoCompiledPermissionsImpl.invalidateSharedCache();
+    assertNotSame( result1, cp2.getResult( path ) );
+  }
+
+  @Test
+  public void getResultIsNotSharedBetweenRepositories() throws Exception {
+    PentahoSessionHolder.setSession( new StandaloneSession( "suzy" ) );
+
+    Path path = mock( Path.class );
+    NodeImpl node = mock( NodeImpl.class );
+    when( node.getNodeId() ).thenReturn( new NodeId() );
+    EntryCollector entryCollector1 = mock( EntryCollector.class );
+    when( entryCollector1.collectEntries( any(), any() ) ).thenReturn( Collections.emptyList() );
+    EntryCollector entryCollector2 = mock( EntryCollector.class );
+    when( entryCollector2.collectEntries( any(), any() ) ).thenReturn( Collections.emptyList() );
+
+    AbstractCompiledPermissions.Result result1 =
+      createCompiledPermissions( path, node, entryCollector1 ).getResult( path );
+    AbstractCompiledPermissions.Result result2 =
+      createCompiledPermissions( path, node, entryCollector2 ).getResult( path );
+
+    assertNotSame( result1, result2 );
+    verify( entryCollector2, times( 1 ) ).collectEntries( any(), any() );
+  }
+
+  @Test
+  public void getResultChecksUserEntriesOncePerMiss() throws Exception {
+    PentahoSessionHolder.setSession( new StandaloneSession( "suzy" ) );
+
+    Path path = mock( Path.class );
+    NodeImpl node = mock( NodeImpl.class );
+    when( node.getNodeId() ).thenReturn( new NodeId() );
+    EntryCollector entryCollector = mock( EntryCollector.class );
+    when( entryCollector.collectEntries( any(), any() ) ).thenReturn( Collections.emptyList() );
+
+    createCompiledPermissions( path, node, entryCollector, Collections.singleton( new PrincipalImpl( "suzy" ) ) )
+      .getResult( path );
+
+    // one lookup of the user entries, one to build the result
+    verify( entryCollector, times( 2 ) ).collectEntries( any(), any() );
+  }
+
+  private PentahoCompiledPermissionsImpl createCompiledPermissions( Path path, NodeImpl node,
+                                                                    EntryCollector entryCollector ) throws Exception {
+    return createCompiledPermissions( path, node, entryCollector, Collections.emptySet() );
+  }
+
+  private PentahoCompiledPermissionsImpl createCompiledPermissions( Path path, NodeImpl node,
+                                                                    EntryCollector entryCollector,
+                                                                    Set<Principal> principals ) throws Exception {
+    ItemManager itemManager = mock( ItemManager.class );
+    when( itemManager.getNode( path ) ).thenReturn( node );
+    SessionImpl session = mock( SessionImpl.class );
+    when( session.getItemManager() ).thenReturn( itemManager );
+    when( session.getJCRPath( path ) ).thenReturn( "/public/report.prpt" );
+
+    return new PentahoCompiledPermissionsImpl( principals, session, entryCollector,
+      mock( AccessControlUtils.class ), false );
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.repository2.unified.jcr;
+
+import org.apache.jackrabbit.core.security.authorization.acl.CachingPentahoEntryCollector;
+import org.apache.jackrabbit.core.security.authorization.acl.PentahoCompiledPermissionsImpl;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.pentaho.platform.api.repository2.unified.RepositoryFileAcl;
+import org.pentaho.platform.api.repository2.unified.RepositoryFileSid;
+import org.springframework.extensions.jcr.JcrCallback;
+import org.springframework.extensions.jcr.JcrTemplate;
+
+import javax.jcr.Node;
+import javax.jcr.Session;
+import javax.jcr.security.AccessControlEntry;
+import javax.jcr.security.AccessControlList;
+import javax.jcr.security.AccessControlManager;
+import javax.jcr.security.AccessControlPolicyIterator;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JcrRepositoryFileAclDaoTest {
+
+  @Test
+  public void testUpdateAclInvalidatesSharedAclCaches() throws Exception {
+    Session session = mock( Session.class, RETURNS_DEEP_STUBS );
+    Node node = mock( Node.class );
+    when( node.getPath() ).thenReturn( "/public/file" );
+    when( session.getNodeByIdentifier( "fileId" ) ).thenReturn( node );
+    AccessControlList acList = mock( AccessControlList.class );
+    when( acList.getAccessControlEntries() ).thenReturn( new AccessControlEntry[ 0 ] );
+    AccessControlPolicyIterator policies = mock( AccessControlPolicyIterator.class );
+    when( policies.hasNext() ).thenReturn( true );
+    when( policies.nextAccessControlPolicy() ).thenReturn( acList );
+    AccessControlManager acMgr = mock( AccessControlManager.class );
+    when( acMgr.getApplicablePolicies( "/public/file" ) ).thenReturn( policies );
+    when( session.getAccessControlManager() ).thenReturn( acMgr );
+
+    // run the update callback against the session, but not the one reading the updated ACL back
+    JcrTemplate jcrTemplate = mock( JcrTemplate.class );
+    when( jcrTemplate.execute( any( JcrCallback.class ) ) )
+      .thenAnswer( invocation -> ( (JcrCallback) invocation.getArgument( 0 ) ).doInJcr( session ) )
+      .thenReturn( null );
+
+    RepositoryFileAcl acl =
+      new RepositoryFileAcl.Builder( "fileId", new RepositoryFileSid( "admin" ) ).entriesInheriting( true ).build();
+
+    try ( MockedStatic<JcrRepositoryFileUtils> fileUtils = mockStatic( JcrRepositoryFileUtils.class );
+          MockedStatic<JcrRepositoryFileAclUtils> aclUtils = mockStatic( JcrRepositoryFileAclUtils.class );
+          MockedStatic<CachingPentahoEntryCollector> entryCollector =
+            mockStatic( CachingPentahoEntryCollector.class );
+          MockedStatic<PentahoCompiledPermissionsImpl> compiledPermissions =
+            mockStatic( PentahoCompiledPermissionsImpl.class ) ) {
+      new JcrRepositoryFileAclDao( jcrTemplate, null, "Administrator" ).updateAcl( acl );
+
+      verify( acMgr ).setPolicy( "/public/file", acList );
+      entryCollector.verify( CachingPentahoEntryCollector::invalidateSharedEntries );
+      compiledPermissions.verify( PentahoCompiledPermissionsImpl::invalidateSharedCache );
+    }
+  }
+}
@@ -13,20 +13,28 @@
 
 package org.pentaho.platform.repository2.unified.jcr;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.jcr.AccessDeniedException;
 import javax.jcr.Node;
@@ -39,6 +47,7 @@ import javax.jcr.version.VersionHistory;
 import javax.jcr.version.VersionManager;
 
 import org.apache.commons.lang.mutable.MutableBoolean;
+import org.apache.jackrabbit.commons.iterator.NodeIteratorAdapter;
 import org.apache.jackrabbit.core.VersionManagerImpl;
 import org.junit.Before;
 import org.junit.Rule;
@@ -51,10 +60,12 @@ import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.repository2.unified.IRepositoryAccessVoterManager;
 import org.pentaho.platform.api.repository2.unified.IRepositoryVersionManager;
 import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.api.repository2.unified.RepositoryFileAcl;
 import org.pentaho.platform.api.repository2.unified.RepositoryFileTree;
 import org.pentaho.platform.api.repository2.unified.RepositoryRequest;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.springframework.test.util.ReflectionTestUtils;
 
 
 /**
@@ -293,4 +304,85 @@ public class JcrRepositoryFileUtilsTest {
       }
     }
   }
+
+  @Test
+  public void testGetTreeConvertsAndChecksEachNodeOnce() throws Exception {
+    int folderCount = 20;
+    int filesPerFolder = 25;
+
+    when( pJcrConstMock.getNT_FROZENNODE() ).thenReturn( "nt:frozenNode" );
+    when( pJcrConstMock.getPHO_NT_PENTAHOFOLDER() ).thenReturn( "pho_nt:pentahoFolder" );
+    when( pJcrConstMock.getPHO_NT_PENTAHOFILE() ).thenReturn( "pho_nt:pentahoFile" );
+
+    Map<Node, RepositoryFileProxy> treeFiles = new HashMap<>();
+    List<Node> reportNodes = new ArrayList<>();
+    List<Node> otherNodes = new ArrayList<>();
+    List<Node> folderNodes = new ArrayList<>();
+    for ( int i = 0; i < folderCount; i++ ) {
+      List<Node> files = new ArrayList<>();
+      for ( int j = 0; j < filesPerFolder; j++ ) {
+        Node fileNode = mockTreeNode( j % 2 == 0 ? "report" + j + ".prpt" : "data" + j + ".csv", false,
+          new ArrayList<>(), treeFiles );
+        ( j % 2 == 0 ? reportNodes : otherNodes ).add( fileNode );
+        files.add( fileNode );
+      }
+      folderNodes.add( mockTreeNode( "folder" + i, true, files, treeFiles ) );
+    }
+    Node rootNode = mockTreeNode( "public", true, folderNodes, treeFiles );
+    when( sessionMock.getItem( any() ) ).thenReturn( rootNode );
+    when( rootNode.isNode() ).thenReturn( true );
+    when( sessionMock.getRootNode() ).thenReturn( mock( Node.class ) );
+
+    RepositoryFileProxyFactory proxyFactory = mock( RepositoryFileProxyFactory.class );
+    when( proxyFactory.getProxy( any(), any() ) )
+      .thenAnswer( invocation -> treeFiles.get( invocation.getArgument( 0 ) ) );
+
+    IRepositoryAccessVoterManager accessVoterManager = mock( IRepositoryAccessVoterManager.class );
+    when( accessVoterManager.hasAccess( any(), any(), any(), any() ) ).thenReturn( true );
+
+    ReflectionTestUtils.setField( JcrRepositoryFileUtils.class, "fileProxyFactory", proxyFactory );
+    try ( MockedStatic<JcrRepositoryFileAclUtils> aclUtils = mockStatic( JcrRepositoryFileAclUtils.class ) ) {
+      aclUtils.when( () -> JcrRepositoryFileAclUtils.getAcl( any(), any(), any() ) )
+        .thenReturn( mock( RepositoryFileAcl.class ) );
+
+      RepositoryFileTree tree = JcrRepositoryFileUtils.getTree( sessionMock, pJcrConstMock,
+        new DefaultPathConversionHelper(), mock( ILockHelper.class ), "/public",
+        new RepositoryRequest( "/public", false, -1, "*.prpt" ), accessVoterManager );
+
+      assertEquals( folderCount, tree.getChildren().size() );
+      for ( RepositoryFileTree folderTree : tree.getChildren() ) {
+        assertEquals( ( filesPerFolder + 1 ) / 2, folderTree.getChildren().size() );
+      }
+
+      int visitedNodes = 1 + folderCount + reportNodes.size();
+      aclUtils.verify( () -> JcrRepositoryFileAclUtils.getAcl( any(), any(), any() ), times( visitedNodes ) );
+      verify( accessVoterManager, times( visitedNodes ) ).hasAccess( any(), any(), any(), any() );
+      verify( proxyFactory, times( visitedNodes ) ).getProxy( any(), any() );
+      for ( Node reportNode : reportNodes ) {
+        // files are neither converted twice nor have their child nodes listed
+        verify( proxyFactory, times( 1 ) ).getProxy( eq( reportNode ), any() );
+        verify( reportNode, never() ).getNodes();
+        verify( reportNode, never() ).getNodes( anyString() );
+      }
+      for ( Node otherNode : otherNodes ) {
+        verify( proxyFactory, never() ).getProxy( eq( otherNode ), any() );
+      }
+    } finally {
+      ReflectionTestUtils.setField( JcrRepositoryFileUtils.class, "fileProxyFactory", null );
+    }
+  }
+
+  private Node mockTreeNode( String name, boolean folder, List<Node> children, Map<Node, RepositoryFileProxy> treeFiles )
+    throws RepositoryException {
+    Node node = mock( Node.class );
+    RepositoryFileProxy file = mock( RepositoryFileProxy.class );
+    lenient().when( file.getId() ).thenReturn( treeFiles.size() );
+    treeFiles.put( node, file );
+    lenient().when( node.getName() ).thenReturn( name );
+    lenient().when( node.isNodeType( "pho_nt:pentahoFolder" ) ).thenReturn( folder );
+    lenient().when( node.isNodeType( "pho_nt:pentahoFile" ) ).thenReturn( !folder );
+    lenient().when( node.getNodes() ).thenAnswer( invocation -> new NodeIteratorAdapter( children ) );
+    lenient().when( node.getNodes( anyString() ) ).thenAnswer( invocation -> new NodeIteratorAdapter( children ) );
+    return node;
+  }
 }
@@ -0,0 +1,186 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.repository2.unified.jcr.sejcr;
+
+import org.apache.jackrabbit.core.SessionImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.MockedStatic;
+import org.pentaho.platform.api.engine.IConfiguration;
+import org.pentaho.platform.api.engine.ISystemConfig;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
+
+import javax.jcr.Credentials;
+import javax.jcr.Repository;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GuavaCachePoolPentahoJcrSessionFactoryTest {
+
+  private Repository repository;
+  private SessionImpl session1;
+  private SessionImpl session2;
+  private GuavaCachePoolPentahoJcrSessionFactory factory;
+  private Credentials creds = new SimpleCredentials( "suzy", new char[ 0 ] );
+
+  @Before
+  public void setUp() throws Exception {
+    repository = mock( Repository.class );
+    session1 = mockSession();
+    session2 = mockSession();
+    when( repository.login( any( Credentials.class ), any() ) ).thenReturn( session1, session2 );
+    factory = new GuavaCachePoolPentahoJcrSessionFactory( repository, null );
+  }
+
+  @After
+  public void tearDown() {
+    factory.close();
+  }
+
+  @Test
+  public void nestedCheckoutsShareSessionAndReturnedSessionIsReused() throws Exception {
+    assertSame( session1, factory.getSession( creds ) );
+    assertSame( session1, factory.getSession( creds ) );
+    assertEquals( 1, factory.getActiveSessionCount() );
+
+    GuavaCachePoolPentahoJcrSessionFactory.returnSession( session1 );
+    assertEquals( 1, factory.getActiveSessionCount() );
+    GuavaCachePoolPentahoJcrSessionFactory.returnSession( session1 );
+    assertEquals( 0, factory.getActiveSessionCount() );
+    assertEquals( 1, factory.getIdleSessionCount() );
+
+    assertSame( session1, factory.getSession( creds ) );
+    verify( repository, times( 1 ) ).login( any( Credentials.class ), any() );
+    verify( session1, never() ).logout();
+  }
+
+  @Test
+  public void checkedOutSessionIsNotSharedWithOtherThreads() throws Exception {
+    assertSame( session1, factory.getSession( creds ) );
+
+    Session otherThreadSession = CompletableFuture.supplyAsync( () -> {
+      try {
+        return factory.getSession( creds );
+      } catch ( Exception e ) {
+        throw new IllegalStateException( e );
+      }
+    } ).get();
+
+    assertNotSame( session1, otherThreadSession );
+    assertSame( session2, otherThreadSession );
+    assertEquals( 2, factory.getActiveSessionCount() );
+  }
+
+  @Test
+  public void loggedOutSessionIsDiscardedOnReturn() throws Exception {
+    assertSame( session1, factory.getSession( creds ) );
+    when( session1.isLive() ).thenReturn( false );
+
+    GuavaCachePoolPentahoJcrSessionFactory.returnSession( session1 );
+    assertEquals( 0, factory.getActiveSessionCount() );
+    assertEquals( 0, factory.getIdleSessionCount() );
+
+    assertSame( session2, factory.getSession( creds ) );
+  }
+
+  @Test
+  public void systemUserHasItsOwnLimitAndDoesNotWaitForASession() throws Exception {
+    Credentials adminCreds = new SimpleCredentials( "pentahoRepoAdmin", new char[ 0 ] );
+    when( repository.login( any( Credentials.class ), any() ) ).thenAnswer( invocation -> mockSession() );
+    factory.close();
+
+    try ( MockedStatic<PentahoSystem> pentahoSystem = mockStatic( PentahoSystem.class ) ) {
+      ISystemConfig systemConfig = mock( ISystemConfig.class );
+      IConfiguration configuration = mock( IConfiguration.class );
+      Properties properties = new Properties();
+      properties.setProperty( "session-pool-max-per-user", "1" );
+      properties.setProperty( "session-pool-max-per-system-user", "2" );
+      properties.setProperty( "session-pool-max-wait", "10000" );
+      when( configuration.getProperties() ).thenReturn( properties );
+      when( systemConfig.getConfiguration( "repository" ) ).thenReturn( configuration );
+      pentahoSystem.when( () -> PentahoSystem.get( ISystemConfig.class ) ).thenReturn( systemConfig );
+      pentahoSystem.when( () -> PentahoSystem.get( String.class, "repositoryAdminUsername", null ) )
+        .thenReturn( "pentahoRepoAdmin" );
+
+      factory = new GuavaCachePoolPentahoJcrSessionFactory( repository, null );
+      // the pool of the user is created by the first checkout, while PentahoSystem is mocked
+      factory.getSession( adminCreds );
+    }
+
+    checkoutInNewThread( adminCreds );
+    assertEquals( 2, factory.getActiveSessionCount() );
+
+    long start = System.nanoTime();
+    checkoutInNewThread( adminCreds );
+    assertTrue( System.nanoTime() - start < TimeUnit.SECONDS.toNanos( 5 ) );
+    assertEquals( 2, factory.getActiveSessionCount() );
+    assertEquals( 1, factory.getMetrics().getSnapshot().getWaitTimeoutCount() );
+    assertEquals( 2, factory.getMetrics().getSnapshot().getMaxSessionsPerSystemUser() );
+  }
+
+  @Test
+  public void closeLogsOutIdleSessionsAndUnregistersMetrics() throws Exception {
+    assertSame( session1, factory.getSession( creds ) );
+    GuavaCachePoolPentahoJcrSessionFactory.returnSession( session1 );
+    assertTrue( PentahoJcrSessionPoolMetrics.getAll().contains( factory.getMetrics() ) );
+
+    factory.close();
+
+    verify( session1 ).logout();
+    assertEquals( 0, factory.getIdleSessionCount() );
+    assertFalse( PentahoJcrSessionPoolMetrics.getAll().contains( factory.getMetrics() ) );
+  }
+
+  private Session checkoutInNewThread( Credentials credentials ) throws Exception {
+    return CompletableFuture.supplyAsync( () -> {
+      try {
+        return factory.getSession( credentials );
+      } catch ( Exception e ) {
+        throw new IllegalStateException( e );
+      }
+    }, runnable -> new Thread( runnable ).start() ).get();
+  }
+
+  private SessionImpl mockSession() {
+    SessionImpl session = mock( SessionImpl.class );
+    Map<String, Object> attributes = new HashMap<>();
+    doAnswer( invocation -> attributes.put( invocation.getArgument( 0 ), invocation.getArgument( 1 ) ) )
+      .when( session ).setAttribute( anyString(), any() );
+    when( session.getAttribute( anyString() ) )
+      .thenAnswer( invocation -> attributes.get( invocation.getArgument( 0 ) ) );
+    when( session.isLive() ).thenReturn( true );
+    return session;
+  }
+}